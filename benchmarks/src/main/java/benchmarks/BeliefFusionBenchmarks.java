@@ -0,0 +1,511 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.adv.AdvHost;
+import org.cloudbus.cloudsim.core.BenchmarkSupport;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.iotnetsim.IoTDatacenter;
+import org.cloudbus.iotnetsim.IoTNodePower;
+import org.cloudbus.iotnetsim.IoTNodePowerType;
+import org.cloudbus.iotnetsim.IoTNodeType;
+import org.cloudbus.iotnetsim.Location;
+import org.cloudbus.iotnetsim.iot.nodes.GatewayNode;
+import org.cloudbus.iotnetsim.iot.nodes.LinkNode;
+import org.cloudbus.iotnetsim.iot.nodes.SensorNode;
+import org.cloudbus.iotnetsim.iot.nodes.SensorReading;
+import org.cloudbus.iotnetsim.iot.nodes.SensorType;
+import org.cloudbus.iotnetsim.network.NetConnection;
+import org.cloudbus.iotnetsim.network.NetConnectionType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import configurations.ExperimentsConfigurations;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * JMH benchmarks of the semantic-based belief network construction (SBNCA).
+ *
+ * aggregateData* drive GatewayNode.aggregateData directly: an operation is a batch of synthetic readings,
+ * one per sensor, received and aggregated by the gateway, and the belief updates delivered to the sensors.
+ * The sensors have the same location within a semantic. aggregateDataSensors sweeps the no. of sensors per semantic,
+ * aggregateDataSemantics the no. of semantics and aggregateDataHistory the length of the history kept by the gateway,
+ * the other two being set to their base value:
+ * the gateway aggregates the readings of the history before it is measured,
+ * and is rolled back to its saved state every WINDOW batches, so that its history stays the same.
+ *
+ * naturalEnvTestbeds is the end-to-end benchmark: an operation builds N testbeds like NaturalEnvIoT_scalabilityEval_exp
+ * (without the cloud workload) and runs the simulation.
+ *
+ * Besides the time per operation, the benchmarks report in secondary results (see Readings and ReadingCosts)
+ * the time and the allocation per reading, and the heap retained per sensor:
+ * by the sensors and the gateway with its history, or by the nodes of the testbeds at the end of the simulation.
+ *
+ * The gateways record the data of the sensors in a temporary directory.
+ * The datasets are read from the folder given by the system property "datasets", by default experiments/datasets.
+ *
+ * Usage: java -cp benchmarks/target/benchmarks.jar:$HOME/Downloads/cloudsim-4.0/jars/cloudsim-4.0.jar
+ *     org.openjdk.jmh.Main BeliefFusionBenchmarks -rf json -rff belief-fusion.json
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class BeliefFusionBenchmarks {
+
+	//the no. of sensors per semantic, semantics and history length of the sweeps of the other parameters
+	private static final int BASE_SENSORS = 4;
+	private static final int BASE_SEMANTICS = 4;
+	private static final int BASE_HISTORY = 64;
+
+	//no. of batches aggregated before the gateway is rolled back to its history
+	private static final int WINDOW = 64;
+
+	static {
+		Log.disable();
+	}
+
+	@Benchmark
+	public long aggregateDataSensors(SensorsSweep gateway, Readings readings, ReadingCosts costs) {
+		return gateway.aggregate(readings, costs);
+	}
+
+	@Benchmark
+	public long aggregateDataSemantics(SemanticsSweep gateway, Readings readings, ReadingCosts costs) {
+		return gateway.aggregate(readings, costs);
+	}
+
+	@Benchmark
+	public long aggregateDataHistory(HistorySweep gateway, Readings readings, ReadingCosts costs) {
+		return gateway.aggregate(readings, costs);
+	}
+
+	@Benchmark
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public double naturalEnvTestbeds(Testbeds testbeds, Readings readings, ReadingCosts costs) {
+		double clock = testbeds.simulate();
+		readings.readings += testbeds.readings;
+		costs.add(testbeds.readings, testbeds.retainedHeapPerSensor);
+		return clock;
+	}
+
+	/**
+	 * A gateway and its sensors, bound to the simulation of the benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public abstract static class Gateway {
+
+		private File recordsFolder;
+		private GatewayNode gateway;
+		private List<SensorNode> sensors;
+		private Object historyState;
+		private int dataIndex;
+		private double retainedHeapPerSensor;
+
+		abstract int getSensorsPerSemantic();
+
+		abstract int getSemantics();
+
+		abstract int getHistory();
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			recordsFolder = Files.createTempDirectory("sbnca").toFile();
+			CloudSim.init(1, Calendar.getInstance(), false);
+			ExperimentsConfigurations.setOutputDir(recordsFolder.getPath());
+
+			long heapBefore = usedHeap();
+			gateway = new GatewayNode(
+					"GatewayNode",
+					new Location(200*100, 200*100, 0),
+					IoTNodeType.GATEWAY_Node,
+					new NetConnection("conn_3G", new NetConnectionType(), 100.00),
+					new IoTNodePower(IoTNodePowerType.CONTINUOUS_POWER, true, false, true, 100.00, 0.00, 0.00),
+					-1,
+					ExperimentsConfigurations.READING_INTERVAL[0],
+					ExperimentsConfigurations.READING_INTERVAL[0]);
+
+			sensors = new ArrayList<SensorNode>();
+			for (int k = 1; k <= getSemantics(); k++) {
+				for (int s = 1; s <= getSensorsPerSemantic(); s++) {
+					//the sensors of a semantic have the same type and location
+					sensors.add(new SensorNode(
+							"Sensor_" + k + "_" + s,
+							new Location(400+k*100, 400+k*100, 0),
+							IoTNodeType.SENSOR,
+							new NetConnection("conn_shortRadio"+s, new NetConnectionType(), 100.00),
+							new IoTNodePower(IoTNodePowerType.BATTERY, false, true, false, 100, 0.1, 10.00),
+							"GatewayNode",
+							SensorType.AIR_Temperature_SENSOR,
+							ExperimentsConfigurations.READING_INTERVAL[0],
+							null));
+				}
+			}
+			BenchmarkSupport.setRunning();
+
+			dataIndex = 0;
+			for (int i = 0; i < getHistory(); i++) {
+				aggregate(null, null);
+			}
+			retainedHeapPerSensor = (double) (usedHeap() - heapBefore) / sensors.size();
+			historyState = gateway.saveState();
+		}
+
+		/**
+		 * Receives and aggregates a batch of readings, one per sensor.
+		 *
+		 * @param readings the counter of the readings, if any
+		 * @param costs the costs of the readings, if any
+		 * @return the no. of readings
+		 */
+		long aggregate(Readings readings, ReadingCosts costs) {
+			if (historyState != null && dataIndex == getHistory() + WINDOW) {
+				gateway.restoreState(historyState);
+				dataIndex = getHistory();
+			}
+			dataIndex++;
+
+			//the readings are created as the sensors do
+			ArrayList<SensorReading> batch = new ArrayList<SensorReading>(sensors.size());
+			for (int j = 0; j < sensors.size(); j++) {
+				SensorNode sensor = sensors.get(j);
+				double realData = 10 + j / getSensorsPerSemantic() + (dataIndex % 24) * 0.5;
+				double readingData = realData + ((j * 31 + dataIndex * 17) % 11 - 5) * 0.1;
+				batch.add(new SensorReading(sensor.getId(), dataIndex / 24 + 1, dataIndex % 24, CloudSim.clock(),
+						readingData, 0.9, sensor.getSensorType() + "@" + sensor.getLocation(), realData, dataIndex));
+			}
+			gateway.receiveAndStoreData(BenchmarkSupport.newEvent(gateway.getId(), gateway.getId(),
+					CloudSimTags.IOT_GATEWAY_RECEIVE_DATA_EVENT, batch));
+			gateway.aggregateData();
+
+			//deliver the belief updates to the sensors
+			CloudSim.runClockTick();
+			if (readings != null) {
+				readings.readings += batch.size();
+				costs.add(batch.size(), retainedHeapPerSensor);
+			}
+			return batch.size();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			gateway = null;
+			sensors = null;
+			historyState = null;
+			deleteFolder(recordsFolder);
+		}
+	}
+
+	/**
+	 * A gateway sweeping the no. of sensors per semantic.
+	 */
+	public static class SensorsSweep extends Gateway {
+
+		@Param({"1", "4", "16", "64"})
+		public int sensorsPerSemantic;
+
+		@Override
+		int getSensorsPerSemantic() {
+			return sensorsPerSemantic;
+		}
+
+		@Override
+		int getSemantics() {
+			return BASE_SEMANTICS;
+		}
+
+		@Override
+		int getHistory() {
+			return BASE_HISTORY;
+		}
+	}
+
+	/**
+	 * A gateway sweeping the no. of semantics.
+	 */
+	public static class SemanticsSweep extends Gateway {
+
+		@Param({"1", "4", "16", "64"})
+		public int semantics;
+
+		@Override
+		int getSensorsPerSemantic() {
+			return BASE_SENSORS;
+		}
+
+		@Override
+		int getSemantics() {
+			return semantics;
+		}
+
+		@Override
+		int getHistory() {
+			return BASE_HISTORY;
+		}
+	}
+
+	/**
+	 * A gateway sweeping the length of its history.
+	 */
+	public static class HistorySweep extends Gateway {
+
+		@Param({"8", "64", "512", "4096"})
+		public int history;
+
+		@Override
+		int getSensorsPerSemantic() {
+			return BASE_SENSORS;
+		}
+
+		@Override
+		int getSemantics() {
+			return BASE_SEMANTICS;
+		}
+
+		@Override
+		int getHistory() {
+			return history;
+		}
+	}
+
+	/**
+	 * The testbeds of NaturalEnvIoT_scalabilityEval_exp.
+	 */
+	@State(Scope.Thread)
+	public static class Testbeds {
+
+		@Param({"1", "10", "50"})
+		public int testbeds;
+
+		@Param({"1"})
+		public int months;
+
+		private final double readingInterval = ExperimentsConfigurations.READING_INTERVAL[0];
+		private final String datasetsFolder = System.getProperty("datasets",
+				System.getProperty("user.dir") + "/experiments/datasets/");
+		private File recordsFolder;
+		private long readings;												//the readings sent by the sensors in a simulation
+		private double retainedHeapPerSensor;
+		private List<SimEntity> nodes = new ArrayList<SimEntity>();		//the nodes of the testbeds of the last simulation
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			recordsFolder = Files.createTempDirectory("sbnca").toFile();
+
+			long heapBefore = usedHeap();
+			simulate();
+
+			//the readings sent by the sensors, from the readings they have consumed
+			int readingsPerDay = (int) (24/(readingInterval/60/60));
+			int sensors = 0;
+			readings = 0;
+			for (SimEntity entity : nodes) {
+				if (entity instanceof SensorNode) {
+					SensorNode sensor = (SensorNode) entity;
+					readings += (long) (sensor.getCurrentReadingDay() - 1) * readingsPerDay + sensor.getCurrentReadingIndex();
+					sensors++;
+				}
+			}
+			retainedHeapPerSensor = (double) (usedHeap() - heapBefore) / sensors;
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			nodes.clear();
+			deleteFolder(recordsFolder);
+		}
+
+		double simulate() {
+			nodes.clear();
+			CloudSim.init(1, Calendar.getInstance(), false);
+			ExperimentsConfigurations.setNoOfDays(months*30);
+			ExperimentsConfigurations.setOutputDir(recordsFolder.getPath());
+
+			List<AdvHost> hostList = helper.Setup.createAdvHostList(1, 3, 2);
+			IoTDatacenter datacenter0 = helper.Setup.createIoTDatacenter("Datacenter_0", hostList);
+
+			for (int j = 1; j <= testbeds; j++) {
+				createTestbed(datacenter0);
+			}
+			return CloudSim.startSimulation();
+		}
+
+		private void createTestbed(IoTDatacenter datacenter) {
+			//create GatewayNode
+			nodes.add(new GatewayNode(
+					"GatewayNode",
+					new Location(200*100, 200*100, 0),
+					IoTNodeType.GATEWAY_Node,
+					new NetConnection("conn_3G", new NetConnectionType(), 100.00),
+					new IoTNodePower(IoTNodePowerType.CONTINUOUS_POWER, true, false, true, 100.00, 0.00, 0.00),
+					datacenter.getId(),
+					readingInterval+CloudSim.getMinTimeBetweenEvents()*3,
+					readingInterval+CloudSim.getMinTimeBetweenEvents()*3));
+
+			//create LinkNode
+			nodes.add(new LinkNode(
+					"RelayNode",
+					new Location(300*100, 300*100, 0),
+					IoTNodeType.LINK_NODE,
+					new NetConnection("conn_longRadio", new NetConnectionType(), 100.00),
+					new IoTNodePower(IoTNodePowerType.USB_CAHRGING, true, false, true, 100.00, 0.00, 0.00),
+					"GatewayNode",
+					readingInterval+CloudSim.getMinTimeBetweenEvents()*2));
+
+			//create Sensors
+			for (int s=1; s<=3; s++) {
+				nodes.add(new SensorNode(
+						"TempSensor"+s,
+						new Location(400+s*100, 400+s*100, 0),
+						IoTNodeType.SENSOR,
+						new NetConnection("conn_shortRadio"+s, new NetConnectionType(), 100.00),
+						new IoTNodePower(IoTNodePowerType.BATTERY, false, true, false, 100, 0.1, 10.00),
+						"RelayNode",
+						SensorType.AIR_Temperature_SENSOR,
+						readingInterval,
+						datasetsFolder+"ukcp09_mean-temperature_360month.csv"));
+			}
+			for (int s=1; s<=3; s++) {
+				nodes.add(new SensorNode(
+						"PercipSensor"+s,
+						new Location(400+s*100, 400+s*100, 0),
+						IoTNodeType.SENSOR,
+						new NetConnection("conn_shortRadio"+s, new NetConnectionType(), 100.00),
+						new IoTNodePower(IoTNodePowerType.BATTERY, false, true, false, 100, 0.1, 10.00),
+						"RelayNode",
+						SensorType.WATER_SurfaceFlow_SENSOR,
+						readingInterval,
+						datasetsFolder+"ukcp09_rainfall_360month.csv"));
+			}
+		}
+	}
+
+	/**
+	 * The no. of readings of an iteration, which JMH reports as the time per reading.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Readings {
+
+		public long readings;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			readings = 0;
+		}
+	}
+
+	/**
+	 * The allocation per reading of an iteration, and the heap retained per sensor.
+	 * JMH sums these events over the measurement iterations, so that each of them reports its share of their mean.
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class ReadingCosts {
+
+		private long readings;
+		private long allocatedBefore;
+		private double retainedHeapPerSensor;
+		private double share;
+
+		@Setup(Level.Iteration)
+		public void start(IterationParams iteration) {
+			share = (iteration.getType() == IterationType.MEASUREMENT) ? 1.0 / iteration.getCount() : 1;
+			readings = 0;
+			allocatedBefore = allocatedBytes();
+		}
+
+		void add(long readings, double retainedHeapPerSensor) {
+			this.readings += readings;
+			this.retainedHeapPerSensor = retainedHeapPerSensor;
+		}
+
+		public double allocationPerReading() {
+			return (readings == 0) ? 0 : share * (allocatedBytes() - allocatedBefore) / readings;
+		}
+
+		public double retainedHeapPerSensor() {
+			return share * retainedHeapPerSensor;
+		}
+	}
+
+	/**
+	 * Gets the bytes allocated by the current thread.
+	 */
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(
+				Thread.currentThread().getId());
+	}
+
+	/**
+	 * Gets the heap used once the garbage has been collected, in bytes.
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		//the collections are repeated until the used heap stops decreasing for a few of them
+		for (int stable = 0, i = 0; stable < 3 && i < 20; i++) {
+			System.gc();
+			long now = runtime.totalMemory() - runtime.freeMemory();
+			if (now < used) {
+				used = now;
+				stable = 0;
+			} else {
+				stable++;
+			}
+		}
+		return used;
+	}
+
+	private static void deleteFolder(File folder) {
+		File[] files = folder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		folder.delete();
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Gives the benchmarks of the models access to the engine, so that they can call the handlers of
+ * the entities directly: events built outside of the engine, and a simulation which runs without
+ * having started its entities.
+ */
+public class BenchmarkSupport {
+
+	/**
+	 * Creates an event, as if it was delivered by the engine.
+	 *
+	 * @param src the id of the entity which sent the event
+	 * @param dest the id of the entity the event is sent to
+	 * @param tag the tag of the event
+	 * @param data the data of the event
+	 * @return the event
+	 */
+	public static SimEvent newEvent(int src, int dest, int tag, Object data) {
+		return new SimEvent(SimEvent.SEND, CloudSim.clock(), src, dest, tag, data);
+	}
+
+	/**
+	 * Marks the simulation bound to the thread as running, without starting its entities, so that
+	 * the entities can schedule events.
+	 */
+	public static void setRunning() {
+		CloudSim.getContext().running = true;
+	}
+
+}
@@ -0,0 +1,471 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.cloudbus.cloudsim.network.TopologyModel;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH micro benchmarks of the simulation core:
+ * <ul>
+ * <li><tt>futureQueueHold</tt>: the hold model on each {@link FutureQueueType}, a poll of the
+ * first event followed by the addition of an event later in time, the queue keeping its size;
+ * <li><tt>deferredQueueSelect</tt>: {@link SimulationContext#select(int, Predicate)} of the last
+ * event of a mailbox, which is then deferred again;
+ * <li><tt>runClockTickPingPong</tt>: {@link SimulationContext#runClockTick()} on pairs of entities
+ * sending an event back and forth, each tick delivering one event per pair, with the time per
+ * delivered event in the <tt>events</tt> secondary result;
+ * <li><tt>runClockTickIdle</tt>: {@link SimulationContext#runClockTick()} on a pair of entities
+ * playing ping-pong among idle entities, whose number should not change the cost of a tick;
+ * <li><tt>entitySchedule</tt>: {@link SimEntity#schedule(int, double, int)} of an event, polled
+ * from the future queue of a simulation holding a backlog of events;
+ * <li><tt>topologyGetDelay</tt>: {@link TopologyModel#getDelay(int, int)} on a ring of nodes.
+ * </ul>
+ * The class is in the package of the core to reach the queues of a simulation, without running
+ * it. The simulations are bound to the benchmark thread for each iteration only, as JMH may run
+ * the iterations of a trial on different threads.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar:$HOME/Downloads/cloudsim-4.0/jars/cloudsim-4.0.jar \
+ *     org.openjdk.jmh.Main CoreBenchmarks -rf json -rff core.json
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class CoreBenchmarks {
+
+	/** The number of precomputed random values, a power of 2. */
+	private static final int RANDOM_VALUES = 1 << 16;
+
+	/** The tag of the events of the benchmarks. */
+	private static final int TAG = 1;
+
+	static {
+		Log.disable();
+	}
+
+	/**
+	 * Creates a simulation with no entity.
+	 *
+	 * @param type the type of its future queue
+	 * @return the simulation
+	 */
+	private static SimulationContext newContext(FutureQueueType type) {
+		SimulationContext context = new SimulationContext();
+		context.futureQueueType = type;
+		SimulationContext previous = context.enter();
+		try {
+			context.initialize();
+		} finally {
+			context.exit(previous);
+		}
+		return context;
+	}
+
+	/**
+	 * Precomputes exponentially distributed random values, of mean 1.
+	 *
+	 * @return the values
+	 */
+	private static double[] exponentialValues() {
+		Random random = new Random(42);
+		double[] values = new double[RANDOM_VALUES];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = -Math.log(1 - random.nextDouble());
+		}
+		return values;
+	}
+
+	/**
+	 * The hold model on a future queue.
+	 *
+	 * @param state the queue
+	 * @return the tag of the polled event
+	 */
+	@Benchmark
+	public int futureQueueHold(FutureQueueHold state) {
+		SimEvent first = state.future.poll();
+		double time = first.eventTime()
+				+ state.increments[state.next++ & (RANDOM_VALUES - 1)] * state.size;
+		int tag = first.getTag();
+		SimEventPool pool = state.pool;
+		if (pool != null) {
+			pool.release(first);
+			first = pool.acquire(SimEvent.SEND, time, 0, 1, TAG, null);
+			state.future.addEvent(first);
+			pool.release(first);
+		} else {
+			state.future.addEvent(new SimEvent(SimEvent.SEND, time, 0, 1, TAG, null));
+		}
+		return tag;
+	}
+
+	/**
+	 * The selection of the last event deferred to an entity.
+	 *
+	 * @param state the simulation holding the deferred events
+	 * @return the tag of the selected event
+	 */
+	@Benchmark
+	public int deferredQueueSelect(DeferredQueueSelect state) {
+		SimEvent event = state.context.select(1, state.last);
+		// deferred again at the end of the mailbox, to be selected by the next operation
+		state.context.deferred.addEvent(event);
+		return event.getTag();
+	}
+
+	/**
+	 * A clock tick of a simulation of pairs of entities playing ping-pong.
+	 *
+	 * @param state the simulation
+	 * @param counters the counter of the delivered events
+	 * @return whether the simulation ran out of events
+	 */
+	@Benchmark
+	public boolean runClockTickPingPong(PingPong state, DeliveredEvents counters) {
+		counters.events += state.pairs;
+		return state.context.runClockTick();
+	}
+
+	/**
+	 * A clock tick of a simulation of a pair of entities playing ping-pong among idle entities.
+	 *
+	 * @param state the simulation
+	 * @return whether the simulation ran out of events
+	 */
+	@Benchmark
+	public boolean runClockTickIdle(IdlePingPong state) {
+		return state.context.runClockTick();
+	}
+
+	/**
+	 * The scheduling of an event by an entity, the first event of the future queue being polled
+	 * so that the queue keeps its size.
+	 *
+	 * @param state the simulation
+	 * @return the tag of the polled event
+	 */
+	@Benchmark
+	public int entitySchedule(EntitySchedule state) {
+		state.entity.schedule(state.entity.getId(), state.next++ % state.backlog + 1, TAG);
+		SimEvent first = state.context.future.poll();
+		int tag = first.getTag();
+		state.context.releaseEvent(first);
+		return tag;
+	}
+
+	/**
+	 * The delay between two nodes of a ring topology.
+	 *
+	 * @param state the topology
+	 * @return the delay
+	 */
+	@Benchmark
+	public double topologyGetDelay(TopologyDelay state) {
+		int src = state.next++ % state.nodes;
+		return state.topology.getDelay(src, (src * 7 + 3) % state.nodes);
+	}
+
+	/**
+	 * A future queue holding events.
+	 */
+	@State(Scope.Thread)
+	public static class FutureQueueHold {
+
+		/** The type of the queue. */
+		@Param
+		public FutureQueueType queue;
+
+		/** The number of events in the queue. */
+		@Param({ "1000", "100000" })
+		public int size;
+
+		private final double[] increments = exponentialValues();
+		private FutureQueue future;
+		private SimEventPool pool;
+		private int next = 0;
+
+		@Setup
+		public void setup() {
+			future = queue.createQueue();
+			// the event store copies the events, and recycles the ones it returns
+			pool = future instanceof SimEventStore ? ((SimEventStore) future).getEventPool() : null;
+			for (int i = 0; i < size; i++) {
+				double time = increments[i & (RANDOM_VALUES - 1)] * size;
+				future.addEvent(new SimEvent(SimEvent.SEND, time, 0, 1, TAG, null));
+			}
+		}
+	}
+
+	/**
+	 * A simulation holding events deferred to two entities.
+	 */
+	@State(Scope.Thread)
+	public static class DeferredQueueSelect {
+
+		/** The number of events deferred to each entity. */
+		@Param({ "1", "16", "256" })
+		public int mailbox;
+
+		private SimulationContext context;
+		private Predicate last;
+
+		@Setup
+		public void setup() {
+			context = newContext(FutureQueueType.TREE_SET);
+			for (int i = 0; i < mailbox; i++) {
+				// the events of the other entities share the queue
+				context.deferred.addEvent(new SimEvent(SimEvent.SEND, 0, 0, 2, TAG + i, null));
+				context.deferred.addEvent(new SimEvent(SimEvent.SEND, 0, 0, 1, TAG + i, null));
+			}
+			last = new PredicateType(TAG + mailbox - 1);
+		}
+	}
+
+	/**
+	 * A simulation bound to the benchmark thread during the iterations.
+	 */
+	@State(Scope.Thread)
+	public abstract static class BoundContext {
+
+		SimulationContext context;
+		private SimulationContext previous;
+
+		/**
+		 * Creates the simulation, bound to the thread while its entities are created.
+		 */
+		@Setup(Level.Trial)
+		public void setup() {
+			context = newContext(getFutureQueueType());
+			SimulationContext previous = context.enter();
+			try {
+				createEntities();
+			} finally {
+				context.exit(previous);
+			}
+		}
+
+		@Setup(Level.Iteration)
+		public void enter() {
+			previous = context.enter();
+		}
+
+		@TearDown(Level.Iteration)
+		public void exit() {
+			context.exit(previous);
+			previous = null;
+		}
+
+		/**
+		 * Gets the type of the future queue of the simulation.
+		 *
+		 * @return the type
+		 */
+		abstract FutureQueueType getFutureQueueType();
+
+		/**
+		 * Creates the entities of the simulation, and starts it.
+		 */
+		abstract void createEntities();
+	}
+
+	/**
+	 * A simulation of pairs of entities playing ping-pong.
+	 */
+	public static class PingPong extends BoundContext {
+
+		/** The type of the future queue. */
+		@Param
+		public FutureQueueType queue;
+
+		/** The number of pairs of entities. */
+		@Param({ "1", "100", "10000" })
+		public int pairs;
+
+		@Override
+		FutureQueueType getFutureQueueType() {
+			return queue;
+		}
+
+		@Override
+		void createEntities() {
+			for (int i = 0; i < pairs; i++) {
+				Player ping = new Player("Ping_" + i);
+				Player pong = new Player("Pong_" + i);
+				ping.peer = pong.getId();
+				pong.peer = ping.getId();
+				ping.serves = true;
+			}
+			context.runStart();
+		}
+	}
+
+	/**
+	 * A simulation of a pair of entities playing ping-pong, among idle entities which never
+	 * receive an event.
+	 */
+	public static class IdlePingPong extends BoundContext {
+
+		/** The number of idle entities. */
+		@Param({ "0", "1000", "100000" })
+		public int idle;
+
+		@Override
+		FutureQueueType getFutureQueueType() {
+			return FutureQueueType.BINARY_HEAP;
+		}
+
+		@Override
+		void createEntities() {
+			for (int i = 0; i < idle / 2; i++) {
+				new Player("Idle_" + i);
+			}
+			// the players are in the middle of the ids
+			Player ping = new Player("Ping");
+			Player pong = new Player("Pong");
+			ping.peer = pong.getId();
+			pong.peer = ping.getId();
+			ping.serves = true;
+			for (int i = idle / 2; i < idle; i++) {
+				new Player("Idle_" + i);
+			}
+			context.runStart();
+		}
+	}
+
+	/**
+	 * A simulation of an entity scheduling events to itself, whose future queue holds a backlog
+	 * of events.
+	 */
+	public static class EntitySchedule extends BoundContext {
+
+		/** The type of the future queue. */
+		@Param
+		public FutureQueueType queue;
+
+		/** The number of events in the future queue. */
+		@Param({ "1000" })
+		public int backlog;
+
+		private Player entity;
+		private int next = 0;
+
+		@Override
+		FutureQueueType getFutureQueueType() {
+			return queue;
+		}
+
+		@Override
+		void createEntities() {
+			entity = new Player("Scheduler");
+			entity.peer = entity.getId();
+			context.runStart();
+			for (int i = 0; i < backlog; i++) {
+				entity.schedule(entity.getId(), i % backlog + 1, TAG);
+			}
+		}
+	}
+
+	/**
+	 * A ring topology.
+	 */
+	@State(Scope.Thread)
+	public static class TopologyDelay {
+
+		/** The number of nodes of the ring. */
+		@Param({ "16", "64", "128" })
+		public int nodes;
+
+		private TopologyModel topology;
+		private int next = 0;
+
+		@Setup
+		public void setup() {
+			topology = new TopologyModel();
+			for (int i = 0; i < nodes; i++) {
+				topology.addLink(i, (i + 1) % nodes, 1000, 0.01);
+			}
+		}
+	}
+
+	/**
+	 * The number of events delivered by the clock ticks of an iteration, reported by JMH as the
+	 * time per event.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class DeliveredEvents {
+
+		/** The number of delivered events. */
+		public long events;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			events = 0;
+		}
+	}
+
+	/**
+	 * An entity sending back the events it receives.
+	 */
+	private static class Player extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The id of the other entity of the pair. */
+		int peer;
+
+		/** Whether the entity sends the first event. */
+		boolean serves;
+
+		Player(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+			if (serves) {
+				schedule(peer, 1.0, TAG);
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			schedule(peer, 1.0, TAG);
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+}
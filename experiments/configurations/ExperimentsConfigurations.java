@@ -34,11 +34,70 @@ package configurations;
  * 
  */
 
+import java.io.File;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class ExperimentsConfigurations {
 	
 	//for setting the number of days to run the experiment
 	public static int EXP_NO_OF_DAYS = 7;
 
+	//name of the simulation context property overriding EXP_NO_OF_DAYS, for experiments run concurrently in their own contexts
+	public final static String NO_OF_DAYS_PROPERTY = "EXP_NO_OF_DAYS";
+
+	//the number of days to run the experiment in the current simulation context
+	public static int getNoOfDays() {
+		Object noOfDays = CloudSim.getContext().getProperty(NO_OF_DAYS_PROPERTY);
+		return (noOfDays != null) ? ((Integer) noOfDays).intValue() : EXP_NO_OF_DAYS;
+	}
+
+	//sets the number of days to run the experiment in the current simulation context only
+	public static void setNoOfDays(int noOfDays) {
+		CloudSim.getContext().setProperty(NO_OF_DAYS_PROPERTY, Integer.valueOf(noOfDays));
+	}
+
+	//for seeding the noise of the sensor readings: the same seed gives the same readings
+	public static long EXP_NOISE_SEED = 0L;
+
+	//name of the simulation context property overriding EXP_NOISE_SEED
+	public final static String NOISE_SEED_PROPERTY = "EXP_NOISE_SEED";
+
+	//the seed of the noise of the sensor readings in the current simulation context
+	public static long getNoiseSeed() {
+		Object noiseSeed = CloudSim.getContext().getProperty(NOISE_SEED_PROPERTY);
+		return (noiseSeed != null) ? ((Long) noiseSeed).longValue() : EXP_NOISE_SEED;
+	}
+
+	//sets the seed of the noise of the sensor readings in the current simulation context only
+	public static void setNoiseSeed(long noiseSeed) {
+		CloudSim.getContext().setProperty(NOISE_SEED_PROPERTY, Long.valueOf(noiseSeed));
+	}
+
+	//the folder the records of the sensors are written to; empty for the working directory
+	public static String EXP_OUTPUT_DIR = "";
+
+	//name of the simulation context property overriding EXP_OUTPUT_DIR, for experiments run concurrently in their own contexts
+	public final static String OUTPUT_DIR_PROPERTY = "EXP_OUTPUT_DIR";
+
+	//the folder of the records in the current simulation context, with a subfolder per branch of a fork (see CloudSim.forkAt);
+	//the records written before the fork stay in the folder of the simulation forked
+	public static String getOutputDir() {
+		Object outputDir = CloudSim.getContext().getProperty(OUTPUT_DIR_PROPERTY);
+		String dir = (outputDir != null) ? (String) outputDir : EXP_OUTPUT_DIR;
+		Object branch = CloudSim.getContext().getProperty(SimulationContext.BRANCH_PROPERTY);
+		if (branch != null) {
+			dir = dir.isEmpty() ? (String) branch : new File(dir, (String) branch).getPath();
+		}
+		return dir;
+	}
+
+	//sets the folder of the records in the current simulation context only
+	public static void setOutputDir(String outputDir) {
+		CloudSim.getContext().setProperty(OUTPUT_DIR_PROPERTY, outputDir);
+	}
+
 	//variable readingInterval is used to represent the different reading intervals
 	public static double READING_INTERVAL[] = {24*60*60, 12*60*60, 6*60*60, 3*60*60, 60*60/4};			//every no_of_hours*60min*60sec = every x seconds
 
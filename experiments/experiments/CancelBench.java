@@ -0,0 +1,163 @@
+package experiments;
+
+import java.util.Calendar;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueueType;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Cancellation benchmark
+ * measures the cost of cancelling the events of an entity (CloudSim.cancel and CloudSim.cancelAll)
+ * as the number of pending events of the other entities grows.
+ *
+ * An entity keeps a few events of its own pending, as a broker or a datacenter rescheduling its
+ * internal events, and repeatedly sends and cancels one of them,
+ * while another entity keeps the given number of events pending far in the future.
+ * The cost should not depend on the number of pending events, except with the EVENT_STORE queue,
+ * which is not indexed.
+ *
+ * Arguments (all optional):
+ * FutureQueueType, no. of cancellations, max. no. of pending events
+ */
+
+public class CancelBench {
+
+	private static final int TAG_KICK = 1;
+	private static final int TAG_INTERNAL = 2;
+	private static final int TAG_FILLER = 3;
+
+	public static void main(String[] args) {
+
+		//benchmark parameters
+		FutureQueueType exp_queueType = args.length > 0 ? FutureQueueType.valueOf(args[0]) : FutureQueueType.TREE_SET;
+		int exp_no_cancels = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		int exp_max_pending = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+
+		//the engine output is not part of the measurement
+		Log.disable();
+
+		System.out.println("queue;pending_events;cancels;cancel_(ns);cancel_all_(ns)");
+
+		for (int pending = 1000; pending <= exp_max_pending; pending *= 10) {
+			CloudSim.init(1, Calendar.getInstance(), false, exp_queueType);
+
+			new Filler("Filler", pending);
+			Canceller canceller = new Canceller("Canceller", exp_no_cancels);
+
+			CloudSim.terminateSimulation(2.0);
+			CloudSim.startSimulation();
+
+			System.out.println(exp_queueType + ";" + pending + ";" + exp_no_cancels
+					+ ";" + canceller.cancelTime/exp_no_cancels
+					+ ";" + canceller.cancelAllTime/exp_no_cancels);
+		}
+	}
+
+	/**
+	 * An entity keeping events pending far in the future.
+	 */
+	private static class Filler extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		private final int events;
+
+		public Filler(String name, int events) {
+			super(name);
+			this.events = events;
+		}
+
+		@Override
+		public void startEntity() {
+			for (int i = 0; i < events; i++) {
+				schedule(getId(), 1000000 + i, TAG_FILLER);
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+	/**
+	 * An entity sending and cancelling its own internal events.
+	 */
+	private static class Canceller extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		private final int cancels;
+		private long cancelTime;
+		private long cancelAllTime;
+
+		public Canceller(String name, int cancels) {
+			super(name);
+			this.cancels = cancels;
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), 1.0, TAG_KICK);
+			for (int i = 0; i < 10; i++) {
+				schedule(getId(), 500 + i, TAG_INTERNAL);
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() != TAG_KICK) {
+				return;
+			}
+			PredicateType internal = new PredicateType(TAG_INTERNAL);
+
+			//the first cancellation builds the index of the queue, which is not part of the measurement
+			schedule(getId(), 100, TAG_INTERNAL);
+			cancelEvent(internal);
+
+			long startTime = System.nanoTime();
+			for (int i = 0; i < cancels; i++) {
+				schedule(getId(), 100 + i % 1000, TAG_INTERNAL);
+				cancelEvent(internal);
+			}
+			cancelTime = System.nanoTime() - startTime;
+
+			PredicateType internalAll = new PredicateType(TAG_INTERNAL);
+			startTime = System.nanoTime();
+			for (int i = 0; i < cancels; i++) {
+				schedule(getId(), 100 + i % 1000, TAG_INTERNAL);
+				CloudSim.cancelAll(getId(), internalAll);
+			}
+			cancelAllTime = System.nanoTime() - startTime;
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+}
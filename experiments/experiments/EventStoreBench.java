@@ -0,0 +1,178 @@
+package experiments;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Calendar;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueueType;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Event store benchmark
+ * measures the heap allocated and the garbage collections done by the simulation engine
+ * while delivering the periodic messages of many sensors to their gateways,
+ * with the future event queue given by the flag (e.g. TREE_SET or EVENT_STORE).
+ *
+ * The sensors send the same payload object, so that the measure only covers the engine.
+ *
+ * Arguments (all optional):
+ * FutureQueueType, no. of sensors, no. of readings per sensor, no. of runs
+ */
+
+public class EventStoreBench {
+
+	private static final int TAG_READ = 1;
+	private static final int TAG_READING = 2;
+
+	/** the payload sent by all the sensors */
+	private static final Object PAYLOAD = new Object();
+
+	public static void main(String[] args) {
+
+		//benchmark parameters
+		FutureQueueType exp_queueType = args.length > 0 ? FutureQueueType.valueOf(args[0]) : FutureQueueType.EVENT_STORE;
+		int exp_no_sensors = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int exp_no_readings = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		int exp_no_runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		//the engine output is not part of the measurement
+		Log.disable();
+
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		System.out.println("queue;sensors;readings;run;events;simulation_time_(ms);allocated_(MB);allocated_per_event_(bytes);gc_count;gc_time_(ms)");
+
+		for (int run = 1; run <= exp_no_runs; run++) {
+			Runtime.getRuntime().gc();
+
+			CloudSim.init(1, Calendar.getInstance(), false, exp_queueType);
+
+			int gateways = Math.max(1, exp_no_sensors/20);
+			Gateway[] gatewayList = new Gateway[gateways];
+			for (int i = 0; i < gateways; i++) {
+				gatewayList[i] = new Gateway("Gateway" + i);
+			}
+			for (int i = 0; i < exp_no_sensors; i++) {
+				new Sensor("Sensor" + i, gatewayList[i % gateways].getId(), 900 * (1 + i % 3) + (i % 97) * 0.5, exp_no_readings);
+			}
+
+			long gcCount = 0;
+			long gcTime = 0;
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+				gcCount -= gc.getCollectionCount();
+				gcTime -= gc.getCollectionTime();
+			}
+			long allocated = -threadBean.getThreadAllocatedBytes(threadId);
+			long startTime = System.nanoTime();
+
+			CloudSim.startSimulation();
+
+			long finishTime = System.nanoTime();
+			allocated += threadBean.getThreadAllocatedBytes(threadId);
+			for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+				gcCount += gc.getCollectionCount();
+				gcTime += gc.getCollectionTime();
+			}
+
+			long events = 2L * exp_no_sensors * exp_no_readings;
+			System.out.println(exp_queueType + ";" + exp_no_sensors + ";" + exp_no_readings + ";" + run
+					+ ";" + events
+					+ ";" + (finishTime - startTime)/1000000
+					+ ";" + allocated/(1024*1024)
+					+ ";" + allocated/events
+					+ ";" + gcCount
+					+ ";" + gcTime);
+		}
+	}
+
+	/**
+	 * A sensor sending a reading to its gateway periodically.
+	 */
+	private static class Sensor extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		private final int gatewayId;
+		private final double readingInterval;
+		private final int readings;
+		private int readingsSent = 0;
+
+		public Sensor(String name, int gatewayId, double readingInterval, int readings) {
+			super(name);
+			this.gatewayId = gatewayId;
+			this.readingInterval = readingInterval;
+			this.readings = readings;
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), readingInterval, TAG_READ);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == TAG_READ) {
+				readingsSent++;
+				schedule(gatewayId, CloudSim.getMinTimeBetweenEvents(), TAG_READING, PAYLOAD);
+				if (readingsSent < readings) {
+					schedule(getId(), readingInterval, TAG_READ);
+				}
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+	/**
+	 * A gateway receiving the readings of its sensors.
+	 */
+	private static class Gateway extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		private long readingsReceived = 0;
+
+		public Gateway(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == TAG_READING && ev.getData() == PAYLOAD) {
+				readingsReceived++;
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+package experiments;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.adv.AdvHost;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.iotnetsim.IoTDatacenter;
+
+import configurations.ExperimentsConfigurations;
+import helper.Setup;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * NaturalEnvironmentIoT concurrent runs
+ * runs independent simulations of the testbed of NaturalEnvIoT_scalabilityBench
+ * on a pool of threads, each simulation in its own SimulationContext,
+ * e.g. for the replications of an experiment or a parameter sweep.
+ *
+ * Arguments (all optional):
+ * no. of locations, no. of months, reading interval index in ExperimentsConfigurations.READING_INTERVAL,
+ * no. of runs, no. of threads
+ *
+ * Run i simulates (no. of months + i - 1) months, so that the runs differ by their number of days.
+ * Each run writes the records of its sensors to its own folder of the working directory: run1, run2, ...
+ */
+
+public class NaturalEnvIoT_concurrentRuns {
+
+	public static void main(String[] args) throws Exception {
+
+		//experiment parameters
+		final int exp_no_locations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		final int exp_no_months = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		final double exp_readingInterval = ExperimentsConfigurations.READING_INTERVAL[args.length > 2 ? Integer.parseInt(args[2]) : 0];
+		int exp_no_runs = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		int exp_no_threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		String workingDir = System.getProperty("user.dir");
+		final String datasetsFolder = workingDir + "//experiments//datasets//";
+
+		//the output of the runs would be interleaved
+		Log.disable();
+
+		System.out.println("run;locations;months;thread;simulation_clock;simulation_time_(ms)");
+
+		LocalDateTime startTime = java.time.LocalDateTime.now();
+
+		ExecutorService pool = Executors.newFixedThreadPool(exp_no_threads);
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (int run = 1; run <= exp_no_runs; run++) {
+			final int run_no = run;
+			final int run_no_months = exp_no_months + run - 1;
+			results.add(pool.submit(new Callable<String>() {
+
+				@Override
+				public String call() throws Exception {
+					final SimulationContext context = new SimulationContext();
+					return context.call(new Callable<String>() {
+
+						@Override
+						public String call() {
+							LocalDateTime runStartTime = java.time.LocalDateTime.now();
+
+							CloudSim.init(1, Calendar.getInstance(), false);
+							ExperimentsConfigurations.setNoOfDays(run_no_months*30);
+							ExperimentsConfigurations.setOutputDir("run" + run_no);
+
+							List<AdvHost> hostList = Setup.createAdvHostList(1, 3, 2);
+							IoTDatacenter datacenter0 = Setup.createIoTDatacenter("Datacenter_0", hostList);
+
+							for (int j=1; j <= exp_no_locations; j++) {
+								NaturalEnvIoT_scalabilityBench.createTestbed(datacenter0, exp_readingInterval, datasetsFolder);
+							}
+
+							double clock = CloudSim.startSimulation();
+
+							return run_no + ";" + exp_no_locations + ";" + run_no_months + ";" + Thread.currentThread().getName()
+									+ ";" + clock
+									+ ";" + Duration.between(runStartTime, java.time.LocalDateTime.now()).toMillis();
+						}
+					});
+				}
+			}));
+		}
+
+		for (Future<String> result : results) {
+			System.out.println(result.get());
+		}
+		pool.shutdown();
+
+		System.out.println("Total time (ms): " + Duration.between(startTime, java.time.LocalDateTime.now()).toMillis());
+	}
+
+}
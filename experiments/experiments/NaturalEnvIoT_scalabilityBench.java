@@ -0,0 +1,171 @@
+package experiments;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.adv.AdvHost;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.FutureQueueType;
+import org.cloudbus.iotnetsim.GatewayRegionPartitioner;
+import org.cloudbus.iotnetsim.IoTDatacenter;
+import org.cloudbus.iotnetsim.IoTNodePower;
+import org.cloudbus.iotnetsim.IoTNodePowerType;
+import org.cloudbus.iotnetsim.IoTNodeType;
+import org.cloudbus.iotnetsim.Location;
+import org.cloudbus.iotnetsim.iot.nodes.GatewayNode;
+import org.cloudbus.iotnetsim.iot.nodes.LinkNode;
+import org.cloudbus.iotnetsim.iot.nodes.SensorNode;
+import org.cloudbus.iotnetsim.iot.nodes.SensorType;
+import org.cloudbus.iotnetsim.network.NetConnection;
+import org.cloudbus.iotnetsim.network.NetConnectionType;
+
+import configurations.ExperimentsConfigurations;
+import helper.Setup;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * NaturalEnvironmentIoT scalability benchmark
+ * runs the testbed of NaturalEnvIoT_scalabilityEval_exp without the cloud workload,
+ * so that the measured time is the time spent by the simulation engine and the IoT nodes.
+ *
+ * The benchmark is used to compare the engine before and after a change:
+ * run it on both versions with the same arguments and compare the reported times.
+ *
+ * Arguments (all optional):
+ * no. of locations, no. of months, reading interval index in ExperimentsConfigurations.READING_INTERVAL,
+ * no. of runs, FutureQueueType, no. of threads, optimism window (seconds)
+ *
+ * With a no. of threads greater than 0, the simulation runs in parallel,
+ * with one logical process per location (see GatewayRegionPartitioner).
+ * With an optimism window greater than 0 as well, the parallel simulation is optimistic,
+ * and the locations run up to the optimism window ahead of each other.
+ */
+
+public class NaturalEnvIoT_scalabilityBench {
+
+	public static void main(String[] args) {
+
+		//benchmark parameters
+		int exp_no_locations = args.length > 0 ? Integer.parseInt(args[0]) : 279;
+		int exp_no_months = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		double exp_readingInterval = ExperimentsConfigurations.READING_INTERVAL[args.length > 2 ? Integer.parseInt(args[2]) : 0];
+		int exp_no_runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+		FutureQueueType exp_queueType = args.length > 4 ? FutureQueueType.valueOf(args[4]) : FutureQueueType.TREE_SET;
+		int exp_no_threads = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+		double exp_optimismWindow = args.length > 6 ? Double.parseDouble(args[6]) : 0;
+
+		ExperimentsConfigurations.EXP_NO_OF_DAYS = exp_no_months*30;
+
+		String workingDir = System.getProperty("user.dir");
+		String datasetsFolder = workingDir + "//experiments//datasets//";
+
+		//the engine output is not part of the measurement
+		Log.disable();
+
+		System.out.println("locations;months;reading_interval_(hr);queue;threads;run;setup_time_(ms);simulation_time_(ms);used_memory_(MB)");
+
+		for (int run = 1; run <= exp_no_runs; run++) {
+			Runtime.getRuntime().gc();
+			LocalDateTime startTime = java.time.LocalDateTime.now();
+
+			CloudSim.init(1, Calendar.getInstance(), false, exp_queueType);
+
+			List<AdvHost> hostList = new ArrayList<AdvHost>();
+			hostList = Setup.createAdvHostList(1, 3, 2);
+			IoTDatacenter datacenter0 = Setup.createIoTDatacenter("Datacenter_0", hostList);
+
+			for (int j=1; j <= exp_no_locations; j++) {
+				createTestbed(datacenter0, exp_readingInterval, datasetsFolder);
+			}
+
+			LocalDateTime setupTime = java.time.LocalDateTime.now();
+
+			if (exp_no_threads > 0 && exp_optimismWindow > 0) {
+				CloudSim.startOptimisticSimulation(new GatewayRegionPartitioner(), exp_no_threads, exp_optimismWindow);
+			} else if (exp_no_threads > 0) {
+				CloudSim.startSimulation(new GatewayRegionPartitioner(), exp_no_threads);
+			} else {
+				CloudSim.startSimulation();
+			}
+
+			LocalDateTime finishTime = java.time.LocalDateTime.now();
+
+			Runtime runtime = Runtime.getRuntime();
+			long usedMemory = (runtime.totalMemory() - runtime.freeMemory())/(1024*1024);
+
+			System.out.println(exp_no_locations + ";" + exp_no_months + ";" + exp_readingInterval/60/60 + ";" + exp_queueType + ";" + exp_no_threads
+					+ ";" + run
+					+ ";" + Duration.between(startTime, setupTime).toMillis()
+					+ ";" + Duration.between(setupTime, finishTime).toMillis()
+					+ ";" + usedMemory);
+		}
+	}
+
+	static void createTestbed(IoTDatacenter datacenter, double readingInterval, String datasetsFolder) {
+		//create GatewayNode
+		new GatewayNode(
+				"GatewayNode",
+				new Location(200*100, 200*100, 0),
+				IoTNodeType.GATEWAY_Node,
+				new NetConnection("conn_3G", new NetConnectionType(), 100.00),
+				new IoTNodePower(IoTNodePowerType.CONTINUOUS_POWER, true, false, true, 100.00, 0.00, 0.00),
+				datacenter.getId(),
+				readingInterval+CloudSim.getMinTimeBetweenEvents()*3,
+				readingInterval+CloudSim.getMinTimeBetweenEvents()*3);
+
+		//create LinkNode
+		new LinkNode(
+				"RelayNode",
+				new Location(300*100, 300*100, 0),
+				IoTNodeType.LINK_NODE,
+				new NetConnection("conn_longRadio", new NetConnectionType(), 100.00),
+				new IoTNodePower(IoTNodePowerType.USB_CAHRGING, true, false, true, 100.00, 0.00, 0.00),
+				"GatewayNode",
+				readingInterval+CloudSim.getMinTimeBetweenEvents()*2);
+
+		//create Sensors
+		for (int s=1; s<=3; s++) {
+			new SensorNode(
+					"TempSensor"+s,
+					new Location(400+s*100, 400+s*100, 0),
+					IoTNodeType.SENSOR,
+					new NetConnection("conn_shortRadio"+s, new NetConnectionType(), 100.00),
+					new IoTNodePower(IoTNodePowerType.BATTERY, false, true, false, 100, 0.1, 10.00),
+					"RelayNode",
+					SensorType.AIR_Temperature_SENSOR,
+					readingInterval,
+					datasetsFolder+"ukcp09_mean-temperature_360month.csv");
+		}
+		for (int s=1; s<=3; s++) {
+			new SensorNode(
+					"PercipSensor"+s,
+					new Location(400+s*100, 400+s*100, 0),
+					IoTNodeType.SENSOR,
+					new NetConnection("conn_shortRadio"+s, new NetConnectionType(), 100.00),
+					new IoTNodePower(IoTNodePowerType.BATTERY, false, true, false, 100, 0.1, 10.00),
+					"RelayNode",
+					SensorType.WATER_SurfaceFlow_SENSOR,
+					readingInterval,
+					datasetsFolder+"ukcp09_rainfall_360month.csv");
+		}
+	}
+
+}
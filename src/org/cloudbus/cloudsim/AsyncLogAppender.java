@@ -0,0 +1,210 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Writes the messages of the {@link Log} to an output in a background thread. The messages are
+ * kept in a ring buffer ({@link ArrayBlockingQueue}) until the thread writes them, by batches,
+ * through a buffered stream which is flushed whenever the buffer is empty. A thread appending a
+ * message only waits when the buffer is full, so no message is lost unless the output fails.
+ *
+ * @see Log#startAsync(int)
+ */
+class AsyncLogAppender {
+
+	/** The message asking the writer thread to stop. */
+	private static final String STOP = new String("stop");
+
+	/** The ring buffer of the messages. */
+	private final ArrayBlockingQueue<String> buffer;
+
+	/** The output of the messages. */
+	private final OutputStream output;
+
+	/** The thread writing the messages. */
+	private final Thread writer;
+
+	/** The hook writing the pending messages when the JVM exits. */
+	private final Thread shutdownHook;
+
+	/** The number of messages appended. */
+	private long appended = 0;
+
+	/** The number of messages written, or dropped because the output failed. */
+	private long written = 0;
+
+	/** Whether the writing of a message has failed, which is reported only once. */
+	private boolean failed = false;
+
+	/**
+	 * Creates an appender, and starts its thread.
+	 *
+	 * @param output the output of the messages
+	 * @param capacity the number of messages of the ring buffer
+	 */
+	AsyncLogAppender(OutputStream output, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity of the log buffer must be positive.");
+		}
+		this.output = output;
+		buffer = new ArrayBlockingQueue<String>(capacity);
+		writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				writeMessages();
+			}
+		}, "CloudSim log");
+		writer.setDaemon(true);
+		writer.start();
+		shutdownHook = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				stop();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Appends a message, waiting if the buffer is full.
+	 *
+	 * @param message the message
+	 */
+	void append(String message) {
+		synchronized (this) {
+			appended++;
+		}
+		put(message);
+	}
+
+	/**
+	 * Waits until the messages appended so far have been written.
+	 */
+	synchronized void flush() {
+		while (written < appended && writer.isAlive()) {
+			try {
+				wait(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes the pending messages and stops the thread.
+	 */
+	void close() {
+		stop();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// the JVM is exiting
+		}
+	}
+
+	/**
+	 * Asks the thread to stop once it has written the pending messages, and waits for it.
+	 */
+	private void stop() {
+		if (!writer.isAlive()) {
+			return;
+		}
+		put(STOP);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Puts a message in the buffer, waiting if it is full.
+	 *
+	 * @param message the message
+	 */
+	private void put(String message) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				buffer.put(message);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes the messages of the buffer until it is asked to stop. The messages of a batch whose
+	 * writing fails are dropped, so that {@link #flush()} does not wait for them.
+	 */
+	private void writeMessages() {
+		OutputStream out = new BufferedOutputStream(output, 1 << 16);
+		List<String> batch = new ArrayList<String>();
+		boolean stopped = false;
+		while (!stopped) {
+			try {
+				if (buffer.drainTo(batch) == 0) {
+					out.flush();
+					batch.add(buffer.take());
+				}
+				for (int i = 0; i < batch.size(); i++) {
+					String message = batch.get(i);
+					if (message == STOP) {
+						// the messages appended while the appender was being stopped are written too
+						stopped = true;
+						buffer.drainTo(batch);
+						continue;
+					}
+					out.write(message.getBytes(StandardCharsets.UTF_8));
+				}
+				if (stopped || buffer.isEmpty()) {
+					out.flush();
+				}
+			} catch (InterruptedException e) {
+				// only stopped by the stop message
+			} catch (IOException e) {
+				if (!failed) {
+					failed = true;
+					System.err.println("Error in writing the log, its messages are dropped: " + e);
+				}
+				if (batch.contains(STOP)) {
+					stopped = true;
+					buffer.drainTo(batch);
+				}
+			}
+			int count = 0;
+			for (String message : batch) {
+				if (message != STOP) {
+					count++;
+				}
+			}
+			batch.clear();
+			synchronized (this) {
+				written += count;
+				notifyAll();
+			}
+		}
+	}
+
+}
@@ -36,6 +36,9 @@ import helper.Constants;
  */
 public class Datacenter extends SimEntity {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The characteristics. */
 	private DatacenterCharacteristics characteristics;
 
@@ -32,6 +32,9 @@ import org.cloudbus.cloudsim.lists.adv.ServiceRequestList;
  */
 public class DatacenterBroker extends SimEntity {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The vm list. */
 	protected List<? extends Vm> vmList;
 
@@ -10,16 +10,41 @@ package org.cloudbus.cloudsim;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.function.Supplier;
 
 /**
  * The Log class used for performing loggin of the simulation process. It provides the ability to
  * substitute the output stream by any OutputStream subclass.
+ * <p>
+ * The messages have a {@link Level level}, and only the messages of the level set by
+ * {@link #setLevel(Level)} and above are printed; the print methods print at the
+ * {@link Level#INFO INFO} level. The leveled methods take a pattern whose <tt>{}</tt> are replaced
+ * by their arguments, or a supplier of the message, so that no message is built when it is not
+ * printed. The messages can be written by a background thread (see {@link #startAsync(int)}).
  * 
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
  */
 public class Log {
 
+	/**
+	 * The levels of the messages, from the least to the most important.
+	 */
+	public enum Level {
+
+		/** The messages about each step of the entities. */
+		DEBUG,
+
+		/** The messages about the progress of the simulation. */
+		INFO,
+
+		/** The messages about unexpected situations the simulation recovers from. */
+		WARN,
+
+		/** The messages about errors. */
+		ERROR
+	}
+
 	/** The Constant LINE_SEPARATOR. */
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
@@ -29,18 +54,20 @@ public class Log {
 	/** The disable output flag. */
 	private static boolean disabled;
 
+	/** The level of the least important messages printed. */
+	private static Level level = Level.DEBUG;
+
+	/** The appender writing the messages in the background; null if they are written directly. */
+	private static AsyncLogAppender appender;
+
 	/**
 	 * Prints the message.
 	 * 
 	 * @param message the message
 	 */
 	public static void print(String message) {
-		if (!isDisabled()) {
-			try {
-				getOutput().write(message.getBytes());
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		if (isEnabled(Level.INFO)) {
+			write(message);
 		}
 	}
 
@@ -50,8 +77,8 @@ public class Log {
 	 * @param message the message
 	 */
 	public static void print(Object message) {
-		if (!isDisabled()) {
-			print(String.valueOf(message));
+		if (isEnabled(Level.INFO)) {
+			write(String.valueOf(message));
 		}
 	}
 
@@ -61,8 +88,8 @@ public class Log {
 	 * @param message the message
 	 */
 	public static void printLine(String message) {
-		if (!isDisabled()) {
-			print(message + LINE_SEPARATOR);
+		if (isEnabled(Level.INFO)) {
+			write(message + LINE_SEPARATOR);
 		}
 	}
 
@@ -70,8 +97,8 @@ public class Log {
 	 * Prints the empty line.
 	 */
 	public static void printLine() {
-		if (!isDisabled()) {
-			print(LINE_SEPARATOR);
+		if (isEnabled(Level.INFO)) {
+			write(LINE_SEPARATOR);
 		}
 	}
 
@@ -81,8 +108,8 @@ public class Log {
 	 * @param message the message
 	 */
 	public static void printLine(Object message) {
-		if (!isDisabled()) {
-			printLine(String.valueOf(message));
+		if (isEnabled(Level.INFO)) {
+			write(String.valueOf(message) + LINE_SEPARATOR);
 		}
 	}
 
@@ -93,8 +120,8 @@ public class Log {
 	 * @param args the args
 	 */
 	public static void format(String format, Object... args) {
-		if (!isDisabled()) {
-			print(String.format(format, args));
+		if (isEnabled(Level.INFO)) {
+			write(String.format(format, args));
 		}
 	}
 
@@ -105,8 +132,234 @@ public class Log {
 	 * @param args the args
 	 */
 	public static void formatLine(String format, Object... args) {
-		if (!isDisabled()) {
-			printLine(String.format(format, args));
+		if (isEnabled(Level.INFO)) {
+			write(String.format(format, args) + LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Prints a debug line, the <tt>{}</tt> of the pattern being replaced by the argument.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg the argument
+	 */
+	public static void debug(String pattern, Object arg) {
+		if (isEnabled(Level.DEBUG)) {
+			writeLine(pattern, arg);
+		}
+	}
+
+	/**
+	 * Prints a debug line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 */
+	public static void debug(String pattern, Object arg1, Object arg2) {
+		if (isEnabled(Level.DEBUG)) {
+			writeLine(pattern, arg1, arg2);
+		}
+	}
+
+	/**
+	 * Prints a debug line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 * @param arg3 the third argument
+	 */
+	public static void debug(String pattern, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(Level.DEBUG)) {
+			writeLine(pattern, arg1, arg2, arg3);
+		}
+	}
+
+	/**
+	 * Prints a debug line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param args the arguments
+	 */
+	public static void debug(String pattern, Object... args) {
+		if (isEnabled(Level.DEBUG)) {
+			writeLine(pattern, args);
+		}
+	}
+
+	/**
+	 * Prints a debug line built by a supplier.
+	 * 
+	 * @param message the supplier of the message
+	 */
+	public static void debug(Supplier<String> message) {
+		if (isEnabled(Level.DEBUG)) {
+			write(message.get() + LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Prints an info line, the <tt>{}</tt> of the pattern being replaced by the argument.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg the argument
+	 */
+	public static void info(String pattern, Object arg) {
+		if (isEnabled(Level.INFO)) {
+			writeLine(pattern, arg);
+		}
+	}
+
+	/**
+	 * Prints an info line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 */
+	public static void info(String pattern, Object arg1, Object arg2) {
+		if (isEnabled(Level.INFO)) {
+			writeLine(pattern, arg1, arg2);
+		}
+	}
+
+	/**
+	 * Prints an info line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 * @param arg3 the third argument
+	 */
+	public static void info(String pattern, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(Level.INFO)) {
+			writeLine(pattern, arg1, arg2, arg3);
+		}
+	}
+
+	/**
+	 * Prints an info line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param args the arguments
+	 */
+	public static void info(String pattern, Object... args) {
+		if (isEnabled(Level.INFO)) {
+			writeLine(pattern, args);
+		}
+	}
+
+	/**
+	 * Prints an info line built by a supplier.
+	 * 
+	 * @param message the supplier of the message
+	 */
+	public static void info(Supplier<String> message) {
+		if (isEnabled(Level.INFO)) {
+			write(message.get() + LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Prints a warning line, the <tt>{}</tt> of the pattern being replaced by the argument.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg the argument
+	 */
+	public static void warn(String pattern, Object arg) {
+		if (isEnabled(Level.WARN)) {
+			writeLine(pattern, arg);
+		}
+	}
+
+	/**
+	 * Prints a warning line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 */
+	public static void warn(String pattern, Object arg1, Object arg2) {
+		if (isEnabled(Level.WARN)) {
+			writeLine(pattern, arg1, arg2);
+		}
+	}
+
+	/**
+	 * Prints a warning line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 * @param arg3 the third argument
+	 */
+	public static void warn(String pattern, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(Level.WARN)) {
+			writeLine(pattern, arg1, arg2, arg3);
+		}
+	}
+
+	/**
+	 * Prints a warning line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param args the arguments
+	 */
+	public static void warn(String pattern, Object... args) {
+		if (isEnabled(Level.WARN)) {
+			writeLine(pattern, args);
+		}
+	}
+
+	/**
+	 * Prints an error line, the <tt>{}</tt> of the pattern being replaced by the argument.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg the argument
+	 */
+	public static void error(String pattern, Object arg) {
+		if (isEnabled(Level.ERROR)) {
+			writeLine(pattern, arg);
+		}
+	}
+
+	/**
+	 * Prints an error line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 */
+	public static void error(String pattern, Object arg1, Object arg2) {
+		if (isEnabled(Level.ERROR)) {
+			writeLine(pattern, arg1, arg2);
+		}
+	}
+
+	/**
+	 * Prints an error line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param arg1 the first argument
+	 * @param arg2 the second argument
+	 * @param arg3 the third argument
+	 */
+	public static void error(String pattern, Object arg1, Object arg2, Object arg3) {
+		if (isEnabled(Level.ERROR)) {
+			writeLine(pattern, arg1, arg2, arg3);
+		}
+	}
+
+	/**
+	 * Prints an error line, the <tt>{}</tt> of the pattern being replaced by the arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param args the arguments
+	 */
+	public static void error(String pattern, Object... args) {
+		if (isEnabled(Level.ERROR)) {
+			writeLine(pattern, args);
 		}
 	}
 
@@ -163,4 +416,118 @@ public class Log {
 		setDisabled(false);
 	}
 
+	/**
+	 * Sets the level of the least important messages printed.
+	 * 
+	 * @param _level the level
+	 */
+	public static void setLevel(Level _level) {
+		if (_level == null) {
+			throw new IllegalArgumentException("The level can't be null.");
+		}
+		level = _level;
+	}
+
+	/**
+	 * Gets the level of the least important messages printed.
+	 * 
+	 * @return the level
+	 */
+	public static Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Checks if the messages of a level are printed.
+	 * 
+	 * @param _level the level
+	 * @return true if the output is enabled and the level is printed
+	 */
+	public static boolean isEnabled(Level _level) {
+		return !disabled && _level.compareTo(level) >= 0;
+	}
+
+	/**
+	 * Checks if the debug messages are printed, to guard the messages which are costly to build.
+	 * 
+	 * @return true if they are printed
+	 */
+	public static boolean isDebugEnabled() {
+		return isEnabled(Level.DEBUG);
+	}
+
+	/**
+	 * Writes the messages to the output in a background thread, through a ring buffer: the
+	 * entities only wait when the buffer is full. The output is the one set when this method is
+	 * called; the pending messages are written when the JVM exits.
+	 * 
+	 * @param capacity the number of messages of the buffer
+	 * @see #stopAsync()
+	 */
+	public static synchronized void startAsync(int capacity) {
+		stopAsync();
+		appender = new AsyncLogAppender(getOutput(), capacity);
+	}
+
+	/**
+	 * Writes the pending messages, and writes the next ones directly to the output.
+	 */
+	public static synchronized void stopAsync() {
+		AsyncLogAppender previous = appender;
+		if (previous != null) {
+			// the next messages are written directly
+			appender = null;
+			previous.close();
+		}
+	}
+
+	/**
+	 * Waits until the pending messages have been written, if they are written in the background.
+	 */
+	public static void flush() {
+		AsyncLogAppender current = appender;
+		if (current != null) {
+			current.flush();
+		}
+	}
+
+	/**
+	 * Writes a message to the output, or to the appender.
+	 * 
+	 * @param message the message
+	 */
+	private static void write(String message) {
+		AsyncLogAppender current = appender;
+		if (current != null) {
+			current.append(message);
+			return;
+		}
+		try {
+			getOutput().write(message.getBytes());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes a line made of a pattern whose <tt>{}</tt> are replaced by arguments.
+	 * 
+	 * @param pattern the pattern
+	 * @param args the arguments; the extra ones are ignored, and the extra <tt>{}</tt> are kept
+	 */
+	private static void writeLine(String pattern, Object... args) {
+		StringBuilder line = new StringBuilder(pattern.length() + 16 * args.length + LINE_SEPARATOR.length());
+		int start = 0;
+		for (Object arg : args) {
+			int placeholder = pattern.indexOf("{}", start);
+			if (placeholder < 0) {
+				break;
+			}
+			line.append(pattern, start, placeholder).append(arg);
+			start = placeholder + 2;
+		}
+		line.append(pattern, start, pattern.length()).append(LINE_SEPARATOR);
+		write(line.toString());
+	}
+
 }
@@ -34,6 +34,9 @@ import org.cloudbus.cloudsim.lists.VmList;
  */
 
 public class DynamicDatacenterBroker extends DatacenterBroker {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 	
 	
 	public DynamicDatacenterBroker(String name) throws Exception {
@@ -0,0 +1,213 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A future event queue backed by an array-based binary min-heap. Adding and polling events costs
+ * O(log n) without allocating a node per event, as opposed to the {@link TreeSetFutureQueue}.
+ * Removing an arbitrary event costs O(n), since the event has to be located first.
+ *
+ * @see FutureQueue
+ * @see FutureQueueType#BINARY_HEAP
+ */
+public class BinaryHeapFutureQueue implements FutureQueue, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The initial capacity of the heap. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The heap, where the children of the event at index i are at 2i+1 and 2i+2. */
+	private SimEvent[] heap = new SimEvent[INITIAL_CAPACITY];
+
+	/** The number of events in the heap. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The serial of the events added to the head of the queue. */
+	private long firstSerial = Long.MIN_VALUE;
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(firstSerial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = heap[0];
+		removeAt(0);
+		return first;
+	}
+
+	/**
+	 * Returns an iterator to the events of the queue, in no particular order. The iterator works
+	 * on a copy of the heap, so the queue can be modified while iterating.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		final SimEvent[] snapshot = Arrays.copyOf(heap, size);
+		return new Iterator<SimEvent>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < snapshot.length;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next >= snapshot.length) {
+					throw new NoSuchElementException();
+				}
+				return snapshot[next++];
+			}
+
+			@Override
+			public void remove() {
+				if (next == 0) {
+					throw new IllegalStateException();
+				}
+				BinaryHeapFutureQueue.this.remove(snapshot[next - 1]);
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		for (int i = 0; i < size; i++) {
+			if (heap[i] == event) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean modified = false;
+		for (SimEvent event : events) {
+			modified |= remove(event);
+		}
+		return modified;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(heap, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Inserts an event which already has its serial number into the heap.
+	 *
+	 * @param event the event
+	 */
+	private void insert(SimEvent event) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		siftUp(size++, event);
+	}
+
+	/**
+	 * Removes the event at a given position of the heap.
+	 *
+	 * @param i the position
+	 */
+	private void removeAt(int i) {
+		int last = --size;
+		SimEvent moved = heap[last];
+		heap[last] = null;
+		if (i == last) {
+			return;
+		}
+		siftDown(i, moved);
+		if (heap[i] == moved) {
+			siftUp(i, moved);
+		}
+	}
+
+	/**
+	 * Moves an event up from a given position until its parent is not greater than it.
+	 *
+	 * @param i the position
+	 * @param event the event
+	 */
+	private void siftUp(int i, SimEvent event) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			SimEvent p = heap[parent];
+			if (event.compareTo(p) >= 0) {
+				break;
+			}
+			heap[i] = p;
+			i = parent;
+		}
+		heap[i] = event;
+	}
+
+	/**
+	 * Moves an event down from a given position until its children are not less than it.
+	 *
+	 * @param i the position
+	 * @param event the event
+	 */
+	private void siftDown(int i, SimEvent event) {
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			SimEvent c = heap[child];
+			int right = child + 1;
+			if (right < size && c.compareTo(heap[right]) > 0) {
+				child = right;
+				c = heap[child];
+			}
+			if (event.compareTo(c) <= 0) {
+				break;
+			}
+			heap[i] = c;
+			i = child;
+		}
+		heap[i] = event;
+	}
+
+}
@@ -0,0 +1,414 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A future event queue implemented as a calendar queue (R. Brown, "Calendar Queues: A Fast O(1)
+ * Priority Queue Implementation for the Simulation Event Set Problem", CACM 31(10), 1988).
+ * <p>
+ * Time is divided into buckets of a fixed width, and a bucket <tt>b</tt> of the calendar holds
+ * the events whose time falls into the "day" <tt>b</tt>, <tt>b + n</tt>, <tt>b + 2n</tt>, etc.,
+ * where <tt>n</tt> is the number of buckets. The events of a bucket are kept ordered as defined by
+ * {@link SimEvent#compareTo(SimEvent)}, so the next event is found by walking the calendar from
+ * the day of the last event removed. The number of buckets and their width are recomputed as the
+ * queue grows and shrinks, which keeps adding and polling events O(1) amortized.
+ *
+ * @see FutureQueue
+ * @see FutureQueueType#CALENDAR
+ */
+public class CalendarFutureQueue implements FutureQueue, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The minimum number of buckets; always a power of 2. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The initial capacity of a bucket. */
+	private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+	/** The number of events sampled to compute the width of the buckets. */
+	private static final int WIDTH_SAMPLES = 25;
+
+	/** The buckets; the events of bucket i are stored in buckets[i][heads[i]..tails[i]-1]. */
+	private SimEvent[][] buckets;
+
+	/** The index of the first event of each bucket. */
+	private int[] heads;
+
+	/** The index after the last event of each bucket. */
+	private int[] tails;
+
+	/** The mask used to map a day to a bucket. */
+	private int mask;
+
+	/** The width of a bucket, in simulation time. */
+	private double width = 1.0;
+
+	/** The day from which the next event is searched. No event is scheduled before this day. */
+	private long currentDay = 0;
+
+	/** The number of events in the queue. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The serial of the events added to the head of the queue. */
+	private long firstSerial = Long.MIN_VALUE;
+
+	/**
+	 * Creates a new empty calendar queue.
+	 */
+	public CalendarFutureQueue() {
+		allocate(MIN_BUCKETS);
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(firstSerial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		if (size == 0) {
+			return null;
+		}
+		int i = findFirstBucket();
+		return buckets[i][heads[i]];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = pollFirst();
+		if (size < buckets.length / 2 && buckets.length > MIN_BUCKETS) {
+			resize(buckets.length / 2);
+		}
+		return first;
+	}
+
+	/**
+	 * Returns an iterator to the events of the queue, in no particular order. The iterator works
+	 * on a copy of the queue, so the queue can be modified while iterating.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		final SimEvent[] snapshot = toArray();
+		return new Iterator<SimEvent>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < snapshot.length;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next >= snapshot.length) {
+					throw new NoSuchElementException();
+				}
+				return snapshot[next++];
+			}
+
+			@Override
+			public void remove() {
+				if (next == 0) {
+					throw new IllegalStateException();
+				}
+				CalendarFutureQueue.this.remove(snapshot[next - 1]);
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int i = (int) (dayOf(event.eventTime()) & mask);
+		SimEvent[] bucket = buckets[i];
+		int pos = Arrays.binarySearch(bucket, heads[i], tails[i], event);
+		if (pos < 0 || bucket[pos] != event) {
+			return false;
+		}
+		System.arraycopy(bucket, pos + 1, bucket, pos, tails[i] - pos - 1);
+		bucket[--tails[i]] = null;
+		size--;
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean modified = false;
+		for (SimEvent event : events) {
+			modified |= remove(event);
+		}
+		return modified;
+	}
+
+	@Override
+	public void clear() {
+		allocate(MIN_BUCKETS);
+		currentDay = 0;
+		size = 0;
+	}
+
+	/**
+	 * Gets the day of a given time, i.e. the index of the bucket the time would be stored at if
+	 * the calendar had infinitely many buckets.
+	 *
+	 * @param time the time
+	 * @return the day
+	 */
+	private long dayOf(double time) {
+		return (long) (time / width);
+	}
+
+	/**
+	 * Inserts an event which already has its serial number into the queue, resizing the calendar
+	 * if needed.
+	 *
+	 * @param event the event
+	 */
+	private void insert(SimEvent event) {
+		place(event);
+		size++;
+		if (size > buckets.length * 2) {
+			resize(buckets.length * 2);
+		}
+	}
+
+	/**
+	 * Puts an event in its bucket, keeping the bucket ordered. The size of the queue is not
+	 * updated.
+	 *
+	 * @param event the event
+	 */
+	private void place(SimEvent event) {
+		long day = dayOf(event.eventTime());
+		if (size == 0 || day < currentDay) {
+			currentDay = day;
+		}
+
+		int i = (int) (day & mask);
+		SimEvent[] bucket = buckets[i];
+		int head = heads[i];
+		int tail = tails[i];
+
+		// most events are scheduled after the ones already in the bucket
+		if (head == tail || bucket[tail - 1].compareTo(event) < 0) {
+			if (tail == bucket.length) {
+				bucket = compactOrGrow(i);
+				tail = tails[i];
+			}
+			bucket[tail] = event;
+			tails[i] = tail + 1;
+			return;
+		}
+
+		int pos = -Arrays.binarySearch(bucket, head, tail, event) - 1;
+		if (pos == head && head > 0) {
+			bucket[head - 1] = event;
+			heads[i] = head - 1;
+			return;
+		}
+		if (tail == bucket.length) {
+			int shift = heads[i];
+			bucket = compactOrGrow(i);
+			pos -= shift;
+			tail = tails[i];
+		}
+		System.arraycopy(bucket, pos, bucket, pos + 1, tail - pos);
+		bucket[pos] = event;
+		tails[i] = tail + 1;
+	}
+
+	/**
+	 * Makes room at the end of a full bucket, by moving its events to the start of the array or,
+	 * if there is no free room at the start, by growing the array.
+	 *
+	 * @param i the bucket
+	 * @return the array of the bucket
+	 */
+	private SimEvent[] compactOrGrow(int i) {
+		SimEvent[] bucket = buckets[i];
+		int head = heads[i];
+		int count = tails[i] - head;
+		if (head > 0) {
+			System.arraycopy(bucket, head, bucket, 0, count);
+			Arrays.fill(bucket, count, bucket.length, null);
+		} else {
+			bucket = Arrays.copyOf(bucket, bucket.length * 2);
+			buckets[i] = bucket;
+		}
+		heads[i] = 0;
+		tails[i] = count;
+		return bucket;
+	}
+
+	/**
+	 * Finds the bucket holding the first event of the queue, moving the current day forward. The
+	 * queue must not be empty.
+	 *
+	 * @return the bucket
+	 */
+	private int findFirstBucket() {
+		for (int n = 0; n < buckets.length; n++) {
+			int i = (int) (currentDay & mask);
+			if (heads[i] < tails[i] && dayOf(buckets[i][heads[i]].eventTime()) <= currentDay) {
+				return i;
+			}
+			currentDay++;
+		}
+
+		// no event in a whole year of the calendar: search the earliest one directly
+		int first = -1;
+		for (int i = 0; i < buckets.length; i++) {
+			if (heads[i] < tails[i]
+					&& (first == -1 || buckets[i][heads[i]].compareTo(buckets[first][heads[first]]) < 0)) {
+				first = i;
+			}
+		}
+		currentDay = dayOf(buckets[first][heads[first]].eventTime());
+		return first;
+	}
+
+	/**
+	 * Removes and returns the first event of a non empty queue, without resizing the calendar.
+	 *
+	 * @return the first event
+	 */
+	private SimEvent pollFirst() {
+		int i = findFirstBucket();
+		SimEvent first = buckets[i][heads[i]];
+		buckets[i][heads[i]++] = null;
+		if (heads[i] == tails[i]) {
+			heads[i] = 0;
+			tails[i] = 0;
+		}
+		size--;
+		return first;
+	}
+
+	/**
+	 * Rebuilds the calendar with a given number of buckets and a new bucket width.
+	 *
+	 * @param bucketCount the number of buckets, a power of 2
+	 */
+	private void resize(int bucketCount) {
+		double newWidth = computeWidth();
+		SimEvent[] events = toArray();
+
+		allocate(bucketCount);
+		width = newWidth;
+		size = 0;
+		for (SimEvent event : events) {
+			place(event);
+			size++;
+		}
+	}
+
+	/**
+	 * Computes the width of the buckets from the average separation of the first events of the
+	 * queue, ignoring separations much larger than the average, as proposed by Brown.
+	 *
+	 * @return the new width, or the current one if it can't be estimated
+	 */
+	private double computeWidth() {
+		int samples = Math.min(size, WIDTH_SAMPLES);
+		if (samples < 2) {
+			return width;
+		}
+
+		SimEvent[] sampled = new SimEvent[samples];
+		for (int n = 0; n < samples; n++) {
+			sampled[n] = pollFirst();
+		}
+		for (SimEvent event : sampled) {
+			place(event);
+			size++;
+		}
+
+		double average = (sampled[samples - 1].eventTime() - sampled[0].eventTime()) / (samples - 1);
+		double total = 0;
+		int count = 0;
+		for (int n = 1; n < samples; n++) {
+			double separation = sampled[n].eventTime() - sampled[n - 1].eventTime();
+			if (separation > 0 && separation <= 2 * average) {
+				total += separation;
+				count++;
+			}
+		}
+		if (count > 0) {
+			return 3 * total / count;
+		}
+
+		// the first events are simultaneous, use the average separation of the whole queue
+		double min = Double.MAX_VALUE;
+		double max = 0;
+		for (SimEvent event : toArray()) {
+			min = Math.min(min, event.eventTime());
+			max = Math.max(max, event.eventTime());
+		}
+		return max > min ? 3 * (max - min) / size : width;
+	}
+
+	/**
+	 * Allocates empty buckets.
+	 *
+	 * @param bucketCount the number of buckets, a power of 2
+	 */
+	private void allocate(int bucketCount) {
+		buckets = new SimEvent[bucketCount][];
+		for (int i = 0; i < bucketCount; i++) {
+			buckets[i] = new SimEvent[INITIAL_BUCKET_CAPACITY];
+		}
+		heads = new int[bucketCount];
+		tails = new int[bucketCount];
+		mask = bucketCount - 1;
+	}
+
+	/**
+	 * Copies the events of the queue into an array, in no particular order.
+	 *
+	 * @return the events
+	 */
+	private SimEvent[] toArray() {
+		SimEvent[] events = new SimEvent[size];
+		int n = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			int count = tails[i] - heads[i];
+			System.arraycopy(buckets[i], heads[i], events, n, count);
+			n += count;
+		}
+		return events;
+	}
+
+}
@@ -8,16 +8,10 @@
 
 package org.cloudbus.cloudsim.core;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
-import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 import org.cloudbus.cloudsim.core.predicates.PredicateAny;
 import org.cloudbus.cloudsim.core.predicates.PredicateNone;
@@ -29,6 +23,11 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  * network. Later, nodes in such file are mapped to CloudSim entities. Delay calculated from the
  * BRITE model are added to the messages send through CloudSim. Messages using the old model are
  * converted to the apropriate methods with the correct parameters.
+ * <p>
+ * The state of the simulation belongs to a {@link SimulationContext}. The static methods of this
+ * class use the context bound to the current thread (see {@link #setContext(SimulationContext)}),
+ * or the default context if none is bound, so that many simulations can run concurrently in the
+ * same JVM, each in a thread bound to its own context.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -36,64 +35,76 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  */
 public class CloudSim {
 
-	
 	/** The Constant CLOUDSIM_VERSION_STRING. */
 	protected static final String CLOUDSIM_VERSION_STRING = "3.0";
 
-	/** The id of CIS entity. */
-	protected static int cisId = -1;
+	/** The Constant NOT_FOUND. */
+	protected static final int NOT_FOUND = -1;
 
-	/** The id of CloudSimShutdown entity. */
-	@SuppressWarnings("unused")
-	protected static int shutdownId = -1;
+	// The two standard predicates
 
-	/** The CIS object. */
-	protected static CloudInformationService cis = null;
+	/** A standard predicate that matches any event. */
+	public final static PredicateAny SIM_ANY = new PredicateAny();
 
-	/** The Constant NOT_FOUND. */
-	protected static final int NOT_FOUND = -1;
+	/** A standard predicate that does not match any events. */
+	public final static PredicateNone SIM_NONE = new PredicateNone();
 
-	/** The trace flag. */
-	@SuppressWarnings("unused")
-	protected static boolean traceFlag = false;
+	/** The context used by the threads not bound to a context. */
+	private static final SimulationContext defaultContext = new SimulationContext();
 
-	/** The calendar. */
-	protected static Calendar calendar = null;
+	/** The context bound to each thread. */
+	private static final ThreadLocal<SimulationContext> boundContext = new ThreadLocal<SimulationContext>();
 
-	/** The termination time. */
-	protected static double terminateAt = -1;
+	/** Whether a context has ever been bound to a thread; if not, the default context is used. */
+	private static volatile boolean contextsBound = false;
 
-	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
-	protected static double minTimeBetweenEvents = 0.1;
-	
 	/**
-	 * Initialises all the common attributes.
+	 * Gets the context used by the static methods of this class in the current thread: the context
+	 * bound to the thread, or the default context.
 	 * 
-	 * @param _calendar the _calendar
-	 * @param _traceFlag the _trace flag
-	 * @param numUser number of users
-	 * @throws Exception This happens when creating this entity before initialising CloudSim package
-	 *             or this entity name is <tt>null</tt> or empty
-	 * @pre $none
-	 * @post $none
+	 * @return the context
 	 */
-	protected static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
-			throws Exception {
-		initialize();
-		// NOTE: the order for the below 3 lines are important
-		traceFlag = _traceFlag;
+	public static SimulationContext getContext() {
+		if (contextsBound) {
+			SimulationContext context = boundContext.get();
+			if (context != null) {
+				return context;
+			}
+		}
+		return defaultContext;
+	}
 
-		// Set the current Wall clock time as the starting time of
-		// simulation
-		if (_calendar == null) {
-			calendar = Calendar.getInstance();
+	/**
+	 * Binds a context to the current thread, so that the static methods of this class and the
+	 * entities created by the thread use it.
+	 * 
+	 * @param context the context, or null to use the default context
+	 */
+	public static void setContext(SimulationContext context) {
+		if (context == null) {
+			boundContext.remove();
 		} else {
-			calendar = _calendar;
+			contextsBound = true;
+			boundContext.set(context);
 		}
+	}
+
+	/**
+	 * Gets the context used by the threads not bound to a context.
+	 * 
+	 * @return the default context
+	 */
+	public static SimulationContext getDefaultContext() {
+		return defaultContext;
+	}
 
-		// creates a CloudSimShutdown object
-		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-		shutdownId = shutdown.getId();
+	/**
+	 * Gets the context bound to the current thread.
+	 * 
+	 * @return the context, or null if the thread uses the default context
+	 */
+	static SimulationContext getBoundContext() {
+		return contextsBound ? boundContext.get() : null;
 	}
 
 	/**
@@ -118,21 +129,25 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag) {
-		try {
-			initCommonVariable(cal, traceFlag, numUser);
-
-			// create a GIS object
-			cis = new CloudInformationService("CloudInformationService");
-
-			// set all the above entity IDs
-			cisId = cis.getId();
-		} catch (IllegalArgumentException s) {
-			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
-			Log.printLine(s.getMessage());
-		} catch (Exception e) {
-			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
-			Log.printLine(e.getMessage());
-		}
+		getContext().init(numUser, cal, traceFlag);
+	}
+
+	/**
+	 * Initialises CloudSim parameters, using a given implementation of the future event queue. This
+	 * method should be called before creating any entities.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param queueType the type of the future event queue
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @pre queueType != null
+	 * @post $none
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, FutureQueueType queueType) {
+		getContext().init(numUser, cal, traceFlag, queueType);
 	}
 
 	/**
@@ -159,16 +174,29 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
-	    if (periodBetweenEvents <= 0) {
-		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
-	    }
-	    
-	    init(numUser, cal, traceFlag);
-	    minTimeBetweenEvents = periodBetweenEvents;
+		getContext().init(numUser, cal, traceFlag, periodBetweenEvents);
+	}
+
+	/**
+	 * Initialises CloudSim parameters, using a given implementation of the future event queue. This
+	 * method should be called before creating any entities.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events. Events within shorter periods
+	 * after the last event are discarded.
+	 * @param queueType the type of the future event queue
+	 * @see #init(int, Calendar, boolean, double)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents,
+			FutureQueueType queueType) {
+		getContext().init(numUser, cal, traceFlag, periodBetweenEvents, queueType);
 	}
-	
-	
-	
+
 	/**
 	 * Starts the execution of CloudSim simulation. It waits for complete execution of all entities,
 	 * i.e. until all entities threads reach non-RUNNABLE state or there are no more events in the
@@ -184,23 +212,95 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static double startSimulation() throws NullPointerException {
-		Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
-		try {
-			double clock = run();
-
-			// reset all static variables
-			cisId = -1;
-			shutdownId = -1;
-			cis = null;
-			calendar = null;
-			traceFlag = false;
-
-			return clock;
-		} catch (IllegalArgumentException e) {
-			e.printStackTrace();
-			throw new NullPointerException("CloudSim.startCloudSimulation() :"
-					+ " Error - you haven't initialized CloudSim.");
-		}
+		return getContext().startSimulation();
+	}
+
+	/**
+	 * Starts the execution of CloudSim simulation as a conservative parallel simulation, with a
+	 * lookahead equal to the minimum time between events. See
+	 * {@link #startSimulation(EntityPartitioner, int, double)}.
+	 * 
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads running the logical processes
+	 * @return the last clock value
+	 */
+	public static double startSimulation(EntityPartitioner partitioner, int threads) {
+		return getContext().startSimulation(partitioner, threads);
+	}
+
+	/**
+	 * Starts the execution of CloudSim simulation as a conservative parallel simulation. The
+	 * entities are assigned to logical processes by a partitioner, and the logical processes run
+	 * on a pool of threads, synchronised by time windows as long as the lookahead. The lookahead
+	 * must not be longer than the delay of any event sent between entities of different
+	 * partitions, including the latencies of the network topology; an event sent with a shorter
+	 * delay raises an {@link IllegalStateException}.
+	 * <p>
+	 * The entities receive the same events, in the same order and at the same times, as in a
+	 * sequential simulation, as long as the entities of different partitions do not share any
+	 * state. The simulation can't be paused, entities can't be added while it is running, and
+	 * {@link #cancel(int, Predicate)} only sees the events sent to the partition of the entity.
+	 * 
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads running the logical processes
+	 * @param lookahead the lookahead of the simulation
+	 * @return the last clock value
+	 * @see EntityPartitioner
+	 */
+	public static double startSimulation(EntityPartitioner partitioner, int threads, double lookahead) {
+		return getContext().startSimulation(partitioner, threads, lookahead);
+	}
+
+	/**
+	 * Starts the execution of CloudSim simulation as an optimistic parallel simulation, with a
+	 * lookahead equal to the minimum time between events. See
+	 * {@link #startOptimisticSimulation(EntityPartitioner, int, double, double)}.
+	 * 
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads running the logical processes
+	 * @param optimismWindow how far past the global virtual time the logical processes may run
+	 * @return the last clock value
+	 */
+	public static double startOptimisticSimulation(EntityPartitioner partitioner, int threads, double optimismWindow) {
+		return getContext().startOptimisticSimulation(partitioner, threads, optimismWindow);
+	}
+
+	/**
+	 * Starts the execution of CloudSim simulation as an optimistic (Time Warp) parallel simulation.
+	 * The entities are assigned to logical processes by a partitioner, and the logical processes
+	 * run on a pool of threads. The logical processes whose entities all implement
+	 * {@link StateSaving} run ahead of the others, up to the optimism window past the global
+	 * virtual time, and are rolled back when an event arrives in their past; the other logical
+	 * processes run conservatively, as in {@link #startSimulation(EntityPartitioner, int, double)}.
+	 * The lookahead must not be longer than the delay of any event sent between entities of
+	 * different partitions.
+	 * <p>
+	 * The entities receive the same events, in the same order and at the same times, as in a
+	 * sequential simulation, as long as the entities of different partitions do not share any
+	 * state and the state saved by the entities covers all their changes. The entities of the
+	 * optimistic logical processes can't hold, pause, wait or cancel events. The simulation can't
+	 * be paused and entities can't be added while it is running. The statistics of the simulation
+	 * are given by {@link #getTimeWarpStatistics()}.
+	 * 
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads running the logical processes
+	 * @param lookahead the lookahead of the simulation
+	 * @param optimismWindow how far past the global virtual time the logical processes may run
+	 * @return the last clock value
+	 * @see StateSaving
+	 */
+	public static double startOptimisticSimulation(EntityPartitioner partitioner, int threads, double lookahead,
+			double optimismWindow) {
+		return getContext().startOptimisticSimulation(partitioner, threads, lookahead, optimismWindow);
+	}
+
+	/**
+	 * Gets the statistics of the last optimistic parallel simulation.
+	 * 
+	 * @return the statistics, or null if no optimistic simulation has finished
+	 */
+	public static TimeWarpStatistics getTimeWarpStatistics() {
+		return getContext().getTimeWarpStatistics();
 	}
 
 	/**
@@ -216,12 +316,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void stopSimulation() throws NullPointerException {
-		try {
-			runStop();
-		} catch (IllegalArgumentException e) {
-			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
-					+ "Error - can't stop Cloud Simulation.");
-		}
+		getContext().stopSimulation();
 	}
 
 	/**
@@ -230,9 +325,7 @@ public class CloudSim {
 	 * @return true, if successful; false otherwise.
 	 */
 	public static boolean terminateSimulation() {
-		running = false;
-		printMessage("Simulation: Reached termination time.");
-		return true;
+		return getContext().terminateSimulation();
 	}
 
 	/**
@@ -242,21 +335,166 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean terminateSimulation(double time) {
-		if (time <= clock) {
-			return false;
-		} else {
-			terminateAt = time;
-		}
-		return true;
+		return getContext().terminateSimulation(time);
 	}
 
-	
 	/**
 	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded. 
 	 * @return the minimum time between events.
 	 */
 	public static double getMinTimeBetweenEvents() {
-	    return minTimeBetweenEvents;
+		return getContext().getMinTimeBetweenEvents();
+	}
+
+	/**
+	 * Sets the resolution of the integer tick clock, which quantizes the times of the events.
+	 * 
+	 * @param ticksPerTimeUnit the number of ticks per time unit, or 0 not to quantize the times
+	 * @see SimulationContext#setClockResolution(long)
+	 */
+	public static void setClockResolution(long ticksPerTimeUnit) {
+		getContext().setClockResolution(ticksPerTimeUnit);
+	}
+
+	/**
+	 * Gets the resolution of the integer tick clock.
+	 * 
+	 * @return the number of ticks per time unit, or 0 if the times of the events are not quantized
+	 */
+	public static long getClockResolution() {
+		return getContext().getClockResolution();
+	}
+
+	/**
+	 * Gets the current simulation time in ticks of the integer tick clock.
+	 * 
+	 * @return the number of ticks since the start of the simulation
+	 * @throws IllegalStateException if the simulation has no tick clock
+	 */
+	public static long clockTicks() {
+		return getContext().clockTicks();
+	}
+
+	/**
+	 * Sets how many threads run the entities of a clock tick of a sequential simulation.
+	 * 
+	 * @param threads the number of threads, or 1 to run the entities one by one
+	 * @see SimulationContext#setParallelDispatch(int)
+	 */
+	public static void setParallelDispatch(int threads) {
+		getContext().setParallelDispatch(threads);
+	}
+
+	/**
+	 * Sets the telemetry collecting statistics about the engine of the simulation.
+	 * 
+	 * @param telemetry the telemetry, or null to stop collecting statistics
+	 * @see SimulationContext#setTelemetry(EngineTelemetry)
+	 */
+	public static void setTelemetry(EngineTelemetry telemetry) {
+		getContext().setTelemetry(telemetry);
+	}
+
+	/**
+	 * Gets the telemetry collecting statistics about the engine of the simulation.
+	 * 
+	 * @return the telemetry, or null if none is collected
+	 */
+	public static EngineTelemetry getTelemetry() {
+		return getContext().getTelemetry();
+	}
+
+	/**
+	 * Sets the tracer recording the events delivered to the entities of the simulation.
+	 * 
+	 * @param tracer the tracer, or null to stop recording the events
+	 * @see SimulationContext#setTracer(EventTracer)
+	 */
+	public static void setTracer(EventTracer tracer) {
+		getContext().setTracer(tracer);
+	}
+
+	/**
+	 * Gets the tracer recording the events delivered to the entities of the simulation.
+	 * 
+	 * @return the tracer, or null if the events are not recorded
+	 */
+	public static EventTracer getTracer() {
+		return getContext().getTracer();
+	}
+
+	/**
+	 * Schedules a checkpoint of the simulation, written once all the events before a time have been
+	 * processed.
+	 * 
+	 * @param path the checkpoint file
+	 * @param time the time of the checkpoint
+	 * @see SimulationContext#setCheckpoint(String, double)
+	 */
+	public static void setCheckpoint(String path, double time) {
+		getContext().setCheckpoint(path, time);
+	}
+
+	/**
+	 * Schedules periodic checkpoints of the simulation, written every number of events.
+	 * 
+	 * @param path the checkpoint file
+	 * @param events the number of events between two checkpoints, or 0 to stop them
+	 * @see SimulationContext#setCheckpointInterval(String, long)
+	 */
+	public static void setCheckpointInterval(String path, long events) {
+		getContext().setCheckpointInterval(path, events);
+	}
+
+	/**
+	 * Writes the state of the simulation to a checkpoint file.
+	 * 
+	 * @param path the checkpoint file
+	 * @throws IOException if the checkpoint can't be written
+	 * @see SimulationContext#checkpoint(String)
+	 */
+	public static void checkpoint(String path) throws IOException {
+		getContext().checkpoint(path);
+	}
+
+	/**
+	 * Reads a simulation from a checkpoint file. The simulation continues from the checkpoint when
+	 * the context read is started with {@link SimulationContext#startSimulation()}, and can be
+	 * changed before (e.g. the parameters of some entities).
+	 * 
+	 * @param path the checkpoint file
+	 * @return the context of the simulation
+	 * @throws IOException if the checkpoint can't be read
+	 * @see SimulationContext#restore(String)
+	 */
+	public static SimulationContext restore(String path) throws IOException {
+		return SimulationContext.restore(path);
+	}
+
+	/**
+	 * Runs the simulation until all the events before a time have been processed, and forks it
+	 * into branches which continue independently.
+	 * 
+	 * @param time the time of the fork
+	 * @param branches the number of branches
+	 * @return the contexts of the branches
+	 * @throws IOException if the state of the simulation can't be copied
+	 * @see SimulationContext#forkAt(double, int)
+	 */
+	public static List<SimulationContext> forkAt(double time, int branches) throws IOException {
+		return getContext().forkAt(time, branches);
+	}
+
+	/**
+	 * Forks the simulation into branches which continue independently from its current state.
+	 * 
+	 * @param branches the number of branches
+	 * @return the contexts of the branches
+	 * @throws IOException if the state of the simulation can't be copied
+	 * @see SimulationContext#fork(int)
+	 */
+	public static List<SimulationContext> fork(int branches) throws IOException {
+		return getContext().fork(branches);
 	}
 
 	/**
@@ -269,13 +507,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static Calendar getSimulationCalendar() {
-		// make a new copy
-		Calendar clone = calendar;
-		if (calendar != null) {
-			clone = (Calendar) calendar.clone();
-		}
-
-		return clone;
+		return getContext().getSimulationCalendar();
 	}
 
 	/**
@@ -286,7 +518,7 @@ public class CloudSim {
 	 * @post $result >= -1
 	 */
 	public static int getCloudInfoServiceEntityId() {
-		return cisId;
+		return getContext().getCloudInfoServiceEntityId();
 	}
 
 	/**
@@ -299,78 +531,16 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static List<Integer> getCloudResourceList() {
-		if (cis == null) {
-			return null;
-		}
-
-		return cis.getList();
-	}
-
-	// ======== SIMULATION METHODS ===============//
-
-	/** The entities. */
-	protected static List<SimEntity> entities;
-
-	/** The future event queue. */
-	protected static FutureQueue future;
-
-	/** The deferred event queue. */
-	protected static DeferredQueue deferred;
-
-	/** The simulation clock. */
-	protected static double clock;
-
-	/** Flag for checking if the simulation is running. */
-	protected static boolean running;
-
-	/** The entities by name. */
-	protected static Map<String, SimEntity> entitiesByName;
-
-	// The predicates used in entity wait methods
-	/** The wait predicates. */
-	protected static Map<Integer, Predicate> waitPredicates;
-
-	/** The paused. */
-	protected static boolean paused = false;
-
-	/** The pause at. */
-	protected static long pauseAt = -1;
-
-	/** The abrupt terminate. */
-	protected static boolean abruptTerminate = false;
-
-	/**
-	 * Initialise the simulation for stand alone simulations. This function should be called at the
-	 * start of the simulation.
-	 */
-	protected static void initialize() {
-		Log.printLine("Initialising...");
-		entities = new ArrayList<SimEntity>();
-		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
-		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
-		clock = 0;
-		running = false;
+		return getContext().getCloudResourceList();
 	}
 
-	// The two standard predicates
-
-	/** A standard predicate that matches any event. */
-	public final static PredicateAny SIM_ANY = new PredicateAny();
-
-	/** A standard predicate that does not match any events. */
-	public final static PredicateNone SIM_NONE = new PredicateNone();
-
-	// Public access methods
-
 	/**
 	 * Get the current simulation time.
 	 * 
 	 * @return the simulation time
 	 */
 	public static double clock() {
-		return clock;
+		return getContext().clock();
 	}
 
 	/**
@@ -379,7 +549,7 @@ public class CloudSim {
 	 * @return The number of entities
 	 */
 	public static int getNumEntities() {
-		return entities.size();
+		return getContext().getNumEntities();
 	}
 
 	/**
@@ -389,7 +559,7 @@ public class CloudSim {
 	 * @return The entity, or if it could not be found
 	 */
 	public static SimEntity getEntity(int id) {
-		return entities.get(id);
+		return getContext().getEntity(id);
 	}
 
 	/**
@@ -399,7 +569,7 @@ public class CloudSim {
 	 * @return The entity
 	 */
 	public static SimEntity getEntity(String name) {
-		return entitiesByName.get(name);
+		return getContext().getEntity(name);
 	}
 
 	/**
@@ -409,12 +579,7 @@ public class CloudSim {
 	 * @return The entity's unique id number
 	 */
 	public static int getEntityId(String name) {
-		SimEntity obj = entitiesByName.get(name);
-		if (obj == null) {
-			return NOT_FOUND;
-		} else {
-			return obj.getId();
-		}
+		return getContext().getEntityId(name);
 	}
 
 	/**
@@ -426,13 +591,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static String getEntityName(int entityID) {
-		try {
-			return getEntity(entityID).getName();
-		} catch (IllegalArgumentException e) {
-			return null;
-		} catch (Exception e) {
-			return null;
-		}
+		return getContext().getEntityName(entityID);
 	}
 
 	/**
@@ -444,61 +603,37 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static String getEntityName(Integer entityID) {
-		if (entityID != null) {
-			return getEntityName(entityID.intValue());
-		}
-		return null;
+		return getContext().getEntityName(entityID);
 	}
 
 	/**
-	 * Returns a list of entities created for the simulation.
+	 * Returns a read-only view of the entities created for the simulation, in the order of their
+	 * ids.
 	 * 
-	 * @return the entity iterator
+	 * @return the entities
 	 */
 	public static List<SimEntity> getEntityList() {
-		// create a new list to prevent the user from changing
-		// the list of entities used by Simulation
-		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
-		return list;
+		return getContext().getEntityList();
 	}
 
-	// Public update methods
-
 	/**
-	 * Add a new entity to the simulation. This is present for compatibility with existing
-	 * simulations since entities are automatically added to the simulation upon instantiation.
+	 * Gets the registry of the entities of the simulation, giving the entities of a class and the
+	 * indexes of the models.
 	 * 
-	 * @param e The new entity
+	 * @return the registry
 	 */
-	public static void addEntity(SimEntity e) {
-		SimEvent evt;
-		if (running) {
-			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-			future.addEvent(evt);
-		}
-		if (e.getId() == -1) { // Only add once!
-			int id = entities.size();
-			e.setId(id);
-			entities.add(e);
-			entitiesByName.put(e.getName(), e);
-		}
+	public static EntityRegistry getEntityRegistry() {
+		return getContext().getEntityRegistry();
 	}
 
 	/**
-	 * Internal method used to add a new entity to the simulation when the simulation is running. It
-	 * should <b>not</b> be called from user simulations.
+	 * Add a new entity to the simulation. This is present for compatibility with existing
+	 * simulations since entities are automatically added to the simulation upon instantiation.
 	 * 
 	 * @param e The new entity
 	 */
-	protected static void addEntityDynamically(SimEntity e) {
-		if (e == null) {
-			throw new IllegalArgumentException("Adding null entity.");
-		} else {
-			printMessage("Adding: " + e.getName());
-		}
-		e.startEntity();
+	public static void addEntity(SimEntity e) {
+		getContext().addEntity(e);
 	}
 
 	/**
@@ -508,58 +643,14 @@ public class CloudSim {
 	 * @return true, if successful otherwise
 	 */
 	public static boolean runClockTick() {
-		SimEntity ent;
-		boolean queue_empty;
-		
-		int entities_size = entities.size();
-
-		for (int i = 0; i < entities_size; i++) {
-			ent = entities.get(i);
-			if (ent.getState() == SimEntity.RUNNABLE) {
-				ent.run();
-			}
-		}
-				
-		// If there are more future events then deal with them
-		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> fit = future.iterator();
-			queue_empty = false;
-			SimEvent first = fit.next();
-			processEvent(first);
-			future.remove(first);
-
-			fit = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = fit.hasNext();
-			while (trymore) {
-				SimEvent next = fit.next();
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);
-					toRemove.add(next);
-					trymore = fit.hasNext();
-				} else {
-					trymore = false;
-				}
-			}
-
-			future.removeAll(toRemove);
-
-		} else {
-			queue_empty = true;
-			running = false;
-			printMessage("Simulation: No more future events");
-		}
-
-		return queue_empty;
+		return getContext().runClockTick();
 	}
 
 	/**
 	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
 	 */
 	public static void runStop() {
-		printMessage("Simulation completed.");
+		getContext().runStop();
 	}
 
 	/**
@@ -569,9 +660,7 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		getContext().hold(src, delay);
 	}
 
 	/**
@@ -581,9 +670,7 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		getContext().pause(src, delay);
 	}
 
 	/**
@@ -596,12 +683,7 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void send(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
-
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
+		getContext().send(src, dest, delay, tag, data);
 	}
 
 	/**
@@ -614,12 +696,7 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
-
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEventFirst(e);
+		getContext().sendFirst(src, dest, delay, tag, data);
 	}
 
 	/**
@@ -631,11 +708,7 @@ public class CloudSim {
 	 * @param p the p
 	 */
 	public static void wait(int src, Predicate p) {
-		entities.get(src).setState(SimEntity.WAITING);
-		if (p != SIM_ANY) {
-			// If a predicate has been used store it in order to check it
-			waitPredicates.put(src, p);
-		}
+		getContext().wait(src, p);
 	}
 
 	/**
@@ -646,16 +719,7 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
-		int count = 0;
-		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
-				count++;
-			}
-		}
-		return count;
+		return getContext().waiting(d, p);
 	}
 
 	/**
@@ -666,16 +730,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				iterator.remove();
-				break;
-			}
-		}
-		return ev;
+		return getContext().select(src, p);
 	}
 
 	/**
@@ -686,15 +741,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
-			}
-		}
-		return ev;
+		return getContext().findFirstDeferred(src, p);
 	}
 
 	/**
@@ -705,16 +752,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent findFutureEvent(int destination, Object data) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == destination && 
-					ev.getData() == data) {
-				break;
-			}
-		}
-		return ev;
+		return getContext().findFutureEvent(destination, data);
 	}
 
 	/**
@@ -725,16 +763,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
-			}
-		}
-		return ev;
+		return getContext().cancel(src, p);
 	}
 
 	/**
@@ -746,83 +775,35 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-			}
-		}
-		return previousSize < future.size();
+		return getContext().cancelAll(src, p);
 	}
 
-	//
-	// protected internal methods
-	//
+	/**
+	 * Schedules a periodic timer sending events to an entity.
+	 * 
+	 * @param src the id of the entity
+	 * @param tag the tag of the events
+	 * @param data the data of the events
+	 * @param phase the delay before the first event
+	 * @param period the time between two events
+	 * @param until the time after which no more events are sent
+	 * @return the timer, or null if its first event would be after the end time
+	 * @see SimulationContext#schedulePeriodic(int, int, Object, double, double, double)
+	 */
+	public static PeriodicTimer schedulePeriodic(int src, int tag, Object data, double phase, double period,
+			double until) {
+		return getContext().schedulePeriodic(src, tag, data, phase, period, until);
+	}
 
 	/**
-	 * Processes an event.
+	 * Cancels a periodic timer of an entity.
 	 * 
-	 * @param e the e
+	 * @param src the id of the entity
+	 * @param timer the timer
+	 * @return true if the timer has been cancelled, false if it was already cancelled
 	 */
-	protected static void processEvent(SimEvent e) {
-		int dest, src;
-		SimEntity dest_ent;
-		
-		// Update the system's clock
-		if (e.eventTime() < clock) {
-			throw new IllegalArgumentException("Past event detected.");
-		}
-		clock = e.eventTime();
-
-		// Ok now process it
-		switch (e.getType()) {
-			case SimEvent.ENULL:
-				throw new IllegalArgumentException("Event has a null type.");
-
-			case SimEvent.CREATE:
-				SimEntity newe = (SimEntity) e.getData();
-				addEntityDynamically(newe);
-				break;
-
-			case SimEvent.SEND:
-				// Check for matching wait
-				dest = e.getDestination();
-				if (dest < 0) {
-					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
-				} else {
-					int tag = e.getTag();
-					dest_ent = entities.get(dest);
-					if (dest_ent.getState() == SimEntity.WAITING) {
-						Integer destObj = Integer.valueOf(dest);
-						Predicate p = waitPredicates.get(destObj);
-						if ((p == null) || (tag == 9999) || (p.match(e))) {
-							dest_ent.setEventBuffer((SimEvent) e.clone());
-							dest_ent.setState(SimEntity.RUNNABLE);
-							waitPredicates.remove(destObj);
-						} else {
-							deferred.addEvent(e);
-						}
-					} else {
-						deferred.addEvent(e);
-					}
-				}
-				break;
-
-			case SimEvent.HOLD_DONE:
-				src = e.getSource();
-				if (src < 0) {
-					throw new IllegalArgumentException("Null entity holding.");
-				} else {
-					entities.get(src).setState(SimEntity.RUNNABLE);
-				}
-				break;
-
-			default:
-				break;
-		}
+	public static boolean cancelPeriodic(int src, PeriodicTimer timer) {
+		return getContext().cancelPeriodic(src, timer);
 	}
 
 	/**
@@ -830,13 +811,7 @@ public class CloudSim {
 	 * simulations.
 	 */
 	public static void runStart() {
-		running = true;
-		// Start all the entities
-		for (SimEntity ent : entities) {
-			ent.startEntity();
-		}
-
-		printMessage("Entities started.");
+		getContext().runStart();
 	}
 
 	/**
@@ -846,9 +821,9 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static boolean running() {
-		return running;
+		return getContext().running();
 	}
-	
+
 	/**
 	 * Check the number of future events in the simulation is still running. This method should be used by entities to check if
 	 * they should continue executing.
@@ -856,9 +831,8 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static int getNumFutureEvents() {
-		return future.size();
+		return getContext().getNumFutureEvents();
 	}
-		
 
 	/**
 	 * This method is called if one wants to pause the simulation.
@@ -866,8 +840,7 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation() {
-		paused = true;
-		return paused;
+		return getContext().pauseSimulation();
 	}
 
 	/**
@@ -877,12 +850,7 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation(long time) {
-		if (time <= clock) {
-			return false;
-		} else {
-			pauseAt = time;
-		}
-		return true;
+		return getContext().pauseSimulation(time);
 	}
 
 	/**
@@ -891,13 +859,7 @@ public class CloudSim {
 	 * @return if the simulation has been restarted or or otherwise.
 	 */
 	public static boolean resumeSimulation() {
-		paused = false;
-
-		if (pauseAt <= clock) {
-			pauseAt = -1;
-		}
-
-		return !paused;
+		return getContext().resumeSimulation();
 	}
 
 	/**
@@ -907,43 +869,7 @@ public class CloudSim {
 	 * @return the double last clock value
 	 */
 	public static double run() {
-		if (!running) {
-			runStart();
-		}
-		while (true) {
-			if (runClockTick() || abruptTerminate) {
-				break;
-			}
-
-			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
-				terminateSimulation();
-				clock = terminateAt;
-				break;
-			}
-
-			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
-				pauseSimulation();
-				clock = pauseAt;
-			}
-
-			while (paused) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-		}
-
-		double clock = clock();
-
-		finishSimulation();
-		runStop();
-
-		return clock;
+		return getContext().run();
 	}
 
 	/**
@@ -951,48 +877,14 @@ public class CloudSim {
 	 * in user simulations.
 	 */
 	public static void finishSimulation() {
-		// Allow all entities to exit their body method
-		if (!abruptTerminate) {
-			for (SimEntity ent : entities) {
-				if (ent.getState() != SimEntity.FINISHED) {
-					ent.run();
-				}
-			}
-		}
-
-		for (SimEntity ent : entities) {
-			ent.shutdownEntity();
-		}
-
-		// reset all static variables
-		// protected data members
-		entities = null;
-		entitiesByName = null;
-		future = null;
-		deferred = null;
-		clock = 0L;
-		running = false;
-
-		waitPredicates = null;
-		paused = false;
-		pauseAt = -1;
-		abruptTerminate = false;
+		getContext().finishSimulation();
 	}
 
 	/**
 	 * Abruptally terminate.
 	 */
 	public static void abruptallyTerminate() {
-		abruptTerminate = true;
-	}
-
-	/**
-	 * Prints a message about the progress of the simulation.
-	 * 
-	 * @param message the message
-	 */
-	protected static void printMessage(String message) {
-		Log.printLine(message);
+		getContext().abruptallyTerminate();
 	}
 
 	/**
@@ -1001,7 +893,7 @@ public class CloudSim {
 	 * @return true, if is paused
 	 */
 	public static boolean isPaused() {
-		return paused;
+		return getContext().isPaused();
 	}
 
 }
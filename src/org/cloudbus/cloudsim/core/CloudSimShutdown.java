@@ -22,6 +22,9 @@ import java.util.Calendar;
  */
 public class CloudSimShutdown extends SimEntity {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	/** The num user. */
 	private int numUser;
 
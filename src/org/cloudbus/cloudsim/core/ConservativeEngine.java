@@ -0,0 +1,153 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.List;
+
+/**
+ * A conservative parallel simulation engine. The entities are assigned to logical processes by an
+ * {@link EntityPartitioner}, and the logical processes are run on a pool of threads in time
+ * windows: every window starts at the time of the earliest future event and lasts the lookahead
+ * of the simulation, i.e. the shortest delay of the events sent between partitions. No event sent
+ * in a window to another partition can fall inside the window, so the logical processes run the
+ * window independently, and exchange the events sent to each other at the end of the window.
+ * <p>
+ * The events are ordered as in the sequential simulation (see {@link LogicalProcess}), so the
+ * entities receive the same events in the same order and at the same times; the output they write
+ * (see {@link SimEntity#output(Runnable)}) is written at the end of the window, in the same order
+ * as well. An event sent to another partition with a delay shorter than the lookahead raises an
+ * {@link IllegalStateException}. Pausing the simulation and creating entities while it is running
+ * are not supported, and a simulation terminated abruptly stops at the end of the current window.
+ *
+ * @see CloudSim#startSimulation(EntityPartitioner, int, double)
+ */
+class ConservativeEngine extends ParallelEngine {
+
+	/** The end of the current window, excluded. */
+	private double windowEnd = 0;
+
+	/** The number of windows run. */
+	private long windows = 0;
+
+	/**
+	 * Creates a new engine for the entities of a simulation.
+	 *
+	 * @param context the simulation context of the entities
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads
+	 * @param lookahead the lookahead
+	 */
+	ConservativeEngine(SimulationContext context, EntityPartitioner partitioner, int threads, double lookahead) {
+		super(context, partitioner, threads, lookahead);
+	}
+
+	@Override
+	LogicalProcess createProcess(List<SimEntity> entities) {
+		return new LogicalProcess(context);
+	}
+
+	@Override
+	void schedule(SimEvent e, boolean first) {
+		LogicalProcess process = sendingProcess();
+		setOrderingKeys(process, e, first);
+
+		LogicalProcess destination = destinationOf(e);
+		if (destination == process || starting) {
+			destination.future.addEvent(e);
+		} else if (e.eventTime() < windowEnd) {
+			throw new IllegalStateException("The event sent by " + context.getEntityName(e.getSource())
+					+ " to " + context.getEntityName(e.getDestination()) + " at " + e.eventTime()
+					+ " is within the lookahead of the parallel simulation (" + lookahead + ").");
+		} else {
+			process.outbox.add(e);
+			process.remoteEvents++;
+		}
+	}
+
+	@Override
+	double run(FutureQueue pending) {
+		startEntities(pending);
+		startPool();
+
+		double[] nextTimes = new double[processes.length];
+		LogicalProcess[] active = new LogicalProcess[processes.length];
+		double clock = 0;
+		try {
+			while (true) {
+				deliverRemoteEvents();
+
+				double next = Double.MAX_VALUE;
+				for (int i = 0; i < processes.length; i++) {
+					nextTimes[i] = processes[i].nextEventTime();
+					next = Math.min(next, nextTimes[i]);
+				}
+				if (next == Double.MAX_VALUE) {
+					context.printMessage("Simulation: No more future events");
+					break;
+				}
+				if (context.terminateAt > 0.0 && next >= context.terminateAt) {
+					context.printMessage("Simulation: Reached termination time.");
+					clock = context.terminateAt;
+					break;
+				}
+
+				windowEnd = context.timeAfter(next, lookahead);
+				if (context.terminateAt > 0.0) {
+					windowEnd = Math.min(windowEnd, context.terminateAt);
+				}
+				int count = 0;
+				for (int i = 0; i < processes.length; i++) {
+					if (nextTimes[i] < windowEnd) {
+						active[count++] = processes[i];
+					}
+				}
+				windows++;
+				runProcesses(active, count);
+				writeOutputs(Double.MAX_VALUE);
+
+				if (context.abruptTerminate) {
+					break;
+				}
+			}
+		} finally {
+			stopPool();
+		}
+
+		long processed = 0;
+		long remote = 0;
+		for (LogicalProcess process : processes) {
+			clock = Math.max(clock, process.clock);
+			processed += process.processedEvents;
+			remote += process.remoteEvents;
+		}
+		context.printMessage("Parallel simulation: " + processes.length + " logical processes, " + threads
+				+ " threads, " + windows + " windows, " + processed + " events, " + remote
+				+ " events between logical processes.");
+		return clock;
+	}
+
+	@Override
+	void runProcess(LogicalProcess process) {
+		process.processWindow(windowEnd);
+	}
+
+	/**
+	 * Moves the events sent between logical processes in the last window to the queues of their
+	 * destinations.
+	 */
+	private void deliverRemoteEvents() {
+		for (LogicalProcess process : processes) {
+			for (SimEvent e : process.outbox) {
+				processOf[e.getDestination()].future.addEvent(e);
+			}
+			process.outbox.clear();
+		}
+	}
+
+}
@@ -8,81 +8,207 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
- * 
+ * This class implements the deferred event queue used by {@link CloudSim}. The events are stored
+ * in one mailbox per destination entity, indexed by the entity id, so looking for the events sent
+ * to an entity only visits the events of that entity. Each mailbox is an array deque keeping the
+ * temporal order of the events, so the events of a mailbox are in the same order as they would
+ * be in a single queue holding the events of all the entities, and adding and taking the first
+ * event of a mailbox does not allocate.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
- * @see Simulation
+ * @see CloudSim
  * @see SimEvent
  */
-public class DeferredQueue {
+public class DeferredQueue implements Serializable {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The mailboxes, indexed by the id of the destination entity. */
+	private final List<ArrayDeque<SimEvent>> mailboxes = new ArrayList<ArrayDeque<SimEvent>>();
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		ArrayDeque<SimEvent> mailbox = getMailbox(newEvent.getDestination());
+
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
+		if (mailbox.isEmpty() || eventTime >= mailbox.peekLast().eventTime()) {
+			mailbox.addLast(newEvent);
 			return;
 		}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
-			}
+		// the events are deferred as they are processed, so this is seldom needed
+		ArrayDeque<SimEvent> later = new ArrayDeque<SimEvent>();
+		while (!mailbox.isEmpty() && mailbox.peekLast().eventTime() > eventTime) {
+			later.addFirst(mailbox.pollLast());
 		}
+		mailbox.addLast(newEvent);
+		mailbox.addAll(later);
+	}
 
-		list.add(newEvent);
+	/**
+	 * Removes and returns the first event sent to a given entity.
+	 *
+	 * @param destination the id of the destination entity
+	 * @return the first event, or <code>null</code> if there are no events for the entity
+	 */
+	public SimEvent poll(int destination) {
+		if (destination < 0 || destination >= mailboxes.size()) {
+			return null;
+		}
+		ArrayDeque<SimEvent> mailbox = mailboxes.get(destination);
+		return mailbox == null ? null : mailbox.pollFirst();
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
-	 * 
+	 * Returns an iterator to the events sent to a given entity, in temporal order. Events can be
+	 * removed from the queue through the iterator.
+	 *
+	 * @param destination the id of the destination entity
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(int destination) {
+		ArrayDeque<SimEvent> mailbox = null;
+		if (destination >= 0 && destination < mailboxes.size()) {
+			mailbox = mailboxes.get(destination);
+		}
+		if (mailbox == null) {
+			return Collections.<SimEvent> emptyList().iterator();
+		}
+
+		final Iterator<SimEvent> iterator = mailbox.iterator();
+		return new Iterator<SimEvent>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+			}
+		};
+	}
+
+	/**
+	 * Returns an iterator to all the events in the queue, in temporal order. The events of the
+	 * mailboxes are merged into a new list, so this method should not be used in the simulation
+	 * loop; use {@link #iterator(int)} instead.
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		final List<SimEvent> events = new ArrayList<SimEvent>(size());
+		for (ArrayDeque<SimEvent> mailbox : mailboxes) {
+			if (mailbox != null) {
+				events.addAll(mailbox);
+			}
+		}
+		// the events are deferred as they are processed, so their serials give the global order
+		Collections.sort(events);
+
+		final Iterator<SimEvent> iterator = events.iterator();
+		return new Iterator<SimEvent>() {
+
+			private SimEvent last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				last = iterator.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				mailboxes.get(last.getDestination()).remove(last);
+			}
+		};
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		// not kept as a counter, so that the entities run in parallel can take their own events
+		int size = 0;
+		for (ArrayDeque<SimEvent> mailbox : mailboxes) {
+			if (mailbox != null) {
+				size += mailbox.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of events sent to a given entity.
+	 *
+	 * @param destination the id of the destination entity
+	 * @return the number of events in the entity's mailbox
+	 */
+	public int size(int destination) {
+		if (destination < 0 || destination >= mailboxes.size()) {
+			return 0;
+		}
+		ArrayDeque<SimEvent> mailbox = mailboxes.get(destination);
+		return mailbox == null ? 0 : mailbox.size();
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		mailboxes.clear();
+	}
+
+	/**
+	 * Gets the mailbox of an entity, creating it if needed.
+	 *
+	 * @param destination the id of the destination entity
+	 * @return the mailbox
+	 */
+	private ArrayDeque<SimEvent> getMailbox(int destination) {
+		if (destination < 0) {
+			throw new IllegalArgumentException("Attempt to defer an event to a null entity detected.");
+		}
+		while (mailboxes.size() <= destination) {
+			mailboxes.add(null);
+		}
+		ArrayDeque<SimEvent> mailbox = mailboxes.get(destination);
+		if (mailbox == null) {
+			mailbox = new ArrayDeque<SimEvent>();
+			mailboxes.set(destination, mailbox);
+		}
+		return mailbox;
 	}
 
-}
\ No newline at end of file
+}
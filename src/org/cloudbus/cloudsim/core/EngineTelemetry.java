@@ -0,0 +1,358 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects statistics about the engine of a simulation while it runs: the events processed by the
+ * engine, the events handled by the entities by tag and by entity class, the time spent in the
+ * handlers by tag, and samples of the depth of the future and deferred queues and of the events
+ * processed per wall-clock second. The counters are striped ({@link LongAdder}), so the entities
+ * of a clock tick run in parallel and the logical processes of a parallel simulation update them
+ * without contending.
+ * <p>
+ * The telemetry is set on a simulation with {@link SimulationContext#setTelemetry(EngineTelemetry)};
+ * a simulation without telemetry only checks that it has none. The statistics are read with
+ * {@link #snapshot()}, and can be dumped to a file periodically while the simulation runs, and
+ * when it ends (see {@link #setDump(String, Format, long)}). The queues are sampled between the
+ * clock ticks of a sequential simulation only.
+ *
+ * @see TelemetrySnapshot
+ */
+public class EngineTelemetry {
+
+	/**
+	 * The formats of the dumps.
+	 */
+	public enum Format {
+
+		/**
+		 * Three files, with semicolon separated values: the path followed by "-tags.csv",
+		 * "-classes.csv" and "-samples.csv".
+		 */
+		CSV,
+
+		/** A single JSON file. */
+		JSON
+	}
+
+	/** The default number of events processed between two samples. */
+	public static final long DEFAULT_SAMPLE_INTERVAL = 10000;
+
+	/** The maximum number of samples kept; the samples are thinned out beyond. */
+	private static final int MAX_SAMPLES = 10000;
+
+	/** The tags whose counters are kept in an array, from 0. */
+	private static final int DIRECT_TAGS = 1024;
+
+	/** The counters of the tags below {@link #DIRECT_TAGS}, created when first used. */
+	private final AtomicReferenceArray<TagCounters> directTags = new AtomicReferenceArray<TagCounters>(
+			DIRECT_TAGS);
+
+	/** The counters of the other tags. */
+	private final ConcurrentHashMap<Integer, TagCounters> otherTags = new ConcurrentHashMap<Integer, TagCounters>();
+
+	/** The events handled by the entities, by entity class. */
+	private final ConcurrentHashMap<Class<?>, LongAdder> classEvents = new ConcurrentHashMap<Class<?>, LongAdder>();
+
+	/** The events processed by the engine. */
+	private final LongAdder processedEvents = new LongAdder();
+
+	/** The samples, oldest first. */
+	private final List<TelemetrySnapshot.Sample> samples = new ArrayList<TelemetrySnapshot.Sample>();
+
+	/** The number of events processed between two samples. */
+	private long sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+	/** The number of events processed when the last sample was taken. */
+	private long sampledEvents = 0;
+
+	/** The wall-clock time the simulation started, in nanoseconds; 0 if it has not started. */
+	private volatile long startNanos = 0;
+
+	/** The last clock value seen. */
+	private volatile double clock = 0;
+
+	/** The path of the dumps; null if the statistics are not dumped. */
+	private String dumpPath;
+
+	/** The format of the dumps. */
+	private Format dumpFormat = Format.CSV;
+
+	/** The wall-clock time between two dumps, in milliseconds. */
+	private long dumpPeriod = 0;
+
+	/** The wall-clock time of the last dump, in nanoseconds. */
+	private long dumpedNanos = 0;
+
+	/**
+	 * Creates new telemetry, sampling the queues every {@link #DEFAULT_SAMPLE_INTERVAL} events.
+	 */
+	public EngineTelemetry() {
+	}
+
+	/**
+	 * Sets the number of events processed between two samples of the queues.
+	 *
+	 * @param events the number of events
+	 */
+	public void setSampleInterval(long events) {
+		if (events <= 0) {
+			throw new IllegalArgumentException("The number of events between two samples must be positive.");
+		}
+		sampleInterval = events;
+	}
+
+	/**
+	 * Dumps the statistics to a file while the simulation runs, every period of wall-clock time,
+	 * and when it ends. Each dump replaces the previous one. The period is checked when the queues
+	 * are sampled.
+	 *
+	 * @param path the file, or the prefix of the files in the {@link Format#CSV} format; null to
+	 *            stop the dumps
+	 * @param format the format
+	 * @param periodMillis the wall-clock time between two dumps, in milliseconds, or 0 to dump
+	 *            only when the simulation ends
+	 */
+	public void setDump(String path, Format format, long periodMillis) {
+		if (format == null) {
+			throw new IllegalArgumentException("The format of the dumps can't be null.");
+		}
+		if (periodMillis < 0) {
+			throw new IllegalArgumentException("The period of the dumps can't be negative.");
+		}
+		dumpPath = path;
+		dumpFormat = format;
+		dumpPeriod = periodMillis;
+	}
+
+	/**
+	 * Gets a snapshot of the statistics collected so far.
+	 *
+	 * @return the snapshot
+	 */
+	public TelemetrySnapshot snapshot() {
+		Map<Integer, long[]> tags = new TreeMap<Integer, long[]>();
+		for (int tag = 0; tag < DIRECT_TAGS; tag++) {
+			TagCounters counters = directTags.get(tag);
+			if (counters != null) {
+				tags.put(tag, counters.values());
+			}
+		}
+		for (Map.Entry<Integer, TagCounters> entry : otherTags.entrySet()) {
+			tags.put(entry.getKey(), entry.getValue().values());
+		}
+		Map<String, Long> classes = new TreeMap<String, Long>();
+		for (Map.Entry<Class<?>, LongAdder> entry : classEvents.entrySet()) {
+			classes.put(entry.getKey().getName(), entry.getValue().sum());
+		}
+		List<TelemetrySnapshot.Sample> sampleCopy;
+		synchronized (samples) {
+			sampleCopy = new ArrayList<TelemetrySnapshot.Sample>(samples);
+		}
+		long wallNanos = startNanos == 0 ? 0 : System.nanoTime() - startNanos;
+		return new TelemetrySnapshot(wallNanos, clock, processedEvents.sum(), tags, classes, sampleCopy);
+	}
+
+	/**
+	 * Clears the statistics.
+	 */
+	public void reset() {
+		for (int tag = 0; tag < DIRECT_TAGS; tag++) {
+			directTags.set(tag, null);
+		}
+		otherTags.clear();
+		classEvents.clear();
+		processedEvents.reset();
+		synchronized (samples) {
+			samples.clear();
+		}
+		sampledEvents = 0;
+		startNanos = 0;
+		clock = 0;
+	}
+
+	/**
+	 * Called when the simulation starts running, or is resumed.
+	 */
+	void runStarted() {
+		if (startNanos == 0) {
+			startNanos = System.nanoTime();
+			dumpedNanos = startNanos;
+		}
+	}
+
+	/**
+	 * Counts an event processed by the engine.
+	 */
+	void eventProcessed() {
+		processedEvents.increment();
+	}
+
+	/**
+	 * Counts an event handled by an entity.
+	 *
+	 * @param entityClass the class of the entity
+	 * @param tag the tag of the event
+	 * @param nanos the time spent in the handler, in nanoseconds
+	 */
+	void eventHandled(Class<?> entityClass, int tag, long nanos) {
+		TagCounters counters = tagCounters(tag);
+		counters.events.increment();
+		counters.nanos.add(nanos);
+		LongAdder events = classEvents.get(entityClass);
+		if (events == null) {
+			LongAdder added = new LongAdder();
+			events = classEvents.putIfAbsent(entityClass, added);
+			if (events == null) {
+				events = added;
+			}
+		}
+		events.increment();
+	}
+
+	/**
+	 * Called between the clock ticks of a sequential simulation: samples the queues when enough
+	 * events have been processed since the last sample, and dumps the statistics when the period
+	 * of the dumps has elapsed.
+	 *
+	 * @param context the simulation
+	 */
+	void clockTick(SimulationContext context) {
+		long events = processedEvents.sum();
+		if (events - sampledEvents < sampleInterval) {
+			return;
+		}
+		sample(context, events);
+		if (dumpPath != null && dumpPeriod > 0
+				&& System.nanoTime() - dumpedNanos >= dumpPeriod * 1000000L) {
+			dump(context);
+		}
+	}
+
+	/**
+	 * Called when the simulation ends: takes a last sample of a sequential simulation, and dumps
+	 * the statistics.
+	 *
+	 * @param context the simulation
+	 * @param sequential whether the simulation was run sequentially, so that its queues can be
+	 *            sampled
+	 */
+	void runFinished(SimulationContext context, boolean sequential) {
+		if (sequential) {
+			sample(context, processedEvents.sum());
+		} else {
+			clock = context.clock();
+		}
+		if (dumpPath != null) {
+			dump(context);
+		}
+	}
+
+	/**
+	 * Takes a sample of the queues of a simulation.
+	 *
+	 * @param context the simulation
+	 * @param events the number of events processed
+	 */
+	private void sample(SimulationContext context, long events) {
+		long now = System.nanoTime();
+		clock = context.clock();
+		TelemetrySnapshot.Sample sample = new TelemetrySnapshot.Sample((now - startNanos) / 1000000L, clock,
+				events, context.future.size(), context.deferred.size());
+		synchronized (samples) {
+			if (samples.size() == MAX_SAMPLES) {
+				// keep every other sample, and sample half as often
+				for (int i = 0; i < MAX_SAMPLES / 2; i++) {
+					samples.set(i, samples.get(2 * i + 1));
+				}
+				samples.subList(MAX_SAMPLES / 2, MAX_SAMPLES).clear();
+				sampleInterval *= 2;
+			}
+			samples.add(sample);
+		}
+		sampledEvents = events;
+	}
+
+	/**
+	 * Dumps the statistics; a dump which can't be written is reported, and the simulation goes on.
+	 *
+	 * @param context the simulation
+	 */
+	private void dump(SimulationContext context) {
+		dumpedNanos = System.nanoTime();
+		try {
+			if (dumpFormat == Format.JSON) {
+				snapshot().writeJson(dumpPath);
+			} else {
+				snapshot().writeCsv(dumpPath);
+			}
+		} catch (IOException e) {
+			context.printMessage("Simulation: The telemetry could not be written to " + dumpPath + ": "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Gets the counters of a tag, creating them if needed.
+	 *
+	 * @param tag the tag
+	 * @return the counters
+	 */
+	private TagCounters tagCounters(int tag) {
+		if (tag >= 0 && tag < DIRECT_TAGS) {
+			TagCounters counters = directTags.get(tag);
+			if (counters == null) {
+				directTags.compareAndSet(tag, null, new TagCounters());
+				counters = directTags.get(tag);
+			}
+			return counters;
+		}
+		Integer key = Integer.valueOf(tag);
+		TagCounters counters = otherTags.get(key);
+		if (counters == null) {
+			TagCounters added = new TagCounters();
+			counters = otherTags.putIfAbsent(key, added);
+			if (counters == null) {
+				counters = added;
+			}
+		}
+		return counters;
+	}
+
+	/**
+	 * The counters of the events of a tag.
+	 */
+	private static class TagCounters {
+
+		/** The events handled. */
+		final LongAdder events = new LongAdder();
+
+		/** The time spent in the handlers, in nanoseconds. */
+		final LongAdder nanos = new LongAdder();
+
+		/**
+		 * Gets the values of the counters.
+		 *
+		 * @return the events and the time
+		 */
+		long[] values() {
+			return new long[] { events.sum(), nanos.sum() };
+		}
+	}
+
+}
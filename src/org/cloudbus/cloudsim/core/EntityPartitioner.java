@@ -0,0 +1,31 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Assigns the entities of a simulation to partitions, for a parallel simulation started with
+ * {@link CloudSim#startSimulation(EntityPartitioner, int)}. The entities of a partition are
+ * simulated by the same logical process, so they can access each other's state directly. Entities
+ * of different partitions may only interact through events, sent with a delay not shorter than the
+ * lookahead of the simulation.
+ *
+ * @see CloudSim#startSimulation(EntityPartitioner, int, double)
+ */
+public interface EntityPartitioner {
+
+	/**
+	 * Gets the partition of an entity. The entities with the same partition are simulated by the
+	 * same logical process.
+	 *
+	 * @param entity the entity
+	 * @return the partition
+	 */
+	int getPartition(SimEntity entity);
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the entities of a simulation context. It gives read-only views of the
+ * entities, rather than copies: all the entities, or the entities of a class. The list of the
+ * entities of a class is built the first time it is asked for, and then kept up to date as the
+ * entities are added, so it can be asked for in the simulation loop.
+ * <p>
+ * The registry also holds the indexes of the models (e.g. the nodes of a model by location),
+ * one per class, so that they are part of the simulation: they are written with its checkpoints
+ * and copied into the branches of its forks. An index is kept up to date by its model.
+ *
+ * @see SimulationContext#getEntityRegistry()
+ */
+public class EntityRegistry implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The entities, indexed by their id. */
+	private final List<SimEntity> entities;
+
+	/** The read-only view of the entities. */
+	private final List<SimEntity> entitiesView;
+
+	/** The entities of the classes asked for, in the order of their ids. */
+	private final Map<Class<?>, List<SimEntity>> entitiesByClass = new HashMap<Class<?>, List<SimEntity>>();
+
+	/** The read-only views of the entities of the classes asked for. */
+	private final Map<Class<?>, List<?>> viewsByClass = new HashMap<Class<?>, List<?>>();
+
+	/** The indexes of the models, by class. */
+	private final Map<Class<?>, Object> indexes = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * Creates the registry of a list of entities.
+	 *
+	 * @param entities the entities, indexed by their id
+	 */
+	EntityRegistry(List<SimEntity> entities) {
+		this.entities = entities;
+		entitiesView = Collections.unmodifiableList(entities);
+	}
+
+	/**
+	 * Adds an entity to the lists of the classes it is an instance of. The entity must have been
+	 * added to the list of the entities.
+	 *
+	 * @param entity the entity
+	 */
+	synchronized void entityAdded(SimEntity entity) {
+		for (Map.Entry<Class<?>, List<SimEntity>> entry : entitiesByClass.entrySet()) {
+			if (entry.getKey().isInstance(entity)) {
+				entry.getValue().add(entity);
+			}
+		}
+	}
+
+	/**
+	 * Gets a read-only view of the entities, in the order of their ids.
+	 *
+	 * @return the entities
+	 */
+	public List<SimEntity> getEntities() {
+		return entitiesView;
+	}
+
+	/**
+	 * Gets a read-only view of the entities which are instances of a class, in the order of their
+	 * ids. The view reflects the entities added later.
+	 *
+	 * @param <T> the class of the entities
+	 * @param type the class of the entities, or one of their interfaces
+	 * @return the entities of the class
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> List<T> getEntities(Class<T> type) {
+		List<?> view = viewsByClass.get(type);
+		if (view == null) {
+			List<SimEntity> list = new ArrayList<SimEntity>();
+			for (SimEntity entity : entities) {
+				if (type.isInstance(entity)) {
+					list.add(entity);
+				}
+			}
+			entitiesByClass.put(type, list);
+			view = Collections.unmodifiableList(list);
+			viewsByClass.put(type, view);
+		}
+		return (List<T>) view;
+	}
+
+	/**
+	 * Gets the index of a model.
+	 *
+	 * @param <T> the class of the index
+	 * @param type the class of the index
+	 * @return the index, or null if it has not been added
+	 */
+	public <T> T getIndex(Class<T> type) {
+		return type.cast(indexes.get(type));
+	}
+
+	/**
+	 * Adds the index of a model, unless an index of the same class has been added already. The
+	 * index must be {@link Serializable} for the simulation to be checkpointed or forked.
+	 *
+	 * @param <T> the class of the index
+	 * @param type the class of the index
+	 * @param index the index
+	 * @return the index of the class, the one added before if any
+	 */
+	public <T> T addIndex(Class<T> type, T index) {
+		if (index == null) {
+			throw new IllegalArgumentException("The index can't be null.");
+		}
+		Object previous = ((ConcurrentHashMap<Class<?>, Object>) indexes).putIfAbsent(type, index);
+		return previous == null ? index : type.cast(previous);
+	}
+
+}
@@ -0,0 +1,382 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A trace file written by an {@link EventTracer}, read through segments mapped in memory. The
+ * records are read by index, in the order the events were delivered; the records of a ring start
+ * with the oldest one kept.
+ * <p>
+ * The class can be run to filter a trace and convert it to semicolon separated values:
+ *
+ * <pre>
+ * java org.cloudbus.cloudsim.core.EventTrace trace [-o file.csv] [-from time] [-to time]
+ *      [-tag tag[,tag...]] [-src id] [-dst id] [-names]
+ * </pre>
+ *
+ * With <tt>-names</tt>, the tags are written with the names of their constants in
+ * {@link CloudSimTags}.
+ */
+public class EventTrace implements Closeable {
+
+	/** The number of records of the segments mapped in memory. */
+	private static final int SEGMENT_RECORDS = 1 << 20;
+
+	/** The channel of the file. */
+	private final FileChannel channel;
+
+	/** The number of records written, including the ones overwritten in a ring. */
+	private final long count;
+
+	/** The capacity of the ring, or 0 if the trace is not a ring. */
+	private final long capacity;
+
+	/** The number of records in the file. */
+	private final long size;
+
+	/** The segment last read; null if none is mapped. */
+	private ByteBuffer segment;
+
+	/** The index of the first slot of the segment. */
+	private long segmentStart = 0;
+
+	/** The index after the last slot of the segment. */
+	private long segmentEnd = 0;
+
+	/**
+	 * Opens a trace file.
+	 *
+	 * @param path the trace file
+	 * @throws IOException if the file can't be read, or is not a trace file
+	 */
+	public EventTrace(String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		channel = file.getChannel();
+		try {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, EventTracer.HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != EventTracer.MAGIC) {
+				throw new IOException(path + " is not a trace file.");
+			}
+			if (header.getInt(4) != EventTracer.VERSION || header.getInt(8) != EventTracer.RECORD_SIZE) {
+				throw new IOException(path + " has an unsupported trace format.");
+			}
+			count = header.getLong(EventTracer.COUNT_OFFSET);
+			capacity = header.getLong(EventTracer.CAPACITY_OFFSET);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		size = capacity > 0 && count > capacity ? capacity : count;
+	}
+
+	/**
+	 * Gets the number of records in the trace.
+	 *
+	 * @return the number of records
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of events recorded, including the ones overwritten in a ring.
+	 *
+	 * @return the number of events
+	 */
+	public long getRecordedEvents() {
+		return count;
+	}
+
+	/**
+	 * Gets the time of a record.
+	 *
+	 * @param index the index of the record, from 0 to {@link #size()} excluded
+	 * @return the time of the event
+	 * @throws IOException if the record can't be read
+	 */
+	public double getTime(long index) throws IOException {
+		int position = position(index);
+		return segment.getDouble(position);
+	}
+
+	/**
+	 * Gets the source of a record.
+	 *
+	 * @param index the index of the record
+	 * @return the id of the entity which sent the event
+	 * @throws IOException if the record can't be read
+	 */
+	public int getSource(long index) throws IOException {
+		int position = position(index);
+		return segment.getInt(position + 8);
+	}
+
+	/**
+	 * Gets the destination of a record.
+	 *
+	 * @param index the index of the record
+	 * @return the id of the entity the event was delivered to
+	 * @throws IOException if the record can't be read
+	 */
+	public int getDestination(long index) throws IOException {
+		int position = position(index);
+		return segment.getInt(position + 12);
+	}
+
+	/**
+	 * Gets the tag of a record.
+	 *
+	 * @param index the index of the record
+	 * @return the tag of the event
+	 * @throws IOException if the record can't be read
+	 */
+	public int getTag(long index) throws IOException {
+		int position = position(index);
+		return segment.getInt(position + 16);
+	}
+
+	/**
+	 * Gets the payload size of a record (see {@link EventTracer}).
+	 *
+	 * @param index the index of the record
+	 * @return the size of the data of the event
+	 * @throws IOException if the record can't be read
+	 */
+	public int getPayloadSize(long index) throws IOException {
+		int position = position(index);
+		return segment.getInt(position + 20);
+	}
+
+	/**
+	 * Gets the largest entity id of the records.
+	 *
+	 * @return the id, or -1 if the trace is empty
+	 * @throws IOException if the trace can't be read
+	 */
+	public int getMaxEntityId() throws IOException {
+		int max = -1;
+		for (long i = 0; i < size; i++) {
+			max = Math.max(max, Math.max(getSource(i), getDestination(i)));
+		}
+		return max;
+	}
+
+	/**
+	 * Writes the records accepted by a filter as semicolon separated values.
+	 *
+	 * @param out the writer
+	 * @param filter the filter, or null to write all the records
+	 * @param tagNames whether the tags are written with the names of their constants
+	 * @return the number of records written
+	 * @throws IOException if the trace can't be read or the values written
+	 */
+	public long writeCsv(Writer out, Filter filter, boolean tagNames) throws IOException {
+		out.write("time;src;dst;tag;size\n");
+		long written = 0;
+		for (long i = 0; i < size; i++) {
+			if (filter != null && !filter.accept(this, i)) {
+				continue;
+			}
+			int tag = getTag(i);
+			out.write(getTime(i) + ";" + getSource(i) + ";" + getDestination(i) + ";"
+					+ (tagNames ? TelemetrySnapshot.tagName(tag) : String.valueOf(tag)) + ";" + getPayloadSize(i)
+					+ "\n");
+			written++;
+		}
+		out.flush();
+		return written;
+	}
+
+	@Override
+	public void close() throws IOException {
+		segment = null;
+		channel.close();
+	}
+
+	/**
+	 * Maps the segment of a record if needed.
+	 *
+	 * @param index the index of the record
+	 * @return the position of the record in the segment
+	 * @throws IOException if the segment can't be mapped
+	 */
+	private int position(long index) throws IOException {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Record " + index + " of a trace of " + size + " records.");
+		}
+		long slot = capacity > 0 && count > capacity ? (count + index) % capacity : index;
+		if (slot < segmentStart || slot >= segmentEnd) {
+			segmentStart = slot - slot % SEGMENT_RECORDS;
+			segmentEnd = Math.min(segmentStart + SEGMENT_RECORDS, capacity > 0 ? capacity : size);
+			segment = channel.map(FileChannel.MapMode.READ_ONLY, EventTracer.HEADER_SIZE + segmentStart
+					* EventTracer.RECORD_SIZE, (segmentEnd - segmentStart) * EventTracer.RECORD_SIZE);
+			segment.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return (int) (slot - segmentStart) * EventTracer.RECORD_SIZE;
+	}
+
+	/**
+	 * Selects the records of a trace by time, tag, source and destination.
+	 */
+	public static class Filter {
+
+		/** The earliest time. */
+		private double from = Double.NEGATIVE_INFINITY;
+
+		/** The latest time, excluded. */
+		private double to = Double.POSITIVE_INFINITY;
+
+		/** The tags accepted; null to accept all. */
+		private Set<Integer> tags;
+
+		/** The source accepted, or -1 to accept all. */
+		private int source = -1;
+
+		/** The destination accepted, or -1 to accept all. */
+		private int destination = -1;
+
+		/**
+		 * Accepts the records in a time interval only.
+		 *
+		 * @param from the earliest time
+		 * @param to the latest time, excluded
+		 * @return this filter
+		 */
+		public Filter time(double from, double to) {
+			this.from = from;
+			this.to = to;
+			return this;
+		}
+
+		/**
+		 * Accepts the records of a tag; records of several tags are accepted by calling this
+		 * method for each tag.
+		 *
+		 * @param tag the tag
+		 * @return this filter
+		 */
+		public Filter tag(int tag) {
+			if (tags == null) {
+				tags = new HashSet<Integer>();
+			}
+			tags.add(tag);
+			return this;
+		}
+
+		/**
+		 * Accepts the records of a source only.
+		 *
+		 * @param id the id of the source entity
+		 * @return this filter
+		 */
+		public Filter source(int id) {
+			source = id;
+			return this;
+		}
+
+		/**
+		 * Accepts the records of a destination only.
+		 *
+		 * @param id the id of the destination entity
+		 * @return this filter
+		 */
+		public Filter destination(int id) {
+			destination = id;
+			return this;
+		}
+
+		/**
+		 * Checks whether a record is accepted.
+		 *
+		 * @param trace the trace
+		 * @param index the index of the record
+		 * @return true if the record is accepted
+		 * @throws IOException if the record can't be read
+		 */
+		public boolean accept(EventTrace trace, long index) throws IOException {
+			double time = trace.getTime(index);
+			return time >= from && time < to && (tags == null || tags.contains(trace.getTag(index)))
+					&& (source < 0 || trace.getSource(index) == source)
+					&& (destination < 0 || trace.getDestination(index) == destination);
+		}
+	}
+
+	/**
+	 * Converts a trace file to semicolon separated values.
+	 *
+	 * @param args the trace file, followed by the options
+	 * @throws IOException if the trace can't be read or the values written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: EventTrace trace [-o file.csv] [-from time] [-to time]"
+					+ " [-tag tag[,tag...]] [-src id] [-dst id] [-names]");
+			System.exit(1);
+		}
+		Filter filter = new Filter();
+		String output = null;
+		boolean names = false;
+		double from = Double.NEGATIVE_INFINITY;
+		double to = Double.POSITIVE_INFINITY;
+		for (int i = 1; i < args.length; i++) {
+			String option = args[i];
+			if (option.equals("-names")) {
+				names = true;
+			} else if (i + 1 == args.length) {
+				throw new IllegalArgumentException("The option " + option + " needs a value.");
+			} else if (option.equals("-o")) {
+				output = args[++i];
+			} else if (option.equals("-from")) {
+				from = Double.parseDouble(args[++i]);
+			} else if (option.equals("-to")) {
+				to = Double.parseDouble(args[++i]);
+			} else if (option.equals("-tag")) {
+				for (String tag : args[++i].split(",")) {
+					filter.tag(Integer.parseInt(tag.trim()));
+				}
+			} else if (option.equals("-src")) {
+				filter.source(Integer.parseInt(args[++i]));
+			} else if (option.equals("-dst")) {
+				filter.destination(Integer.parseInt(args[++i]));
+			} else {
+				throw new IllegalArgumentException("Unknown option " + option + ".");
+			}
+		}
+		filter.time(from, to);
+
+		EventTrace trace = new EventTrace(args[0]);
+		Writer out = new BufferedWriter(output == null ? new OutputStreamWriter(System.out) : new FileWriter(output));
+		try {
+			long written = trace.writeCsv(out, filter, names);
+			if (output != null) {
+				System.err.println(written + " of " + trace.size() + " records written to " + output + ".");
+			}
+		} finally {
+			trace.close();
+			if (output != null) {
+				out.close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Log;
+
+/**
+ * Records the events delivered to the entities of a sequential simulation in a binary trace file:
+ * a fixed-size record of the time, source, destination, tag and payload size of each event, in
+ * the order the events are delivered. The file is written through memory-mapped segments, so
+ * recording an event only writes to memory; the count of records in the header is updated with
+ * each record, so the trace of a simulation which did not end can be read too.
+ * <p>
+ * A trace either grows with the simulation, or is a ring keeping the last records only. The trace
+ * is read by {@link EventTrace}, and re-injected into an engine by {@link TraceReplayer}.
+ * <p>
+ * The file starts with a header of {@link #HEADER_SIZE} bytes: the magic number, the version of
+ * the format and the size of the records (ints), the number of records written and the capacity
+ * of the ring, 0 if the trace is not a ring (longs). Each record is the time (double), and the
+ * source, destination, tag and payload size (ints). All the values are little-endian.
+ *
+ * @see SimulationContext#setTracer(EventTracer)
+ */
+public class EventTracer implements Closeable {
+
+	/** The trace file written when the simulation is initialised with the trace flag. */
+	public static final String DEFAULT_FILE = "cloudsim.trace";
+
+	/** The magic number at the start of the trace files, "CSTR". */
+	static final int MAGIC = 0x43535452;
+
+	/** The version of the format of the trace files. */
+	static final int VERSION = 1;
+
+	/** The size of the header of the trace files, in bytes. */
+	static final int HEADER_SIZE = 32;
+
+	/** The size of a record, in bytes. */
+	static final int RECORD_SIZE = 24;
+
+	/** The offset of the number of records in the header. */
+	static final int COUNT_OFFSET = 12;
+
+	/** The offset of the capacity of the ring in the header. */
+	static final int CAPACITY_OFFSET = 20;
+
+	/** The number of records of the segments mapped in memory. */
+	private static final int SEGMENT_RECORDS = 1 << 20;
+
+	/** The file. */
+	private final String path;
+
+	/** The channel of the file. */
+	private final FileChannel channel;
+
+	/** The capacity of the ring, or 0 if the trace grows. */
+	private final long capacity;
+
+	/** The header, mapped in memory. */
+	private MappedByteBuffer header;
+
+	/** The segment being written; null if none is mapped. */
+	private MappedByteBuffer segment;
+
+	/** The index of the first record of the segment. */
+	private long segmentStart = 0;
+
+	/** The index after the last record of the segment. */
+	private long segmentEnd = 0;
+
+	/** The number of records written. */
+	private long count = 0;
+
+	/** Whether the tracer is closed. */
+	private boolean closed = false;
+
+	/**
+	 * Creates a tracer writing a trace which grows with the simulation. The file is replaced.
+	 *
+	 * @param path the trace file
+	 * @throws IOException if the file can't be created
+	 */
+	public EventTracer(String path) throws IOException {
+		this(path, 0);
+	}
+
+	/**
+	 * Creates a tracer writing a trace file. The file is replaced.
+	 *
+	 * @param path the trace file
+	 * @param capacity the number of records kept in the ring, the earlier ones being overwritten, or
+	 *            0 to keep all the records
+	 * @throws IOException if the file can't be created
+	 */
+	public EventTracer(String path, long capacity) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("The trace file can't be null.");
+		}
+		if (capacity < 0) {
+			throw new IllegalArgumentException("The capacity of a trace can't be negative.");
+		}
+		this.path = path;
+		this.capacity = capacity;
+		RandomAccessFile file = new RandomAccessFile(path, "rw");
+		try {
+			file.setLength(0);
+			channel = file.getChannel();
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0, MAGIC);
+		header.putInt(4, VERSION);
+		header.putInt(8, RECORD_SIZE);
+		header.putLong(COUNT_OFFSET, 0);
+		header.putLong(CAPACITY_OFFSET, capacity);
+	}
+
+	/**
+	 * Gets the trace file.
+	 *
+	 * @return the path of the file
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the number of events recorded, including the ones overwritten in a ring.
+	 *
+	 * @return the number of events
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Records an event. A trace which can't be written is reported, and the tracer is closed.
+	 *
+	 * @param e the event
+	 */
+	void record(SimEvent e) {
+		if (closed) {
+			return;
+		}
+		long slot = capacity == 0 ? count : count % capacity;
+		if (slot < segmentStart || slot >= segmentEnd) {
+			try {
+				map(slot);
+			} catch (IOException ex) {
+				Log.printLine("The trace could not be written to " + path + ": " + ex.getMessage());
+				close();
+				return;
+			}
+		}
+		int position = (int) (slot - segmentStart) * RECORD_SIZE;
+		segment.putDouble(position, e.eventTime());
+		segment.putInt(position + 8, e.getSource());
+		segment.putInt(position + 12, e.getDestination());
+		segment.putInt(position + 16, e.getTag());
+		segment.putInt(position + 20, payloadSize(e.getData()));
+		count++;
+		header.putLong(COUNT_OFFSET, count);
+	}
+
+	/**
+	 * Forces the records written so far to the file.
+	 */
+	public void flush() {
+		if (closed) {
+			return;
+		}
+		if (segment != null) {
+			segment.force();
+		}
+		header.force();
+	}
+
+	/**
+	 * Flushes the records and closes the file; the file of a trace which is not a ring is cut
+	 * after its last record. The later events are not recorded.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		flush();
+		closed = true;
+		segment = null;
+		header = null;
+		try {
+			if (capacity == 0) {
+				channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+			}
+			channel.close();
+		} catch (IOException e) {
+			Log.printLine("The trace could not be closed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Maps the segment holding a slot of the file.
+	 *
+	 * @param slot the slot
+	 * @throws IOException if the segment can't be mapped
+	 */
+	private void map(long slot) throws IOException {
+		if (segment != null) {
+			segment.force();
+		}
+		segmentStart = slot - slot % SEGMENT_RECORDS;
+		segmentEnd = segmentStart + SEGMENT_RECORDS;
+		if (capacity > 0 && segmentEnd > capacity) {
+			segmentEnd = capacity;
+		}
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + segmentStart * RECORD_SIZE,
+				(segmentEnd - segmentStart) * RECORD_SIZE);
+		segment.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Gets the size of the data of an event: the length of an array or a character sequence, the
+	 * size of a collection or a map, 1 for another object and 0 for no data.
+	 *
+	 * @param data the data
+	 * @return the size
+	 */
+	static int payloadSize(Object data) {
+		if (data == null) {
+			return 0;
+		}
+		if (data instanceof Collection) {
+			return ((Collection<?>) data).size();
+		}
+		if (data instanceof Map) {
+			return ((Map<?, ?>) data).size();
+		}
+		if (data instanceof CharSequence) {
+			return ((CharSequence) data).length();
+		}
+		if (data.getClass().isArray()) {
+			return Array.getLength(data);
+		}
+		return 1;
+	}
+
+}
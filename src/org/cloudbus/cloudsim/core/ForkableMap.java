@@ -0,0 +1,283 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hash map whose entries are shared with its copies until they are changed, for the state of the
+ * entities which grows during the whole simulation, such as the data collected by a node. When
+ * the map is written (by a {@link SimulationContext#fork(int) fork} or a
+ * {@link SimulationContext#checkpoint(String) checkpoint}), the entries changed since the last
+ * write are moved to a new layer, which is never changed afterwards and is {@link SharedState}: the
+ * branches of a fork refer to the same layers, and each branch only keeps the entries it changes
+ * after the fork.
+ * <p>
+ * A lookup goes through the layers, latest first; the layers are merged when there are more than
+ * {@link #MAX_LAYERS}. The iteration order is the order of the layers, and of a {@link HashMap}
+ * within each layer. The views of the map go through a copy of its entries, so they should only be
+ * used on small maps.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class ForkableMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum number of shared layers of a map. */
+	private static final int MAX_LAYERS = 8;
+
+	/** The entries shared with the copies of the map, latest first; null if there are none. */
+	private Layer shared;
+
+	/** The entries changed since the map was last written, removed ones included. */
+	private HashMap<Object, Object> changes = new HashMap<Object, Object>();
+
+	/** The number of entries. */
+	private int size = 0;
+
+	/**
+	 * Creates a new empty map.
+	 */
+	public ForkableMap() {
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return lookup(key) != Marker.ABSENT;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		Object value = lookup(key);
+		return value == Marker.ABSENT ? null : (V) value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		Object previous = lookup(key);
+		changes.put(key, value);
+		if (previous == Marker.ABSENT) {
+			size++;
+			return null;
+		}
+		return (V) previous;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		Object previous = lookup(key);
+		if (previous == Marker.ABSENT) {
+			return null;
+		}
+		if (shared != null && shared.lookup(key) != Marker.ABSENT) {
+			changes.put(key, Marker.REMOVED);
+		} else {
+			changes.remove(key);
+		}
+		size--;
+		return (V) previous;
+	}
+
+	@Override
+	public void clear() {
+		shared = null;
+		changes = new HashMap<Object, Object>();
+		size = 0;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				final Iterator<Map.Entry<K, V>> iterator = entries().entrySet().iterator();
+				return new Iterator<Map.Entry<K, V>>() {
+
+					/** The entry last returned. */
+					private Map.Entry<K, V> last;
+
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Map.Entry<K, V> next() {
+						last = iterator.next();
+						return new AbstractMap.SimpleEntry<K, V>(last) {
+
+							private static final long serialVersionUID = 1L;
+
+							@Override
+							public V setValue(V value) {
+								ForkableMap.this.put(getKey(), value);
+								return super.setValue(value);
+							}
+						};
+					}
+
+					@Override
+					public void remove() {
+						if (last == null) {
+							throw new IllegalStateException();
+						}
+						ForkableMap.this.remove(last.getKey());
+						last = null;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Looks a key up in the changes, then in the shared layers.
+	 *
+	 * @param key the key
+	 * @return the value of the key, or {@link Marker#ABSENT} if it is not in the map
+	 */
+	private Object lookup(Object key) {
+		Object value = changes.get(key);
+		if (value != null || changes.containsKey(key)) {
+			return value == Marker.REMOVED ? Marker.ABSENT : value;
+		}
+		return shared == null ? Marker.ABSENT : shared.lookup(key);
+	}
+
+	/**
+	 * Copies the entries of the map, in the order of the layers.
+	 *
+	 * @return the entries
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<K, V> entries() {
+		LinkedHashMap<Object, Object> entries = new LinkedHashMap<Object, Object>();
+		if (shared != null) {
+			shared.copyTo(entries);
+		}
+		entries.putAll(changes);
+		Iterator<Object> values = entries.values().iterator();
+		while (values.hasNext()) {
+			if (values.next() == Marker.REMOVED) {
+				values.remove();
+			}
+		}
+		return (Map<K, V>) (Map<?, ?>) entries;
+	}
+
+	/**
+	 * Moves the changes to a new shared layer before the map is written, merging the layers if
+	 * there are too many.
+	 *
+	 * @param out the stream
+	 * @throws IOException if the map can't be written
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		if (!changes.isEmpty()) {
+			shared = new Layer(shared, changes);
+			changes = new HashMap<Object, Object>();
+			if (shared.depth > MAX_LAYERS) {
+				HashMap<Object, Object> merged = new HashMap<Object, Object>(size * 4 / 3 + 1);
+				merged.putAll(entries());
+				shared = new Layer(null, merged);
+			}
+		}
+		out.defaultWriteObject();
+	}
+
+	/**
+	 * The markers stored in or returned by the layers; an enum, so that they are the same
+	 * instances when read back.
+	 */
+	private enum Marker {
+
+		/** A key removed from the map. */
+		REMOVED,
+
+		/** The result of the lookup of a key not in the map. */
+		ABSENT
+	}
+
+	/**
+	 * Entries of the map shared with its copies, which are never changed.
+	 */
+	private static final class Layer implements SharedState, Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The earlier layer, or null. */
+		final Layer parent;
+
+		/** The entries of this layer, removed ones included. */
+		final HashMap<Object, Object> entries;
+
+		/** The number of layers up to this one. */
+		final int depth;
+
+		Layer(Layer parent, HashMap<Object, Object> entries) {
+			this.parent = parent;
+			this.entries = entries;
+			depth = parent == null ? 1 : parent.depth + 1;
+		}
+
+		/**
+		 * Looks a key up in this layer, then in the earlier ones.
+		 *
+		 * @param key the key
+		 * @return the value of the key, or {@link Marker#ABSENT} if it is not in the layers
+		 */
+		Object lookup(Object key) {
+			for (Layer layer = this; layer != null; layer = layer.parent) {
+				Object value = layer.entries.get(key);
+				if (value != null || layer.entries.containsKey(key)) {
+					return value == Marker.REMOVED ? Marker.ABSENT : value;
+				}
+			}
+			return Marker.ABSENT;
+		}
+
+		/**
+		 * Copies the entries of the layers, earliest first.
+		 *
+		 * @param map the map receiving the entries
+		 */
+		void copyTo(Map<Object, Object> map) {
+			if (parent != null) {
+				parent.copyTo(map);
+			}
+			map.putAll(entries);
+		}
+	}
+
+}
@@ -10,90 +10,87 @@ package org.cloudbus.cloudsim.core;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
- * 
+ * The future event queue used by {@link CloudSim}. Implementations must return the events in the
+ * order defined by {@link SimEvent#compareTo(SimEvent)}, i.e. by event time and then by the serial
+ * number assigned when the event is added to the queue.
+ * <p>
+ * The implementation used by a simulation is selected with a {@link FutureQueueType} passed to
+ * {@link CloudSim#init(int, java.util.Calendar, boolean, FutureQueueType)}.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
- * @see Simulation
- * @see java.util.TreeSet
+ * @see CloudSim
+ * @see FutureQueueType
  */
-public class FutureQueue {
-
-	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
-
-	/** The serial. */
-	private long serial = 0;
+public interface FutureQueue {
 
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
-	public void addEvent(SimEvent newEvent) {
-		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
-	}
+	void addEvent(SimEvent newEvent);
 
 	/**
-	 * Add a new event to the head of the queue.
-	 * 
+	 * Add a new event to the head of the queue, i.e. before all the events added with
+	 * {@link #addEvent(SimEvent)} that have the same time.
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
-	public void addEventFirst(SimEvent newEvent) {
-		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
-	}
+	void addEventFirst(SimEvent newEvent);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent peek();
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent poll();
 
 	/**
-	 * Returns an iterator to the queue.
-	 * 
+	 * Returns an iterator to the queue. Only the {@link TreeSetFutureQueue} guarantees that the
+	 * events are returned in temporal order; use {@link #peek()} and {@link #poll()} to access the
+	 * queue in order.
+	 *
 	 * @return the iterator
 	 */
-	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
-	}
+	Iterator<SimEvent> iterator();
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the size
 	 */
-	public int size() {
-		return sortedSet.size();
-	}
+	int size();
 
 	/**
 	 * Removes the event from the queue.
-	 * 
+	 *
 	 * @param event the event
 	 * @return true, if successful
 	 */
-	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
-	}
+	boolean remove(SimEvent event);
 
 	/**
 	 * Removes all the events from the queue.
-	 * 
+	 *
 	 * @param events the events
 	 * @return true, if successful
 	 */
-	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
-	}
+	boolean removeAll(Collection<SimEvent> events);
 
 	/**
 	 * Clears the queue.
 	 */
-	public void clear() {
-		sortedSet.clear();
-	}
+	void clear();
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * The implementations of the {@link FutureQueue} that can be selected when initialising
+ * {@link CloudSim}.
+ *
+ * @see CloudSim#init(int, java.util.Calendar, boolean, FutureQueueType)
+ */
+public enum FutureQueueType {
+
+	/** A {@link TreeSetFutureQueue}, the queue used by default. */
+	TREE_SET,
+
+	/** A {@link BinaryHeapFutureQueue}. */
+	BINARY_HEAP,
+
+	/** A {@link CalendarFutureQueue}. */
+	CALENDAR,
+
+	/**
+	 * A {@link SimEventStore}, which recycles the events; entities must not keep references to
+	 * the events they receive.
+	 */
+	EVENT_STORE;
+
+	/**
+	 * Creates an empty future event queue of this type.
+	 *
+	 * @return the queue
+	 */
+	public FutureQueue createQueue() {
+		switch (this) {
+			case BINARY_HEAP:
+				return new BinaryHeapFutureQueue();
+			case CALENDAR:
+				return new CalendarFutureQueue();
+			case EVENT_STORE:
+				return new SimEventStore();
+			default:
+				return new TreeSetFutureQueue();
+		}
+	}
+
+}
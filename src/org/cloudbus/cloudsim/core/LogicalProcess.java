@@ -0,0 +1,382 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A logical process of a parallel simulation: the entities of a partition, with their own event
+ * queues and clock. A logical process runs the clock ticks of its entities exactly as
+ * {@link CloudSim#runClockTick()} does for the whole simulation.
+ * <p>
+ * In a sequential simulation the events of the same time are ordered by their serial, i.e. the
+ * order in which they were sent. Since the entities run in the order of their ids in every clock
+ * tick, this is the order of the send time, the id of the sending entity and the order of the
+ * sends of that entity. The events of a logical process are ordered by these keys instead, so that
+ * the logical processes deliver the events in the same order as the sequential simulation without
+ * sharing a serial number.
+ *
+ * @see ParallelEngine
+ */
+class LogicalProcess {
+
+	/**
+	 * The order of the events of a parallel simulation: time, then the events sent with priority,
+	 * then send time, then the id of the sending entity and the order of its sends, which are
+	 * encoded in the serial.
+	 */
+	static final Comparator<SimEvent> EVENT_ORDER = new Comparator<SimEvent>() {
+
+		@Override
+		public int compare(SimEvent a, SimEvent b) {
+			if (a.eventTime() < b.eventTime()) {
+				return -1;
+			} else if (a.eventTime() > b.eventTime()) {
+				return 1;
+			}
+			boolean aFirst = a.getSerial() < 0;
+			if (aFirst != (b.getSerial() < 0)) {
+				return aFirst ? -1 : 1;
+			}
+			if (a.getSendTime() < b.getSendTime()) {
+				return -1;
+			} else if (a.getSendTime() > b.getSendTime()) {
+				return 1;
+			}
+			return Long.compare(a.getSerial(), b.getSerial());
+		}
+	};
+
+	/** The simulation context of the entities of this process. */
+	final SimulationContext context;
+
+	/** The future events of the entities of this process. */
+	final EventQueue future = new EventQueue();
+
+	/** The deferred events of the entities of this process. */
+	final DeferredQueue deferred = new DeferredQueue();
+
+	/** The ids of the entities of this process to be run in the next clock tick. */
+	final RunnableQueue runnable = new RunnableQueue();
+
+	/** The wait predicates of the entities of this process. */
+	final Map<Integer, Predicate> waitPredicates = new HashMap<Integer, Predicate>();
+
+	/** The periodic timers of the entities of this process. */
+	final TimerSlots timers = new TimerSlots();
+
+	/** The events sent to the entities of other processes in the current window. */
+	final List<SimEvent> outbox = new ArrayList<SimEvent>();
+
+	/** The output of the entities of this process not written yet, in the order it was written. */
+	final List<Output> outputs = new ArrayList<Output>();
+
+	/** The clock of this process. */
+	double clock = 0;
+
+	/** The id of the entity being run, which is the sender of the events scheduled. */
+	int runningEntity = -1;
+
+	/** The number of events sent by the entity being run in this clock tick. */
+	int sendCount = 0;
+
+	/** The number of timer slots scheduled by this process itself, which orders them. */
+	long internalCount = 0;
+
+	/** The number of events processed by this process. */
+	long processedEvents = 0;
+
+	/** The number of events sent to other processes. */
+	long remoteEvents = 0;
+
+	/**
+	 * Creates a new logical process.
+	 *
+	 * @param context the simulation context of the entities of the process
+	 */
+	LogicalProcess(SimulationContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * Gets the time of the next event of this process.
+	 *
+	 * @return the time, or {@link Double#MAX_VALUE} if there are no future events
+	 */
+	double nextEventTime() {
+		SimEvent next = future.peek();
+		return next == null ? Double.MAX_VALUE : next.eventTime();
+	}
+
+	/**
+	 * Prepares an entity to be run, so that the events it sends are ordered after the ones sent
+	 * by the entities run before it.
+	 *
+	 * @param id the id of the entity
+	 */
+	void beginRun(int id) {
+		runningEntity = id;
+		sendCount = 0;
+	}
+
+	/**
+	 * Runs the clock ticks of this process until the next event is at the end of the window or
+	 * later.
+	 *
+	 * @param windowEnd the end of the window, excluded
+	 */
+	void processWindow(double windowEnd) {
+		while (true) {
+			int count = runnable.drain();
+			for (int k = 0; k < count; k++) {
+				int i = runnable.drained(k);
+				SimEntity ent = context.getEntity(i);
+				if (ent.getState() == SimEntity.RUNNABLE) {
+					beginRun(i);
+					ent.run();
+				}
+			}
+			runningEntity = -1;
+
+			SimEvent next = future.peek();
+			if (next == null || next.eventTime() >= windowEnd) {
+				return;
+			}
+			SimEvent first = future.poll();
+			double time = first.eventTime();
+			processEvent(first);
+			next = future.peek();
+			while (next != null && next.eventTime() == time) {
+				processEvent(future.poll());
+				next = future.peek();
+			}
+		}
+	}
+
+	/**
+	 * Processes an event, as {@link CloudSim#processEvent(SimEvent)} does.
+	 *
+	 * @param e the event
+	 */
+	void processEvent(SimEvent e) {
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		processedEvents++;
+		if (context.telemetry != null) {
+			context.telemetry.eventProcessed();
+		}
+		if (e.getType() == SimEvent.TIMER && context.dropCancelledTimers(e, this)) {
+			return;
+		}
+		clock = e.eventTime();
+
+		switch (e.getType()) {
+			case SimEvent.ENULL:
+				throw new IllegalArgumentException("Event has a null type.");
+
+			case SimEvent.SEND:
+				deliver(e);
+				break;
+
+			case SimEvent.TIMER:
+				context.fireTimers(e, this);
+				break;
+
+			case SimEvent.HOLD_DONE:
+				int src = e.getSource();
+				if (src < 0) {
+					throw new IllegalArgumentException("Null entity holding.");
+				}
+				// queues the entity to be run
+				context.getEntity(src).setState(SimEntity.RUNNABLE);
+				break;
+
+			default:
+				throw new IllegalStateException("Entities can't be created in a parallel simulation.");
+		}
+	}
+
+	/**
+	 * Delivers an event sent to an entity of this process: gives it to the entity if it is waiting
+	 * for it, or adds it to the deferred queue.
+	 *
+	 * @param e the event
+	 */
+	void deliver(SimEvent e) {
+		int dest = e.getDestination();
+		if (dest < 0) {
+			throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+		}
+		SimEntity destEnt = context.getEntity(dest);
+		if (destEnt.getState() == SimEntity.WAITING) {
+			Integer destObj = Integer.valueOf(dest);
+			Predicate p = waitPredicates.get(destObj);
+			if ((p == null) || (e.getTag() == 9999) || (p.match(e))) {
+				destEnt.setEventBuffer(e);
+				destEnt.setState(SimEntity.RUNNABLE);
+				waitPredicates.remove(destObj);
+			} else {
+				deferred.addEvent(e);
+			}
+		} else {
+			deferred.addEvent(e);
+			if (destEnt.getState() == SimEntity.RUNNABLE) {
+				runnable.add(dest);
+			}
+		}
+	}
+
+	/**
+	 * Delivers an event of a periodic timer of an entity of this process.
+	 *
+	 * @param e the event
+	 */
+	void deliverTimerEvent(SimEvent e) {
+		deliver(e);
+	}
+
+	/**
+	 * Called when a periodic timer has been added to a slot of {@link #timers}.
+	 *
+	 * @param slot the slot
+	 */
+	void timerAdded(TimerSlots.TimerSlot slot) {
+	}
+
+	/**
+	 * Called when a slot has been removed from {@link #timers}, to be fired or dropped.
+	 *
+	 * @param slot the slot
+	 */
+	void timerSlotRemoved(TimerSlots.TimerSlot slot) {
+	}
+
+	/**
+	 * Called when a periodic timer of an entity of this process has been cancelled.
+	 *
+	 * @param timer the timer
+	 */
+	void timerCancelled(PeriodicTimer timer) {
+	}
+
+	/**
+	 * Keeps the output written by an entity of this process, to be written by the engine.
+	 *
+	 * @param src the id of the entity
+	 * @param output the code writing the output
+	 */
+	void output(int src, Runnable output) {
+		outputs.add(new Output(clock, src, output));
+	}
+
+	/**
+	 * Takes the output written before a time, which is the oldest output kept.
+	 *
+	 * @param time the time
+	 * @param taken the list receiving the output taken
+	 */
+	void takeOutputs(double time, List<Output> taken) {
+		int count = 0;
+		while (count < outputs.size() && outputs.get(count).time < time) {
+			count++;
+		}
+		if (count > 0) {
+			List<Output> before = outputs.subList(0, count);
+			taken.addAll(before);
+			before.clear();
+		}
+	}
+
+	/**
+	 * Output written by an entity of a logical process.
+	 */
+	static class Output {
+
+		/** The time the output was written at. */
+		final double time;
+
+		/** The id of the entity. */
+		final int entity;
+
+		/** The code writing the output. */
+		final Runnable output;
+
+		Output(double time, int entity, Runnable output) {
+			this.time = time;
+			this.entity = entity;
+			this.output = output;
+		}
+	}
+
+	/**
+	 * The future event queue of a logical process. The events must have their ordering keys when
+	 * they are added, so adding an event with or without priority is the same.
+	 */
+	static class EventQueue implements FutureQueue {
+
+		/** The events. */
+		private final PriorityQueue<SimEvent> events = new PriorityQueue<SimEvent>(64, EVENT_ORDER);
+
+		@Override
+		public void addEvent(SimEvent newEvent) {
+			events.add(newEvent);
+		}
+
+		@Override
+		public void addEventFirst(SimEvent newEvent) {
+			events.add(newEvent);
+		}
+
+		@Override
+		public SimEvent peek() {
+			return events.peek();
+		}
+
+		@Override
+		public SimEvent poll() {
+			return events.poll();
+		}
+
+		@Override
+		public Iterator<SimEvent> iterator() {
+			return events.iterator();
+		}
+
+		@Override
+		public int size() {
+			return events.size();
+		}
+
+		@Override
+		public boolean remove(SimEvent event) {
+			return events.remove(event);
+		}
+
+		@Override
+		public boolean removeAll(Collection<SimEvent> events) {
+			return this.events.removeAll(events);
+		}
+
+		@Override
+		public void clear() {
+			events.clear();
+		}
+	}
+
+}
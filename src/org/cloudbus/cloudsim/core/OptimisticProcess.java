@@ -0,0 +1,353 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A logical process run optimistically: it runs its clock ticks without waiting for the events of
+ * the other logical processes, and keeps what is needed to undo them until they are committed.
+ * For every clock tick it keeps the events processed, the events sent, and the state of the
+ * entities run, which are all {@link StateSaving}. When an event arrives for a time already
+ * processed, the clock ticks from that time on are rolled back: the entities get their saved
+ * state back, the events sent are removed from the queues, or cancelled by anti-messages if they
+ * were already delivered to other logical processes, and the events processed are queued again.
+ * The changes made to the {@link PeriodicTimer periodic timers} are undone as well. The output
+ * written by the entities in a clock tick is kept with the tick: it is handed to the engine when
+ * the tick is committed, and dropped if the tick is rolled back.
+ *
+ * @see TimeWarpEngine
+ */
+class OptimisticProcess extends LogicalProcess {
+
+	/** The clock ticks processed and not committed yet, oldest first. */
+	private final ArrayDeque<Tick> ticks = new ArrayDeque<Tick>();
+
+	/** The clock tick being run, or <code>null</code> outside of a window. */
+	private Tick currentTick;
+
+	/** The events delivered to other processes by the clock ticks rolled back. */
+	final List<SimEvent> antiMessages = new ArrayList<SimEvent>();
+
+	/** The number of events committed. */
+	long committedEvents = 0;
+
+	/** The number of events rolled back. */
+	long rolledBackEvents = 0;
+
+	/** The number of rollbacks. */
+	long rollbacks = 0;
+
+	/** The number of anti-messages sent. */
+	long antiMessagesSent = 0;
+
+	/**
+	 * Creates a new optimistic logical process.
+	 *
+	 * @param context the simulation context of the entities of the process
+	 */
+	OptimisticProcess(SimulationContext context) {
+		super(context);
+	}
+
+	/**
+	 * Gets the time of the last clock tick processed and not committed.
+	 *
+	 * @return the time, or {@link Double#NEGATIVE_INFINITY} if there is none
+	 */
+	double lastTickTime() {
+		return ticks.isEmpty() ? Double.NEGATIVE_INFINITY : ticks.peekLast().time;
+	}
+
+	/**
+	 * Records an event sent by the entity being run, so that it can be cancelled by a rollback.
+	 *
+	 * @param e the event
+	 * @param remote whether the event was sent to another process
+	 */
+	void recordSend(SimEvent e, boolean remote) {
+		if (currentTick != null) {
+			(remote ? currentTick.sentRemote : currentTick.sentLocal).add(e);
+		}
+	}
+
+	@Override
+	void deliverTimerEvent(SimEvent e) {
+		super.deliverTimerEvent(e);
+		if (currentTick != null) {
+			currentTick.timers().delivered.add(e);
+		}
+	}
+
+	@Override
+	void timerAdded(TimerSlots.TimerSlot slot) {
+		if (currentTick != null) {
+			currentTick.timers().added.add(slot);
+		}
+	}
+
+	@Override
+	void timerSlotRemoved(TimerSlots.TimerSlot slot) {
+		if (currentTick != null) {
+			currentTick.timers().removed.add(slot);
+		}
+	}
+
+	@Override
+	void timerCancelled(PeriodicTimer timer) {
+		if (currentTick != null) {
+			currentTick.timers().cancelled.add(timer);
+		}
+	}
+
+	@Override
+	void output(int src, Runnable output) {
+		if (currentTick != null) {
+			currentTick.outputs.add(new Output(clock, src, output));
+		} else {
+			super.output(src, output);
+		}
+	}
+
+	/**
+	 * Runs the clock ticks of this process until the next event is at the end of the window or
+	 * later, saving the state of the entities before they run.
+	 *
+	 * @param windowEnd the end of the window, excluded
+	 */
+	@Override
+	void processWindow(double windowEnd) {
+		while (true) {
+			int count = runnable.drain();
+			for (int k = 0; k < count; k++) {
+				int i = runnable.drained(k);
+				SimEntity ent = context.getEntity(i);
+				if (ent.getState() == SimEntity.RUNNABLE) {
+					if (currentTick != null) {
+						currentTick.save(ent);
+					}
+					beginRun(i);
+					ent.run();
+				}
+			}
+			runningEntity = -1;
+
+			SimEvent next = future.peek();
+			if (next == null || next.eventTime() >= windowEnd) {
+				currentTick = null;
+				return;
+			}
+			currentTick = new Tick(next.eventTime(), clock);
+			ticks.addLast(currentTick);
+			SimEvent first = future.poll();
+			double time = first.eventTime();
+			currentTick.processed.add(first);
+			processEvent(first);
+			next = future.peek();
+			while (next != null && next.eventTime() == time) {
+				next = future.poll();
+				currentTick.processed.add(next);
+				processEvent(next);
+				next = future.peek();
+			}
+		}
+	}
+
+	/**
+	 * Rolls back the clock ticks of a time or later, latest first.
+	 *
+	 * @param time the time
+	 */
+	void rollback(double time) {
+		if (lastTickTime() < time) {
+			return;
+		}
+		rollbacks++;
+		while (!ticks.isEmpty() && ticks.peekLast().time >= time) {
+			undo(ticks.pollLast());
+		}
+	}
+
+	/**
+	 * Commits the clock ticks before a time, which can't be rolled back anymore, and hands their
+	 * output to the engine.
+	 *
+	 * @param time the time
+	 */
+	void commit(double time) {
+		while (!ticks.isEmpty() && ticks.peekFirst().time < time) {
+			Tick tick = ticks.pollFirst();
+			for (int i = 0; i < tick.entities.size(); i++) {
+				((StateSaving) tick.entities.get(i)).discardState(tick.states.get(i));
+			}
+			outputs.addAll(tick.outputs);
+			committedEvents += tick.processed.size();
+		}
+	}
+
+	/**
+	 * Undoes a clock tick.
+	 *
+	 * @param tick the clock tick
+	 */
+	private void undo(Tick tick) {
+		for (int i = tick.entities.size() - 1; i >= 0; i--) {
+			SimEntity ent = tick.entities.get(i);
+			((StateSaving) ent).restoreState(tick.states.get(i));
+			ent.restoreRunState(tick.entityStates.get(i).intValue());
+		}
+		for (SimEvent e : tick.sentLocal) {
+			if (!future.remove(e)) {
+				throw new IllegalStateException("An event sent in a rolled back clock tick is missing.");
+			}
+		}
+		if (tick.timers != null) {
+			undoTimers(tick.timers);
+		}
+		for (SimEvent e : tick.sentRemote) {
+			if (!outbox.remove(e)) {
+				antiMessages.add(e);
+				antiMessagesSent++;
+			}
+		}
+		for (SimEvent e : tick.processed) {
+			if (e.getType() == SimEvent.SEND) {
+				Iterator<SimEvent> iterator = deferred.iterator(e.getDestination());
+				while (iterator.hasNext()) {
+					if (iterator.next() == e) {
+						iterator.remove();
+						break;
+					}
+				}
+			}
+			future.addEvent(e);
+		}
+		clock = tick.previousClock;
+		rolledBackEvents += tick.processed.size();
+	}
+
+	/**
+	 * Undoes the changes made to the periodic timers in a clock tick. The slot events scheduled
+	 * in the clock tick have already been removed from the future queue.
+	 *
+	 * @param changes the changes
+	 */
+	private void undoTimers(TimerChanges changes) {
+		for (int i = changes.added.size() - 1; i >= 0; i--) {
+			timers.undoAdd(changes.added.get(i));
+		}
+		for (TimerSlots.TimerSlot slot : changes.removed) {
+			timers.restore(slot);
+		}
+		for (PeriodicTimer timer : changes.cancelled) {
+			timer.setCancelled(false);
+		}
+		for (SimEvent e : changes.delivered) {
+			Iterator<SimEvent> iterator = deferred.iterator(e.getDestination());
+			while (iterator.hasNext()) {
+				if (iterator.next() == e) {
+					iterator.remove();
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The changes made to the periodic timers in a clock tick.
+	 */
+	private static class TimerChanges {
+
+		/** The slots timers were added to, in order. */
+		final List<TimerSlots.TimerSlot> added = new ArrayList<TimerSlots.TimerSlot>();
+
+		/** The slots removed to be fired or dropped. */
+		final List<TimerSlots.TimerSlot> removed = new ArrayList<TimerSlots.TimerSlot>();
+
+		/** The timers cancelled. */
+		final List<PeriodicTimer> cancelled = new ArrayList<PeriodicTimer>(0);
+
+		/** The events of the timers fired. */
+		final List<SimEvent> delivered = new ArrayList<SimEvent>();
+	}
+
+	/**
+	 * A clock tick processed and not committed.
+	 */
+	private static class Tick {
+
+		/** The time of the clock tick. */
+		final double time;
+
+		/** The clock before the clock tick. */
+		final double previousClock;
+
+		/** The events processed. */
+		final List<SimEvent> processed = new ArrayList<SimEvent>();
+
+		/** The events sent to the entities of the same process. */
+		final List<SimEvent> sentLocal = new ArrayList<SimEvent>();
+
+		/** The events sent to other processes. */
+		final List<SimEvent> sentRemote = new ArrayList<SimEvent>(0);
+
+		/** The entities run. */
+		final List<SimEntity> entities = new ArrayList<SimEntity>();
+
+		/** The states of the entities before they ran. */
+		final List<Object> states = new ArrayList<Object>();
+
+		/** The {@link SimEntity} states of the entities before they ran. */
+		final List<Integer> entityStates = new ArrayList<Integer>();
+
+		/** The changes made to the periodic timers; null if there were none. */
+		TimerChanges timers;
+
+		/** The output written by the entities, written once the clock tick is committed. */
+		final List<Output> outputs = new ArrayList<Output>(0);
+
+		/**
+		 * Creates a new clock tick.
+		 *
+		 * @param time the time of the clock tick
+		 * @param previousClock the clock before the clock tick
+		 */
+		Tick(double time, double previousClock) {
+			this.time = time;
+			this.previousClock = previousClock;
+		}
+
+		/**
+		 * Gets the changes made to the periodic timers, creating them if needed.
+		 *
+		 * @return the changes
+		 */
+		TimerChanges timers() {
+			if (timers == null) {
+				timers = new TimerChanges();
+			}
+			return timers;
+		}
+
+		/**
+		 * Saves the state of an entity before it runs.
+		 *
+		 * @param ent the entity
+		 */
+		void save(SimEntity ent) {
+			entities.add(ent);
+			states.add(((StateSaving) ent).saveState());
+			entityStates.add(Integer.valueOf(ent.getState()));
+		}
+	}
+
+}
@@ -0,0 +1,293 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the entities of a clock tick of a sequential simulation in parallel. The events of a clock
+ * tick have different destinations, and once they have been delivered the entities they woke up
+ * can run independently: the {@link ParallelSafe} ones are run concurrently on a fork/join pool,
+ * and the others one after the other on the simulation thread, after them.
+ * <p>
+ * While they run, the events the entities send, the periodic timers they schedule and the output
+ * they write are kept in a buffer for each entity. When all the entities have run, the buffers are
+ * merged into the future queue in the order of the entity ids, which is the order in which the
+ * entities run in a sequential clock tick, so the events get the same serials, the output is
+ * written in the same order and the simulation gets the same results.
+ * The events are not taken from the pool of an event store while the entities run concurrently.
+ *
+ * @see CloudSim#setParallelDispatch(int)
+ */
+class ParallelDispatcher {
+
+	/** The simulation context of the entities. */
+	private final SimulationContext context;
+
+	/** The pool running the parallel-safe entities. */
+	private final ForkJoinPool pool;
+
+	/** The buffer of the entity run by the current thread, while the entities are dispatched. */
+	private final ThreadLocal<Buffer> current = new ThreadLocal<Buffer>();
+
+	/** Whether the entities of a clock tick are being run. */
+	private volatile boolean dispatching = false;
+
+	/** The entities being run, in the order of their ids. */
+	private final List<SimEntity> running = new ArrayList<SimEntity>();
+
+	/** The buffers of the entities being run. */
+	private final List<Buffer> buffers = new ArrayList<Buffer>();
+
+	/**
+	 * Creates a new dispatcher for the entities of a simulation.
+	 *
+	 * @param context the simulation context of the entities
+	 * @param parallelism the number of threads running the parallel-safe entities
+	 */
+	ParallelDispatcher(SimulationContext context, int parallelism) {
+		this.context = context;
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Runs the runnable entities of a clock tick, and queues the events they send in the order of
+	 * the entity ids.
+	 *
+	 * @param runnable the ids of the entities to be run; drained by this method
+	 */
+	void runEntities(RunnableQueue runnable) {
+		running.clear();
+		int safe = 0;
+		int count = runnable.drain();
+		for (int k = 0; k < count; k++) {
+			SimEntity ent = context.getEntity(runnable.drained(k));
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				running.add(ent);
+				if (ent instanceof ParallelSafe) {
+					safe++;
+				}
+			}
+		}
+
+		// forking costs more than running a few entities
+		if (safe < pool.getParallelism()) {
+			for (SimEntity ent : running) {
+				if (ent.getState() == SimEntity.RUNNABLE) {
+					ent.run();
+				}
+			}
+			return;
+		}
+
+		while (buffers.size() < running.size()) {
+			buffers.add(new Buffer());
+		}
+		dispatching = true;
+		try {
+			pool.invoke(new RunAction(0, running.size()));
+			for (int i = 0; i < running.size(); i++) {
+				SimEntity ent = running.get(i);
+				if (!(ent instanceof ParallelSafe)) {
+					runBuffered(ent, buffers.get(i));
+				}
+			}
+		} finally {
+			dispatching = false;
+		}
+		for (int i = 0; i < running.size(); i++) {
+			buffers.get(i).flush();
+		}
+	}
+
+	/**
+	 * Keeps an event sent by an entity being dispatched in the buffer of the entity.
+	 *
+	 * @param e the event
+	 * @param first whether the event has priority over the events of the same time
+	 * @return true if the event has been buffered, false if the current thread is not running an
+	 *         entity being dispatched
+	 */
+	boolean buffer(SimEvent e, boolean first) {
+		Buffer buffer = currentBuffer();
+		if (buffer == null) {
+			return false;
+		}
+		buffer.operations.add(e);
+		if (first) {
+			buffer.first.set(buffer.operations.size() - 1);
+		}
+		return true;
+	}
+
+	/**
+	 * Keeps a periodic timer scheduled by an entity being dispatched in the buffer of the entity.
+	 *
+	 * @param timer the timer
+	 * @param time the time of the first firing of the timer
+	 * @return true if the timer has been buffered, false if the current thread is not running an
+	 *         entity being dispatched
+	 */
+	boolean bufferTimer(PeriodicTimer timer, double time) {
+		Buffer buffer = currentBuffer();
+		if (buffer == null) {
+			return false;
+		}
+		buffer.operations.add(new PendingTimer(timer, time));
+		return true;
+	}
+
+	/**
+	 * Keeps the output written by an entity being dispatched in the buffer of the entity.
+	 *
+	 * @param output the code writing the output
+	 * @return true if the output has been buffered, false if the current thread is not running an
+	 *         entity being dispatched
+	 */
+	boolean bufferOutput(Runnable output) {
+		Buffer buffer = currentBuffer();
+		if (buffer == null) {
+			return false;
+		}
+		buffer.operations.add(output);
+		return true;
+	}
+
+	/**
+	 * Checks whether the entities of a clock tick are being run concurrently.
+	 *
+	 * @return true if they are
+	 */
+	boolean isDispatching() {
+		return dispatching;
+	}
+
+	/**
+	 * Shuts the pool down.
+	 */
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Gets the buffer of the entity run by the current thread.
+	 *
+	 * @return the buffer, or null if the entities are not being dispatched
+	 */
+	private Buffer currentBuffer() {
+		return dispatching ? current.get() : null;
+	}
+
+	/**
+	 * Runs an entity, keeping what it schedules in a buffer.
+	 *
+	 * @param ent the entity
+	 * @param buffer the buffer
+	 */
+	private void runBuffered(SimEntity ent, Buffer buffer) {
+		current.set(buffer);
+		try {
+			ent.run();
+		} finally {
+			current.remove();
+		}
+	}
+
+	/**
+	 * Runs the parallel-safe entities of a range of {@link #running}, splitting it between the
+	 * threads of the pool.
+	 */
+	private class RunAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The start of the range. */
+		private final int from;
+
+		/** The end of the range, excluded. */
+		private final int to;
+
+		RunAction(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RunAction(from, middle), new RunAction(middle, to));
+				return;
+			}
+			SimEntity ent = running.get(from);
+			if (ent instanceof ParallelSafe) {
+				SimulationContext previous = context.enter();
+				try {
+					runBuffered(ent, buffers.get(from));
+				} finally {
+					context.exit(previous);
+				}
+			}
+		}
+	}
+
+	/**
+	 * What an entity has scheduled while it was run concurrently: the events it sent, the
+	 * periodic timers it scheduled and the output it wrote, in order.
+	 */
+	private class Buffer {
+
+		/** The events, {@link PendingTimer pending timers} and outputs. */
+		final List<Object> operations = new ArrayList<Object>();
+
+		/** The indexes of the events sent with priority. */
+		final BitSet first = new BitSet();
+
+		/**
+		 * Queues the events, adds the timers and writes the output, and clears the buffer.
+		 */
+		void flush() {
+			for (int i = 0; i < operations.size(); i++) {
+				Object operation = operations.get(i);
+				if (operation instanceof PendingTimer) {
+					PendingTimer pending = (PendingTimer) operation;
+					context.addTimer(pending.timer, pending.time);
+				} else if (operation instanceof Runnable) {
+					((Runnable) operation).run();
+				} else {
+					context.enqueue((SimEvent) operation, first.get(i));
+				}
+			}
+			operations.clear();
+			first.clear();
+		}
+	}
+
+	/**
+	 * A periodic timer scheduled by an entity run concurrently.
+	 */
+	private static class PendingTimer {
+
+		/** The timer. */
+		final PeriodicTimer timer;
+
+		/** The time of the first firing of the timer. */
+		final double time;
+
+		PendingTimer(PeriodicTimer timer, double time) {
+			this.timer = timer;
+			this.time = time;
+		}
+	}
+
+}
@@ -0,0 +1,381 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The base of the parallel simulation engines. The entities are assigned to logical processes by
+ * an {@link EntityPartitioner}, and the logical processes are run on a pool of threads. The events
+ * are ordered as in the sequential simulation (see {@link LogicalProcess}).
+ *
+ * @see ConservativeEngine
+ * @see TimeWarpEngine
+ */
+abstract class ParallelEngine {
+
+	/**
+	 * The order in which the output of the entities is written: time, then entity id, which is
+	 * the order in which the entities run in a sequential clock tick. The output of an entity at a
+	 * time stays in the order it was written.
+	 */
+	private static final Comparator<LogicalProcess.Output> OUTPUT_ORDER = new Comparator<LogicalProcess.Output>() {
+
+		@Override
+		public int compare(LogicalProcess.Output a, LogicalProcess.Output b) {
+			if (a.time < b.time) {
+				return -1;
+			} else if (a.time > b.time) {
+				return 1;
+			}
+			return Integer.compare(a.entity, b.entity);
+		}
+	};
+
+	/** The simulation context of the entities. */
+	final SimulationContext context;
+
+	/** The logical processes, in the order of the first entity of their partition. */
+	final LogicalProcess[] processes;
+
+	/** The logical process of each entity, indexed by the entity id. */
+	final LogicalProcess[] processOf;
+
+	/** The lookahead. */
+	final double lookahead;
+
+	/** The number of threads. */
+	final int threads;
+
+	/** The logical process run by the current thread. */
+	private final ThreadLocal<LogicalProcess> current = new ThreadLocal<LogicalProcess>();
+
+	/** Whether the entities are being started. */
+	boolean starting = false;
+
+	/** The pool of threads running the logical processes. */
+	private ExecutorService pool;
+
+	/** The workers running the active logical processes on the pool. */
+	private List<Callable<Void>> workers;
+
+	/** The logical processes to be run by the workers. */
+	private LogicalProcess[] active;
+
+	/** The number of logical processes to be run by the workers. */
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	/** The index of the next logical process to be run by the workers. */
+	private final AtomicInteger nextActive = new AtomicInteger();
+
+	/** The output being written by {@link #writeOutputs(double)}. */
+	private final List<LogicalProcess.Output> outputs = new ArrayList<LogicalProcess.Output>();
+
+	/**
+	 * Creates a new engine for the entities of a simulation.
+	 *
+	 * @param context the simulation context of the entities
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads
+	 * @param lookahead the lookahead
+	 */
+	ParallelEngine(SimulationContext context, EntityPartitioner partitioner, int threads, double lookahead) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1.");
+		}
+		if (lookahead <= 0) {
+			throw new IllegalArgumentException("The lookahead of a parallel simulation must be positive.");
+		}
+		this.context = context;
+		this.threads = threads;
+		this.lookahead = lookahead;
+
+		Map<Integer, List<SimEntity>> byPartition = new LinkedHashMap<Integer, List<SimEntity>>();
+		for (SimEntity ent : context.entities) {
+			Integer partition = Integer.valueOf(partitioner.getPartition(ent));
+			List<SimEntity> partitionEntities = byPartition.get(partition);
+			if (partitionEntities == null) {
+				partitionEntities = new ArrayList<SimEntity>();
+				byPartition.put(partition, partitionEntities);
+			}
+			partitionEntities.add(ent);
+		}
+		processes = new LogicalProcess[byPartition.size()];
+		processOf = new LogicalProcess[context.entities.size()];
+		int i = 0;
+		for (List<SimEntity> partitionEntities : byPartition.values()) {
+			processes[i] = createProcess(partitionEntities);
+			for (SimEntity ent : partitionEntities) {
+				processOf[ent.getId()] = processes[i];
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Creates the logical process of a partition. This is called by the constructor.
+	 *
+	 * @param entities the entities of the partition
+	 * @return the logical process
+	 */
+	abstract LogicalProcess createProcess(List<SimEntity> entities);
+
+	/**
+	 * Schedules an event sent by the entity being run by the current logical process.
+	 *
+	 * @param e the event
+	 * @param first whether the event has priority over the events of the same time
+	 */
+	abstract void schedule(SimEvent e, boolean first);
+
+	/**
+	 * Runs the simulation until there are no more future events, the termination time is reached
+	 * or the simulation is terminated abruptly.
+	 *
+	 * @param pending the events scheduled before the simulation started
+	 * @return the clock at the end of the simulation
+	 */
+	abstract double run(FutureQueue pending);
+
+	/**
+	 * Runs a logical process on the current thread, until the end of its current window.
+	 *
+	 * @param process the logical process
+	 */
+	abstract void runProcess(LogicalProcess process);
+
+	/**
+	 * Gets the logical process run by the current thread.
+	 *
+	 * @return the logical process, or <code>null</code> if the thread is not running one
+	 */
+	LogicalProcess currentProcess() {
+		return current.get();
+	}
+
+	/**
+	 * Gets the logical process sending an event, i.e. the one run by the current thread.
+	 *
+	 * @return the logical process
+	 * @throws IllegalStateException if the current thread is not running an entity
+	 */
+	LogicalProcess sendingProcess() {
+		LogicalProcess process = current.get();
+		if (process == null || process.runningEntity < 0) {
+			throw new IllegalStateException("Events can only be sent by the entities of a parallel simulation.");
+		}
+		return process;
+	}
+
+	/**
+	 * Sets the ordering keys of an event sent by the entity being run by a logical process.
+	 *
+	 * @param process the logical process
+	 * @param e the event
+	 * @param first whether the event has priority over the events of the same time
+	 */
+	void setOrderingKeys(LogicalProcess process, SimEvent e, boolean first) {
+		long key = ((long) process.runningEntity << 32) | (process.sendCount++ & 0xffffffffL);
+		e.setSerial(first ? key | Long.MIN_VALUE : key);
+		e.setSendTime(starting ? -1 : process.clock);
+	}
+
+	/**
+	 * Schedules the event of a timer slot created by a logical process while firing its timers,
+	 * i.e. before its entities run. The event is ordered as in the sequential simulation: after the
+	 * events sent before the current clock tick, and before the ones sent in it.
+	 *
+	 * @param process the logical process
+	 * @param e the event
+	 */
+	void scheduleTimers(LogicalProcess process, SimEvent e) {
+		e.setSerial(process.internalCount++);
+		e.setSendTime(Math.nextDown(process.clock));
+		process.future.addEvent(e);
+		if (process instanceof OptimisticProcess) {
+			((OptimisticProcess) process).recordSend(e, false);
+		}
+	}
+
+	/**
+	 * Gets the logical process receiving an event.
+	 *
+	 * @param e the event
+	 * @return the logical process
+	 */
+	LogicalProcess destinationOf(SimEvent e) {
+		return processOf[e.getType() == SimEvent.HOLD_DONE ? e.getSource() : e.getDestination()];
+	}
+
+	/**
+	 * Moves the events scheduled before the simulation started to their logical processes, and
+	 * starts the entities.
+	 *
+	 * @param pending the events scheduled before the simulation started
+	 */
+	void startEntities(FutureQueue pending) {
+		// the events sent before the start keep their serial, and come before all the others
+		SimEvent e;
+		while ((e = pending.poll()) != null) {
+			e.setSendTime(-2);
+			if (e.getType() == SimEvent.TIMER) {
+				context.splitTimers(e, processOf);
+			} else {
+				destinationOf(e).future.addEvent(e);
+			}
+		}
+
+		starting = true;
+		for (SimEntity ent : context.entities) {
+			LogicalProcess process = processOf[ent.getId()];
+			current.set(process);
+			process.beginRun(ent.getId());
+			ent.startEntity();
+			process.runningEntity = -1;
+		}
+		current.remove();
+		starting = false;
+		writeOutputs(Double.MAX_VALUE);
+		context.printMessage("Entities started.");
+	}
+
+	/**
+	 * Creates the pool of threads running the logical processes.
+	 */
+	void startPool() {
+		pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			private int count = 0;
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LogicalProcess-" + count++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		active = new LogicalProcess[processes.length];
+		workers = new ArrayList<Callable<Void>>(threads);
+		for (int t = 0; t < threads; t++) {
+			workers.add(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					CloudSim.setContext(context);
+					try {
+						int i;
+						while ((i = nextActive.getAndIncrement()) < activeCount.get()) {
+							runOnCurrentThread(active[i]);
+						}
+					} finally {
+						CloudSim.setContext(null);
+					}
+					return null;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Shuts the pool of threads down.
+	 */
+	void stopPool() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Runs logical processes on the pool of threads, and waits for all of them to finish.
+	 *
+	 * @param processesToRun the logical processes
+	 * @param count the number of logical processes
+	 */
+	void runProcesses(LogicalProcess[] processesToRun, int count) {
+		if (count == 1 || threads == 1) {
+			for (int i = 0; i < count; i++) {
+				runOnCurrentThread(processesToRun[i]);
+			}
+			return;
+		}
+
+		System.arraycopy(processesToRun, 0, active, 0, count);
+		activeCount.set(count);
+		nextActive.set(0);
+		try {
+			for (Future<Void> result : pool.invokeAll(workers)) {
+				result.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The parallel simulation was interrupted.", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Writes the output kept by the logical processes before a time, on the current thread, in
+	 * the order of a sequential simulation (see {@link #OUTPUT_ORDER}).
+	 *
+	 * @param time the time
+	 */
+	void writeOutputs(double time) {
+		for (LogicalProcess process : processes) {
+			process.takeOutputs(time, outputs);
+		}
+		if (outputs.isEmpty()) {
+			return;
+		}
+		// the sort is stable
+		Collections.sort(outputs, OUTPUT_ORDER);
+		try {
+			for (LogicalProcess.Output output : outputs) {
+				output.output.run();
+			}
+		} finally {
+			outputs.clear();
+		}
+	}
+
+	/**
+	 * Runs a logical process on the current thread.
+	 *
+	 * @param process the logical process
+	 */
+	private void runOnCurrentThread(LogicalProcess process) {
+		current.set(process);
+		try {
+			runProcess(process);
+		} finally {
+			current.remove();
+		}
+	}
+
+}
@@ -0,0 +1,27 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * A marker for the entities which can be run concurrently with each other within a clock tick,
+ * when the simulation dispatches the events of a clock tick in parallel (see
+ * {@link CloudSim#setParallelDispatch(int)}).
+ * <p>
+ * When it runs, a parallel-safe entity must only change its own state, and only read the state of
+ * other entities that no entity changes while running. It can send events, hold, pause, wait and
+ * schedule or cancel its periodic timers, but it can't cancel events or create entities. The events
+ * it sends are queued once all the entities of the clock tick have run, in the order of the
+ * entity ids, so the simulation gives the same results as when the entities run one after the
+ * other.
+ *
+ * @see ParallelDispatcher
+ */
+public interface ParallelSafe {
+
+}
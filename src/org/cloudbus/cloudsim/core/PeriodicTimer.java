@@ -0,0 +1,94 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+
+/**
+ * A timer sending an event to an entity periodically, created with
+ * {@link SimEntity#schedulePeriodic(int, double, double, double, Object)}. The entity receives an
+ * event of the tag and data of the timer, sent by itself, at every firing of the timer, until the
+ * end time of the timer or until it is cancelled with {@link SimEntity#cancelPeriodic(PeriodicTimer)}.
+ *
+ * @see TimerSlots
+ */
+public class PeriodicTimer implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The id of the entity receiving the events. */
+	private final int entityId;
+
+	/** The tag of the events. */
+	private final int tag;
+
+	/** The data of the events. */
+	private final Object data;
+
+	/** The time between two firings. */
+	private final double period;
+
+	/** The time after which the timer does not fire anymore. */
+	private final double until;
+
+	/** Whether the timer has been cancelled. */
+	private boolean cancelled = false;
+
+	/**
+	 * Creates a new timer.
+	 *
+	 * @param entityId the id of the entity receiving the events
+	 * @param tag the tag of the events
+	 * @param data the data of the events
+	 * @param period the time between two firings
+	 * @param until the time after which the timer does not fire anymore
+	 */
+	PeriodicTimer(int entityId, int tag, Object data, double period, double until) {
+		this.entityId = entityId;
+		this.tag = tag;
+		this.data = data;
+		this.period = period;
+		this.until = until;
+	}
+
+	public int getEntityId() {
+		return entityId;
+	}
+
+	public int getTag() {
+		return tag;
+	}
+
+	public Object getData() {
+		return data;
+	}
+
+	public double getPeriod() {
+		return period;
+	}
+
+	public double getUntil() {
+		return until;
+	}
+
+	/**
+	 * Checks whether the timer has been cancelled.
+	 *
+	 * @return true if the timer has been cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The ids of the entities to be run in the next clock tick. The ids are kept in an array, each id
+ * at most once, so a clock tick only visits the entities made runnable since the previous one,
+ * however many entities are idle. The ids are {@link #drain() drained} in increasing order, so that
+ * the entities run in the order of their ids, as if all the entities were checked.
+ *
+ * @see SimEntity#setState(int)
+ */
+class RunnableQueue implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The ids queued, flagged to add each id once. */
+	private final BitSet queued = new BitSet();
+
+	/** The ids queued, in the order they were added. */
+	private int[] ids = new int[16];
+
+	/** The number of ids queued. */
+	private int size = 0;
+
+	/** The ids taken by the last drain, in increasing order. */
+	private int[] drained = new int[16];
+
+	/**
+	 * Queues an entity, if it is not queued already.
+	 *
+	 * @param id the id of the entity
+	 */
+	void add(int id) {
+		if (queued.get(id)) {
+			return;
+		}
+		queued.set(id);
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+		}
+		ids[size++] = id;
+	}
+
+	/**
+	 * Takes the queued ids, sorted in increasing order; they are read with {@link #drained(int)}.
+	 * The ids added afterwards are queued again, for the next drain.
+	 *
+	 * @return the number of ids taken
+	 */
+	int drain() {
+		int count = size;
+		int[] taken = ids;
+		ids = drained;
+		drained = taken;
+		size = 0;
+		if (count == 0) {
+			return 0;
+		}
+		if (count < (queued.length() >>> 6)) {
+			// fewer ids than words of the flags: sorting the ids costs less than scanning the flags
+			Arrays.sort(drained, 0, count);
+			for (int k = 0; k < count; k++) {
+				queued.clear(drained[k]);
+			}
+		} else {
+			int k = 0;
+			for (int i = queued.nextSetBit(0); i >= 0; i = queued.nextSetBit(i + 1)) {
+				drained[k++] = i;
+			}
+			queued.clear();
+		}
+		return count;
+	}
+
+	/**
+	 * Gets an id taken by the last drain.
+	 *
+	 * @param index the index of the id, lower than the number of ids taken
+	 * @return the id
+	 */
+	int drained(int index) {
+		return drained[index];
+	}
+
+	/**
+	 * Checks whether no id is queued.
+	 *
+	 * @return true if no id is queued
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the number of ids queued.
+	 *
+	 * @return the number of ids queued
+	 */
+	int size() {
+		return size;
+	}
+
+}
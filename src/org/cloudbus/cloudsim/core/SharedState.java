@@ -0,0 +1,21 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * A marker for the objects of a simulation which are never changed once they are built, such as
+ * datasets read by the entities. When a simulation is forked (see
+ * {@link SimulationContext#fork(int)}), a shared object is not copied: all the branches refer to
+ * the same instance, and may read it concurrently.
+ *
+ * @see ForkableMap
+ */
+public interface SharedState {
+
+}
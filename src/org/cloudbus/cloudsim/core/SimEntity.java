@@ -8,9 +8,11 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
-import org.cloudbus.cloudsim.network.NetworkTopology;
+import org.cloudbus.cloudsim.network.TopologyModel;
 
 /**
  * This class represents a simulation entity. An entity handles events and can send events to other
@@ -28,7 +30,10 @@ import org.cloudbus.cloudsim.network.NetworkTopology;
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  */
-public abstract class SimEntity implements Cloneable {
+public abstract class SimEntity implements Cloneable, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** The name. */
 	private String name;
@@ -42,6 +47,9 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** The simulation context the entity belongs to. */
+	private final SimulationContext context;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -54,7 +62,8 @@ public abstract class SimEntity implements Cloneable {
 		this.name = name;
 		id = -1;
 		state = RUNNABLE;
-		CloudSim.addEntity(this);
+		context = CloudSim.getContext();
+		context.addEntity(this);
 	}
 
 	/**
@@ -75,6 +84,16 @@ public abstract class SimEntity implements Cloneable {
 		return id;
 	}
 
+	/**
+	 * Gets the simulation context this entity belongs to, i.e. the context bound to the thread
+	 * that created it.
+	 * 
+	 * @return the simulation context
+	 */
+	public SimulationContext getContext() {
+		return context;
+	}
+
 	// The schedule functions
 
 	/**
@@ -87,10 +106,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
-		CloudSim.send(id, dest, delay, tag, data);
+		context.send(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -115,7 +134,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(String dest, double delay, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), delay, tag, data);
+		schedule(context.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -162,7 +181,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleNow(String dest, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), 0, tag, data);
+		schedule(context.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -186,10 +205,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
-		CloudSim.sendFirst(id, dest, delay, tag, data);
+		context.sendFirst(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -214,7 +233,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(String dest, double delay, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), delay, tag, data);
+		scheduleFirst(context.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -261,7 +280,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirstNow(String dest, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), 0, tag, data);
+		scheduleFirst(context.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -284,10 +303,10 @@ public abstract class SimEntity implements Cloneable {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Negative delay supplied.");
 		}
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
-		CloudSim.pause(id, delay);
+		context.pause(id, delay);
 	}
 
 	/**
@@ -297,7 +316,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of matching events
 	 */
 	public int numEventsWaiting(Predicate p) {
-		return CloudSim.waiting(id, p);
+		return context.waiting(id, p);
 	}
 
 	/**
@@ -306,7 +325,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of events
 	 */
 	public int numEventsWaiting() {
-		return CloudSim.waiting(id, CloudSim.SIM_ANY);
+		return context.waiting(id, CloudSim.SIM_ANY);
 	}
 
 	/**
@@ -316,11 +335,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent selectEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 
-		return CloudSim.select(id, p);
+		return context.select(id, p);
 	}
 
 	/**
@@ -330,11 +349,73 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The number of events cancelled (0 or 1)
 	 */
 	public SimEvent cancelEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 
-		return CloudSim.cancel(id, p);
+		return context.cancel(id, p);
+	}
+
+	/**
+	 * Schedules a periodic timer sending an event with a given tag to this entity every period,
+	 * starting one period from now. The timers of all the entities firing at the same time are a
+	 * single event in the future queue, which is cheaper than an entity scheduling an event to
+	 * itself every time it gets one.
+	 * 
+	 * @param tag An user-defined number representing the type of the events.
+	 * @param period The time between two events
+	 * @param until The time after which no more events are sent
+	 * @return the timer, or null if the simulation is not running or the first event would be after
+	 *         the end time
+	 */
+	public PeriodicTimer schedulePeriodic(int tag, double period, double until) {
+		return schedulePeriodic(tag, period, period, until, null);
+	}
+
+	/**
+	 * Schedules a periodic timer sending an event with a given tag and data to this entity every
+	 * period, starting after a phase.
+	 * 
+	 * @param tag An user-defined number representing the type of the events.
+	 * @param period The time between two events
+	 * @param phase How long from the current simulation time the first event should be sent
+	 * @param until The time after which no more events are sent
+	 * @param data The data to be sent with the events.
+	 * @return the timer, or null if the simulation is not running or the first event would be after
+	 *         the end time
+	 */
+	public PeriodicTimer schedulePeriodic(int tag, double period, double phase, double until, Object data) {
+		if (!context.running()) {
+			return null;
+		}
+		return context.schedulePeriodic(id, tag, data, phase, period, until);
+	}
+
+	/**
+	 * Cancels a periodic timer of this entity. The events it has already sent are not cancelled.
+	 * 
+	 * @param timer The timer
+	 * @return true if the timer has been cancelled, false if it was already cancelled or the
+	 *         simulation is not running
+	 */
+	public boolean cancelPeriodic(PeriodicTimer timer) {
+		if (!context.running()) {
+			return false;
+		}
+		return context.cancelPeriodic(id, timer);
+	}
+
+	/**
+	 * Writes output of this entity, such as lines of a file, where a sequential simulation writes
+	 * it. When the entities of a clock tick run in parallel, the output is written on the
+	 * simulation thread once they have all run, in the order of the times and of the entity ids;
+	 * otherwise it is written at once.
+	 * 
+	 * @param output the code writing the output
+	 * @see SimulationContext#output(int, Runnable)
+	 */
+	protected void output(Runnable output) {
+		context.output(id, output);
 	}
 
 	/**
@@ -345,7 +426,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent getNextEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 		if (numEventsWaiting(p) > 0) {
@@ -361,11 +442,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @param p The predicate to match
 	 */
 	public void waitForEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
 
-		CloudSim.wait(id, p);
+		context.wait(id, p);
 		state = WAITING;
 	}
 
@@ -387,7 +468,9 @@ public abstract class SimEntity implements Cloneable {
 
 	/**
 	 * This method is invoked by the {@link Simulation} class whenever there is an event in the
-	 * deferred queue, which needs to be processed by the entity.
+	 * deferred queue, which needs to be processed by the entity. When the simulation uses a
+	 * {@link FutureQueueType#EVENT_STORE}, the event is recycled after this method returns, so the
+	 * entity must not keep a reference to it.
 	 * 
 	 * @param ev the event to be processed by the entity
 	 */
@@ -402,8 +485,18 @@ public abstract class SimEntity implements Cloneable {
 	public void run() {
 		SimEvent ev = evbuf != null ? evbuf : getNextEvent();
 
+		EngineTelemetry telemetry = context.telemetry;
 		while (ev != null) {
-			processEvent(ev);
+			if (telemetry == null) {
+				processEvent(ev);
+			} else {
+				int tag = ev.getTag();
+				long start = System.nanoTime();
+				processEvent(ev);
+				telemetry.eventHandled(getClass(), tag, System.nanoTime() - start);
+			}
+			// the event may be recycled, processEvent must not keep a reference to it
+			context.releaseEvent(ev);
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -475,12 +568,25 @@ public abstract class SimEntity implements Cloneable {
 	public static final int FINISHED = 3;
 
 	/**
-	 * Sets the state.
+	 * Sets the state. An entity made {@link #RUNNABLE} is queued to be run in the next clock tick.
 	 * 
 	 * @param state the new state
 	 */
 	protected void setState(int state) {
 		this.state = state;
+		if (state == RUNNABLE) {
+			context.entityRunnable(id);
+		}
+	}
+
+	/**
+	 * Restores the state of a rolled back clock tick, without queueing the entity: it is queued
+	 * again by the events of the tick, when they are processed again.
+	 * 
+	 * @param state the state saved before the clock tick
+	 */
+	void restoreRunState(int state) {
+		this.state = state;
 	}
 
 	/**
@@ -575,7 +681,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void send(String entityName, double delay, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), delay, cloudSimTag, data);
+		send(context.getEntityId(entityName), delay, cloudSimTag, data);
 	}
 
 	/**
@@ -643,7 +749,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void sendNow(String entityName, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), 0, cloudSimTag, data);
+		send(context.getEntityId(entityName), 0, cloudSimTag, data);
 	}
 
 	/**
@@ -673,8 +779,9 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre dst >= 0
 	 */
 	private double getNetworkDelay(int src, int dst) {
-		if (NetworkTopology.isNetworkEnabled()) {
-			return NetworkTopology.getDelay(src, dst);
+		TopologyModel networkTopology = context.getNetworkTopology();
+		if (networkTopology.isNetworkEnabled()) {
+			return networkTopology.getDelay(src, dst);
 		}
 		return 0.0;
 	}
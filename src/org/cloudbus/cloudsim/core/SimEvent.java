@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 /**
  * This class represents a simulation event which is passed between the entities in the simulation.
  * 
@@ -15,13 +17,16 @@ package org.cloudbus.cloudsim.core;
  * @see Simulation
  * @see SimEntity
  */
-public class SimEvent implements Cloneable, Comparable<SimEvent> {
+public class SimEvent implements Cloneable, Comparable<SimEvent>, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/** internal event type **/
-	private final int etype;
+	private int etype;
 
 	/** time at which event should occur **/
-	private final double time;
+	private double time;
 
 	/** time that the event was removed from the queue for service **/
 	private double endWaitingTime;
@@ -33,13 +38,22 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	private int entDst;
 
 	/** the user defined type of the event **/
-	private final int tag;
+	private int tag;
 
 	/** any data the event is carrying **/
-	private final Object data;
+	private Object data;
 
 	private long serial = -1;
 
+	/** time at which the event was sent, used to order simultaneous events in a parallel simulation **/
+	private double sendTime;
+
+	/** whether the event is in a {@link SimEventPool}, waiting to be reused **/
+	private boolean pooled = false;
+
+	/** whether the event has been cancelled while in a {@link SourceIndexedFutureQueue} **/
+	private boolean cancelled = false;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -50,6 +64,9 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 
 	public static final int CREATE = 3;
 
+	/** The firing of the {@link PeriodicTimer periodic timers} of a slot of a {@link TimerSlots}. */
+	public static final int TIMER = 4;
+
 	/**
 	 * Create a blank event.
 	 */
@@ -82,6 +99,51 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		data = null;
 	}
 
+	/**
+	 * Reinitialises a recycled event, as if it was created with
+	 * {@link #SimEvent(int, double, int, int, int, Object)}.
+	 */
+	void reset(int evtype, double time, int src, int dest, int tag, Object edata) {
+		etype = evtype;
+		this.time = time;
+		endWaitingTime = -1.0;
+		entSrc = src;
+		entDst = dest;
+		this.tag = tag;
+		data = edata;
+		serial = -1;
+		sendTime = 0;
+		cancelled = false;
+	}
+
+	long getSerial() {
+		return serial;
+	}
+
+	double getSendTime() {
+		return sendTime;
+	}
+
+	void setSendTime(double sendTime) {
+		this.sendTime = sendTime;
+	}
+
+	boolean isPooled() {
+		return pooled;
+	}
+
+	void setPooled(boolean pooled) {
+		this.pooled = pooled;
+	}
+
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
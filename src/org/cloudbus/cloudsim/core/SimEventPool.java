@@ -0,0 +1,92 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+
+/**
+ * A pool of {@link SimEvent} objects, used together with a {@link SimEventStore} so that sending
+ * and delivering events does not allocate once the simulation reaches a steady state. An event is
+ * released by {@link CloudSim} after its destination entity has processed it, so entities must
+ * not keep references to the events they receive; they can keep the event data instead.
+ *
+ * @see SimEventStore
+ * @see FutureQueueType#EVENT_STORE
+ */
+class SimEventPool implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum number of free events kept by the pool. */
+	private static final int MAX_FREE_EVENTS = 1 << 16;
+
+	/** The free events. */
+	private SimEvent[] free = new SimEvent[64];
+
+	/** The number of free events. */
+	private int freeCount = 0;
+
+	/** The number of events created by the pool. */
+	private long created = 0;
+
+	/**
+	 * Gets an event from the pool, or creates a new one if the pool is empty.
+	 *
+	 * @param evtype the internal event type
+	 * @param time the time at which the event should occur
+	 * @param src the id of the entity who scheduled the event
+	 * @param dest the id of the entity the event will be sent to
+	 * @param tag the user defined type of the event
+	 * @param edata the data the event is carrying
+	 * @return the event
+	 */
+	SimEvent acquire(int evtype, double time, int src, int dest, int tag, Object edata) {
+		if (freeCount == 0) {
+			created++;
+			return new SimEvent(evtype, time, src, dest, tag, edata);
+		}
+		SimEvent event = free[--freeCount];
+		free[freeCount] = null;
+		event.setPooled(false);
+		event.reset(evtype, time, src, dest, tag, edata);
+		return event;
+	}
+
+	/**
+	 * Returns an event to the pool. Releasing an event which is already in the pool has no
+	 * effect.
+	 *
+	 * @param event the event
+	 */
+	void release(SimEvent event) {
+		if (event.isPooled() || freeCount == MAX_FREE_EVENTS) {
+			return;
+		}
+		// do not retain the event data while the event is unused
+		event.reset(SimEvent.ENULL, -1, -1, -1, -1, null);
+		event.setPooled(true);
+		if (freeCount == free.length) {
+			SimEvent[] grown = new SimEvent[free.length * 2];
+			System.arraycopy(free, 0, grown, 0, freeCount);
+			free = grown;
+		}
+		free[freeCount++] = event;
+	}
+
+	/**
+	 * Gets the number of events created by the pool since it was created.
+	 *
+	 * @return the number of events created
+	 */
+	long getCreatedCount() {
+		return created;
+	}
+
+}
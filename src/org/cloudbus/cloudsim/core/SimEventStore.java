@@ -0,0 +1,362 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A future event queue which does not keep {@link SimEvent} objects. The fields of the queued
+ * events are copied into parallel primitive arrays (a struct of arrays), indexed by a slot number,
+ * and the slots are ordered by a binary min-heap of slot numbers. The event data is the only
+ * object kept per event, in the payload array at the slot of the event.
+ * <p>
+ * The events added to the store are given back to a {@link SimEventPool}, and the events returned
+ * by {@link #poll()} are taken from the same pool. {@link CloudSim} releases the polled events to
+ * the pool once they have been processed, so in a steady state sending and delivering events
+ * allocates nothing. As a consequence:
+ * <ul>
+ * <li>an event must not be used after it has been added to the store;
+ * <li>the event returned by {@link #peek()} is a view which is only valid until the store is
+ * modified;
+ * <li>the events returned by {@link #iterator()} are copies, which can be kept and removed from
+ * the store with {@link #remove(SimEvent)}.
+ * </ul>
+ *
+ * @see FutureQueue
+ * @see FutureQueueType#EVENT_STORE
+ */
+public class SimEventStore implements FutureQueue, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The initial number of slots. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The times of the events, by slot. */
+	private double[] times = new double[INITIAL_CAPACITY];
+
+	/** The serials of the events, by slot. */
+	private long[] serials = new long[INITIAL_CAPACITY];
+
+	/** The internal types of the events, by slot. */
+	private int[] types = new int[INITIAL_CAPACITY];
+
+	/** The sources of the events, by slot. */
+	private int[] sources = new int[INITIAL_CAPACITY];
+
+	/** The destinations of the events, by slot. */
+	private int[] destinations = new int[INITIAL_CAPACITY];
+
+	/** The tags of the events, by slot. */
+	private int[] tags = new int[INITIAL_CAPACITY];
+
+	/** The data of the events, by slot. */
+	private Object[] payloads = new Object[INITIAL_CAPACITY];
+
+	/** The heap of slots, where the children of the slot at index i are at 2i+1 and 2i+2. */
+	private int[] heap = new int[INITIAL_CAPACITY];
+
+	/** The free slots below {@link #usedSlots}. */
+	private int[] freeSlots = new int[INITIAL_CAPACITY];
+
+	/** The number of free slots. */
+	private int freeCount = 0;
+
+	/** The number of slots used at least once. */
+	private int usedSlots = 0;
+
+	/** The number of events in the store. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The serial of the events added to the head of the queue. */
+	private long firstSerial = Long.MIN_VALUE;
+
+	/** The pool providing the events returned by the store. */
+	private final SimEventPool pool = new SimEventPool();
+
+	/** The event returned by {@link #peek()}. */
+	private final SimEvent peeked = new SimEvent();
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		insert(newEvent, serial++);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		insert(newEvent, firstSerial++);
+	}
+
+	/**
+	 * Returns a view of the first event of the store. The view is only valid until the store is
+	 * modified.
+	 *
+	 * @return the first event, or <code>null</code> if the store is empty
+	 */
+	@Override
+	public SimEvent peek() {
+		if (size == 0) {
+			return null;
+		}
+		fill(peeked, heap[0]);
+		return peeked;
+	}
+
+	/**
+	 * Removes the first event of the store. The returned event is taken from the pool of the store,
+	 * and goes back to it when released by {@link CloudSim}.
+	 *
+	 * @return the first event, or <code>null</code> if the store is empty
+	 */
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		int slot = heap[0];
+		SimEvent event = pool.acquire(types[slot], times[slot], sources[slot], destinations[slot],
+				tags[slot], payloads[slot]);
+		event.setSerial(serials[slot]);
+		removeAt(0);
+		return event;
+	}
+
+	/**
+	 * Returns an iterator to copies of the events of the store, in no particular order. The
+	 * iterator works on a snapshot of the store, so the store can be modified while iterating.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		final SimEvent[] snapshot = new SimEvent[size];
+		for (int i = 0; i < size; i++) {
+			snapshot[i] = new SimEvent();
+			fill(snapshot[i], heap[i]);
+		}
+		return new Iterator<SimEvent>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < snapshot.length;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next >= snapshot.length) {
+					throw new NoSuchElementException();
+				}
+				return snapshot[next++];
+			}
+
+			@Override
+			public void remove() {
+				if (next == 0) {
+					throw new IllegalStateException();
+				}
+				SimEventStore.this.remove(snapshot[next - 1]);
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes an event from the store. The event is identified by its serial, so it can be a copy
+	 * returned by {@link #iterator()}.
+	 *
+	 * @param event the event
+	 * @return true, if the event was in the store
+	 */
+	@Override
+	public boolean remove(SimEvent event) {
+		long eventSerial = event.getSerial();
+		for (int i = 0; i < size; i++) {
+			if (serials[heap[i]] == eventSerial) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean modified = false;
+		for (SimEvent event : events) {
+			modified |= remove(event);
+		}
+		return modified;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(payloads, 0, usedSlots, null);
+		freeCount = 0;
+		usedSlots = 0;
+		size = 0;
+	}
+
+	/**
+	 * Gets the pool providing the events returned by the store.
+	 *
+	 * @return the pool
+	 */
+	SimEventPool getEventPool() {
+		return pool;
+	}
+
+	/**
+	 * Copies an event into a free slot, adds the slot to the heap and releases the event.
+	 *
+	 * @param event the event
+	 * @param eventSerial the serial of the event
+	 */
+	private void insert(SimEvent event, long eventSerial) {
+		int slot = allocateSlot();
+		times[slot] = event.eventTime();
+		serials[slot] = eventSerial;
+		types[slot] = event.getType();
+		sources[slot] = event.getSource();
+		destinations[slot] = event.getDestination();
+		tags[slot] = event.getTag();
+		payloads[slot] = event.getData();
+		pool.release(event);
+
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		siftUp(size++, slot);
+	}
+
+	/**
+	 * Copies the fields of a slot into an event.
+	 *
+	 * @param event the event
+	 * @param slot the slot
+	 */
+	private void fill(SimEvent event, int slot) {
+		event.reset(types[slot], times[slot], sources[slot], destinations[slot], tags[slot],
+				payloads[slot]);
+		event.setSerial(serials[slot]);
+	}
+
+	/**
+	 * Gets a free slot, growing the arrays if needed.
+	 *
+	 * @return the slot
+	 */
+	private int allocateSlot() {
+		if (freeCount > 0) {
+			return freeSlots[--freeCount];
+		}
+		if (usedSlots == times.length) {
+			int capacity = times.length * 2;
+			times = Arrays.copyOf(times, capacity);
+			serials = Arrays.copyOf(serials, capacity);
+			types = Arrays.copyOf(types, capacity);
+			sources = Arrays.copyOf(sources, capacity);
+			destinations = Arrays.copyOf(destinations, capacity);
+			tags = Arrays.copyOf(tags, capacity);
+			payloads = Arrays.copyOf(payloads, capacity);
+			freeSlots = Arrays.copyOf(freeSlots, capacity);
+		}
+		return usedSlots++;
+	}
+
+	/**
+	 * Removes the slot at a given position of the heap and frees it.
+	 *
+	 * @param i the position
+	 */
+	private void removeAt(int i) {
+		int slot = heap[i];
+		payloads[slot] = null;
+		freeSlots[freeCount++] = slot;
+
+		int last = --size;
+		int moved = heap[last];
+		if (i == last) {
+			return;
+		}
+		siftDown(i, moved);
+		if (heap[i] == moved) {
+			siftUp(i, moved);
+		}
+	}
+
+	/**
+	 * Compares the events of two slots, as defined by {@link SimEvent#compareTo(SimEvent)}.
+	 *
+	 * @param a the first slot
+	 * @param b the second slot
+	 * @return true, if the event of the first slot comes before the event of the second one
+	 */
+	private boolean before(int a, int b) {
+		return times[a] < times[b] || (times[a] == times[b] && serials[a] < serials[b]);
+	}
+
+	/**
+	 * Moves a slot up from a given position until its parent is not after it.
+	 *
+	 * @param i the position
+	 * @param slot the slot
+	 */
+	private void siftUp(int i, int slot) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			int p = heap[parent];
+			if (!before(slot, p)) {
+				break;
+			}
+			heap[i] = p;
+			i = parent;
+		}
+		heap[i] = slot;
+	}
+
+	/**
+	 * Moves a slot down from a given position until its children are not before it.
+	 *
+	 * @param i the position
+	 * @param slot the slot
+	 */
+	private void siftDown(int i, int slot) {
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < size && before(heap[right], c)) {
+				child = right;
+				c = heap[child];
+			}
+			if (!before(c, slot)) {
+				break;
+			}
+			heap[i] = c;
+			i = child;
+		}
+		heap[i] = slot;
+	}
+
+}
@@ -0,0 +1,2326 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.network.TopologyModel;
+
+/**
+ * A simulation context owns the state of one simulation: its entities, event queues, clock,
+ * parallel engine and network topology. The entities are bound to the context that is current
+ * when they are created, and send their events through it, so that many simulations can run
+ * concurrently in the same JVM, each in its own context.
+ * <p>
+ * The static methods of {@link CloudSim} use the context bound to the current thread, or the
+ * default context if none is bound, so existing simulations run unchanged in the default context.
+ * To run a simulation in its own context, build and start it in {@link #call(Callable)}:
+ * 
+ * <pre>
+ * SimulationContext context = new SimulationContext();
+ * double clock = context.call(() -&gt; {
+ * 	CloudSim.init(1, Calendar.getInstance(), false);
+ * 	// create the entities
+ * 	return CloudSim.startSimulation();
+ * });
+ * </pre>
+ * 
+ * The threads running the logical processes of a parallel simulation are bound to its context.
+ * Log output ({@link Log}) is shared by all the contexts.
+ * <p>
+ * The state of a sequential simulation can be written to a checkpoint file (see
+ * {@link #checkpoint(String)}), and the simulation continued later from the checkpoint, in another
+ * JVM, with {@link #restore(String)}. It can also be forked in memory into branches which
+ * continue independently (see {@link #forkAt(double, int)}).
+ * 
+ * @see CloudSim#getContext()
+ */
+public class SimulationContext implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The id of CIS entity. */
+	int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	@SuppressWarnings("unused")
+	int shutdownId = -1;
+
+	/** The CIS object. */
+	CloudInformationService cis = null;
+
+	/**
+	 * The trace flag: the events of a sequential simulation initialised with the flag are recorded
+	 * to {@link EventTracer#DEFAULT_FILE} if no tracer has been set.
+	 */
+	boolean traceFlag = false;
+
+	/** The calendar. */
+	Calendar calendar = null;
+
+	/** The termination time. */
+	double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	double minTimeBetweenEvents = 0.1;
+
+	/**
+	 * The number of ticks per time unit of the integer tick clock, or 0 if the times of the events
+	 * are not quantized.
+	 */
+	long ticksPerTimeUnit = 0;
+
+	/** The type of the future event queue created when the simulation is initialised. */
+	FutureQueueType futureQueueType = FutureQueueType.TREE_SET;
+	
+	/** The format written at the start of the checkpoint files. */
+	private static final String CHECKPOINT_FORMAT = "CloudSim checkpoint " + CloudSim.CLOUDSIM_VERSION_STRING;
+
+	/** The size of the buffers of the checkpoint streams. */
+	private static final int CHECKPOINT_BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * The property naming the branch of a fork, set by {@link #fork(int)} on each branch:
+	 * <code>branch0</code>, <code>branch1</code>..., under the name of the branch forked if it is
+	 * itself a branch (e.g. <code>branch0/branch1</code>), so that the models can keep the output
+	 * of the branches apart.
+	 */
+	public static final String BRANCH_PROPERTY = "BRANCH";
+	
+	/**
+	 * Initialises all the common attributes.
+	 * 
+	 * @param _calendar the _calendar
+	 * @param _traceFlag the _trace flag
+	 * @param numUser number of users
+	 * @throws Exception This happens when creating this entity before initialising CloudSim package
+	 *             or this entity name is <tt>null</tt> or empty
+	 * @pre $none
+	 * @post $none
+	 */
+	void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
+			throws Exception {
+		initialize();
+		// NOTE: the order for the below 3 lines are important
+		traceFlag = _traceFlag;
+
+		// Set the current Wall clock time as the starting time of
+		// simulation
+		if (_calendar == null) {
+			calendar = Calendar.getInstance();
+		} else {
+			calendar = _calendar;
+		}
+
+		// creates a CloudSimShutdown object
+		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
+		shutdownId = shutdown.getId();
+	}
+
+	/**
+	 * Initialises CloudSim parameters. This method should be called before creating any entities.
+	 * <p>
+	 * Inside this method, it will create the following CloudSim entities:
+	 * <ul>
+	 * <li>CloudInformationService.
+	 * <li>CloudSimShutdown
+	 * </ul>
+	 * <p>
+	 * 
+	 * @param numUser the number of User Entities created. This parameters indicates that
+	 *            {@link gridsim.CloudSimShutdown} first waits for all user entities's
+	 *            END_OF_SIMULATION signal before issuing terminate signal to other entities
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @see gridsim.CloudSimShutdown
+	 * @see CloudInformationService.CloudInformationService
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag) {
+		init(numUser, cal, traceFlag, FutureQueueType.TREE_SET);
+	}
+
+	/**
+	 * Initialises CloudSim parameters, using a given implementation of the future event queue. This
+	 * method should be called before creating any entities.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param queueType the type of the future event queue
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @pre queueType != null
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, FutureQueueType queueType) {
+		if (queueType == null) {
+			throw new IllegalArgumentException("The future event queue type can't be null.");
+		}
+		futureQueueType = queueType;
+
+		SimulationContext previous = enter();
+		try {
+			initCommonVariable(cal, traceFlag, numUser);
+
+			// create a GIS object
+			cis = new CloudInformationService("CloudInformationService");
+
+			// set all the above entity IDs
+			cisId = cis.getId();
+		} catch (IllegalArgumentException s) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(s.getMessage());
+		} catch (Exception e) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(e.getMessage());
+		} finally {
+			exit(previous);
+		}
+	}
+
+	/**
+	 * Initialises CloudSim parameters. This method should be called before creating any entities.
+	 * <p>
+	 * Inside this method, it will create the following CloudSim entities:
+	 * <ul>
+	 * <li>CloudInformationService.
+	 * <li>CloudSimShutdown
+	 * </ul>
+	 * <p>
+	 * 
+	 * @param numUser the number of User Entities created. This parameters indicates that
+	 *            {@link gridsim.CloudSimShutdown} first waits for all user entities's
+	 *            END_OF_SIMULATION signal before issuing terminate signal to other entities
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events. Events within shorter periods
+	 * after the last event are discarded.
+	 * @see gridsim.CloudSimShutdown
+	 * @see CloudInformationService.CloudInformationService
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
+	    if (periodBetweenEvents <= 0) {
+		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
+	    }
+	    
+	    init(numUser, cal, traceFlag);
+	    minTimeBetweenEvents = periodBetweenEvents;
+	}
+
+	/**
+	 * Initialises CloudSim parameters, using a given implementation of the future event queue. This
+	 * method should be called before creating any entities.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events. Events within shorter periods
+	 * after the last event are discarded.
+	 * @param queueType the type of the future event queue
+	 * @see #init(int, Calendar, boolean, double)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents,
+			FutureQueueType queueType) {
+	    if (periodBetweenEvents <= 0) {
+		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
+	    }
+
+	    init(numUser, cal, traceFlag, queueType);
+	    minTimeBetweenEvents = periodBetweenEvents;
+	}
+	
+	
+	
+	/**
+	 * Starts the execution of CloudSim simulation. It waits for complete execution of all entities,
+	 * i.e. until all entities threads reach non-RUNNABLE state or there are no more events in the
+	 * future event queue.
+	 * <p>
+	 * <b>Note</b>: This method should be called after all the entities have been setup and added.
+	 * 
+	 * @return the double
+	 * @throws NullPointerException This happens when creating this entity before initialising
+	 *             CloudSim package or this entity name is <tt>null</tt> or empty.
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @pre $none
+	 * @post $none
+	 */
+	public double startSimulation() throws NullPointerException {
+		Log.printLine("Starting CloudSim version " + CloudSim.CLOUDSIM_VERSION_STRING);
+		try {
+			double clock = run();
+
+			// reset the variables of the simulation
+			cisId = -1;
+			shutdownId = -1;
+			cis = null;
+			calendar = null;
+			traceFlag = false;
+
+			return clock;
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+			throw new NullPointerException("CloudSim.startCloudSimulation() :"
+					+ " Error - you haven't initialized CloudSim.");
+		}
+	}
+
+	/**
+	 * Starts the execution of CloudSim simulation as a conservative parallel simulation, with a
+	 * lookahead equal to the minimum time between events. See
+	 * {@link #startSimulation(EntityPartitioner, int, double)}.
+	 * 
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads running the logical processes
+	 * @return the last clock value
+	 */
+	public double startSimulation(EntityPartitioner partitioner, int threads) {
+		return startSimulation(partitioner, threads, getMinTimeBetweenEvents());
+	}
+
+	/**
+	 * Starts the execution of CloudSim simulation as a conservative parallel simulation. The
+	 * entities are assigned to logical processes by a partitioner, and the logical processes run
+	 * on a pool of threads, synchronised by time windows as long as the lookahead. The lookahead
+	 * must not be longer than the delay of any event sent between entities of different
+	 * partitions, including the latencies of the network topology; an event sent with a shorter
+	 * delay raises an {@link IllegalStateException}.
+	 * <p>
+	 * The entities receive the same events, in the same order and at the same times, as in a
+	 * sequential simulation, as long as the entities of different partitions do not share any
+	 * state. The simulation can't be paused, entities can't be added while it is running, and
+	 * {@link #cancel(int, Predicate)} only sees the events sent to the partition of the entity.
+	 * 
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads running the logical processes
+	 * @param lookahead the lookahead of the simulation
+	 * @return the last clock value
+	 * @see EntityPartitioner
+	 */
+	public double startSimulation(EntityPartitioner partitioner, int threads, double lookahead) {
+		Log.printLine("Starting CloudSim version " + CloudSim.CLOUDSIM_VERSION_STRING);
+		if (pauseAt != -1) {
+			throw new IllegalStateException("A parallel simulation can't be paused.");
+		}
+		return runParallel(new ConservativeEngine(this, partitioner, threads, lookahead));
+	}
+
+	/**
+	 * Starts the execution of CloudSim simulation as an optimistic parallel simulation, with a
+	 * lookahead equal to the minimum time between events. See
+	 * {@link #startOptimisticSimulation(EntityPartitioner, int, double, double)}.
+	 * 
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads running the logical processes
+	 * @param optimismWindow how far past the global virtual time the logical processes may run
+	 * @return the last clock value
+	 */
+	public double startOptimisticSimulation(EntityPartitioner partitioner, int threads, double optimismWindow) {
+		return startOptimisticSimulation(partitioner, threads, getMinTimeBetweenEvents(), optimismWindow);
+	}
+
+	/**
+	 * Starts the execution of CloudSim simulation as an optimistic (Time Warp) parallel simulation.
+	 * The entities are assigned to logical processes by a partitioner, and the logical processes
+	 * run on a pool of threads. The logical processes whose entities all implement
+	 * {@link StateSaving} run ahead of the others, up to the optimism window past the global
+	 * virtual time, and are rolled back when an event arrives in their past; the other logical
+	 * processes run conservatively, as in {@link #startSimulation(EntityPartitioner, int, double)}.
+	 * The lookahead must not be longer than the delay of any event sent between entities of
+	 * different partitions.
+	 * <p>
+	 * The entities receive the same events, in the same order and at the same times, as in a
+	 * sequential simulation, as long as the entities of different partitions do not share any
+	 * state and the state saved by the entities covers all their changes. The entities of the
+	 * optimistic logical processes can't hold, pause, wait or cancel events. The simulation can't
+	 * be paused and entities can't be added while it is running. The statistics of the simulation
+	 * are given by {@link #getTimeWarpStatistics()}.
+	 * 
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads running the logical processes
+	 * @param lookahead the lookahead of the simulation
+	 * @param optimismWindow how far past the global virtual time the logical processes may run
+	 * @return the last clock value
+	 * @see StateSaving
+	 */
+	public double startOptimisticSimulation(EntityPartitioner partitioner, int threads, double lookahead,
+			double optimismWindow) {
+		Log.printLine("Starting CloudSim version " + CloudSim.CLOUDSIM_VERSION_STRING);
+		if (pauseAt != -1) {
+			throw new IllegalStateException("A parallel simulation can't be paused.");
+		}
+		TimeWarpEngine timeWarpEngine = new TimeWarpEngine(this, partitioner, threads, lookahead, optimismWindow);
+		double clock = runParallel(timeWarpEngine);
+		timeWarpStatistics = timeWarpEngine.getStatistics();
+		return clock;
+	}
+
+	/**
+	 * Gets the statistics of the last optimistic parallel simulation.
+	 * 
+	 * @return the statistics, or null if no optimistic simulation has finished
+	 */
+	public TimeWarpStatistics getTimeWarpStatistics() {
+		return timeWarpStatistics;
+	}
+
+	/**
+	 * Runs a parallel simulation with an engine.
+	 * 
+	 * @param parallelEngine the engine
+	 * @return the last clock value
+	 */
+	private double runParallel(ParallelEngine parallelEngine) {
+		engine = parallelEngine;
+		// the pool of events is not shared between threads
+		eventPool = null;
+		running = true;
+		if (telemetry != null) {
+			telemetry.runStarted();
+		}
+		SimulationContext previous = enter();
+		try {
+			clock = engine.run(future);
+		} finally {
+			engine = null;
+			exit(previous);
+		}
+		double clock = clock();
+		if (!abruptTerminate) {
+			running = false;
+		}
+
+		if (telemetry != null) {
+			telemetry.runFinished(this, false);
+		}
+		finishSimulation();
+		runStop();
+
+		// reset the variables of the simulation
+		cisId = -1;
+		shutdownId = -1;
+		cis = null;
+		calendar = null;
+		traceFlag = false;
+
+		return clock;
+	}
+
+	/**
+	 * Stops Cloud Simulation (based on {@link Simulation#runStop()}). This should be only called if
+	 * any of the user defined entities <b>explicitly</b> want to terminate simulation during
+	 * execution.
+	 * 
+	 * @throws NullPointerException This happens when creating this entity before initialising
+	 *             CloudSim package or this entity name is <tt>null</tt> or empty
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @see Simulation#runStop()
+	 * @pre $none
+	 * @post $none
+	 */
+	public void stopSimulation() throws NullPointerException {
+		try {
+			runStop();
+		} catch (IllegalArgumentException e) {
+			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
+					+ "Error - can't stop Cloud Simulation.");
+		}
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation.
+	 * 
+	 * @return true, if successful; false otherwise.
+	 */
+	public boolean terminateSimulation() {
+		running = false;
+		printMessage("Simulation: Reached termination time.");
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation at a given time.
+	 * 
+	 * @param time the time at which the simulation has to be terminated
+	 * @return true, if successful otherwise.
+	 */
+	public boolean terminateSimulation(double time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			terminateAt = time;
+		}
+		return true;
+	}
+
+	
+	/**
+	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded. 
+	 * @return the minimum time between events.
+	 */
+	public double getMinTimeBetweenEvents() {
+	    return minTimeBetweenEvents;
+	}
+
+	/**
+	 * Sets the resolution of the integer tick clock, which quantizes the times of the events. The
+	 * delays of the events are rounded to a whole number of ticks, and added to the clock in ticks,
+	 * so the time of every event is a whole number of ticks: there is no floating-point drift
+	 * however many delays are added, the events of the same time are grouped exactly, and the same
+	 * simulation gives bit for bit the same times on any JVM. The clock is still read as a double,
+	 * converted from the ticks. For instance, with a million ticks per second, times are exact to
+	 * the microsecond for more than a hundred years.
+	 * <p>
+	 * This must be called after the simulation is initialised, before any event is sent; a delay
+	 * shorter than half a tick becomes a delay of zero.
+	 * 
+	 * @param ticksPerTimeUnit the number of ticks per time unit, or 0 not to quantize the times
+	 */
+	public void setClockResolution(long ticksPerTimeUnit) {
+		if (ticksPerTimeUnit < 0) {
+			throw new IllegalArgumentException("The number of ticks per time unit can't be negative.");
+		}
+		if (running || (future != null && future.size() > 0)) {
+			throw new IllegalStateException("The clock resolution can only be set before any event is sent.");
+		}
+		this.ticksPerTimeUnit = ticksPerTimeUnit;
+	}
+
+	/**
+	 * Gets the resolution of the integer tick clock.
+	 * 
+	 * @return the number of ticks per time unit, or 0 if the times of the events are not quantized
+	 */
+	public long getClockResolution() {
+		return ticksPerTimeUnit;
+	}
+
+	/**
+	 * Gets the current simulation time in ticks of the integer tick clock.
+	 * 
+	 * @return the number of ticks since the start of the simulation
+	 * @throws IllegalStateException if the simulation has no tick clock
+	 */
+	public long clockTicks() {
+		return toTicks(clock());
+	}
+
+	/**
+	 * Converts a time to ticks of the integer tick clock, rounding it to the nearest tick.
+	 * 
+	 * @param time the time
+	 * @return the number of ticks
+	 * @throws IllegalStateException if the simulation has no tick clock
+	 */
+	public long toTicks(double time) {
+		if (ticksPerTimeUnit == 0) {
+			throw new IllegalStateException("The simulation has no tick clock.");
+		}
+		return Math.round(time * ticksPerTimeUnit);
+	}
+
+	/**
+	 * Converts ticks of the integer tick clock to a time.
+	 * 
+	 * @param ticks the number of ticks
+	 * @return the time
+	 * @throws IllegalStateException if the simulation has no tick clock
+	 */
+	public double toTime(long ticks) {
+		if (ticksPerTimeUnit == 0) {
+			throw new IllegalStateException("The simulation has no tick clock.");
+		}
+		return ticks / (double) ticksPerTimeUnit;
+	}
+
+	/**
+	 * Adds a delay to a time, in ticks if the simulation has an integer tick clock.
+	 * 
+	 * @param time the time, which is a whole number of ticks if there is a tick clock
+	 * @param delay the delay
+	 * @return the time after the delay
+	 */
+	double timeAfter(double time, double delay) {
+		if (ticksPerTimeUnit == 0) {
+			return time + delay;
+		}
+		// the time converted from a whole number of ticks is converted back exactly
+		return (Math.round(time * ticksPerTimeUnit) + Math.round(delay * ticksPerTimeUnit)) / (double) ticksPerTimeUnit;
+	}
+
+	/**
+	 * Sets how many threads run the entities of a clock tick of a sequential simulation. With more
+	 * than one thread, the {@link ParallelSafe} entities woken up by the events of a clock tick run
+	 * concurrently, and the events they send are queued in the order of their ids once they have
+	 * all run, so the results are the same as when they run one after the other. This pays off when
+	 * many entities run at the same time, e.g. sensors reading at the same interval.
+	 * <p>
+	 * This must be called after the simulation is initialised, or restored from a checkpoint; it
+	 * has no effect on the parallel simulations, whose logical processes already run concurrently.
+	 * 
+	 * @param threads the number of threads, or 1 to run the entities one by one
+	 * @see ParallelDispatcher
+	 */
+	public void setParallelDispatch(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least 1.");
+		}
+		checkNotDispatching("change the parallel dispatch");
+		if (dispatcher != null) {
+			dispatcher.shutdown();
+		}
+		dispatcher = threads > 1 ? new ParallelDispatcher(this, threads) : null;
+	}
+
+	/**
+	 * Sets the telemetry collecting statistics about the engine of the simulation: the events
+	 * processed, by tag and by entity class, the time spent handling them, and the depth of the
+	 * queues. Without telemetry, the engine only checks that there is none. The events re-executed
+	 * after a rollback of an optimistic simulation are counted again.
+	 * 
+	 * @param telemetry the telemetry, or null to stop collecting statistics
+	 * @see EngineTelemetry
+	 */
+	public void setTelemetry(EngineTelemetry telemetry) {
+		checkNotDispatching("change the telemetry");
+		this.telemetry = telemetry;
+		if (telemetry != null && running) {
+			telemetry.runStarted();
+		}
+	}
+
+	/**
+	 * Gets the telemetry collecting statistics about the engine of the simulation.
+	 * 
+	 * @return the telemetry, or null if none is collected
+	 */
+	public EngineTelemetry getTelemetry() {
+		return telemetry;
+	}
+
+	/**
+	 * Sets the tracer recording the events delivered to the entities of the simulation, in a binary
+	 * trace file. The tracer is closed when the simulation ends. The events of parallel simulations
+	 * are not recorded.
+	 * 
+	 * @param tracer the tracer, or null to stop recording the events
+	 * @see EventTracer
+	 */
+	public void setTracer(EventTracer tracer) {
+		checkNotDispatching("change the tracer");
+		this.tracer = tracer;
+	}
+
+	/**
+	 * Gets the tracer recording the events delivered to the entities of the simulation.
+	 * 
+	 * @return the tracer, or null if the events are not recorded
+	 */
+	public EventTracer getTracer() {
+		return tracer;
+	}
+
+	/**
+	 * Schedules a checkpoint of the simulation, written once all the events before a time have been
+	 * processed. See {@link #checkpoint(String)}.
+	 * 
+	 * @param path the checkpoint file
+	 * @param time the time of the checkpoint
+	 */
+	public void setCheckpoint(String path, double time) {
+		if (path == null) {
+			throw new IllegalArgumentException("The checkpoint file can't be null.");
+		}
+		if (time < 0) {
+			throw new IllegalArgumentException("The time of a checkpoint can't be negative.");
+		}
+		checkpointPath = path;
+		checkpointAt = time;
+	}
+
+	/**
+	 * Schedules periodic checkpoints of the simulation, each replacing the previous one, written
+	 * between the clock ticks once a number of events have been processed since the last one. See
+	 * {@link #checkpoint(String)}.
+	 * 
+	 * @param path the checkpoint file
+	 * @param events the number of events between two checkpoints, or 0 to stop them
+	 */
+	public void setCheckpointInterval(String path, long events) {
+		if (path == null) {
+			throw new IllegalArgumentException("The checkpoint file can't be null.");
+		}
+		if (events < 0) {
+			throw new IllegalArgumentException("The number of events between checkpoints can't be negative.");
+		}
+		checkpointPath = path;
+		checkpointInterval = events;
+		checkpointEvents = processedEvents;
+	}
+
+	/**
+	 * Writes the state of the simulation to a checkpoint file: the clock, the future and deferred
+	 * queues, the periodic timers, the entities, the network topology and the properties. The
+	 * objects are written with Java serialization, so the entities and the data of the events must
+	 * be {@link Serializable}; the random generators of the entities are written with them, so a
+	 * restored simulation draws the same numbers. The stream is compressed, and written to a
+	 * temporary file which then replaces the checkpoint file, so a failure never leaves a partial
+	 * checkpoint.
+	 * <p>
+	 * The objects are streamed to the file as they are written, not copied in memory first.
+	 * The simulation is written as a single object graph, as the entities refer to this context and
+	 * the events to the objects of the entities: the stream is not reset while it is written, since
+	 * a reset would write these objects again and break the references when they are read. The
+	 * stream thus holds a handle, not a copy, for every object written until it is closed.
+	 * <p>
+	 * Only sequential simulations can be checkpointed, between two clock ticks: before the
+	 * simulation starts, while it is paused, or with the checkpoints scheduled by
+	 * {@link #setCheckpoint(String, double)} and {@link #setCheckpointInterval(String, long)}. The
+	 * parallel dispatch of the clock ticks is not written.
+	 * 
+	 * @param path the checkpoint file
+	 * @throws IOException if the checkpoint can't be written
+	 * @see #restore(String)
+	 */
+	public void checkpoint(String path) throws IOException {
+		if (engine != null) {
+			throw new IllegalStateException("A parallel simulation can't be checkpointed.");
+		}
+		checkNotDispatching("checkpoint the simulation");
+		File file = new File(path);
+		File partial = new File(path + ".tmp");
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new DeflaterOutputStream(
+				new FileOutputStream(partial), deflater), CHECKPOINT_BUFFER_SIZE));
+		try {
+			out.writeUTF(CHECKPOINT_FORMAT);
+			out.writeObject(this);
+		} finally {
+			out.close();
+			deflater.end();
+		}
+		Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads a simulation from a checkpoint file written by {@link #checkpoint(String)}. The
+	 * simulation continues from the checkpoint when it is started with {@link #startSimulation()};
+	 * the entities already started are not started again.
+	 * 
+	 * @param path the checkpoint file
+	 * @return the context of the simulation
+	 * @throws IOException if the checkpoint can't be read
+	 */
+	public static SimulationContext restore(String path) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new InflaterInputStream(
+				new FileInputStream(path)), CHECKPOINT_BUFFER_SIZE));
+		try {
+			if (!CHECKPOINT_FORMAT.equals(in.readUTF())) {
+				throw new IOException(path + " is not a checkpoint of CloudSim " + CloudSim.CLOUDSIM_VERSION_STRING + ".");
+			}
+			SimulationContext context = (SimulationContext) in.readObject();
+			context.paused = false;
+			return context;
+		} catch (ClassNotFoundException e) {
+			throw new IOException("The checkpoint " + path + " refers to a missing class: " + e.getMessage(), e);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Runs the simulation until all the events before a time have been processed, and forks it
+	 * into branches. See {@link #fork(int)}. This context is left at the time of the fork, and can
+	 * be continued as well with {@link #startSimulation()}.
+	 * 
+	 * @param time the time of the fork
+	 * @param branches the number of branches
+	 * @return the contexts of the branches
+	 * @throws IOException if the state of the simulation can't be copied
+	 * @throws IllegalStateException if the simulation ends before the time of the fork
+	 */
+	public List<SimulationContext> forkAt(double time, int branches) throws IOException {
+		if (time < clock) {
+			throw new IllegalArgumentException("The time of a fork can't be in the past.");
+		}
+		Log.printLine("Starting CloudSim version " + CloudSim.CLOUDSIM_VERSION_STRING);
+		runUntil = time;
+		try {
+			run();
+		} finally {
+			runUntil = -1;
+		}
+		if (!running) {
+			throw new IllegalStateException("The simulation has ended before the time of the fork.");
+		}
+		return fork(branches);
+	}
+
+	/**
+	 * Forks the simulation into branches, which continue independently from its current state:
+	 * each branch is a copy of this context, with its own entities and queues, which can be
+	 * changed (e.g. the parameters of some entities) before the branch is started with
+	 * {@link #startSimulation()}, or with the other branches by {@link #runBranches(List, int)}.
+	 * <p>
+	 * Each branch is a deep copy of the simulation, not a copy-on-write view of it: the state is
+	 * written once in memory with the same serialization as {@link #checkpoint(String)}, and read
+	 * back once per branch, so every branch gets its own copy of the entities, of the queues and of
+	 * the data of the events, which must be {@link Serializable}. Only the {@link SharedState}
+	 * objects, and the layers of the {@link ForkableMap forkable maps} not changed since they were
+	 * last forked, are shared by the branches rather than copied. The serialized state is kept in
+	 * memory until all the branches have been read, so a fork of K branches needs up to K + 1 times
+	 * the memory of the simulation, plus its serialized size. A sequential simulation can be forked
+	 * between two clock ticks; the parallel dispatch of the clock ticks is not copied. Each branch
+	 * gets its name in the {@link #BRANCH_PROPERTY} property.
+	 * 
+	 * @param branches the number of branches
+	 * @return the contexts of the branches
+	 * @throws IOException if the state of the simulation can't be copied
+	 */
+	public List<SimulationContext> fork(int branches) throws IOException {
+		if (branches < 1) {
+			throw new IllegalArgumentException("A simulation is forked into at least one branch.");
+		}
+		if (engine != null) {
+			throw new IllegalStateException("A parallel simulation can't be forked.");
+		}
+		checkNotDispatching("fork the simulation");
+		// a deep copy per branch: the branches run concurrently and change their entities freely, so
+		// copying them once at the fork costs less than tracking their writes, and still saves each
+		// branch the run up to the fork
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(CHECKPOINT_BUFFER_SIZE);
+		ForkOutputStream out = new ForkOutputStream(bytes);
+		try {
+			out.writeObject(this);
+		} finally {
+			out.close();
+		}
+		byte[] state = bytes.toByteArray();
+
+		Object forked = getProperty(BRANCH_PROPERTY);
+		List<SimulationContext> forks = new ArrayList<SimulationContext>(branches);
+		for (int i = 0; i < branches; i++) {
+			ForkInputStream in = new ForkInputStream(new ByteArrayInputStream(state), out.shared);
+			try {
+				SimulationContext fork = (SimulationContext) in.readObject();
+				fork.paused = false;
+				fork.setProperty(BRANCH_PROPERTY, (forked == null ? "" : forked + "/") + "branch" + i);
+				forks.add(fork);
+			} catch (ClassNotFoundException e) {
+				// the classes have just been written by this JVM
+				throw new IllegalStateException(e);
+			} finally {
+				in.close();
+			}
+		}
+		return forks;
+	}
+
+	/**
+	 * Runs simulations, such as the branches of a fork, on a pool of threads, each in its own
+	 * context. The log output of the simulations is interleaved.
+	 * 
+	 * @param contexts the contexts of the simulations
+	 * @param threads the number of threads
+	 * @return the last clock value of each simulation
+	 * @throws InterruptedException if the current thread is interrupted while waiting
+	 */
+	public static double[] runBranches(List<SimulationContext> contexts, int threads) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Double>> results = new ArrayList<Future<Double>>();
+			for (final SimulationContext context : contexts) {
+				results.add(pool.submit(new Callable<Double>() {
+
+					@Override
+					public Double call() {
+						return Double.valueOf(context.startSimulation());
+					}
+				}));
+			}
+			double[] clocks = new double[results.size()];
+			for (int i = 0; i < clocks.length; i++) {
+				try {
+					clocks[i] = results.get(i).get().doubleValue();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+			return clocks;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Gets a new copy of initial simulation Calendar.
+	 * 
+	 * @return a new copy of Calendar object or if CloudSim hasn't been initialized
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean, String[], String[], String)
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @pre $none
+	 * @post $none
+	 */
+	public Calendar getSimulationCalendar() {
+		// make a new copy
+		Calendar clone = calendar;
+		if (calendar != null) {
+			clone = (Calendar) calendar.clone();
+		}
+
+		return clone;
+	}
+
+	/**
+	 * Gets the entity ID of <tt>CloudInformationService</tt>.
+	 * 
+	 * @return the Entity ID or if it is not found
+	 * @pre $none
+	 * @post $result >= -1
+	 */
+	public int getCloudInfoServiceEntityId() {
+		return cisId;
+	}
+
+	/**
+	 * Sends a request to Cloud Information Service (GIS) entity to get the list of all Cloud
+	 * hostList.
+	 * 
+	 * @return A List containing CloudResource ID (as an Integer object) or if a CIS entity hasn't
+	 *         been created before
+	 * @pre $none
+	 * @post $none
+	 */
+	public List<Integer> getCloudResourceList() {
+		if (cis == null) {
+			return null;
+		}
+
+		return cis.getList();
+	}
+
+	// ======== SIMULATION METHODS ===============//
+
+	/** The entities. */
+	List<SimEntity> entities;
+
+	/** The future event queue. */
+	FutureQueue future;
+
+	/** The deferred event queue. */
+	DeferredQueue deferred;
+
+	/** The periodic timers. */
+	TimerSlots timers;
+
+	/** The simulation clock. */
+	double clock;
+
+	/** Flag for checking if the simulation is running. */
+	boolean running;
+
+	/** The entities by name. */
+	Map<String, SimEntity> entitiesByName;
+
+	/** The registry of the entities, by class, and of the indexes of the models. */
+	EntityRegistry registry;
+
+	// The predicates used in entity wait methods
+	/** The wait predicates. */
+	Map<Integer, Predicate> waitPredicates;
+
+	/**
+	 * The ids of the entities that have to be run in the next clock tick, i.e. the entities made
+	 * runnable or which have received events since they were last run.
+	 */
+	RunnableQueue runnable;
+
+	/**
+	 * The pool of the events, when the future queue recycles them (see
+	 * {@link FutureQueueType#EVENT_STORE}); null otherwise.
+	 */
+	private SimEventPool eventPool;
+
+	/** The engine running a parallel simulation; null when the simulation is sequential. */
+	private transient ParallelEngine engine;
+
+	/** The dispatcher running the entities of a clock tick in parallel; null if they run one by one. */
+	private transient ParallelDispatcher dispatcher;
+
+	/** The statistics of the last optimistic parallel simulation; null if there was none. */
+	private transient TimeWarpStatistics timeWarpStatistics;
+
+	/** The telemetry collecting statistics about the engine; null if none is collected. */
+	transient EngineTelemetry telemetry;
+
+	/** The tracer recording the events delivered to the entities; null if they are not recorded. */
+	private transient EventTracer tracer;
+
+	/** The paused. */
+	boolean paused = false;
+
+	/** The pause at. */
+	long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	boolean abruptTerminate = false;
+
+	/** The network topology; created when first used. */
+	private TopologyModel networkTopology;
+
+	/** The number of events processed by the sequential simulation. */
+	long processedEvents = 0;
+
+	/** The file the scheduled checkpoints are written to; null if none is scheduled. */
+	private String checkpointPath;
+
+	/** The time of the scheduled checkpoint, or -1 if none is scheduled at a time. */
+	private double checkpointAt = -1;
+
+	/** The number of events between two scheduled checkpoints, or 0 if they are not periodic. */
+	private long checkpointInterval = 0;
+
+	/** The number of events processed when the last periodic checkpoint was written. */
+	private long checkpointEvents = 0;
+
+	/** The time before which the simulation is run to be forked, or -1 if it runs to its end. */
+	private double runUntil = -1;
+
+	/** The properties of the simulation, set by the models run in this context. */
+	private final Map<String, Object> properties = new HashMap<String, Object>();
+
+	/**
+	 * Initialise the simulation for stand alone simulations. This function should be called at the
+	 * start of the simulation.
+	 */
+	void initialize() {
+		Log.printLine("Initialising...");
+		entities = new ArrayList<SimEntity>();
+		entitiesByName = new LinkedHashMap<String, SimEntity>();
+		registry = new EntityRegistry(entities);
+		FutureQueue queue = futureQueueType.createQueue();
+		eventPool = queue instanceof SimEventStore ? ((SimEventStore) queue).getEventPool() : null;
+		// the events of an event store are recycled, so they can't be indexed
+		future = eventPool == null ? new SourceIndexedFutureQueue(queue) : queue;
+		deferred = new DeferredQueue();
+		timers = new TimerSlots();
+		waitPredicates = new HashMap<Integer, Predicate>();
+		runnable = new RunnableQueue();
+		ticksPerTimeUnit = 0;
+		if (dispatcher != null) {
+			dispatcher.shutdown();
+			dispatcher = null;
+		}
+		processedEvents = 0;
+		checkpointEvents = 0;
+		clock = 0;
+		running = false;
+	}
+
+	// Public access methods
+
+	/**
+	 * Get the current simulation time.
+	 * 
+	 * @return the simulation time
+	 */
+	public double clock() {
+		if (engine != null) {
+			LogicalProcess process = engine.currentProcess();
+			if (process != null) {
+				return process.clock;
+			}
+		}
+		return clock;
+	}
+
+	/**
+	 * Get the current number of entities in the simulation.
+	 * 
+	 * @return The number of entities
+	 */
+	public int getNumEntities() {
+		return entities.size();
+	}
+
+	/**
+	 * Get the entity with a given id.
+	 * 
+	 * @param id the entity's unique id number
+	 * @return The entity, or if it could not be found
+	 */
+	public SimEntity getEntity(int id) {
+		return entities.get(id);
+	}
+
+	/**
+	 * Get the entity with a given name.
+	 * 
+	 * @param name The entity's name
+	 * @return The entity
+	 */
+	public SimEntity getEntity(String name) {
+		return entitiesByName.get(name);
+	}
+
+	/**
+	 * Get the id of an entity with a given name.
+	 * 
+	 * @param name The entity's name
+	 * @return The entity's unique id number
+	 */
+	public int getEntityId(String name) {
+		SimEntity obj = entitiesByName.get(name);
+		if (obj == null) {
+			return CloudSim.NOT_FOUND;
+		} else {
+			return obj.getId();
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 * 
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @pre entityID > 0
+	 * @post $none
+	 */
+	public String getEntityName(int entityID) {
+		try {
+			return getEntity(entityID).getName();
+		} catch (IllegalArgumentException e) {
+			return null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 * 
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @pre entityID > 0
+	 * @post $none
+	 */
+	public String getEntityName(Integer entityID) {
+		if (entityID != null) {
+			return getEntityName(entityID.intValue());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a read-only view of the entities created for the simulation, in the order of their
+	 * ids. The view is not a copy, so it reflects the entities added later.
+	 * 
+	 * @return the entities
+	 */
+	public List<SimEntity> getEntityList() {
+		return registry.getEntities();
+	}
+
+	/**
+	 * Gets the registry of the entities of the simulation, giving the entities of a class and the
+	 * indexes of the models.
+	 * 
+	 * @return the registry
+	 */
+	public EntityRegistry getEntityRegistry() {
+		return registry;
+	}
+
+	// Public update methods
+
+	/**
+	 * Add a new entity to the simulation. This is present for compatibility with existing
+	 * simulations since entities are automatically added to the simulation upon instantiation.
+	 * 
+	 * @param e The new entity
+	 */
+	public void addEntity(SimEntity e) {
+		SimEvent evt;
+		if (engine != null) {
+			throw new IllegalStateException("Entities can't be added to a running parallel simulation.");
+		}
+		checkNotDispatching("create entities");
+		if (running) {
+			// Post an event to make this entity
+			evt = newEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
+			future.addEvent(evt);
+		}
+		if (e.getId() == -1) { // Only add once!
+			int id = entities.size();
+			e.setId(id);
+			entities.add(e);
+			entitiesByName.put(e.getName(), e);
+			registry.entityAdded(e);
+		}
+	}
+
+	/**
+	 * Internal method used to add a new entity to the simulation when the simulation is running. It
+	 * should <b>not</b> be called from user simulations.
+	 * 
+	 * @param e The new entity
+	 */
+	void addEntityDynamically(SimEntity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("Adding null entity.");
+		} else {
+			printMessage("Adding: " + e.getName());
+		}
+		e.startEntity();
+	}
+
+	/**
+	 * Internal method used to run one tick of the simulation. This method should <b>not</b> be
+	 * called in simulations.
+	 * 
+	 * @return true, if successful otherwise
+	 */
+	public boolean runClockTick() {
+		SimEntity ent;
+		boolean queue_empty;
+
+		// Only the entities that received events can do something when run. They are run in
+		// the order of their ids, as if all the entities were checked.
+		if (dispatcher != null) {
+			dispatcher.runEntities(runnable);
+		} else {
+			int count = runnable.drain();
+			for (int k = 0; k < count; k++) {
+				ent = entities.get(runnable.drained(k));
+				if (ent.getState() == SimEntity.RUNNABLE) {
+					ent.run();
+				}
+			}
+		}
+
+		// If there are more future events then deal with them
+		if (future.size() > 0) {
+			queue_empty = false;
+			SimEvent first = future.poll();
+			double time = first.eventTime();
+			processEvent(first);
+
+			// Check if next events are at same time...
+			SimEvent next = future.peek();
+			while (next != null && next.eventTime() == time) {
+				processEvent(future.poll());
+				next = future.peek();
+			}
+
+		} else {
+			queue_empty = true;
+			running = false;
+			printMessage("Simulation: No more future events");
+		}
+
+		return queue_empty;
+	}
+
+	/**
+	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
+	 */
+	public void runStop() {
+		printMessage("Simulation completed.");
+	}
+
+	/**
+	 * Used to hold an entity for some time.
+	 * 
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void hold(int src, long delay) {
+		checkNotOptimistic("hold");
+		SimEvent e = newEvent(SimEvent.HOLD_DONE, timeAfter(clock(), delay), src, -1, -1, null);
+		enqueue(e, false);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to pause an entity for some time.
+	 * 
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void pause(int src, double delay) {
+		checkNotOptimistic("pause");
+		SimEvent e = newEvent(SimEvent.HOLD_DONE, timeAfter(clock(), delay), src, -1, -1, null);
+		enqueue(e, false);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to send an event from one entity to another.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void send(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = newEvent(SimEvent.SEND, timeAfter(clock(), delay), src, dest, tag, data);
+		enqueue(e, false);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, with priority in the queue.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = newEvent(SimEvent.SEND, timeAfter(clock(), delay), src, dest, tag, data);
+		enqueue(e, true);
+	}
+
+	/**
+	 * Sets an entity's state to be waiting. The predicate used to wait for an event is now passed
+	 * to Sim_system. Only events that satisfy the predicate will be passed to the entity. This is
+	 * done to avoid unnecessary context switches.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 */
+	public void wait(int src, Predicate p) {
+		checkNotOptimistic("wait");
+		entities.get(src).setState(SimEntity.WAITING);
+		if (p != CloudSim.SIM_ANY) {
+			// If a predicate has been used store it in order to check it
+			LogicalProcess process = currentProcess();
+			Map<Integer, Predicate> predicates = process == null ? waitPredicates : process.waitPredicates;
+			// the entities of a clock tick may be run in parallel
+			synchronized (predicates) {
+				predicates.put(src, p);
+			}
+		}
+	}
+
+	/**
+	 * Checks if events for a specific entity are present in the deferred event queue.
+	 * 
+	 * @param d the d
+	 * @param p the p
+	 * @return the int
+	 */
+	public int waiting(int d, Predicate p) {
+		if (p == CloudSim.SIM_ANY) {
+			return deferredQueue().size(d);
+		}
+
+		int count = 0;
+		SimEvent event;
+		Iterator<SimEvent> iterator = deferredQueue().iterator(d);
+		while (iterator.hasNext()) {
+			event = iterator.next();
+			if (p.match(event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Selects an event matching a predicate.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent select(int src, Predicate p) {
+		if (p == CloudSim.SIM_ANY) {
+			return deferredQueue().poll(src);
+		}
+		Iterator<SimEvent> iterator = deferredQueue().iterator(src);
+		while (iterator.hasNext()) {
+			SimEvent ev = iterator.next();
+			if (p.match(ev)) {
+				iterator.remove();
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Find first deferred event matching a predicate.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent findFirstDeferred(int src, Predicate p) {
+		Iterator<SimEvent> iterator = deferredQueue().iterator(src);
+		while (iterator.hasNext()) {
+			SimEvent ev = iterator.next();
+			if (p.match(ev)) {
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Find event in the future queue.
+	 * 
+	 * @param destination id of the destination of the event
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent findFutureEvent(int destination, Object data) {
+		Iterator<SimEvent> iterator = deferredQueue().iterator(destination);
+		while (iterator.hasNext()) {
+			SimEvent ev = iterator.next();
+			if (ev.getData() == data) {
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes an event from the event queue.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent cancel(int src, Predicate p) {
+		checkNotOptimistic("cancel events");
+		checkNotDispatching("cancel events");
+		LogicalProcess process = currentProcess();
+		FutureQueue queue = process == null ? future : process.future;
+		if (queue instanceof SourceIndexedFutureQueue) {
+			return ((SourceIndexedFutureQueue) queue).cancel(src, p);
+		}
+		// the queue may not iterate in temporal order, so look for the earliest matching event
+		SimEvent ev = null;
+		Iterator<SimEvent> iter = queue.iterator();
+		while (iter.hasNext()) {
+			SimEvent next = iter.next();
+			if (next.getSource() == src && p.match(next)
+					&& (ev == null || (process == null ? next.compareTo(ev)
+							: LogicalProcess.EVENT_ORDER.compare(next, ev)) < 0)) {
+				ev = next;
+			}
+		}
+		if (ev != null) {
+			queue.remove(ev);
+		}
+		return ev;
+	}
+
+	/**
+	 * Removes all events that match a given predicate from the future event queue returns true if
+	 * at least one event has been cancelled; false otherwise.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return true, if successful
+	 */
+	public boolean cancelAll(int src, Predicate p) {
+		checkNotOptimistic("cancel events");
+		checkNotDispatching("cancel events");
+		FutureQueue queue = futureQueue();
+		if (queue instanceof SourceIndexedFutureQueue) {
+			return ((SourceIndexedFutureQueue) queue).cancelAll(src, p);
+		}
+		int previousSize = queue.size();
+		Iterator<SimEvent> iter = queue.iterator();
+		while (iter.hasNext()) {
+			SimEvent ev = iter.next();
+			if (ev.getSource() == src && p.match(ev)) {
+				iter.remove();
+			}
+		}
+		return queue.size() < previousSize;
+	}
+
+	/**
+	 * Schedules a periodic timer sending events to an entity. The entity receives an event of the
+	 * given tag and data, sent by itself, at the current time plus the phase, and then every
+	 * period, as long as the time is not after the end time of the timer. The timers firing at the
+	 * same time are a single event in the future queue.
+	 * 
+	 * @param src the id of the entity
+	 * @param tag the tag of the events
+	 * @param data the data of the events
+	 * @param phase the delay before the first event
+	 * @param period the time between two events
+	 * @param until the time after which no more events are sent
+	 * @return the timer, or null if its first event would be after the end time
+	 */
+	public PeriodicTimer schedulePeriodic(int src, int tag, Object data, double phase, double period, double until) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("The period of a timer must be positive.");
+		}
+		if (phase <= 0) {
+			throw new IllegalArgumentException("The phase of a timer must be positive.");
+		}
+		double time = timeAfter(clock(), phase);
+		if (time > until) {
+			return null;
+		}
+		PeriodicTimer timer = new PeriodicTimer(src, tag, data, period, until);
+		if (dispatcher == null || !dispatcher.bufferTimer(timer, time)) {
+			addTimer(timer, time, currentProcess(), false);
+		}
+		return timer;
+	}
+
+	/**
+	 * Cancels a periodic timer of an entity. The events already sent by the timer are not
+	 * cancelled.
+	 * 
+	 * @param src the id of the entity
+	 * @param timer the timer
+	 * @return true if the timer has been cancelled, false if it was already cancelled
+	 */
+	public boolean cancelPeriodic(int src, PeriodicTimer timer) {
+		if (timer.getEntityId() != src) {
+			throw new IllegalArgumentException("An entity can only cancel its own timers.");
+		}
+		if (timer.isCancelled()) {
+			return false;
+		}
+		timer.setCancelled(true);
+		LogicalProcess process = currentProcess();
+		if (process != null) {
+			process.timerCancelled(timer);
+		}
+		return true;
+	}
+
+	/**
+	 * Writes output of an entity, such as lines of a file, in the order of a sequential
+	 * simulation. The output of the entities run concurrently by the parallel dispatcher is kept
+	 * in their buffers and written when the buffers are merged, in the order of the entity ids; the
+	 * output of the entities of a logical process is kept by the process and written by the engine
+	 * between the windows, in the order of the times and of the entity ids. Otherwise it is written
+	 * at once.
+	 *
+	 * @param src the id of the entity
+	 * @param output the code writing the output
+	 */
+	public void output(int src, Runnable output) {
+		LogicalProcess process = currentProcess();
+		if (process != null) {
+			process.output(src, output);
+		} else if (dispatcher == null || !dispatcher.bufferOutput(output)) {
+			output.run();
+		}
+	}
+
+	//
+	// protected internal methods
+	//
+
+	/**
+	 * Processes an event.
+	 * 
+	 * @param e the e
+	 */
+	void processEvent(SimEvent e) {
+		int dest, src;
+		SimEntity dest_ent;
+		
+		// Update the system's clock
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		processedEvents++;
+		if (telemetry != null) {
+			telemetry.eventProcessed();
+		}
+		if (e.getType() == SimEvent.TIMER && dropCancelledTimers(e, null)) {
+			releaseEvent(e);
+			return;
+		}
+		clock = e.eventTime();
+
+		// Ok now process it
+		switch (e.getType()) {
+			case SimEvent.ENULL:
+				throw new IllegalArgumentException("Event has a null type.");
+
+			case SimEvent.CREATE:
+				SimEntity newe = (SimEntity) e.getData();
+				addEntityDynamically(newe);
+				releaseEvent(e);
+				break;
+
+			case SimEvent.SEND:
+				deliver(e);
+				break;
+
+			case SimEvent.TIMER:
+				fireTimers(e, null);
+				releaseEvent(e);
+				break;
+
+			case SimEvent.HOLD_DONE:
+				src = e.getSource();
+				if (src < 0) {
+					throw new IllegalArgumentException("Null entity holding.");
+				} else {
+					// queues the entity to be run
+					entities.get(src).setState(SimEntity.RUNNABLE);
+				}
+				releaseEvent(e);
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Delivers an event sent to an entity: gives it to the entity if it is waiting for it, or adds
+	 * it to the deferred queue.
+	 * 
+	 * @param e the event
+	 */
+	private void deliver(SimEvent e) {
+		if (tracer != null) {
+			tracer.record(e);
+		}
+		// Check for matching wait
+		int dest = e.getDestination();
+		if (dest < 0) {
+			throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+		} else {
+			int tag = e.getTag();
+			SimEntity dest_ent = entities.get(dest);
+			if (dest_ent.getState() == SimEntity.WAITING) {
+				Integer destObj = Integer.valueOf(dest);
+				Predicate p = waitPredicates.get(destObj);
+				if ((p == null) || (tag == 9999) || (p.match(e))) {
+					// the event leaves the queues here, so it does not need to be copied
+					dest_ent.setEventBuffer(e);
+					dest_ent.setState(SimEntity.RUNNABLE);
+					waitPredicates.remove(destObj);
+				} else {
+					deferred.addEvent(e);
+				}
+			} else {
+				deferred.addEvent(e);
+				if (dest_ent.getState() == SimEntity.RUNNABLE) {
+					runnable.add(dest);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fires the periodic timers of a slot: delivers their events to their entities, and adds them
+	 * to the slots of their next firings.
+	 * 
+	 * @param e the event of the slot
+	 * @param process the logical process of the timers, or null if the simulation is sequential
+	 */
+	void fireTimers(SimEvent e, LogicalProcess process) {
+		TimerSlots.TimerSlot slot = (TimerSlots.TimerSlot) e.getData();
+		removeSlot(slot, process);
+		double time = e.eventTime();
+		List<PeriodicTimer> slotTimers = slot.timers;
+		for (int i = 0; i < slotTimers.size(); i++) {
+			PeriodicTimer timer = slotTimers.get(i);
+			if (timer.isCancelled()) {
+				continue;
+			}
+			int id = timer.getEntityId();
+			SimEvent fired = newEvent(SimEvent.SEND, time, id, id, timer.getTag(), timer.getData());
+			if (process == null) {
+				deliver(fired);
+			} else {
+				process.deliverTimerEvent(fired);
+			}
+			double next = timeAfter(time, timer.getPeriod());
+			if (next > time && next <= timer.getUntil()) {
+				addTimer(timer, next, process, true);
+			}
+		}
+	}
+
+	/**
+	 * Splits a timer slot scheduled before a parallel simulation started between the logical
+	 * processes of its timers. The events of the new slots keep the ordering keys of the event.
+	 * 
+	 * @param e the event of the slot
+	 * @param processOf the logical process of each entity, indexed by the entity id
+	 */
+	void splitTimers(SimEvent e, LogicalProcess[] processOf) {
+		TimerSlots.TimerSlot slot = (TimerSlots.TimerSlot) e.getData();
+		timers.remove(slot);
+		for (PeriodicTimer timer : slot.timers) {
+			if (timer.isCancelled()) {
+				continue;
+			}
+			LogicalProcess process = processOf[timer.getEntityId()];
+			TimerSlots.TimerSlot split = process.timers.add(timer, slot.time);
+			if (split.timers.size() == 1) {
+				SimEvent splitEvent = newEvent(SimEvent.TIMER, slot.time, -1, timer.getEntityId(), -1, split);
+				splitEvent.setSerial(e.getSerial());
+				splitEvent.setSendTime(e.getSendTime());
+				process.future.addEvent(splitEvent);
+			}
+		}
+		releaseEvent(e);
+	}
+
+	/**
+	 * Drops the event of a timer slot whose timers have all been cancelled, so that it does not
+	 * move the clock.
+	 * 
+	 * @param e the event of the slot
+	 * @param process the logical process of the timers, or null if the simulation is sequential
+	 * @return true if the slot has been dropped
+	 */
+	boolean dropCancelledTimers(SimEvent e, LogicalProcess process) {
+		TimerSlots.TimerSlot slot = (TimerSlots.TimerSlot) e.getData();
+		if (slot.hasActiveTimers()) {
+			return false;
+		}
+		removeSlot(slot, process);
+		return true;
+	}
+
+	/**
+	 * Adds a periodic timer scheduled by an entity of a sequential simulation.
+	 * 
+	 * @param timer the timer
+	 * @param time the time of the first firing
+	 */
+	void addTimer(PeriodicTimer timer, double time) {
+		addTimer(timer, time, null, false);
+	}
+
+	/**
+	 * Adds a periodic timer to the slot of its next firing, scheduling the slot if it is new.
+	 * 
+	 * @param timer the timer
+	 * @param time the time of the next firing
+	 * @param process the logical process of the timer, or null if the simulation is sequential
+	 * @param firing whether the timer is being fired, rather than scheduled by its entity
+	 */
+	private void addTimer(PeriodicTimer timer, double time, LogicalProcess process, boolean firing) {
+		TimerSlots.TimerSlot slot = (process == null ? timers : process.timers).add(timer, time);
+		if (process != null) {
+			process.timerAdded(slot);
+		}
+		if (slot.timers.size() == 1) {
+			SimEvent e = newEvent(SimEvent.TIMER, time, -1, timer.getEntityId(), -1, slot);
+			if (firing && process != null) {
+				engine.scheduleTimers(process, e);
+			} else {
+				enqueue(e, false);
+			}
+		}
+	}
+
+	/**
+	 * Removes a timer slot being fired or dropped.
+	 * 
+	 * @param slot the slot
+	 * @param process the logical process of the slot, or null if the simulation is sequential
+	 */
+	private void removeSlot(TimerSlots.TimerSlot slot, LogicalProcess process) {
+		if (process == null) {
+			timers.remove(slot);
+		} else {
+			process.timers.remove(slot);
+			process.timerSlotRemoved(slot);
+		}
+	}
+
+	/**
+	 * Adds an event to the future queue, or gives it to the engine of a parallel simulation.
+	 * 
+	 * @param e the event
+	 * @param first whether the event has priority over the events of the same time
+	 */
+	void enqueue(SimEvent e, boolean first) {
+		if (dispatcher != null && dispatcher.buffer(e, first)) {
+			return;
+		} else if (engine != null) {
+			engine.schedule(e, first);
+		} else if (first) {
+			future.addEventFirst(e);
+		} else {
+			future.addEvent(e);
+		}
+	}
+
+	/**
+	 * Checks that the current thread is not running an optimistic logical process, whose entities
+	 * can only do what can be rolled back.
+	 * 
+	 * @param operation the operation, for the error message
+	 * @throws IllegalStateException if the current thread runs an optimistic logical process
+	 */
+	private void checkNotOptimistic(String operation) {
+		if (currentProcess() instanceof OptimisticProcess) {
+			throw new IllegalStateException("The entities of an optimistic parallel simulation can't " + operation + ".");
+		}
+	}
+
+	/**
+	 * Checks that the entities of a clock tick are not being run in parallel, since they share the
+	 * future queue.
+	 * 
+	 * @param operation the operation, for the error message
+	 * @throws IllegalStateException if the entities of the clock tick are run in parallel
+	 */
+	private void checkNotDispatching(String operation) {
+		if (dispatcher != null && dispatcher.isDispatching()) {
+			throw new IllegalStateException("The entities run in parallel in a clock tick can't " + operation + ".");
+		}
+	}
+
+	/**
+	 * Gets the logical process run by the current thread in a parallel simulation.
+	 * 
+	 * @return the logical process, or null if the simulation is sequential
+	 */
+	private LogicalProcess currentProcess() {
+		return engine == null ? null : engine.currentProcess();
+	}
+
+	/**
+	 * Gets the future queue of the current logical process, or of the simulation if it is
+	 * sequential.
+	 * 
+	 * @return the future queue
+	 */
+	private FutureQueue futureQueue() {
+		LogicalProcess process = currentProcess();
+		return process == null ? future : process.future;
+	}
+
+	/**
+	 * Gets the deferred queue of the current logical process, or of the simulation if it is
+	 * sequential.
+	 * 
+	 * @return the deferred queue
+	 */
+	private DeferredQueue deferredQueue() {
+		LogicalProcess process = currentProcess();
+		return process == null ? deferred : process.deferred;
+	}
+
+	/**
+	 * Queues an entity made runnable, to be run in the next clock tick of the simulation, or of
+	 * its logical process if the simulation is parallel.
+	 *
+	 * @param id the id of the entity
+	 */
+	void entityRunnable(int id) {
+		if (engine != null) {
+			engine.processOf[id].runnable.add(id);
+		} else if (runnable != null) {
+			runnable.add(id);
+		}
+	}
+
+	/**
+	 * Creates a new event, taking it from the pool of events if the future queue recycles them.
+	 * 
+	 * @param evtype the internal event type
+	 * @param time the time at which the event should occur
+	 * @param src the id of the entity who scheduled the event
+	 * @param dest the id of the entity the event will be sent to
+	 * @param tag the user defined type of the event
+	 * @param data the data the event is carrying
+	 * @return the event
+	 */
+	SimEvent newEvent(int evtype, double time, int src, int dest, int tag, Object data) {
+		// the pool is not shared between the threads running the entities of a clock tick
+		if (eventPool != null && (dispatcher == null || !dispatcher.isDispatching())) {
+			return eventPool.acquire(evtype, time, src, dest, tag, data);
+		}
+		return new SimEvent(evtype, time, src, dest, tag, data);
+	}
+
+	/**
+	 * Gives an event which has been processed back to the pool of events, if the future queue
+	 * recycles them. The event must not be used afterwards.
+	 * 
+	 * @param e the event
+	 */
+	void releaseEvent(SimEvent e) {
+		if (eventPool != null && (dispatcher == null || !dispatcher.isDispatching())) {
+			eventPool.release(e);
+		}
+	}
+
+	/**
+	 * Internal method used to start the simulation. This method should <b>not</b> be used by user
+	 * simulations.
+	 */
+	public void runStart() {
+		running = true;
+		// Start all the entities
+		for (SimEntity ent : entities) {
+			ent.startEntity();
+		}
+
+		printMessage("Entities started.");
+	}
+
+	/**
+	 * Check if the simulation is still running. This method should be used by entities to check if
+	 * they should continue executing.
+	 * 
+	 * @return if the simulation is still running, otherwise
+	 */
+	public boolean running() {
+		return running;
+	}
+	
+	/**
+	 * Check the number of future events in the simulation is still running. This method should be used by entities to check if
+	 * they should continue executing.
+	 * 
+	 * @return if the simulation is still running, otherwise
+	 */
+	public int getNumFutureEvents() {
+		return futureQueue().size();
+	}
+		
+
+	/**
+	 * This method is called if one wants to pause the simulation.
+	 * 
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation() {
+		paused = true;
+		return paused;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation at a given time.
+	 * 
+	 * @param time the time at which the simulation has to be paused
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation(long time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			pauseAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to resume the simulation that has previously been paused.
+	 * 
+	 * @return if the simulation has been restarted or or otherwise.
+	 */
+	public boolean resumeSimulation() {
+		paused = false;
+
+		if (pauseAt <= clock) {
+			pauseAt = -1;
+		}
+
+		return !paused;
+	}
+
+	/**
+	 * Start the simulation running. This should be called after all the entities have been setup
+	 * and added, and their ports linked.
+	 * 
+	 * @return the double last clock value
+	 */
+	public double run() {
+		SimulationContext previous = enter();
+		try {
+			return runClockTicks();
+		} finally {
+			exit(previous);
+		}
+	}
+
+	/**
+	 * Runs the clock ticks of the simulation until it ends.
+	 * 
+	 * @return the double last clock value
+	 */
+	private double runClockTicks() {
+		if (!running) {
+			if (traceFlag && tracer == null) {
+				try {
+					tracer = new EventTracer(EventTracer.DEFAULT_FILE);
+				} catch (IOException e) {
+					printMessage("Simulation: The trace could not be created: " + e.getMessage());
+				}
+			}
+			runStart();
+		}
+		if (telemetry != null) {
+			telemetry.runStarted();
+		}
+		while (true) {
+			// the simulation is left running, to be forked
+			if (runUntil >= 0 && future.size() > 0 && future.peek().eventTime() >= runUntil) {
+				return clock;
+			}
+
+			if (runClockTick() || abruptTerminate) {
+				break;
+			}
+
+			// this block allows termination of simulation at a specific time
+			if (terminateAt > 0.0 && clock >= terminateAt) {
+				terminateSimulation();
+				clock = terminateAt;
+				break;
+			}
+
+			if (checkpointPath != null) {
+				writeScheduledCheckpoint();
+			}
+
+			if (telemetry != null) {
+				telemetry.clockTick(this);
+			}
+
+			if (pauseAt != -1
+					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.peek()
+							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
+				pauseSimulation();
+				clock = pauseAt;
+			}
+
+			while (paused) {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		double clock = clock();
+
+		if (telemetry != null) {
+			telemetry.runFinished(this, true);
+		}
+		if (tracer != null) {
+			tracer.close();
+			tracer = null;
+		}
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	/**
+	 * Writes the scheduled checkpoint, if all the events before its time have been processed, or
+	 * the periodic checkpoint, if enough events have been processed since the last one. A
+	 * checkpoint which can't be written is reported, and the simulation goes on.
+	 */
+	private void writeScheduledCheckpoint() {
+		boolean due = false;
+		if (checkpointAt >= 0 && (future.size() == 0 || future.peek().eventTime() >= checkpointAt)) {
+			checkpointAt = -1;
+			due = true;
+		}
+		if (checkpointInterval > 0 && processedEvents - checkpointEvents >= checkpointInterval) {
+			checkpointEvents = processedEvents;
+			due = true;
+		}
+		if (due) {
+			try {
+				checkpoint(checkpointPath);
+				printMessage("Simulation: Checkpoint written to " + checkpointPath + " at " + clock + ".");
+			} catch (IOException e) {
+				printMessage("Simulation: The checkpoint could not be written to " + checkpointPath + ": "
+						+ e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Internal method that allows the entities to terminate. This method should <b>not</b> be used
+	 * in user simulations.
+	 */
+	public void finishSimulation() {
+		// Allow all entities to exit their body method
+		if (!abruptTerminate) {
+			for (SimEntity ent : entities) {
+				if (ent.getState() != SimEntity.FINISHED) {
+					ent.run();
+				}
+			}
+		}
+
+		for (SimEntity ent : entities) {
+			ent.shutdownEntity();
+		}
+
+		// reset the variables of the simulation
+		entities = null;
+		entitiesByName = null;
+		registry = null;
+		future = null;
+		deferred = null;
+		timers = null;
+		clock = 0L;
+		running = false;
+
+		waitPredicates = null;
+		runnable = null;
+		eventPool = null;
+		if (dispatcher != null) {
+			dispatcher.shutdown();
+			dispatcher = null;
+		}
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+	}
+
+	/**
+	 * Abruptally terminate.
+	 */
+	public void abruptallyTerminate() {
+		abruptTerminate = true;
+	}
+
+	/**
+	 * Prints a message about the progress of the simulation.
+	 * 
+	 * @param message the message
+	 */
+	void printMessage(String message) {
+		Log.printLine(message);
+	}
+
+	/**
+	 * Checks if is paused.
+	 * 
+	 * @return true, if is paused
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Gets the network topology of the simulation.
+	 * 
+	 * @return the network topology
+	 */
+	public TopologyModel getNetworkTopology() {
+		if (networkTopology == null) {
+			networkTopology = new TopologyModel();
+		}
+		return networkTopology;
+	}
+
+	/**
+	 * Gets a property of the simulation.
+	 * 
+	 * @param name the name of the property
+	 * @return the value of the property, or null if it is not set
+	 */
+	public Object getProperty(String name) {
+		return properties.get(name);
+	}
+
+	/**
+	 * Sets a property of the simulation, such as a parameter of the models run in this context.
+	 * 
+	 * @param name the name of the property
+	 * @param value the value of the property; null removes it
+	 */
+	public void setProperty(String name, Object value) {
+		if (value == null) {
+			properties.remove(name);
+		} else {
+			properties.put(name, value);
+		}
+	}
+
+	/**
+	 * Runs a task with this context bound to the current thread, so that the static methods of
+	 * {@link CloudSim} and the entities created by the task use this context. The context bound
+	 * before is restored afterwards.
+	 * 
+	 * @param task the task, usually initialising, building and starting a simulation
+	 * @return the result of the task
+	 * @throws Exception if the task throws an exception
+	 */
+	public <T> T call(Callable<T> task) throws Exception {
+		SimulationContext previous = enter();
+		try {
+			return task.call();
+		} finally {
+			exit(previous);
+		}
+	}
+
+	/**
+	 * Binds this context to the current thread, unless the thread already uses it.
+	 * 
+	 * @return the context bound before, null if there was none, or this context if the thread
+	 *         already used it
+	 */
+	SimulationContext enter() {
+		if (CloudSim.getContext() == this) {
+			return this;
+		}
+		SimulationContext previous = CloudSim.getBoundContext();
+		CloudSim.setContext(this);
+		return previous;
+	}
+
+	/**
+	 * Restores the context bound to the current thread before {@link #enter()}.
+	 * 
+	 * @param previous the context bound before
+	 */
+	void exit(SimulationContext previous) {
+		if (previous != this) {
+			CloudSim.setContext(previous);
+		}
+	}
+
+	/**
+	 * The stream writing the state of a forked simulation, which writes a reference in place of
+	 * every {@link SharedState} object.
+	 */
+	private static class ForkOutputStream extends ObjectOutputStream {
+
+		/** The shared objects, in the order of their references. */
+		final List<Object> shared = new ArrayList<Object>();
+
+		ForkOutputStream(OutputStream out) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) {
+			// the stream writes the same object only once, and refers to it afterwards
+			if (obj instanceof SharedState) {
+				shared.add(obj);
+				return new SharedReference(shared.size() - 1);
+			}
+			return obj;
+		}
+	}
+
+	/**
+	 * The stream reading a branch of a forked simulation, which reads the shared objects back from
+	 * their references.
+	 */
+	private static class ForkInputStream extends ObjectInputStream {
+
+		/** The shared objects, in the order of their references. */
+		private final List<Object> shared;
+
+		ForkInputStream(InputStream in, List<Object> shared) throws IOException {
+			super(in);
+			this.shared = shared;
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) {
+			if (obj instanceof SharedReference) {
+				return shared.get(((SharedReference) obj).index);
+			}
+			return obj;
+		}
+	}
+
+	/**
+	 * A reference to a shared object in the state of a forked simulation.
+	 */
+	private static class SharedReference implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The index of the shared object. */
+		final int index;
+
+		SharedReference(int index) {
+			this.index = index;
+		}
+	}
+
+}
@@ -0,0 +1,346 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateNone;
+import org.cloudbus.cloudsim.core.predicates.PredicateNotType;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+
+/**
+ * A future event queue which indexes the events of another queue by source and tag, so that the
+ * events sent by an entity can be cancelled without going through the whole queue.
+ * <p>
+ * The index is only built when an event is cancelled for the first time, so a simulation which
+ * never cancels events does not pay for it. Cancelled events are not removed from the queue, which
+ * may be costly for a heap or a calendar queue: they are marked as cancelled (tombstones), and
+ * dropped when they reach the head of the queue. For the predicates on the tag of the events
+ * ({@link PredicateType}, {@link PredicateNotType}, {@link PredicateAny}), cancelling the first
+ * matching event of an entity only looks at the first event of each tag the entity has sent, so
+ * its cost does not depend on the number of events in the queue.
+ * <p>
+ * The queue holds {@link SimEvent} objects, so it can't index a {@link SimEventStore}.
+ *
+ * @see CloudSim#cancel(int, Predicate)
+ * @see CloudSim#cancelAll(int, Predicate)
+ */
+class SourceIndexedFutureQueue implements FutureQueue, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The queue holding the events, including the cancelled ones, in temporal order. */
+	private final FutureQueue queue;
+
+	/**
+	 * The events of each source by tag, in temporal order, indexed by the id of the source; null
+	 * until the first cancellation.
+	 */
+	private List<Map<Integer, TreeSet<SimEvent>>> index;
+
+	/** The number of cancelled events still in the queue. */
+	private int cancelledCount = 0;
+
+	/**
+	 * Creates a new index of a queue.
+	 *
+	 * @param queue the queue, which must not recycle its events
+	 */
+	SourceIndexedFutureQueue(FutureQueue queue) {
+		this.queue = queue;
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		queue.addEvent(newEvent);
+		if (index != null) {
+			indexEvent(newEvent);
+		}
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		queue.addEventFirst(newEvent);
+		if (index != null) {
+			indexEvent(newEvent);
+		}
+	}
+
+	@Override
+	public SimEvent peek() {
+		SimEvent first = queue.peek();
+		while (first != null && first.isCancelled()) {
+			queue.poll();
+			cancelledCount--;
+			first = queue.peek();
+		}
+		return first;
+	}
+
+	@Override
+	public SimEvent poll() {
+		SimEvent first = queue.poll();
+		while (first != null && first.isCancelled()) {
+			cancelledCount--;
+			first = queue.poll();
+		}
+		if (first != null && index != null) {
+			unindexEvent(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Returns an iterator to the events of the queue which are not cancelled. Removing an event
+	 * with the iterator cancels it.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		final Iterator<SimEvent> iterator = queue.iterator();
+		return new Iterator<SimEvent>() {
+
+			/** The next event not cancelled. */
+			private SimEvent next = advance();
+
+			/** The event last returned. */
+			private SimEvent last;
+
+			private SimEvent advance() {
+				while (iterator.hasNext()) {
+					SimEvent event = iterator.next();
+					if (!event.isCancelled()) {
+						return event;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = advance();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null || last.isCancelled()) {
+					throw new IllegalStateException();
+				}
+				if (index != null) {
+					unindexEvent(last);
+				}
+				tombstone(last);
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return queue.size() - cancelledCount;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		if (event.isCancelled() || !queue.remove(event)) {
+			return false;
+		}
+		if (index != null) {
+			unindexEvent(event);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean modified = false;
+		for (SimEvent event : events) {
+			modified |= remove(event);
+		}
+		return modified;
+	}
+
+	@Override
+	public void clear() {
+		queue.clear();
+		index = null;
+		cancelledCount = 0;
+	}
+
+	/**
+	 * Cancels the earliest event sent by an entity which matches a predicate.
+	 *
+	 * @param src the id of the entity
+	 * @param p the predicate
+	 * @return the event cancelled, or null if none matches
+	 */
+	SimEvent cancel(int src, Predicate p) {
+		Map<Integer, TreeSet<SimEvent>> byTag = eventsOf(src);
+		if (byTag == null) {
+			return null;
+		}
+		boolean tagPredicate = isTagPredicate(p);
+		SimEvent earliest = null;
+		for (TreeSet<SimEvent> events : byTag.values()) {
+			// the first matching event of a tag is the earliest of the tag
+			for (SimEvent event : events) {
+				if (p.match(event)) {
+					if (earliest == null || event.compareTo(earliest) < 0) {
+						earliest = event;
+					}
+					break;
+				} else if (tagPredicate) {
+					break;
+				}
+			}
+		}
+		if (earliest != null) {
+			byTag.get(earliest.getTag()).remove(earliest);
+			tombstone(earliest);
+		}
+		return earliest;
+	}
+
+	/**
+	 * Cancels all the events sent by an entity which match a predicate.
+	 *
+	 * @param src the id of the entity
+	 * @param p the predicate
+	 * @return true if at least one event has been cancelled
+	 */
+	boolean cancelAll(int src, Predicate p) {
+		Map<Integer, TreeSet<SimEvent>> byTag = eventsOf(src);
+		if (byTag == null) {
+			return false;
+		}
+		boolean tagPredicate = isTagPredicate(p);
+		boolean cancelled = false;
+		for (TreeSet<SimEvent> events : byTag.values()) {
+			if (events.isEmpty() || tagPredicate && !p.match(events.first())) {
+				continue;
+			}
+			Iterator<SimEvent> iterator = events.iterator();
+			while (iterator.hasNext()) {
+				SimEvent event = iterator.next();
+				if (tagPredicate || p.match(event)) {
+					iterator.remove();
+					tombstone(event);
+					cancelled = true;
+				}
+			}
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Gets the events sent by an entity, building the index if needed.
+	 *
+	 * @param src the id of the entity
+	 * @return the events of the entity by tag, or null if it has not sent any event
+	 */
+	private Map<Integer, TreeSet<SimEvent>> eventsOf(int src) {
+		if (index == null) {
+			index = new ArrayList<Map<Integer, TreeSet<SimEvent>>>();
+			Iterator<SimEvent> iterator = queue.iterator();
+			while (iterator.hasNext()) {
+				SimEvent event = iterator.next();
+				if (!event.isCancelled()) {
+					indexEvent(event);
+				}
+			}
+		}
+		return src >= 0 && src < index.size() ? index.get(src) : null;
+	}
+
+	/**
+	 * Adds an event to the index.
+	 *
+	 * @param event the event
+	 */
+	private void indexEvent(SimEvent event) {
+		int src = event.getSource();
+		if (src < 0) {
+			return;
+		}
+		while (index.size() <= src) {
+			index.add(null);
+		}
+		Map<Integer, TreeSet<SimEvent>> byTag = index.get(src);
+		if (byTag == null) {
+			byTag = new HashMap<Integer, TreeSet<SimEvent>>();
+			index.set(src, byTag);
+		}
+		Integer tag = Integer.valueOf(event.getTag());
+		TreeSet<SimEvent> events = byTag.get(tag);
+		if (events == null) {
+			events = new TreeSet<SimEvent>();
+			byTag.put(tag, events);
+		}
+		events.add(event);
+	}
+
+	/**
+	 * Removes an event from the index.
+	 *
+	 * @param event the event
+	 */
+	private void unindexEvent(SimEvent event) {
+		int src = event.getSource();
+		if (src >= 0 && src < index.size() && index.get(src) != null) {
+			TreeSet<SimEvent> events = index.get(src).get(Integer.valueOf(event.getTag()));
+			if (events != null) {
+				events.remove(event);
+			}
+		}
+	}
+
+	/**
+	 * Marks an event of the queue as cancelled.
+	 *
+	 * @param event the event
+	 */
+	private void tombstone(SimEvent event) {
+		event.setCancelled(true);
+		cancelledCount++;
+	}
+
+	/**
+	 * Checks whether a predicate only depends on the tag of the events, so that it matches either
+	 * all or none of the events of a tag.
+	 *
+	 * @param p the predicate
+	 * @return true if the predicate only depends on the tag
+	 */
+	private static boolean isTagPredicate(Predicate p) {
+		return p instanceof PredicateType || p instanceof PredicateNotType || p instanceof PredicateAny
+				|| p instanceof PredicateNone;
+	}
+
+}
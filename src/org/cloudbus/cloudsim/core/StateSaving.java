@@ -0,0 +1,50 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * An entity whose state can be saved and restored, so that it can be simulated optimistically by
+ * {@link CloudSim#startOptimisticSimulation(EntityPartitioner, int, double, double)}. Before an
+ * entity runs in a clock tick, its state is saved; if the entity later receives an event of an
+ * earlier time, the state is restored and the clock ticks are run again.
+ * <p>
+ * The state must cover all the fields the entity changes while processing events. It may be a
+ * copy of the fields, or a mark in an {@link UndoLog} for the state that is too large to be copied
+ * in every clock tick. The state of the {@link SimEntity} itself (e.g. its state and the events it
+ * sent) is saved by the engine. Output written through {@link SimEntity#output(Runnable)}, such as
+ * the lines of a file, is kept with the clock tick and only written once the tick is committed,
+ * when the state is discarded; other output, such as log lines, is not undone.
+ *
+ * @see TimeWarpStatistics
+ */
+public interface StateSaving {
+
+	/**
+	 * Saves the state of the entity, before it runs in a clock tick.
+	 *
+	 * @return the state
+	 */
+	Object saveState();
+
+	/**
+	 * Restores a state saved by {@link #saveState()}. The states saved after it are never restored.
+	 *
+	 * @param state the state
+	 */
+	void restoreState(Object state);
+
+	/**
+	 * Discards a state saved by {@link #saveState()}, once the simulation has committed the clock
+	 * tick it was saved for. The state and the ones saved before it are never restored.
+	 *
+	 * @param state the state
+	 */
+	void discardState(Object state);
+
+}
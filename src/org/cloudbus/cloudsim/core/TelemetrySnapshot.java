@@ -0,0 +1,426 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The statistics collected by an {@link EngineTelemetry} at a point of a simulation. The tags are
+ * named after the constants of {@link CloudSimTags}.
+ */
+public class TelemetrySnapshot {
+
+	/** The names of the tags, from the constants of {@link CloudSimTags}; created when first used. */
+	private static Map<Integer, String> tagNames;
+
+	/** The wall-clock time since the simulation started, in nanoseconds. */
+	private final long wallNanos;
+
+	/** The clock of the simulation. */
+	private final double clock;
+
+	/** The events processed by the engine. */
+	private final long processedEvents;
+
+	/** The events handled and the time spent in the handlers in nanoseconds, by tag. */
+	private final Map<Integer, long[]> tags;
+
+	/** The events handled, by entity class name. */
+	private final Map<String, Long> classes;
+
+	/** The samples of the queues, oldest first. */
+	private final List<Sample> samples;
+
+	/**
+	 * Creates a new snapshot.
+	 *
+	 * @param wallNanos the wall-clock time since the simulation started, in nanoseconds
+	 * @param clock the clock of the simulation
+	 * @param processedEvents the events processed by the engine
+	 * @param tags the events handled and the handler time, by tag, sorted
+	 * @param classes the events handled, by entity class name, sorted
+	 * @param samples the samples of the queues
+	 */
+	TelemetrySnapshot(long wallNanos, double clock, long processedEvents, Map<Integer, long[]> tags,
+			Map<String, Long> classes, List<Sample> samples) {
+		this.wallNanos = wallNanos;
+		this.clock = clock;
+		this.processedEvents = processedEvents;
+		this.tags = tags;
+		this.classes = Collections.unmodifiableMap(classes);
+		this.samples = Collections.unmodifiableList(samples);
+	}
+
+	/**
+	 * Gets the wall-clock time since the simulation started.
+	 *
+	 * @return the time, in nanoseconds
+	 */
+	public long getWallNanos() {
+		return wallNanos;
+	}
+
+	/**
+	 * Gets the clock of the simulation.
+	 *
+	 * @return the clock
+	 */
+	public double getClock() {
+		return clock;
+	}
+
+	/**
+	 * Gets the number of events processed by the engine, including the events which are not
+	 * handled by the entities.
+	 *
+	 * @return the number of events
+	 */
+	public long getProcessedEvents() {
+		return processedEvents;
+	}
+
+	/**
+	 * Gets the average number of events processed per wall-clock second.
+	 *
+	 * @return the rate, or 0 if the simulation has not started
+	 */
+	public double getEventsPerSecond() {
+		return wallNanos == 0 ? 0 : processedEvents * 1e9 / wallNanos;
+	}
+
+	/**
+	 * Gets the tags of the events handled by the entities.
+	 *
+	 * @return the tags, sorted
+	 */
+	public List<Integer> getTags() {
+		return Collections.unmodifiableList(new ArrayList<Integer>(tags.keySet()));
+	}
+
+	/**
+	 * Gets the number of events of a tag handled by the entities.
+	 *
+	 * @param tag the tag
+	 * @return the number of events
+	 */
+	public long getEvents(int tag) {
+		long[] values = tags.get(tag);
+		return values == null ? 0 : values[0];
+	}
+
+	/**
+	 * Gets the time spent by the entities handling the events of a tag.
+	 *
+	 * @param tag the tag
+	 * @return the time, in nanoseconds
+	 */
+	public long getHandlerNanos(int tag) {
+		long[] values = tags.get(tag);
+		return values == null ? 0 : values[1];
+	}
+
+	/**
+	 * Gets the number of events handled by the entities, by entity class.
+	 *
+	 * @return the events by class name, sorted
+	 */
+	public Map<String, Long> getEventsByEntityClass() {
+		return classes;
+	}
+
+	/**
+	 * Gets the samples of the queues.
+	 *
+	 * @return the samples, oldest first
+	 */
+	public List<Sample> getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Writes the snapshot to three files with semicolon separated values: the events and handler
+	 * time by tag to the path followed by "-tags.csv", the events by entity class to
+	 * "-classes.csv", and the samples to "-samples.csv". Each file is written to a temporary file
+	 * first, which then replaces it.
+	 *
+	 * @param path the prefix of the files
+	 * @throws IOException if a file can't be written
+	 */
+	public void writeCsv(String path) throws IOException {
+		Writer out = open(path + "-tags.csv");
+		try {
+			out.write("tag;name;events;handler_ms;handler_ns_per_event\n");
+			for (Map.Entry<Integer, long[]> entry : tags.entrySet()) {
+				long[] values = entry.getValue();
+				out.write(entry.getKey() + ";" + tagName(entry.getKey()) + ";" + values[0] + ";"
+						+ values[1] / 1000000L + ";" + (values[0] == 0 ? 0 : values[1] / values[0]) + "\n");
+			}
+		} finally {
+			out.close();
+		}
+		commit(path + "-tags.csv");
+
+		out = open(path + "-classes.csv");
+		try {
+			out.write("class;events\n");
+			for (Map.Entry<String, Long> entry : classes.entrySet()) {
+				out.write(entry.getKey() + ";" + entry.getValue() + "\n");
+			}
+		} finally {
+			out.close();
+		}
+		commit(path + "-classes.csv");
+
+		out = open(path + "-samples.csv");
+		try {
+			out.write("wall_ms;clock;events;events_per_s;future;deferred\n");
+			Sample previous = null;
+			for (Sample sample : samples) {
+				out.write(sample.getWallMillis() + ";" + sample.getClock() + ";" + sample.getEvents() + ";"
+						+ (long) sample.getEventsPerSecond(previous) + ";" + sample.getFutureEvents() + ";"
+						+ sample.getDeferredEvents() + "\n");
+				previous = sample;
+			}
+		} finally {
+			out.close();
+		}
+		commit(path + "-samples.csv");
+	}
+
+	/**
+	 * Writes the snapshot to a JSON file, through a temporary file which then replaces it.
+	 *
+	 * @param path the file
+	 * @throws IOException if the file can't be written
+	 */
+	public void writeJson(String path) throws IOException {
+		Writer out = open(path);
+		try {
+			out.write(toJson());
+			out.write('\n');
+		} finally {
+			out.close();
+		}
+		commit(path);
+	}
+
+	/**
+	 * Formats the snapshot as a JSON object.
+	 *
+	 * @return the JSON text
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"wall_ms\":").append(wallNanos / 1000000L);
+		json.append(",\"clock\":").append(clock);
+		json.append(",\"events\":").append(processedEvents);
+		json.append(",\"events_per_s\":").append((long) getEventsPerSecond());
+		json.append(",\"tags\":[");
+		String separator = "";
+		for (Map.Entry<Integer, long[]> entry : tags.entrySet()) {
+			long[] values = entry.getValue();
+			json.append(separator).append("{\"tag\":").append(entry.getKey());
+			json.append(",\"name\":\"").append(tagName(entry.getKey())).append('"');
+			json.append(",\"events\":").append(values[0]);
+			json.append(",\"handler_ns\":").append(values[1]).append('}');
+			separator = ",";
+		}
+		json.append("],\"classes\":{");
+		separator = "";
+		for (Map.Entry<String, Long> entry : classes.entrySet()) {
+			json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+			separator = ",";
+		}
+		json.append("},\"samples\":[");
+		separator = "";
+		Sample previous = null;
+		for (Sample sample : samples) {
+			json.append(separator).append("{\"wall_ms\":").append(sample.getWallMillis());
+			json.append(",\"clock\":").append(sample.getClock());
+			json.append(",\"events\":").append(sample.getEvents());
+			json.append(",\"events_per_s\":").append((long) sample.getEventsPerSecond(previous));
+			json.append(",\"future\":").append(sample.getFutureEvents());
+			json.append(",\"deferred\":").append(sample.getDeferredEvents()).append('}');
+			separator = ",";
+			previous = sample;
+		}
+		json.append("]}");
+		return json.toString();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append("Events: ").append(processedEvents).append(" in ").append(wallNanos / 1000000L)
+				.append(" ms (").append((long) getEventsPerSecond()).append(" events/s), clock ").append(clock)
+				.append('\n');
+		for (Map.Entry<Integer, long[]> entry : tags.entrySet()) {
+			long[] values = entry.getValue();
+			text.append("  ").append(tagName(entry.getKey())).append(": ").append(values[0]).append(" events, ")
+					.append(values[1] / 1000000L).append(" ms\n");
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Gets the name of a tag, from the constants of {@link CloudSimTags} with its value.
+	 *
+	 * @param tag the tag
+	 * @return the names of the constants separated by '|', or the value of the tag if no constant
+	 *         has it
+	 */
+	public static synchronized String tagName(int tag) {
+		if (tagNames == null) {
+			tagNames = new HashMap<Integer, String>();
+			for (Field field : CloudSimTags.class.getFields()) {
+				if (field.getType() == int.class && Modifier.isStatic(field.getModifiers())) {
+					try {
+						Integer value = field.getInt(null);
+						String names = tagNames.get(value);
+						tagNames.put(value, names == null ? field.getName() : names + "|" + field.getName());
+					} catch (IllegalAccessException e) {
+						// public fields
+					}
+				}
+			}
+		}
+		String name = tagNames.get(tag);
+		return name == null ? String.valueOf(tag) : name;
+	}
+
+	/**
+	 * Opens the temporary file of a file.
+	 *
+	 * @param path the file
+	 * @return the writer of the temporary file
+	 * @throws IOException if the file can't be created
+	 */
+	private static Writer open(String path) throws IOException {
+		return new BufferedWriter(new FileWriter(path + ".tmp"));
+	}
+
+	/**
+	 * Replaces a file by its temporary file.
+	 *
+	 * @param path the file
+	 * @throws IOException if the file can't be replaced
+	 */
+	private static void commit(String path) throws IOException {
+		Files.move(new File(path + ".tmp").toPath(), new File(path).toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * A sample of the queues of a simulation.
+	 */
+	public static class Sample {
+
+		/** The wall-clock time since the simulation started, in milliseconds. */
+		private final long wallMillis;
+
+		/** The clock of the simulation. */
+		private final double clock;
+
+		/** The events processed by the engine. */
+		private final long events;
+
+		/** The number of events in the future queue. */
+		private final int futureEvents;
+
+		/** The number of events in the deferred queue. */
+		private final int deferredEvents;
+
+		/**
+		 * Creates a new sample.
+		 *
+		 * @param wallMillis the wall-clock time since the simulation started, in milliseconds
+		 * @param clock the clock of the simulation
+		 * @param events the events processed by the engine
+		 * @param futureEvents the number of events in the future queue
+		 * @param deferredEvents the number of events in the deferred queue
+		 */
+		Sample(long wallMillis, double clock, long events, int futureEvents, int deferredEvents) {
+			this.wallMillis = wallMillis;
+			this.clock = clock;
+			this.events = events;
+			this.futureEvents = futureEvents;
+			this.deferredEvents = deferredEvents;
+		}
+
+		/**
+		 * Gets the wall-clock time since the simulation started.
+		 *
+		 * @return the time, in milliseconds
+		 */
+		public long getWallMillis() {
+			return wallMillis;
+		}
+
+		/**
+		 * Gets the clock of the simulation.
+		 *
+		 * @return the clock
+		 */
+		public double getClock() {
+			return clock;
+		}
+
+		/**
+		 * Gets the number of events processed by the engine.
+		 *
+		 * @return the number of events
+		 */
+		public long getEvents() {
+			return events;
+		}
+
+		/**
+		 * Gets the number of events in the future queue.
+		 *
+		 * @return the number of events
+		 */
+		public int getFutureEvents() {
+			return futureEvents;
+		}
+
+		/**
+		 * Gets the number of events in the deferred queue.
+		 *
+		 * @return the number of events
+		 */
+		public int getDeferredEvents() {
+			return deferredEvents;
+		}
+
+		/**
+		 * Gets the number of events processed per wall-clock second since a previous sample.
+		 *
+		 * @param previous the previous sample, or null for the start of the simulation
+		 * @return the rate, or 0 if no time has elapsed
+		 */
+		public double getEventsPerSecond(Sample previous) {
+			long millis = previous == null ? wallMillis : wallMillis - previous.wallMillis;
+			long count = previous == null ? events : events - previous.events;
+			return millis <= 0 ? 0 : count * 1000.0 / millis;
+		}
+	}
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An optimistic (Time Warp) parallel simulation engine. The entities are assigned to logical
+ * processes by an {@link EntityPartitioner}, and the logical processes are run on a pool of
+ * threads in rounds. At the start of a round the events sent between logical processes are
+ * delivered, and the global virtual time (GVT) is computed as the time of the earliest future
+ * event of all the logical processes. The logical processes whose entities are all
+ * {@link StateSaving} are {@link OptimisticProcess optimistic}: they run the round up to the
+ * optimism window after the GVT, and are rolled back when they receive an event of a time they
+ * have already processed. The other logical processes are conservative, and only run up to the
+ * lookahead after the GVT.
+ * <p>
+ * No event can be sent to a time earlier than the GVT plus the lookahead, so the clock ticks before
+ * it are committed at the start of every round (fossil collection), and the entities discard the
+ * states saved for them. The output they write (see {@link SimEntity#output(Runnable)}) is written
+ * once it is before the GVT, so the output of the clock ticks rolled back is never written. The
+ * simulation ends when there are no more future events, or the GVT reaches the termination time.
+ * <p>
+ * The events are ordered as in the sequential simulation (see {@link LogicalProcess}), so the
+ * committed events are the same as in a sequential simulation. An event sent to another partition
+ * with a delay shorter than the lookahead raises an {@link IllegalStateException}. The entities of
+ * optimistic logical processes can't hold, pause, wait or cancel events, the simulation can't be
+ * paused and entities can't be created while it is running; a simulation terminated abruptly stops
+ * at the end of the current round.
+ *
+ * @see CloudSim#startOptimisticSimulation(EntityPartitioner, int, double, double)
+ */
+class TimeWarpEngine extends ParallelEngine {
+
+	/** How far past the GVT the optimistic processes run in a round. */
+	private final double optimismWindow;
+
+	/** The end of the current round for the conservative processes, excluded. */
+	private double safeEnd = 0;
+
+	/** The end of the current round for the optimistic processes, excluded. */
+	private double optimisticEnd = 0;
+
+	/** The number of rounds run. */
+	private long rounds = 0;
+
+	/** The statistics of the simulation, once it has finished. */
+	private TimeWarpStatistics statistics;
+
+	/**
+	 * Creates a new engine for the entities of a simulation.
+	 *
+	 * @param context the simulation context of the entities
+	 * @param partitioner the partitioner assigning the entities to logical processes
+	 * @param threads the number of threads
+	 * @param lookahead the lookahead
+	 * @param optimismWindow how far past the GVT the optimistic processes run in a round
+	 */
+	TimeWarpEngine(SimulationContext context, EntityPartitioner partitioner, int threads, double lookahead, double optimismWindow) {
+		super(context, partitioner, threads, lookahead);
+		if (optimismWindow < lookahead) {
+			throw new IllegalArgumentException("The optimism window must not be shorter than the lookahead.");
+		}
+		this.optimismWindow = optimismWindow;
+	}
+
+	@Override
+	LogicalProcess createProcess(List<SimEntity> entities) {
+		for (SimEntity ent : entities) {
+			if (!(ent instanceof StateSaving)) {
+				return new LogicalProcess(context);
+			}
+		}
+		return new OptimisticProcess(context);
+	}
+
+	@Override
+	void schedule(SimEvent e, boolean first) {
+		LogicalProcess process = sendingProcess();
+		setOrderingKeys(process, e, first);
+
+		LogicalProcess destination = destinationOf(e);
+		boolean remote = destination != process && !starting;
+		if (!remote) {
+			destination.future.addEvent(e);
+		} else if (e.eventTime() < context.timeAfter(process.clock, lookahead)) {
+			throw new IllegalStateException("The event sent by " + context.getEntityName(e.getSource())
+					+ " to " + context.getEntityName(e.getDestination()) + " at " + e.eventTime()
+					+ " is within the lookahead of the parallel simulation (" + lookahead + ").");
+		} else {
+			process.outbox.add(e);
+			process.remoteEvents++;
+		}
+		if (process instanceof OptimisticProcess) {
+			((OptimisticProcess) process).recordSend(e, remote);
+		}
+	}
+
+	@Override
+	double run(FutureQueue pending) {
+		startEntities(pending);
+		startPool();
+
+		LogicalProcess[] active = new LogicalProcess[processes.length];
+		double clock = 0;
+		try {
+			while (true) {
+				deliverRemoteEvents();
+
+				double gvt = Double.MAX_VALUE;
+				for (LogicalProcess process : processes) {
+					gvt = Math.min(gvt, process.nextEventTime());
+				}
+				commit(gvt);
+				if (gvt == Double.MAX_VALUE) {
+					context.printMessage("Simulation: No more future events");
+					break;
+				}
+				if (context.terminateAt > 0.0 && gvt >= context.terminateAt) {
+					context.printMessage("Simulation: Reached termination time.");
+					commit(Double.MAX_VALUE);
+					clock = context.terminateAt;
+					break;
+				}
+
+				safeEnd = context.timeAfter(gvt, lookahead);
+				optimisticEnd = context.timeAfter(gvt, optimismWindow);
+				if (context.terminateAt > 0.0) {
+					safeEnd = Math.min(safeEnd, context.terminateAt);
+					optimisticEnd = Math.min(optimisticEnd, context.terminateAt);
+				}
+				int count = 0;
+				for (LogicalProcess process : processes) {
+					if (process.nextEventTime() < endOf(process)) {
+						active[count++] = process;
+					}
+				}
+				rounds++;
+				runProcesses(active, count);
+
+				if (context.abruptTerminate) {
+					commit(Double.MAX_VALUE);
+					break;
+				}
+			}
+		} finally {
+			stopPool();
+		}
+
+		int optimistic = 0;
+		long processed = 0;
+		long committed = 0;
+		long rolledBack = 0;
+		long rollbacks = 0;
+		long antiMessages = 0;
+		for (LogicalProcess process : processes) {
+			clock = Math.max(clock, process.clock);
+			processed += process.processedEvents;
+			if (process instanceof OptimisticProcess) {
+				OptimisticProcess optimisticProcess = (OptimisticProcess) process;
+				optimistic++;
+				committed += optimisticProcess.committedEvents;
+				rolledBack += optimisticProcess.rolledBackEvents;
+				rollbacks += optimisticProcess.rollbacks;
+				antiMessages += optimisticProcess.antiMessagesSent;
+			} else {
+				committed += process.processedEvents;
+			}
+		}
+		statistics = new TimeWarpStatistics(processes.length, optimistic, rounds, processed, committed, rolledBack,
+				rollbacks, antiMessages);
+		context.printMessage("Optimistic parallel simulation: " + threads + " threads, " + statistics + ".");
+		return clock;
+	}
+
+	@Override
+	void runProcess(LogicalProcess process) {
+		process.processWindow(endOf(process));
+	}
+
+	/**
+	 * Gets the statistics of the simulation.
+	 *
+	 * @return the statistics, or <code>null</code> if the simulation has not finished
+	 */
+	TimeWarpStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Gets the end of the current round for a logical process.
+	 *
+	 * @param process the logical process
+	 * @return the end of the round, excluded
+	 */
+	private double endOf(LogicalProcess process) {
+		return process instanceof OptimisticProcess ? optimisticEnd : safeEnd;
+	}
+
+	/**
+	 * Commits the clock ticks of the optimistic processes before the GVT plus the lookahead, and
+	 * writes the output of the entities before the GVT: the clock ticks between them are final,
+	 * but the logical processes may not have run all of them yet.
+	 *
+	 * @param gvt the GVT, or {@link Double#MAX_VALUE} to commit everything
+	 */
+	private void commit(double gvt) {
+		double time = gvt == Double.MAX_VALUE ? gvt : context.timeAfter(gvt, lookahead);
+		for (LogicalProcess process : processes) {
+			if (process instanceof OptimisticProcess) {
+				((OptimisticProcess) process).commit(time);
+			}
+		}
+		writeOutputs(gvt);
+	}
+
+	/**
+	 * Delivers the events sent between logical processes in the last round, rolling back the
+	 * optimistic processes receiving events in their past, and the anti-messages of the clock
+	 * ticks rolled back, until no more rollbacks happen.
+	 */
+	private void deliverRemoteEvents() {
+		boolean delivered = true;
+		while (delivered) {
+			delivered = false;
+			for (LogicalProcess process : processes) {
+				if (!process.outbox.isEmpty()) {
+					List<SimEvent> events = new ArrayList<SimEvent>(process.outbox);
+					process.outbox.clear();
+					for (SimEvent e : events) {
+						LogicalProcess destination = destinationOf(e);
+						if (destination instanceof OptimisticProcess) {
+							((OptimisticProcess) destination).rollback(e.eventTime());
+						}
+						destination.future.addEvent(e);
+					}
+					delivered = true;
+				}
+				if (process instanceof OptimisticProcess && !((OptimisticProcess) process).antiMessages.isEmpty()) {
+					List<SimEvent> antiMessages = ((OptimisticProcess) process).antiMessages;
+					List<SimEvent> events = new ArrayList<SimEvent>(antiMessages);
+					antiMessages.clear();
+					for (SimEvent e : events) {
+						LogicalProcess destination = destinationOf(e);
+						if (destination instanceof OptimisticProcess) {
+							((OptimisticProcess) destination).rollback(e.eventTime());
+						}
+						if (!destination.future.remove(e)) {
+							throw new IllegalStateException("The event cancelled by an anti-message is missing.");
+						}
+					}
+					delivered = true;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * The statistics of an optimistic parallel simulation, run with
+ * {@link CloudSim#startOptimisticSimulation(EntityPartitioner, int, double, double)}.
+ */
+public class TimeWarpStatistics {
+
+	/** The number of logical processes. */
+	private final int processes;
+
+	/** The number of logical processes run optimistically. */
+	private final int optimisticProcesses;
+
+	/** The number of rounds, i.e. of global virtual time computations. */
+	private final long rounds;
+
+	/** The number of events processed, including the ones processed again after a rollback. */
+	private final long processedEvents;
+
+	/** The number of events committed. */
+	private final long committedEvents;
+
+	/** The number of events rolled back. */
+	private final long rolledBackEvents;
+
+	/** The number of rollbacks. */
+	private final long rollbacks;
+
+	/** The number of anti-messages sent. */
+	private final long antiMessages;
+
+	/**
+	 * Creates the statistics of a simulation.
+	 *
+	 * @param processes the number of logical processes
+	 * @param optimisticProcesses the number of logical processes run optimistically
+	 * @param rounds the number of rounds
+	 * @param processedEvents the number of events processed
+	 * @param committedEvents the number of events committed
+	 * @param rolledBackEvents the number of events rolled back
+	 * @param rollbacks the number of rollbacks
+	 * @param antiMessages the number of anti-messages sent
+	 */
+	public TimeWarpStatistics(int processes, int optimisticProcesses, long rounds, long processedEvents,
+			long committedEvents, long rolledBackEvents, long rollbacks, long antiMessages) {
+		this.processes = processes;
+		this.optimisticProcesses = optimisticProcesses;
+		this.rounds = rounds;
+		this.processedEvents = processedEvents;
+		this.committedEvents = committedEvents;
+		this.rolledBackEvents = rolledBackEvents;
+		this.rollbacks = rollbacks;
+		this.antiMessages = antiMessages;
+	}
+
+	public int getProcesses() {
+		return processes;
+	}
+
+	public int getOptimisticProcesses() {
+		return optimisticProcesses;
+	}
+
+	public long getRounds() {
+		return rounds;
+	}
+
+	public long getProcessedEvents() {
+		return processedEvents;
+	}
+
+	public long getCommittedEvents() {
+		return committedEvents;
+	}
+
+	public long getRolledBackEvents() {
+		return rolledBackEvents;
+	}
+
+	public long getRollbacks() {
+		return rollbacks;
+	}
+
+	public long getAntiMessages() {
+		return antiMessages;
+	}
+
+	/**
+	 * Gets the efficiency of the simulation, i.e. the fraction of the events processed that were
+	 * committed.
+	 *
+	 * @return the efficiency, between 0 and 1
+	 */
+	public double getEfficiency() {
+		return processedEvents == 0 ? 1 : (double) committedEvents / processedEvents;
+	}
+
+	@Override
+	public String toString() {
+		return processes + " logical processes (" + optimisticProcesses + " optimistic), " + rounds
+				+ " rounds, " + processedEvents + " events processed, " + committedEvents + " committed, "
+				+ rolledBackEvents + " rolled back in " + rollbacks + " rollbacks, " + antiMessages
+				+ " anti-messages, efficiency " + String.format("%.3f", getEfficiency());
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The pending firings of the {@link PeriodicTimer periodic timers} of a simulation, or of a
+ * logical process of a parallel simulation. The timers firing at the same time share a slot, and
+ * only the slot is scheduled in the future queue, as an event of type {@link SimEvent#TIMER}: a
+ * thousand sensors reading at the same period are a single event in the queue. When the slot
+ * event is processed, the timers of the slot are fired in the order they were added, and added to
+ * the slots of their next firing.
+ * <p>
+ * The slots are keyed by their exact time, since the events of the timers must be delivered at the
+ * same times as if the entities scheduled them; the future queue orders the slots.
+ */
+class TimerSlots implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The pending slots, by time. */
+	private final Map<Double, TimerSlot> slots = new HashMap<Double, TimerSlot>();
+
+	/**
+	 * Adds a timer to the slot of a time, creating the slot if needed.
+	 *
+	 * @param timer the timer
+	 * @param time the time of the next firing of the timer
+	 * @return the slot, which is new if the timer is its only timer
+	 */
+	TimerSlot add(PeriodicTimer timer, double time) {
+		Double key = Double.valueOf(time);
+		TimerSlot slot = slots.get(key);
+		if (slot == null) {
+			slot = new TimerSlot(time);
+			slots.put(key, slot);
+		}
+		slot.timers.add(timer);
+		return slot;
+	}
+
+	/**
+	 * Undoes the last addition of a timer to a slot, removing the slot if it has no timer left.
+	 *
+	 * @param slot the slot
+	 */
+	void undoAdd(TimerSlot slot) {
+		slot.timers.remove(slot.timers.size() - 1);
+		if (slot.timers.isEmpty()) {
+			slots.remove(Double.valueOf(slot.time));
+		}
+	}
+
+	/**
+	 * Removes a slot which is being fired, so that no more timers are added to it.
+	 *
+	 * @param slot the slot
+	 */
+	void remove(TimerSlot slot) {
+		slots.remove(Double.valueOf(slot.time));
+	}
+
+	/**
+	 * Puts back a slot removed by {@link #remove(TimerSlot)}.
+	 *
+	 * @param slot the slot
+	 */
+	void restore(TimerSlot slot) {
+		slots.put(Double.valueOf(slot.time), slot);
+	}
+
+	/**
+	 * Gets the number of pending slots.
+	 *
+	 * @return the number of slots
+	 */
+	int size() {
+		return slots.size();
+	}
+
+	/**
+	 * The timers firing at a time.
+	 */
+	static class TimerSlot implements Serializable {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The time of the slot. */
+		final double time;
+
+		/** The timers, in the order they were added. */
+		final List<PeriodicTimer> timers = new ArrayList<PeriodicTimer>();
+
+		/**
+		 * Creates a new empty slot.
+		 *
+		 * @param time the time of the slot
+		 */
+		TimerSlot(double time) {
+			this.time = time;
+		}
+
+		/**
+		 * Checks whether some timers of the slot have not been cancelled.
+		 *
+		 * @return true if a timer of the slot will fire
+		 */
+		boolean hasActiveTimers() {
+			for (PeriodicTimer timer : timers) {
+				if (!timer.isCancelled()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
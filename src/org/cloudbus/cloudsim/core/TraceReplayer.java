@@ -0,0 +1,211 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+
+/**
+ * Re-injects the events of a trace written by an {@link EventTracer} into the engine of a new
+ * simulation, to profile the engine on the event stream of a scenario without running its models.
+ * The recorded entities are stood for by sinks with the same ids, which consume the events they
+ * receive; the events are delivered at their recorded times, in their recorded order, without
+ * their data. A feeder entity queues the events by batches, so the future queue holds the
+ * recorded events of a batch at most, besides the next wake-up of the feeder.
+ * <p>
+ * The class can be run on a trace file:
+ *
+ * <pre>
+ * java org.cloudbus.cloudsim.core.TraceReplayer trace [queue type]
+ * </pre>
+ */
+public class TraceReplayer {
+
+	/** The number of events queued by the feeder at once. */
+	private static final int BATCH_SIZE = 4096;
+
+	/** The tag of the wake-up events of the feeder. */
+	private static final int FEED = -10;
+
+	/** The trace. */
+	private final EventTrace trace;
+
+	/** The filter of the records, or null to replay all of them. */
+	private final EventTrace.Filter filter;
+
+	/** The simulation replaying the trace. */
+	private final SimulationContext context = new SimulationContext();
+
+	/** The number of events replayed. */
+	private long replayedEvents = 0;
+
+	/**
+	 * Creates a replayer of a trace.
+	 *
+	 * @param trace the trace
+	 * @param filter the filter of the records, or null to replay all of them
+	 * @param queueType the type of the future queue of the simulation
+	 * @throws IOException if the trace can't be read
+	 */
+	public TraceReplayer(EventTrace trace, EventTrace.Filter filter, FutureQueueType queueType)
+			throws IOException {
+		this.trace = trace;
+		this.filter = filter;
+		context.futureQueueType = queueType;
+		SimulationContext previous = context.enter();
+		try {
+			context.initialize();
+			int maxId = trace.getMaxEntityId();
+			for (int id = 0; id <= maxId; id++) {
+				new Sink("Entity_" + id);
+			}
+			new Feeder("TraceFeeder");
+		} finally {
+			context.exit(previous);
+		}
+	}
+
+	/**
+	 * Gets the simulation replaying the trace, to set its telemetry or its parallel dispatch
+	 * before it is run.
+	 *
+	 * @return the simulation
+	 */
+	public SimulationContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Replays the trace.
+	 *
+	 * @return the last clock value
+	 */
+	public double run() {
+		return context.run();
+	}
+
+	/**
+	 * Gets the number of events replayed.
+	 *
+	 * @return the number of events
+	 */
+	public long getReplayedEvents() {
+		return replayedEvents;
+	}
+
+	/**
+	 * An entity standing for a recorded entity, which consumes the events it receives.
+	 */
+	private static class Sink extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		Sink(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+	/**
+	 * The entity queueing the recorded events, by batches.
+	 */
+	private class Feeder extends SimEntity {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The index of the next record. */
+		private long next = 0;
+
+		Feeder(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+			feed();
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == FEED) {
+				feed();
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+		/**
+		 * Queues the next batch of events, and the wake-up of the feeder at the time of the last
+		 * one.
+		 */
+		private void feed() {
+			double last = -1;
+			int queued = 0;
+			try {
+				while (next < trace.size() && queued < BATCH_SIZE) {
+					long index = next++;
+					if (filter != null && !filter.accept(trace, index)) {
+						continue;
+					}
+					last = Math.max(trace.getTime(index), context.clock());
+					context.enqueue(context.newEvent(SimEvent.SEND, last, trace.getSource(index),
+							trace.getDestination(index), trace.getTag(index), null), false);
+					queued++;
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("The trace could not be read: " + e.getMessage(), e);
+			}
+			replayedEvents += queued;
+			if (next < trace.size()) {
+				schedule(getId(), Math.max(last, context.clock()) - context.clock(), FEED);
+			}
+		}
+	}
+
+	/**
+	 * Replays a trace file, and prints the number of events, the last clock value and the
+	 * wall-clock time.
+	 *
+	 * @param args the trace file, and the type of the future queue
+	 * @throws IOException if the trace can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: TraceReplayer trace [queue type]");
+			System.exit(1);
+		}
+		FutureQueueType queueType = args.length > 1 ? FutureQueueType.valueOf(args[1]) : FutureQueueType.TREE_SET;
+		EventTrace trace = new EventTrace(args[0]);
+		try {
+			TraceReplayer replayer = new TraceReplayer(trace, null, queueType);
+			long start = System.nanoTime();
+			double clock = replayer.run();
+			long millis = (System.nanoTime() - start) / 1000000L;
+			System.out.println(replayer.getReplayedEvents() + " events replayed until " + clock + " in " + millis
+					+ " ms.");
+		} finally {
+			trace.close();
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * This class implements the future event queue used by {@link CloudSim}. The event queue uses a
+ * {@link TreeSet} in order to store the events.
+ *
+ * @author Marcos Dias de Assuncao
+ * @since CloudSim Toolkit 1.0
+ * @see CloudSim
+ * @see java.util.TreeSet
+ */
+public class TreeSetFutureQueue implements FutureQueue, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The sorted set. */
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The serial of the events added to the head of the queue. */
+	private long firstSerial = Long.MIN_VALUE;
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		sortedSet.add(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(firstSerial++);
+		sortedSet.add(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return sortedSet.isEmpty() ? null : sortedSet.first();
+	}
+
+	@Override
+	public SimEvent poll() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return sortedSet.iterator();
+	}
+
+	@Override
+	public int size() {
+		return sortedSet.size();
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		return sortedSet.removeAll(events);
+	}
+
+	@Override
+	public void clear() {
+		sortedSet.clear();
+	}
+
+}
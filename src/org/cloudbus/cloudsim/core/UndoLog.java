@@ -0,0 +1,178 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * A log of the changes made to maps, for saving the state of a {@link StateSaving} entity
+ * incrementally: instead of copying a map in every clock tick, the entity saves a mark of the log
+ * and makes its changes through {@link #put(Map, Object, Object)}, which records the previous
+ * value of the key. Rolling back to a mark undoes the changes made after it.
+ * <p>
+ * The log only records changes after the first {@link #mark()}, so it costs nothing in a
+ * sequential simulation.
+ */
+public class UndoLog implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The maps changed, in the order of the changes. */
+	private Map<Object, Object>[] maps;
+
+	/** The keys changed. */
+	private Object[] keys;
+
+	/** The previous values of the keys. */
+	private Object[] values;
+
+	/** Whether the keys were in the maps before the changes. */
+	private boolean[] present;
+
+	/** The number of changes in the log. */
+	private int size = 0;
+
+	/** The position of the first change in the log, since the log was created. */
+	private long first = 0;
+
+	/** Whether the changes are recorded. */
+	private boolean recording = false;
+
+	/**
+	 * Creates a new empty log.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public UndoLog() {
+		maps = new Map[16];
+		keys = new Object[16];
+		values = new Object[16];
+		present = new boolean[16];
+	}
+
+	/**
+	 * Puts a value in a map, recording the previous value of the key.
+	 *
+	 * @param map the map
+	 * @param key the key
+	 * @param value the value
+	 * @return the previous value of the key, or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public <K, V> V put(Map<K, V> map, K key, V value) {
+		if (!recording) {
+			return map.put(key, value);
+		}
+		boolean hadKey = map.containsKey(key);
+		V previous = map.put(key, value);
+		if (size == keys.length) {
+			grow();
+		}
+		maps[size] = (Map<Object, Object>) map;
+		keys[size] = key;
+		values[size] = previous;
+		present[size] = hadKey;
+		size++;
+		return previous;
+	}
+
+	/**
+	 * Marks the current state of the maps, and starts recording the changes.
+	 *
+	 * @return the mark
+	 */
+	public long mark() {
+		recording = true;
+		return first + size;
+	}
+
+	/**
+	 * Undoes the changes made after a mark, latest first.
+	 *
+	 * @param mark the mark
+	 */
+	public void rollback(long mark) {
+		if (mark < first) {
+			throw new IllegalArgumentException("The changes before the mark have been discarded.");
+		}
+		int end = (int) (mark - first);
+		for (int i = size - 1; i >= end; i--) {
+			if (present[i]) {
+				maps[i].put(keys[i], values[i]);
+			} else {
+				maps[i].remove(keys[i]);
+			}
+			clear(i);
+		}
+		size = Math.min(size, end);
+	}
+
+	/**
+	 * Discards the changes made before a mark, which will never be undone.
+	 *
+	 * @param mark the mark
+	 */
+	public void discard(long mark) {
+		int count = (int) Math.min(mark - first, size);
+		if (count <= 0) {
+			return;
+		}
+		System.arraycopy(maps, count, maps, 0, size - count);
+		System.arraycopy(keys, count, keys, 0, size - count);
+		System.arraycopy(values, count, values, 0, size - count);
+		System.arraycopy(present, count, present, 0, size - count);
+		for (int i = size - count; i < size; i++) {
+			clear(i);
+		}
+		size -= count;
+		first += count;
+	}
+
+	/**
+	 * Gets the number of changes in the log.
+	 *
+	 * @return the number of changes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Clears a change, so that the log does not retain its objects.
+	 *
+	 * @param i the index of the change
+	 */
+	private void clear(int i) {
+		maps[i] = null;
+		keys[i] = null;
+		values[i] = null;
+	}
+
+	/**
+	 * Doubles the capacity of the log.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void grow() {
+		int capacity = keys.length * 2;
+		Map<Object, Object>[] newMaps = new Map[capacity];
+		System.arraycopy(maps, 0, newMaps, 0, size);
+		maps = newMaps;
+		Object[] newKeys = new Object[capacity];
+		System.arraycopy(keys, 0, newKeys, 0, size);
+		keys = newKeys;
+		Object[] newValues = new Object[capacity];
+		System.arraycopy(values, 0, newValues, 0, size);
+		values = newValues;
+		boolean[] newPresent = new boolean[capacity];
+		System.arraycopy(present, 0, newPresent, 0, size);
+		present = newPresent;
+	}
+
+}
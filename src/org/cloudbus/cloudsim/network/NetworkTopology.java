@@ -8,17 +8,7 @@
 
 package org.cloudbus.cloudsim.network;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-
-import org.cloudbus.cloudsim.Log;
-import org.cloudbus.cloudsim.network.DelayMatrix_Float;
-import org.cloudbus.cloudsim.network.GraphReaderBrite;
-import org.cloudbus.cloudsim.network.TopologicalGraph;
-import org.cloudbus.cloudsim.network.TopologicalLink;
-import org.cloudbus.cloudsim.network.TopologicalNode;
+import org.cloudbus.cloudsim.core.CloudSim;
 
 /**
  * NetworkTopology is a class that implements network layer in CloudSim. It reads a BRITE file and
@@ -30,6 +20,10 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * The topology belongs to the current simulation context (see {@link CloudSim#getContext()}), so
+ * that the simulations run concurrently have their own topologies; this class gives static access
+ * to the {@link TopologyModel} of the context.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -37,18 +31,6 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  */
 public class NetworkTopology {
 
-	protected static int nextIdx = 0;
-
-	private static boolean networkEnabled = false;
-
-	protected static DelayMatrix_Float delayMatrix = null;
-
-	protected static double[][] bwMatrix = null;
-
-	protected static TopologicalGraph graph = null;
-
-	protected static Map<Integer, Integer> map = null;
-
 	/**
 	 * Creates the network topology if file exists and if file can be succesfully parsed. File is
 	 * written in the BRITE format and contains topologycal information on simulation entities.
@@ -58,34 +40,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void buildNetworkTopology(String fileName) {
-		Log.printLine("Topology file: " + fileName);
-
-		// try to find the file
-		GraphReaderBrite reader = new GraphReaderBrite();
-
-		try {
-			graph = reader.readGraphFile(fileName);
-			map = new HashMap<Integer, Integer>();
-			generateMatrices();
-		} catch (IOException e) {
-			// problem with the file. Does not simulate network
-			Log.printLine("Problem in processing BRITE file. Network simulation is disabled. Error: "
-					+ e.getMessage());
-		}
-
-	}
-
-	/**
-	 * Generates the matrices used internally to set latency and bandwidth between elements
-	 */
-	private static void generateMatrices() {
-		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
-
-		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
-
-		networkEnabled = true;
+		CloudSim.getContext().getNetworkTopology().buildNetworkTopology(fileName);
 	}
 
 	/**
@@ -100,66 +55,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void addLink(int srcId, int destId, double bw, double lat) {
-
-		if (graph == null) {
-			graph = new TopologicalGraph();
-		}
-
-		if (map == null) {
-			map = new HashMap<Integer, Integer>();
-		}
-
-		// maybe add the nodes
-		if (!map.containsKey(srcId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(srcId, nextIdx);
-			nextIdx++;
-		}
-
-		if (!map.containsKey(destId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(destId, nextIdx);
-			nextIdx++;
-		}
-
-		// generate a new link
-		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
-
-		generateMatrices();
-
-	}
-
-	/**
-	 * Creates the matrix containiing the available bandiwdth beteen two nodes
-	 * 
-	 * @param graph topological graph describing the topology
-	 * @param directed true if the graph is directed; false otherwise
-	 * @return the bandwidth graph
-	 */
-	private static double[][] createBwMatrix(TopologicalGraph graph, boolean directed) {
-		int nodes = graph.getNumberOfNodes();
-
-		double[][] mtx = new double[nodes][nodes];
-
-		// cleanup matrix
-		for (int i = 0; i < nodes; i++) {
-			for (int j = 0; j < nodes; j++) {
-				mtx[i][j] = 0.0;
-			}
-		}
-
-		Iterator<TopologicalLink> iter = graph.getLinkIterator();
-		while (iter.hasNext()) {
-			TopologicalLink edge = iter.next();
-
-			mtx[edge.getSrcNodeID()][edge.getDestNodeID()] = edge.getLinkBw();
-
-			if (!directed) {
-				mtx[edge.getDestNodeID()][edge.getSrcNodeID()] = edge.getLinkBw();
-			}
-		}
-
-		return mtx;
+		CloudSim.getContext().getNetworkTopology().addLink(srcId, destId, bw, lat);
 	}
 
 	/**
@@ -172,24 +68,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void mapNode(int cloudSimEntityID, int briteID) {
-		if (networkEnabled) {
-			try {
-				// this CloudSim entity was already mapped?
-				if (!map.containsKey(cloudSimEntityID)) {
-					if (!map.containsValue(briteID)) { // this BRITE node was already mapped?
-						map.put(cloudSimEntityID, briteID);
-					} else {
-						Log.printLine("Error in network mapping. BRITE node " + briteID + " already in use.");
-					}
-				} else {
-					Log.printLine("Error in network mapping. CloudSim entity " + cloudSimEntityID
-							+ " already mapped.");
-				}
-			} catch (Exception e) {
-				Log.printLine("Error in network mapping. CloudSim node " + cloudSimEntityID
-						+ " not mapped to BRITE node " + briteID + ".");
-			}
-		}
+		CloudSim.getContext().getNetworkTopology().mapNode(cloudSimEntityID, briteID);
 	}
 
 	/**
@@ -200,13 +79,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void unmapNode(int cloudSimEntityID) {
-		if (networkEnabled) {
-			try {
-				map.remove(cloudSimEntityID);
-			} catch (Exception e) {
-				Log.printLine("Error in network unmapping. CloudSim node: " + cloudSimEntityID);
-			}
-		}
+		CloudSim.getContext().getNetworkTopology().unmapNode(cloudSimEntityID);
 	}
 
 	/**
@@ -220,17 +93,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static double getDelay(int srcID, int destID) {
-		if (networkEnabled) {
-			try {
-				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
-
-				return delay;
-			} catch (Exception e) {
-				// in case of error, just keep running and return 0.0
-			}
-		}
-		return 0.0;
+		return CloudSim.getContext().getNetworkTopology().getDelay(srcID, destID);
 	}
 
 	/**
@@ -243,7 +106,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static boolean isNetworkEnabled() {
-		return networkEnabled;
+		return CloudSim.getContext().getNetworkTopology().isNetworkEnabled();
 	}
 
 }
@@ -8,13 +8,18 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.io.Serializable;
+
 /**
  * This class represents an link (edge) from an graph
  * 
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class TopologicalLink {
+public class TopologicalLink implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * id of the link src node-id
@@ -0,0 +1,59 @@
+package org.cloudbus.iotnetsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EntityPartitioner;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.iotnetsim.iot.nodes.GatewayNode;
+import org.cloudbus.iotnetsim.iot.nodes.IoTNode;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Class GatewayRegionPartitioner assigns the IoT nodes to one partition per gateway,
+ * for running a parallel simulation with CloudSim.startSimulation(partitioner, threads).
+ *
+ * An IoT node belongs to the partition of the gateway reached by following its forward nodes,
+ * so a gateway is simulated with the link nodes and sensors sending data to it.
+ * The other entities (datacenters, brokers, CloudSim entities) share one partition.
+ *
+ * The gateway reads the state of its sensors, so sensors must not be forwarded to
+ * a link node of another gateway while the simulation is running.
+ *
+ */
+
+public class GatewayRegionPartitioner implements EntityPartitioner {
+
+	/** the partition of the entities which are not in a gateway region */
+	public static final int SHARED_PARTITION = -1;
+
+	@Override
+	public int getPartition(SimEntity entity) {
+		SimEntity node = entity;
+		//follow the forward nodes, at most once per entity to stop on cycles
+		for (int hops = 0; hops < CloudSim.getNumEntities() && node instanceof IoTNode; hops++) {
+			if (node instanceof GatewayNode) {
+				return node.getId();
+			}
+			int forwardNodeId = ((IoTNode) node).getForwardNodeId();
+			if (forwardNodeId < 0) {
+				break;
+			}
+			node = CloudSim.getEntity(forwardNodeId);
+		}
+		return SHARED_PARTITION;
+	}
+
+}
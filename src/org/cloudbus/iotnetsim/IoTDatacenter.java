@@ -41,6 +41,9 @@ import org.cloudbus.iotnetsim.iot.nodes.SensorType;
 
 public class IoTDatacenter extends Datacenter {
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	protected Map<SensorType, Map<Double, Double>> readingsData; 		//storing data, k: SensorType, v: (reading time, reading value) 
 	
 	
@@ -110,7 +113,7 @@ public class IoTDatacenter extends Datacenter {
 		
 		int senderId = ev.getSource();
 		
-		Log.printLine(CloudSim.clock() + ": [" + getName() + "] is receiving aggregated data from GatewayNode " + CloudSim.getEntityName(senderId));
+		Log.debug("{}: [{}] is receiving aggregated data from GatewayNode {}", CloudSim.clock(), getName(), CloudSim.getEntityName(senderId));
 
 		//create a data structure for each SensorType
 		for (SensorType t : SensorType.values()) {
@@ -124,10 +127,11 @@ public class IoTDatacenter extends Datacenter {
 		//evdata.forEach((t, readings) -> readingsData.putIfAbsent(t, readings));
 		
 		//storing data
-		Log.printLine(CloudSim.clock() + ": [" + getName() + "] is storing the readings: ");
-		evdata.forEach((t, readings) -> Log.printLine("Sensor Type: " + t.name() 
-											+ " values: " + readings.values().toString() ));	
-		Log.printLine();
+		if (Log.isDebugEnabled()) {
+			Log.debug("{}: [{}] is storing the readings: ", CloudSim.clock(), getName());
+			evdata.forEach((t, readings) -> Log.debug("Sensor Type: {} values: {}", t.name(), readings.values()));
+			Log.debug("");
+		}
 	}
 
 	public void processData(SimEvent ev) {
@@ -0,0 +1,245 @@
+package org.cloudbus.iotnetsim;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EntityRegistry;
+import org.cloudbus.iotnetsim.iot.nodes.IoTNode;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Class IoTNodeIndex indexes the IoT nodes of a simulation by type (IoTNodeType) and by location,
+ * so that a node can find the nodes of a type around it without going through all the entities,
+ * e.g. a mobile sensor looking for the link node at its new location.
+ *
+ * The nodes of each type are kept in a grid of square cells on the x and y coordinates,
+ * so the nodes within a range are looked for in the cells the range overlaps.
+ * The index is kept in the entity registry of the simulation (see CloudSim.getEntityRegistry),
+ * and the nodes update it when their type or location is set;
+ * a location changed in place (Location.setX) is not seen by the index.
+ *
+ */
+
+public class IoTNodeIndex implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** the default size of the cells of the grid, in the unit of the locations */
+	public static final double DEFAULT_CELL_SIZE = 100.0;
+
+	private final double cellSize;
+	private final Map<IoTNodeType, List<IoTNode>> nodesByType = new EnumMap<IoTNodeType, List<IoTNode>>(IoTNodeType.class);
+	private final Map<IoTNodeType, Map<Long, List<IoTNode>>> gridsByType = new EnumMap<IoTNodeType, Map<Long, List<IoTNode>>>(IoTNodeType.class);
+
+
+	public IoTNodeIndex(double cellSize) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("The size of the cells must be positive.");
+		}
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Gets the index of the simulation bound to the thread, creating it the first time.
+	 *
+	 * @return the index, or null if the simulation has not been initialised or has finished
+	 */
+	public static IoTNodeIndex getInstance() {
+		EntityRegistry registry = CloudSim.getEntityRegistry();
+		if (registry == null) {
+			return null;
+		}
+		IoTNodeIndex index = registry.getIndex(IoTNodeIndex.class);
+		if (index == null) {
+			index = registry.addIndex(IoTNodeIndex.class, new IoTNodeIndex(DEFAULT_CELL_SIZE));
+		}
+		return index;
+	}
+
+	/**
+	 * Adds a node, with its current type and location.
+	 */
+	public synchronized void addNode(IoTNode node) {
+		IoTNodeType type = node.getNodeType();
+		if (type == null) {
+			return;
+		}
+		List<IoTNode> nodes = nodesByType.get(type);
+		if (nodes == null) {
+			nodes = new ArrayList<IoTNode>();
+			nodesByType.put(type, nodes);
+			gridsByType.put(type, new HashMap<Long, List<IoTNode>>());
+		}
+		nodes.add(node);
+		addToGrid(gridsByType.get(type), node, node.getLocation());
+	}
+
+	/**
+	 * Updates a node whose type or location has been set.
+	 *
+	 * @param node the node, with its new type and location
+	 * @param previousType the type the node was added with
+	 * @param previousLocation the location the node was added with
+	 */
+	public synchronized void updateNode(IoTNode node, IoTNodeType previousType, Location previousLocation) {
+		IoTNodeType type = node.getNodeType();
+		if (type != null && type == previousType) {
+			//only moved: the node keeps its place in the nodes of its type
+			Map<Long, List<IoTNode>> grid = gridsByType.get(type);
+			if (grid != null && removeFromGrid(grid, node, previousLocation)) {
+				addToGrid(grid, node, node.getLocation());
+			}
+			return;
+		}
+		List<IoTNode> nodes = previousType == null ? null : nodesByType.get(previousType);
+		if (nodes != null && nodes.remove(node)) {
+			removeFromGrid(gridsByType.get(previousType), node, previousLocation);
+		}
+		addNode(node);
+	}
+
+	/**
+	 * Gets a read-only view of the nodes of a type, in the order they were added.
+	 * The view is not a copy: it must not be iterated while nodes of the type are added
+	 * or change their type, which the nodes do when they are created or set up, not while handling events.
+	 */
+	public synchronized List<IoTNode> getNodes(IoTNodeType type) {
+		List<IoTNode> nodes = nodesByType.get(type);
+		return nodes == null ? Collections.<IoTNode>emptyList() : Collections.unmodifiableList(nodes);
+	}
+
+	/**
+	 * Finds the nearest node of a type within a range of a location.
+	 * The distance is measured on the 3 coordinates, and the node with the lowest id wins a tie.
+	 *
+	 * @return the nearest node, or null if no node of the type is within the range
+	 */
+	public synchronized IoTNode findNearest(IoTNodeType type, Location location, double range) {
+		List<IoTNode> nodes = nodesByType.get(type);
+		if (nodes == null || range < 0) {
+			return null;
+		}
+		double x = location.getX();
+		double y = location.getY();
+		long minX = cellCoordinate(x - range);
+		long maxX = cellCoordinate(x + range);
+		long minY = cellCoordinate(y - range);
+		long maxY = cellCoordinate(y + range);
+
+		IoTNode nearest = null;
+		double nearestDistance = range;
+		if ((double) (maxX - minX + 1) * (maxY - minY + 1) > nodes.size()) {
+			//the range overlaps more cells than there are nodes
+			for (IoTNode node : nodes) {
+				if (node.getLocation() != null) {
+					double distance = distance(node.getLocation(), location);
+					if (isNearer(node, distance, nearest, nearestDistance)) {
+						nearest = node;
+						nearestDistance = distance;
+					}
+				}
+			}
+			return nearest;
+		}
+		Map<Long, List<IoTNode>> grid = gridsByType.get(type);
+		for (long cellX = minX; cellX <= maxX; cellX++) {
+			for (long cellY = minY; cellY <= maxY; cellY++) {
+				List<IoTNode> cellNodes = grid.get(cellKey(cellX, cellY));
+				if (cellNodes == null) {
+					continue;
+				}
+				for (IoTNode node : cellNodes) {
+					double distance = distance(node.getLocation(), location);
+					if (isNearer(node, distance, nearest, nearestDistance)) {
+						nearest = node;
+						nearestDistance = distance;
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	private void addToGrid(Map<Long, List<IoTNode>> grid, IoTNode node, Location location) {
+		if (location == null) {
+			return;
+		}
+		Long cell = cellOf(location.getX(), location.getY());
+		List<IoTNode> cellNodes = grid.get(cell);
+		if (cellNodes == null) {
+			cellNodes = new ArrayList<IoTNode>(2);
+			grid.put(cell, cellNodes);
+		}
+		cellNodes.add(node);
+	}
+
+	private boolean removeFromGrid(Map<Long, List<IoTNode>> grid, IoTNode node, Location location) {
+		if (location == null) {
+			//the node was added without a location
+			return true;
+		}
+		Long cell = cellOf(location.getX(), location.getY());
+		List<IoTNode> cellNodes = grid.get(cell);
+		if (cellNodes == null || !cellNodes.remove(node)) {
+			return false;
+		}
+		if (cellNodes.isEmpty()) {
+			grid.remove(cell);
+		}
+		return true;
+	}
+
+	private static boolean isNearer(IoTNode node, double distance, IoTNode nearest, double nearestDistance) {
+		if (distance > nearestDistance) {
+			return false;
+		}
+		return nearest == null || distance < nearestDistance || node.getId() < nearest.getId();
+	}
+
+	private static double distance(Location a, Location b) {
+		double dx = a.getX() - b.getX();
+		double dy = a.getY() - b.getY();
+		double dz = a.getZ() - b.getZ();
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	private long cellCoordinate(double coordinate) {
+		double cell = Math.floor(coordinate / cellSize);
+		//the cells beyond the int range are merged with the last ones
+		return (long) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, cell));
+	}
+
+	private Long cellOf(double x, double y) {
+		return cellKey(cellCoordinate(x), cellCoordinate(y));
+	}
+
+	private static Long cellKey(long cellX, long cellY) {
+		return Long.valueOf((cellX << 32) | (cellY & 0xffffffffL));
+	}
+
+}
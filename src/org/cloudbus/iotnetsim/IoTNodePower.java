@@ -1,5 +1,7 @@
 package org.cloudbus.iotnetsim;
 
+import java.io.Serializable;
+
 /**
  * Title:        IoTNetSim Toolkit
  * Description:  Modelling and Simulation for End-to-End IoT Services & Networking 
@@ -25,7 +27,10 @@ package org.cloudbus.iotnetsim;
  * 
  */
 
-public class IoTNodePower {
+public class IoTNodePower implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	private IoTNodePowerType powerType;
 	private boolean isContinuousPower;
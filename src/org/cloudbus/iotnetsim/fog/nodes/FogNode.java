@@ -37,6 +37,9 @@ import org.cloudbus.iotnetsim.network.NetConnection;
 
 public class FogNode extends SimEntity{
 
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	private Location location;
 	private IoTNodeType nodeType ;
 	private NetConnection connection;
@@ -79,13 +82,13 @@ public class FogNode extends SimEntity{
 
 	public void startEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is starting...");
+		Log.info("{} is starting...", getName());
 	}
 
 	@Override
 	public void shutdownEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is shutting down...");		
+		Log.info("{} is shutting down...", getName());		
 	}
 	
 	@Override
@@ -124,11 +127,11 @@ public class FogNode extends SimEntity{
 	
 	protected void processOtherEvent(SimEvent ev) {
 		if (ev == null) {
-			Log.printLine(getName() + ".processOtherEvent(): " + "Error - an event is null.");
+			Log.error("{}.processOtherEvent(): Error - an event is null.", getName());
 			return;
 		}
 
-		Log.printLine(getName() + ".processOtherEvent(): " + "Error - event unknown by this Sensor.");
+		Log.warn("{}.processOtherEvent(): Error - event unknown by this Sensor.", getName());
 	}
 
 	public void changeLocation(Location newLocation) {
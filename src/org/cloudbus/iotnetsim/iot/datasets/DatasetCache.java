@@ -0,0 +1,162 @@
+package org.cloudbus.iotnetsim.iot.datasets;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Class DatasetCache keeps the datasets read by the sensors of the process,
+ * by file and number of readings per day, so that each file is read once
+ * however many sensors, simulations and runs read it.
+ *
+ * The datasets stay in the cache until it is cleared (see clear),
+ * e.g. between experiments reading different files.
+ * The readings are kept in double precision, unless single precision is set (see setSinglePrecision).
+ * A window of the days of a file is kept apart from the whole file, and is read as its days are read
+ * (see StreamingDataset), and a binary dataset file is mapped rather than read (see MappedDataset).
+ *
+ */
+
+public class DatasetCache {
+
+	private static final ConcurrentMap<String, SensorDataset> datasets = new ConcurrentHashMap<String, SensorDataset>();
+	private static volatile boolean singlePrecision = false;
+
+
+	/**
+	 * Gets the dataset of a file, for a sensor reading every readingInterval seconds,
+	 * reading the file the first time.
+	 *
+	 * @throws IOException if the file can't be read
+	 */
+	public static SensorDataset getDataset(String path, double readingInterval) throws IOException {
+		final String file = Paths.get(path).toAbsolutePath().normalize().toString();
+		final int slotsPerDay = SensorDataset.slotsPerDay(readingInterval);
+		final boolean floats = singlePrecision;
+		try {
+			return datasets.computeIfAbsent(key(file, slotsPerDay, floats), k -> {
+				try {
+					return SensorDataset.read(file, slotsPerDay, floats);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Gets the dataset of a window of the days of a file, for a sensor reading every readingInterval seconds.
+	 * The days of the window are read from the file when they are first read from the dataset.
+	 *
+	 * @param firstDay the day of the file of the first day of the window, from 1
+	 * @param days the number of days of the window
+	 */
+	public static SensorDataset getDataset(String path, double readingInterval, final int firstDay, final int days) {
+		final String file = Paths.get(path).toAbsolutePath().normalize().toString();
+		final int slotsPerDay = SensorDataset.slotsPerDay(readingInterval);
+		final boolean floats = singlePrecision;
+		return datasets.computeIfAbsent(key(file, slotsPerDay, precision(floats), firstDay, days),
+				k -> new StreamingDataset(file, slotsPerDay, firstDay, days, floats));
+	}
+
+	/**
+	 * Gets the dataset of a window of the days of a binary dataset file, for a sensor reading every
+	 * readingInterval seconds, mapping the file the first time.
+	 * The readings are kept in the precision of the file.
+	 *
+	 * @param firstDay the day of the file of the first day of the window, from 1
+	 * @param days the number of days of the window
+	 * @throws IOException if the file can't be read, or is not a binary dataset file
+	 */
+	public static SensorDataset getMappedDataset(String path, double readingInterval, final int firstDay,
+			final int days) throws IOException {
+		final String file = Paths.get(path).toAbsolutePath().normalize().toString();
+		final int slotsPerDay = SensorDataset.slotsPerDay(readingInterval);
+		try {
+			return datasets.computeIfAbsent(key(file, slotsPerDay, "m", firstDay, days), k -> {
+				try {
+					return new MappedDataset(file, slotsPerDay, firstDay, days);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Gets the dataset of the cache read from the same file as a dataset, adding the dataset if there is none.
+	 */
+	static SensorDataset intern(SensorDataset dataset) {
+		String key = key(dataset.getPath(), dataset.getSlotsPerDay(), dataset.isSinglePrecision());
+		if (dataset instanceof StreamingDataset) {
+			StreamingDataset window = (StreamingDataset) dataset;
+			key = key(window.getPath(), window.getSlotsPerDay(), precision(window.isSinglePrecision()),
+					window.getFirstDay(), window.getDays());
+		} else if (dataset instanceof MappedDataset) {
+			MappedDataset window = (MappedDataset) dataset;
+			key = key(window.getPath(), window.getSlotsPerDay(), "m", window.getFirstDay(), window.getDays());
+		}
+		SensorDataset cached = datasets.putIfAbsent(key, dataset);
+		return cached == null ? dataset : cached;
+	}
+
+	/**
+	 * Removes all the datasets from the cache. The sensors keep the datasets they have read.
+	 */
+	public static void clear() {
+		datasets.clear();
+	}
+
+	/**
+	 * Sets whether the datasets read from now on keep their readings as floats,
+	 * taking half the memory of doubles.
+	 */
+	public static void setSinglePrecision(boolean singlePrecision) {
+		DatasetCache.singlePrecision = singlePrecision;
+	}
+
+	public static boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	/**
+	 * Gets the number of datasets in the cache.
+	 */
+	public static int size() {
+		return datasets.size();
+	}
+
+	private static String key(String file, int slotsPerDay, boolean singlePrecision) {
+		return file + "#" + slotsPerDay + precision(singlePrecision);
+	}
+
+	private static String key(String file, int slotsPerDay, String precision, int firstDay, int days) {
+		return file + "#" + slotsPerDay + precision + "@" + firstDay + "+" + days;
+	}
+
+	private static String precision(boolean singlePrecision) {
+		return singlePrecision ? "f" : "d";
+	}
+
+}
@@ -0,0 +1,116 @@
+package org.cloudbus.iotnetsim.iot.datasets;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Class DatasetConverter converts dataset files to binary dataset files (see MappedDataset), next to them,
+ * which the sensors read instead of the dataset files.
+ *
+ * Usage: DatasetConverter [-f] file|folder...
+ * A folder is converted file by file, for the ukcp09_*.csv files in it.
+ * With -f, the readings are written as floats rather than doubles.
+ *
+ */
+
+public class DatasetConverter {
+
+	public static void main(String[] args) {
+		boolean singlePrecision = false;
+		List<File> files = new ArrayList<File>();
+		for (String arg : args) {
+			if (arg.equals("-f")) {
+				singlePrecision = true;
+			} else if (new File(arg).isDirectory()) {
+				File[] datasets = new File(arg).listFiles();
+				Arrays.sort(datasets);
+				for (File dataset : datasets) {
+					if (dataset.getName().startsWith("ukcp09_") && dataset.getName().endsWith(".csv")) {
+						files.add(dataset);
+					}
+				}
+			} else {
+				files.add(new File(arg));
+			}
+		}
+		if (files.isEmpty()) {
+			System.out.println("Usage: DatasetConverter [-f] file|folder...");
+			System.exit(1);
+		}
+
+		boolean failed = false;
+		for (File file : files) {
+			String binaryPath = MappedDataset.binaryPathOf(file.getPath());
+			try {
+				SensorDataset dataset = SensorDataset.read(file.getPath(), countReadings(file.getPath()));
+				MappedDataset.write(dataset, binaryPath, singlePrecision);
+				System.out.println(file.getPath() + " -> " + binaryPath + ": " + dataset.getDays() + " days of "
+						+ dataset.getSlotsPerDay() + " readings");
+			} catch (IOException e) {
+				System.out.println("Error converting file '" + file.getPath() + "': " + e.getMessage());
+				failed = true;
+			}
+		}
+		if (failed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Gets the least number of readings of the days of a dataset file, whose fields are separated
+	 * as SensorDataset reads them.
+	 *
+	 * @throws IOException if the file can't be read, or has no day
+	 */
+	public static int countReadings(String path) throws IOException {
+		int readings = Integer.MAX_VALUE;
+		BufferedReader reader = new BufferedReader(new FileReader(path));
+		try {
+			String line;
+			char separator = 0;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				if (separator == 0) {
+					separator = SensorDataset.separatorOf(line);
+				}
+				int fields = 1;
+				for (int i = 0; i < line.length(); i++) {
+					if (line.charAt(i) == separator) {
+						fields++;
+					}
+				}
+				//the first field is the date
+				readings = Math.min(readings, fields - 1);
+			}
+		} finally {
+			reader.close();
+		}
+		if (readings == Integer.MAX_VALUE) {
+			throw new IOException("'" + path + "' has no day.");
+		}
+		return readings;
+	}
+
+}
@@ -0,0 +1,214 @@
+package org.cloudbus.iotnetsim.iot.datasets;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Class MappedDataset holds a window of the days of a binary dataset file, mapped in memory:
+ * the readings are read from the pages of the file, with no copy and no parsing,
+ * and the sensors reading the same file share its pages whatever their window.
+ *
+ * A binary dataset file (written by DatasetConverter from a dataset file, see write) is a header
+ * of HEADER_SIZE bytes: the MAGIC bytes, the VERSION, the number of days, the number of readings per day,
+ * and the number of bytes of a reading (4 for a float, 8 for a double), as little-endian ints;
+ * then a column per reading of the day, each with the reading of every day, as little-endian floats or doubles.
+ *
+ */
+
+public class MappedDataset extends SensorDataset {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** the extension of the binary dataset files, replacing the .csv of the dataset files */
+	public static final String EXTENSION = ".bin";
+
+	/** the first bytes of a binary dataset file */
+	public static final int MAGIC = 0x44544f49;		//"IOTD"
+
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 24;
+
+	private final int firstDay;					//day of the file of the first day of the window, from 1
+	private final int fileDays;
+	private final int fileSlotsPerDay;
+	private final boolean singlePrecision;
+	private transient ByteBuffer buffer;
+
+
+	/**
+	 * Maps the window of a binary dataset file.
+	 *
+	 * @param slotsPerDay the number of readings per day read, no more than in the file
+	 * @param firstDay the day of the file of the first day of the window, from 1
+	 * @param days the number of days of the window
+	 * @throws IOException if the file can't be read, is not a binary dataset file, or has less readings per day
+	 */
+	public MappedDataset(String path, int slotsPerDay, int firstDay, int days) throws IOException {
+		super(path, days, slotsPerDay);
+		if (firstDay < 1 || days < 0) {
+			throw new IllegalArgumentException("Invalid window of " + days + " days from day " + firstDay
+					+ " of '" + path + "'.");
+		}
+		this.firstDay = firstDay;
+		this.buffer = map(path);
+		this.fileDays = buffer.getInt(8);
+		this.fileSlotsPerDay = buffer.getInt(12);
+		this.singlePrecision = buffer.getInt(16) == 4;
+		if (slotsPerDay > fileSlotsPerDay) {
+			throw new IOException("'" + path + "' has less than " + slotsPerDay + " readings per day.");
+		}
+	}
+
+	/**
+	 * Gets the path of the binary dataset file of a dataset file, next to it.
+	 */
+	public static String binaryPathOf(String path) {
+		if (path.toLowerCase().endsWith(".csv")) {
+			return path.substring(0, path.length() - 4) + EXTENSION;
+		}
+		return path + EXTENSION;
+	}
+
+	/**
+	 * Writes a dataset as a binary dataset file.
+	 *
+	 * @param singlePrecision whether the readings are written as floats rather than doubles
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(ReadingSeries dataset, String path, boolean singlePrecision) throws IOException {
+		int days = dataset.getDays();
+		int slotsPerDay = dataset.getSlotsPerDay();
+		int valueSize = singlePrecision ? 4 : 8;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + days * slotsPerDay * valueSize)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(days).putInt(slotsPerDay).putInt(valueSize).putInt(0);
+		for (int slot = 0; slot < slotsPerDay; slot++) {
+			for (int day = 1; day <= days; day++) {
+				if (singlePrecision) {
+					buffer.putFloat((float) dataset.getValue(day, slot));
+				} else {
+					buffer.putDouble(dataset.getValue(day, slot));
+				}
+			}
+		}
+		buffer.flip();
+		FileChannel channel = FileChannel.open(Paths.get(path),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Maps a binary dataset file, checking its header.
+	 */
+	private static ByteBuffer map(String path) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		ByteBuffer buffer;
+		try {
+			long size = channel.size();
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				throw new IOException("'" + path + "' is not a binary dataset file.");
+			}
+			//the mapping stays valid once the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+		} finally {
+			channel.close();
+		}
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("'" + path + "' is not a binary dataset file.");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("'" + path + "' is a binary dataset file of version " + buffer.getInt(4)
+					+ ", not " + VERSION + ".");
+		}
+		int days = buffer.getInt(8);
+		int slotsPerDay = buffer.getInt(12);
+		int valueSize = buffer.getInt(16);
+		if (days < 0 || slotsPerDay < 0 || (valueSize != 4 && valueSize != 8)
+				|| HEADER_SIZE + (long) days * slotsPerDay * valueSize > buffer.capacity()) {
+			throw new IOException("'" + path + "' is not a valid binary dataset file.");
+		}
+		return buffer;
+	}
+
+	/**
+	 * Gets a reading from the file.
+	 *
+	 * @param day the day of the window, from 1
+	 * @throws IndexOutOfBoundsException if the day is not in the window, or beyond the end of the file
+	 */
+	@Override
+	public double getValue(int day, int slot) {
+		if (day < 1 || day > getDays()) {
+			throw new IndexOutOfBoundsException("Day " + day + " is not in the " + getDays()
+					+ " days of the window of '" + getPath() + "'.");
+		}
+		int fileDay = firstDay + day - 1;
+		if (fileDay > fileDays) {
+			throw new IndexOutOfBoundsException("Day " + fileDay + " is beyond the end of '" + getPath() + "'.");
+		}
+		int index = slot * fileDays + fileDay - 1;
+		if (singlePrecision) {
+			return buffer.getFloat(HEADER_SIZE + 4 * index);
+		}
+		return buffer.getDouble(HEADER_SIZE + 8 * index);
+	}
+
+	/**
+	 * Gets the day of the file of the first day of the window, from 1.
+	 */
+	public int getFirstDay() {
+		return firstDay;
+	}
+
+	/**
+	 * Gets the number of days of the file.
+	 */
+	public int getFileDays() {
+		return fileDays;
+	}
+
+	@Override
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	@Override
+	protected Object readResolve() throws ObjectStreamException {
+		try {
+			buffer = map(getPath());
+		} catch (IOException e) {
+			throw new InvalidObjectException("Can't map '" + getPath() + "': " + e.getMessage());
+		}
+		return super.readResolve();
+	}
+
+}
@@ -0,0 +1,120 @@
+package org.cloudbus.iotnetsim.iot.datasets;
+
+import java.io.Serializable;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Class NoisyReadings is the view of a series of readings through the noise of a sensor:
+ * a reading is the actual value plus a gaussian noise proportional to it.
+ *
+ * The noise is computed when a reading is asked for, from the seed of the sensor and the
+ * position of the reading, so the view does not copy the dataset, and a reading read again
+ * (e.g. in a rolled back clock tick, or in another run with the same seed) has the same noise.
+ * The position counts from the first day of the dataset file, so a run resumed at an offset day
+ * reads the same noise as the run it continues.
+ *
+ */
+
+public class NoisyReadings implements ReadingSeries, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	private final ReadingSeries series;
+	private final long seed;
+	private final double noiseRate;		//standard deviation of the noise, relative to the value
+	private final int dayOffset;		//number of days of the file before the first day of the series
+
+
+	public NoisyReadings(ReadingSeries series, long seed, double noiseRate) {
+		this(series, seed, noiseRate, 0);
+	}
+
+	public NoisyReadings(ReadingSeries series, long seed, double noiseRate, int dayOffset) {
+		this.series = series;
+		this.seed = seed;
+		this.noiseRate = noiseRate;
+		this.dayOffset = dayOffset;
+	}
+
+	/**
+	 * Gets the seed of the noise of a sensor, from the seed of the experiment and the id of the sensor.
+	 */
+	public static long seedOf(long experimentSeed, int sensorId) {
+		return mix64(experimentSeed + (sensorId + 1L) * GOLDEN_GAMMA);
+	}
+
+	@Override
+	public int getDays() {
+		return series.getDays();
+	}
+
+	@Override
+	public int getSlotsPerDay() {
+		return series.getSlotsPerDay();
+	}
+
+	/**
+	 * Gets a reading, with the noise of the sensor.
+	 */
+	@Override
+	public double getValue(int day, int slot) {
+		double actualValue = series.getValue(day, slot);
+		long index = (long) (day - 1 + dayOffset) * series.getSlotsPerDay() + slot;
+		return actualValue + gaussian(seed, index) * noiseRate * actualValue;
+	}
+
+	/**
+	 * Gets the actual readings, without noise.
+	 */
+	public ReadingSeries getSeries() {
+		return series;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public double getNoiseRate() {
+		return noiseRate;
+	}
+
+	public int getDayOffset() {
+		return dayOffset;
+	}
+
+	/**
+	 * Gets the standard gaussian value of an index of a sequence,
+	 * from two uniform values of a SplitMix64 sequence (Box-Muller transform).
+	 */
+	static double gaussian(long seed, long index) {
+		long state = seed + 2 * index * GOLDEN_GAMMA;
+		double u1 = (mix64(state + GOLDEN_GAMMA) >>> 11) * DOUBLE_UNIT;
+		double u2 = (mix64(state + 2 * GOLDEN_GAMMA) >>> 11) * DOUBLE_UNIT;
+		return Math.sqrt(-2 * Math.log(1 - u1)) * Math.cos(2 * Math.PI * u2);
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -0,0 +1,44 @@
+package org.cloudbus.iotnetsim.iot.datasets;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Interface ReadingSeries is a series of readings of a sensor, a fixed number of readings (slots) per day,
+ * read by day and slot in constant time.
+ *
+ */
+
+public interface ReadingSeries {
+
+	/**
+	 * Gets the number of days of the series.
+	 */
+	int getDays();
+
+	/**
+	 * Gets the number of readings per day.
+	 */
+	int getSlotsPerDay();
+
+	/**
+	 * Gets a reading.
+	 *
+	 * @param day the day, from 1
+	 * @param slot the reading of the day, from 0
+	 */
+	double getValue(int day, int slot);
+
+}
@@ -0,0 +1,243 @@
+package org.cloudbus.iotnetsim.iot.datasets;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.core.SharedState;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Class SensorDataset holds the readings of a dataset file, one line per day:
+ * the date, then the readings of the day, separated by ';' if the first line of the file has one, or else by ','
+ * (so a ';' file may not have decimal commas, which are invalid readings).
+ *
+ * The readings are kept in one primitive array, day after day, in double or single precision
+ * (half the memory, about 7 significant digits), and are never changed once read,
+ * so a dataset is shared by all the sensors reading the same file (see DatasetCache)
+ * and by the branches of a fork (see CloudSim.forkAt).
+ *
+ */
+
+public abstract class SensorDataset implements ReadingSeries, SharedState, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	private final String path;
+	private final int days;
+	private final int slotsPerDay;
+
+
+	SensorDataset(String path, int days, int slotsPerDay) {
+		this.path = path;
+		this.days = days;
+		this.slotsPerDay = slotsPerDay;
+	}
+
+	/**
+	 * Gets the number of readings per day of a sensor reading every readingInterval seconds.
+	 */
+	public static int slotsPerDay(double readingInterval) {
+		return (int) Math.ceil(24 / (readingInterval / 60 / 60));
+	}
+
+	/**
+	 * Reads the first slotsPerDay readings of each day of a dataset file, in double precision.
+	 *
+	 * @throws IOException if the file can't be read, or a day has less readings
+	 */
+	public static SensorDataset read(String path, int slotsPerDay) throws IOException {
+		return read(path, slotsPerDay, false);
+	}
+
+	/**
+	 * Reads the first slotsPerDay readings of each day of a dataset file.
+	 *
+	 * @param singlePrecision whether the readings are kept as floats rather than doubles
+	 * @throws IOException if the file can't be read, or a day has less readings
+	 */
+	public static SensorDataset read(String path, int slotsPerDay, boolean singlePrecision) throws IOException {
+		double[] values = new double[256 * slotsPerDay];
+		int days = 0;
+		BufferedReader reader = new BufferedReader(new FileReader(path));
+		try {
+			String line;
+			int lineNo = 0;
+			char separator = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNo++;
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				if (separator == 0) {
+					separator = separatorOf(line);
+				}
+				int offset = days * slotsPerDay;
+				if (offset + slotsPerDay > values.length) {
+					values = Arrays.copyOf(values, values.length * 2);
+				}
+				parseDay(path, line, lineNo, separator, slotsPerDay, values, offset);
+				days++;
+			}
+		} finally {
+			reader.close();
+		}
+		return create(path, days, slotsPerDay, values, singlePrecision);
+	}
+
+	/**
+	 * Creates a dataset from readings, day after day.
+	 *
+	 * @param values the readings, from which the first days * slotsPerDay are copied
+	 */
+	static SensorDataset create(String path, int days, int slotsPerDay, double[] values, boolean singlePrecision) {
+		int size = days * slotsPerDay;
+		if (!singlePrecision) {
+			return new DoubleDataset(path, days, slotsPerDay, Arrays.copyOf(values, size));
+		}
+		float[] floats = new float[size];
+		for (int i = 0; i < size; i++) {
+			floats[i] = (float) values[i];
+		}
+		return new FloatDataset(path, days, slotsPerDay, floats);
+	}
+
+	/**
+	 * Gets the separator of the fields of a dataset file from its first line: ';' if the line has one, or else ','.
+	 */
+	static char separatorOf(String line) {
+		return line.indexOf(';') >= 0 ? ';' : ',';
+	}
+
+	/**
+	 * Parses the first slotsPerDay readings of the line of a day.
+	 *
+	 * @param separator the separator of the fields of the file (see separatorOf)
+	 * @param values the array receiving the readings, from the offset
+	 * @throws IOException if the line has less readings, or an invalid one
+	 */
+	static void parseDay(String path, String line, int lineNo, char separator, int slotsPerDay, double[] values,
+			int offset) throws IOException {
+		//the first field is the date
+		int start = nextField(line, 0, separator);
+		for (int slot = 0; slot < slotsPerDay; slot++) {
+			if (start < 0) {
+				throw new IOException("Line " + lineNo + " of '" + path + "' has less than "
+						+ slotsPerDay + " readings.");
+			}
+			int end = nextField(line, start, separator);
+			String field = line.substring(start, end < 0 ? line.length() : end - 1);
+			try {
+				values[offset + slot] = Double.parseDouble(field);
+			} catch (NumberFormatException e) {
+				throw new IOException("Line " + lineNo + " of '" + path + "' has an invalid reading: " + field);
+			}
+			start = end;
+		}
+	}
+
+	/**
+	 * Gets the index of the field after the one starting at an index, or -1 if it is the last one.
+	 */
+	private static int nextField(String line, int start, char separator) {
+		int i = line.indexOf(separator, start);
+		return i < 0 ? -1 : i + 1;
+	}
+
+	/**
+	 * Gets whether the readings are kept as floats.
+	 */
+	public abstract boolean isSinglePrecision();
+
+	public String getPath() {
+		return path;
+	}
+
+	@Override
+	public int getDays() {
+		return days;
+	}
+
+	@Override
+	public int getSlotsPerDay() {
+		return slotsPerDay;
+	}
+
+	/**
+	 * Replaces a dataset read from a checkpoint by the one already in the cache, if any.
+	 */
+	protected Object readResolve() throws ObjectStreamException {
+		return DatasetCache.intern(this);
+	}
+
+	/**
+	 * The readings kept as doubles.
+	 */
+	private static final class DoubleDataset extends SensorDataset {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		private final double[] values;
+
+		DoubleDataset(String path, int days, int slotsPerDay, double[] values) {
+			super(path, days, slotsPerDay);
+			this.values = values;
+		}
+
+		@Override
+		public double getValue(int day, int slot) {
+			return values[(day - 1) * getSlotsPerDay() + slot];
+		}
+
+		@Override
+		public boolean isSinglePrecision() {
+			return false;
+		}
+	}
+
+	/**
+	 * The readings kept as floats.
+	 */
+	private static final class FloatDataset extends SensorDataset {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		private final float[] values;
+
+		FloatDataset(String path, int days, int slotsPerDay, float[] values) {
+			super(path, days, slotsPerDay);
+			this.values = values;
+		}
+
+		@Override
+		public double getValue(int day, int slot) {
+			return values[(day - 1) * getSlotsPerDay() + slot];
+		}
+
+		@Override
+		public boolean isSinglePrecision() {
+			return true;
+		}
+	}
+
+}
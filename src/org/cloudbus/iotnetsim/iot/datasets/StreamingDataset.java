@@ -0,0 +1,190 @@
+package org.cloudbus.iotnetsim.iot.datasets;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Title:        IoTNetSim Toolkit
+ * Description:  Modelling and Simulation for End-to-End IoT Services & Networking
+ *
+ * If you are using any algorithms, policies or workload included in the SAd/SAw CloudSim Toolkit,
+ * please cite the following paper:
+ *
+ * Maria Salama, Yehia Elkhatib, and Gordon Blair. 2019.
+ * IoTNetSim: A Modelling and Simulation Platform for End-to-End IoT Services and Networking.
+ * In Proceedings of the IEEE/ACM 12th International Conference on Utility and Cloud Computing (UCC ’19), December 2–5, 2019, Auckland, New Zealand.
+ * ACM, NewYork,NY, USA, 11 pages.
+ * https://doi.org/10.1145/3344341.3368820
+ *
+ */
+
+/**
+ * Class StreamingDataset holds a window of the days of a dataset file, from a first day of the file
+ * (day 1 of the window) for a number of days, e.g. the days of an experiment.
+ *
+ * The days are read when a reading of them is first asked for, a chunk of CHUNK_DAYS days at a time,
+ * the file being read on from where the previous chunk ended, so creating the dataset reads nothing
+ * and the readings kept are those of the days read so far, never more than the window.
+ * The chunks read are kept until the dataset is dropped, since a rolled back clock tick reads them again;
+ * they are not written in a checkpoint, and are read again from the file after it is restored.
+ *
+ */
+
+public class StreamingDataset extends SensorDataset {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** the number of days read at a time */
+	public static final int CHUNK_DAYS = 64;
+
+	private final int firstDay;					//day of the file of the first day of the window, from 1
+	private final boolean singlePrecision;
+	private transient AtomicReferenceArray<SensorDataset> chunks;
+	private transient BufferedReader reader;
+	private transient int readerDay;			//day of the file of the next day read by the reader
+	private transient int readerLine;			//number of the last line read by the reader
+	private transient char separator;			//separator of the fields of the file, once its first line is read
+
+
+	/**
+	 * Creates the dataset of a window of a file, without reading it.
+	 *
+	 * @param firstDay the day of the file of the first day of the window, from 1
+	 * @param days the number of days of the window
+	 * @param singlePrecision whether the readings are kept as floats rather than doubles
+	 */
+	public StreamingDataset(String path, int slotsPerDay, int firstDay, int days, boolean singlePrecision) {
+		super(path, days, slotsPerDay);
+		if (firstDay < 1 || days < 0) {
+			throw new IllegalArgumentException("Invalid window of " + days + " days from day " + firstDay
+					+ " of '" + path + "'.");
+		}
+		this.firstDay = firstDay;
+		this.singlePrecision = singlePrecision;
+		this.chunks = new AtomicReferenceArray<SensorDataset>((days + CHUNK_DAYS - 1) / CHUNK_DAYS);
+	}
+
+	/**
+	 * Gets a reading, reading its chunk of days the first time.
+	 *
+	 * @param day the day of the window, from 1
+	 * @throws IndexOutOfBoundsException if the day is not in the window, or beyond the end of the file
+	 * @throws UncheckedIOException if the file can't be read
+	 */
+	@Override
+	public double getValue(int day, int slot) {
+		if (day < 1 || day > getDays()) {
+			throw new IndexOutOfBoundsException("Day " + day + " is not in the " + getDays()
+					+ " days of the window of '" + getPath() + "'.");
+		}
+		int chunkIndex = (day - 1) / CHUNK_DAYS;
+		SensorDataset chunk = chunks.get(chunkIndex);
+		if (chunk == null) {
+			chunk = readChunk(chunkIndex);
+		}
+		int chunkDay = day - chunkIndex * CHUNK_DAYS;
+		if (chunkDay > chunk.getDays()) {
+			throw new IndexOutOfBoundsException("Day " + (firstDay + day - 1) + " is beyond the end of '"
+					+ getPath() + "'.");
+		}
+		return chunk.getValue(chunkDay, slot);
+	}
+
+	/**
+	 * Reads a chunk of days, unless another thread has just read it.
+	 */
+	private synchronized SensorDataset readChunk(int chunkIndex) {
+		SensorDataset chunk = chunks.get(chunkIndex);
+		if (chunk != null) {
+			return chunk;
+		}
+		int slotsPerDay = getSlotsPerDay();
+		int start = firstDay + chunkIndex * CHUNK_DAYS;
+		int count = Math.min(CHUNK_DAYS, getDays() - chunkIndex * CHUNK_DAYS);
+		double[] values = new double[count * slotsPerDay];
+		int days = 0;
+		try {
+			if (reader == null || readerDay > start) {
+				//the chunk is before the reader (or the reader is closed): read the file again
+				closeReader();
+				reader = new BufferedReader(new FileReader(getPath()));
+				readerDay = 1;
+				readerLine = 0;
+			}
+			String line;
+			while (days < count && (line = reader.readLine()) != null) {
+				readerLine++;
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				if (separator == 0) {
+					separator = separatorOf(line);
+				}
+				if (readerDay++ < start) {
+					continue;
+				}
+				parseDay(getPath(), line, readerLine, separator, slotsPerDay, values, days * slotsPerDay);
+				days++;
+			}
+			if (days < count || start + count >= firstDay + getDays()) {
+				//end of the file, or of the window
+				closeReader();
+			}
+		} catch (IOException e) {
+			closeReader();
+			throw new UncheckedIOException(e);
+		}
+		chunk = create(getPath(), days, slotsPerDay, values, singlePrecision);
+		chunks.set(chunkIndex, chunk);
+		return chunk;
+	}
+
+	private void closeReader() {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				//nothing more to read
+			}
+			reader = null;
+		}
+	}
+
+	/**
+	 * Gets the day of the file of the first day of the window, from 1.
+	 */
+	public int getFirstDay() {
+		return firstDay;
+	}
+
+	/**
+	 * Gets the number of days read so far.
+	 */
+	public int getDaysRead() {
+		int days = 0;
+		for (int i = 0; i < chunks.length(); i++) {
+			SensorDataset chunk = chunks.get(i);
+			if (chunk != null) {
+				days += chunk.getDays();
+			}
+		}
+		return days;
+	}
+
+	@Override
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	@Override
+	protected Object readResolve() throws ObjectStreamException {
+		chunks = new AtomicReferenceArray<SensorDataset>((getDays() + CHUNK_DAYS - 1) / CHUNK_DAYS);
+		return super.readResolve();
+	}
+
+}
@@ -12,7 +12,12 @@ import java.util.Map;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.ForkableMap;
+import org.cloudbus.cloudsim.core.ParallelSafe;
+import org.cloudbus.cloudsim.core.PeriodicTimer;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.StateSaving;
+import org.cloudbus.cloudsim.core.UndoLog;
 import org.cloudbus.iotnetsim.IoTNodePower;
 import org.cloudbus.iotnetsim.IoTNodeType;
 import org.cloudbus.iotnetsim.Location;
@@ -44,10 +49,15 @@ import org.cloudbus.iotnetsim.network.NetConnection;
  * 
  */
 
-public class GatewayNode extends IoTNode {
+public class GatewayNode extends IoTNode implements StateSaving, ParallelSafe {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	private double forwardInterval;			//forward data every x seconds
 	private double dataProcessingInterval;		//interval for processing data events
+	private int noOfDays;				//number of days of the experiment, in the simulation context of the node
+	private PeriodicTimer forwardTimer;		//sends the forward events every forwardInterval
 
 	private List<SensorReading> readingsDataReceived; 	//storing data received 
 	protected Map<SensorType, Map<Double, Double>> readingsDataAggregated; 		//storing aggregated data, k: SensorType, v: aggregated value
@@ -55,6 +65,7 @@ public class GatewayNode extends IoTNode {
 	private Map<Integer, Map<Integer, Double>> sensorBelieves;        //storing sensor uncertainty for each sensor based on time
 	private Map<String, Map<Integer, Map<Integer, SensorReading>>> semanticBasedReadingDataCollected;   // semantic, sensorId, index of time, sensorReading
 	private int gatewayClock = 1;
+	private final UndoLog undoLog = new UndoLog();		//changes to the data collected and the sensor believes, for restoring a saved state
 
 	private double faultDetect = 0.4;
 
@@ -118,16 +129,18 @@ public class GatewayNode extends IoTNode {
 	@Override
 	public void startEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is starting...");				
+		Log.info("{} is starting...", getName());				
+		noOfDays = configurations.ExperimentsConfigurations.getNoOfDays();
 						
-		// schedule the first event for sending data
-		schedule(this.getId(), this.forwardInterval + CloudSim.getMinTimeBetweenEvents(), CloudSimTags.IOT_GATEWAY_SEND_AGGREGATED_DATA_EVENT); 
+		// schedule the events for sending data, the first one after forwardInterval
+		forwardTimer = schedulePeriodic(CloudSimTags.IOT_GATEWAY_SEND_AGGREGATED_DATA_EVENT, 
+				this.forwardInterval + CloudSim.getMinTimeBetweenEvents(), Double.MAX_VALUE); 
 	}
 
 	@Override
 	public void shutdownEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is shutting down...");		
+		Log.info("{} is shutting down...", getName());		
 	}
 	
 	@Override
@@ -162,7 +175,9 @@ public class GatewayNode extends IoTNode {
 		this.readingsDataReceived.clear();
 
 		if (evdata.size() > 0) {
-			Log.printLine(CloudSim.clock() + ": [" + getName() + "] is receiving readings data from LinkNode " + CloudSim.getEntityName(senderId));
+			if (Log.isDebugEnabled()) {
+				Log.debug("{}: [{}] is receiving readings data from LinkNode {}", CloudSim.clock(), getName(), CloudSim.getEntityName(senderId));
+			}
 			
 			evdata.forEach(item -> this.readingsDataReceived.add(item));
 
@@ -173,7 +188,9 @@ public class GatewayNode extends IoTNode {
 		if (readingsDataReceived.size() > 0) {
 			aggregateData();
 
-			Log.printLine(CloudSim.clock() + ": [" + getName() + "] is sending aggregated data to " + CloudSim.getEntityName(getForwardNodeId()));
+			if (Log.isDebugEnabled()) {
+				Log.debug("{}: [{}] is sending aggregated data to {}", CloudSim.clock(), getName(), CloudSim.getEntityName(getForwardNodeId()));
+			}
 
 //			for(SensorType sensorType : readingsDataAggregated.keySet()) {
 //				Log.printLine(sensorType + ": ");
@@ -187,18 +204,22 @@ public class GatewayNode extends IoTNode {
 			//send aggregated data to the Cloud
 			schedule(this.getForwardNodeId(), CloudSim.getMinTimeBetweenEvents(), CloudSimTags.IOT_CLOUD_RECEIVE_DATA_EVENT, readingsDataAggregated);
 
-			if (readingsDataReceived.get(readingsDataReceived.size()-1).getReadingDay() < configurations.ExperimentsConfigurations.EXP_NO_OF_DAYS) {
-				// schedule the next event for forwarding data 
-				scheduleNextForward();
+			if (readingsDataReceived.get(readingsDataReceived.size()-1).getReadingDay() < noOfDays) {
+				// keep forwarding data 
+				return;
 			}
 		}		
+		// no more events for forwarding data 
+		cancelPeriodic(forwardTimer);
 	}
 
 	public void aggregateData() {
-		Log.printLine(CloudSim.clock() + ": [" + getName() + "] is aggregating data received...");
+		if (Log.isDebugEnabled()) {
+			Log.debug("{}: [{}] is aggregating data received...", CloudSim.clock(), getName());
+		}
 
-		//clear data previously stored 
-		readingsDataAggregated.clear();
+		//clear data previously stored (the previous map has been sent to the next node)
+		readingsDataAggregated = new HashMap<SensorType, Map<Double, Double>>();
 
 		Map<SensorType, ArrayList<SensorReading>> readingsDataCollected = new HashMap<SensorType, ArrayList<SensorReading>>();
 
@@ -209,27 +230,28 @@ public class GatewayNode extends IoTNode {
 		}
 
 		//add readings received to each corresponding SensorType
+		//the data of each sensor are kept in forkable maps, which the branches of a fork share until they change them
 		for (SensorReading r : readingsDataReceived) {
 			SensorNode s = (SensorNode) CloudSim.getEntity(r.getSensorId());
 			readingsDataCollected.get(s.getSensorType()).add(r);
 			for(SensorReading sensorReading : readingsDataReceived) {
 				if(!semanticBasedReadingDataCollected.containsKey(sensorReading.getSemantic())) {
-					semanticBasedReadingDataCollected.put(sensorReading.getSemantic(), new HashMap<Integer, Map<Integer, SensorReading>>());
+					undoLog.put(semanticBasedReadingDataCollected, sensorReading.getSemantic(), new HashMap<Integer, Map<Integer, SensorReading>>());
 				} else if(!semanticBasedReadingDataCollected.get(sensorReading.getSemantic()).containsKey(sensorReading.getSensorId())){
-					semanticBasedReadingDataCollected.get(sensorReading.getSemantic()).put(sensorReading.getSensorId(), new HashMap<Integer, SensorReading>());
+					undoLog.put(semanticBasedReadingDataCollected.get(sensorReading.getSemantic()), sensorReading.getSensorId(), new ForkableMap<Integer, SensorReading>());
 				} else if(!semanticBasedReadingDataCollected.get(sensorReading.getSemantic()).get(sensorReading.getSensorId())
 						.containsKey(sensorReading.getDataIndex())) {
-					semanticBasedReadingDataCollected.get(sensorReading.getSemantic()).get(sensorReading.getSensorId())
-							.put(sensorReading.getDataIndex(), sensorReading);
+					undoLog.put(semanticBasedReadingDataCollected.get(sensorReading.getSemantic()).get(sensorReading.getSensorId()),
+							sensorReading.getDataIndex(), sensorReading);
 				} else {
-					semanticBasedReadingDataCollected.get(sensorReading.getSemantic()).get(sensorReading.getSensorId())
-							.put(sensorReading.getDataIndex(), sensorReading);
+					undoLog.put(semanticBasedReadingDataCollected.get(sensorReading.getSemantic()).get(sensorReading.getSensorId()),
+							sensorReading.getDataIndex(), sensorReading);
 				}
-				sensorBelieves.computeIfAbsent(sensorReading.getSensorId(), ignore -> new HashMap<Integer, Double>());
 				if(!sensorBelieves.containsKey(sensorReading.getSensorId())) {
-					sensorBelieves.put(sensorReading.getSensorId(), new HashMap<Integer, Double>());
-				} else if(!sensorBelieves.get(sensorReading.getSensorId()).containsKey(sensorReading.getDataIndex())) {
-					sensorBelieves.get(sensorReading.getSensorId()).put(sensorReading.getDataIndex(), sensorReading.getBeliefRate());
+					undoLog.put(sensorBelieves, sensorReading.getSensorId(), new ForkableMap<Integer, Double>());
+				}
+				if(!sensorBelieves.get(sensorReading.getSensorId()).containsKey(sensorReading.getDataIndex())) {
+					undoLog.put(sensorBelieves.get(sensorReading.getSensorId()), sensorReading.getDataIndex(), sensorReading.getBeliefRate());
 				}
 			}
 		}
@@ -245,7 +267,9 @@ public class GatewayNode extends IoTNode {
 				evaluateValue = evaluateValue + matchedSensor.getValue().get(gatewayClock).getReadingData()
 						* matchedSensor.getValue().get(gatewayClock).getBeliefRate();
 				beliefRate = beliefRate + matchedSensor.getValue().get(gatewayClock).getBeliefRate();
-				Log.printLine("The data from sensor " + matchedSensor.getKey() + " is " + evaluateValue + " belief " + beliefRate);
+				if (Log.isDebugEnabled()) {
+					Log.debug("The data from sensor {} is {} belief {}", matchedSensor.getKey(), evaluateValue, beliefRate);
+				}
 			}
 			if(beliefRate != 0) {
 				evaluateValue = evaluateValue / beliefRate;
@@ -253,7 +277,9 @@ public class GatewayNode extends IoTNode {
 			} else {
 				evaluateValue = 0;
 			}
-			Log.printLine("The evaluated value is: " + evaluateValue);
+			if (Log.isDebugEnabled()) {
+				Log.debug("The evaluated value is: {}", evaluateValue);
+			}
 			double newBlief = 0;
 			int infectLength = 7;
 			double infectRateCurrent = 0.3;
@@ -274,22 +300,24 @@ public class GatewayNode extends IoTNode {
 							piBlief = piBlief + sensorBelieves.get(matchedSensor.getKey()).get(i);
 						}
 						if(newBlief * infectRateCurrent + (1 - infectRateCurrent) * piBlief / infectLength < faultDetect) {
-							Log.printLine("The sensor " + sensorNode.getName() + " has potential problem, please check.");
+							Log.warn("The sensor {} has potential problem, please check.", sensorNode.getName());
 							newBlief = newBlief * 0.1;
 						} else {
 							newBlief = newBlief * infectRateCurrent + (1 - infectRateCurrent - infectRateInitial) * piBlief / infectLength
 									+ matchedSensor.getValue().get(1).getBeliefRate() * infectRateInitial;
 						}
 					}
-					sensorBelieves.get(matchedSensor.getKey()).put(gatewayClock + 1, newBlief);
+					undoLog.put(sensorBelieves.get(matchedSensor.getKey()), gatewayClock + 1, newBlief);
 				} else {
-					sensorBelieves.get(matchedSensor.getKey()).put(gatewayClock + 1, sensorBelieves.get(matchedSensor.getKey()).get(gatewayClock));
+					undoLog.put(sensorBelieves.get(matchedSensor.getKey()), gatewayClock + 1, sensorBelieves.get(matchedSensor.getKey()).get(gatewayClock));
 				}
 				if(newBlief < 0) {
-					Log.printLine("Strange thing happened. evaluateValue: " + evaluateValue + " sending data: " + matchedSensor.getValue().get(gatewayClock).getReadingData());
+					Log.warn("Strange thing happened. evaluateValue: {} sending data: {}", evaluateValue, matchedSensor.getValue().get(gatewayClock).getReadingData());
+				}
+				if (Log.isDebugEnabled()) {
+					Log.debug("The sensor {} sent data of {} has new belief of {} at time index of {}", CloudSim.getEntityName(matchedSensor.getKey()),
+							matchedSensor.getValue().get(gatewayClock).getReadingData(), newBlief, gatewayClock + 1);
 				}
-				Log.printLine("The sensor " + CloudSim.getEntityName(matchedSensor.getKey()) + " sent data of " + matchedSensor.getValue().get(gatewayClock).getReadingData() + " has new belief of " + newBlief
-				+ " at time index of " + String.valueOf(gatewayClock + 1));
 			}
 		}
 
@@ -321,12 +349,14 @@ public class GatewayNode extends IoTNode {
 		for(SensorReading sensorReading : readingsDataReceived) {
 			scheduleNow(sensorReading.getSensorId(),
 					CloudSimTags.IOT_SENSOR_UPDATE_Belief, sensorBelieves.get(sensorReading.getSensorId()).get(gatewayClock+1));
-			recordData(CloudSim.getEntityName(sensorReading.getSensorId()),
-					sensorReading.getDataIndex() + " ; " +
+			String sensorName = CloudSim.getEntityName(sensorReading.getSensorId());
+			String record = sensorReading.getDataIndex() + " ; " +
 							String.format("%.02f",sensorReading.getReadingData()) + " ; " +
 							String.format("%.02f",evaluatedValue2) + " ; " +
 							String.format("%.02f",sensorReading.getRealData()) + " ; " +
-							String.format("%.02f",sensorReading.getBeliefRate()) );
+							String.format("%.02f",sensorReading.getBeliefRate());
+			//written in the order of a sequential simulation, even if the nodes are dispatched in parallel
+			output(() -> recordData(sensorName, record));
 			// day, timeslot, reading data, evaluated data, real data, uncertainty
 		}
 		gatewayClock++;
@@ -336,7 +366,12 @@ public class GatewayNode extends IoTNode {
 	public void recordData(String sensorName, String data) {
 		BufferedWriter record = null;
 		try {
-			File file = new File(sensorName + ".csv");
+			//the records are written to the output folder of the simulation context (see ExperimentsConfigurations.getOutputDir)
+			String outputDir = configurations.ExperimentsConfigurations.getOutputDir();
+			File file = outputDir.isEmpty() ? new File(sensorName + ".csv") : new File(outputDir, sensorName + ".csv");
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
 			if (!file.exists()) {
 				file.createNewFile();
 			}
@@ -350,13 +385,15 @@ public class GatewayNode extends IoTNode {
 				if(record!=null)
 					record.close();
 			}catch(Exception ex){
-				System.out.println("Error in closing the BufferedWriter"+ex);
+				Log.error("Error in closing the BufferedWriter {}", ex);
 			}
 		}
 	}
 	
 	public void processData() {
-		Log.printLine(CloudSim.clock() + ": [" + getName() + "] is processing data..." );
+		if (Log.isDebugEnabled()) {
+			Log.debug("{}: [{}] is processing data...", CloudSim.clock(), getName());
+		}
 
 		//TODO add processing data required
 		
@@ -365,21 +402,17 @@ public class GatewayNode extends IoTNode {
 		scheduleNextDataProcessing();
 	}
 	
-	private void scheduleNextForward(){
-		schedule(this.getId(), this.getForwardInterval() + CloudSim.getMinTimeBetweenEvents(), CloudSimTags.IOT_GATEWAY_SEND_AGGREGATED_DATA_EVENT);
-	}
-
 	private void scheduleNextDataProcessing(){
 		schedule(this.getId(), this.getDataProcessingInterval(), CloudSimTags.IOT_GATEWAY_PROCESS_DATA_EVENT);
 	}
 
 	protected void processOtherEvent(SimEvent ev) {
 		if (ev == null) {
-			Log.printLine(getName() + ".processOtherEvent(): " + "Error - an event is null.");
+			Log.error("{}.processOtherEvent(): Error - an event is null.", getName());
 			return;
 		}
 
-		Log.printLine(getName() + ".processOtherEvent(): " + "Error - event unknown by this LinkNode.");
+		Log.warn("{}.processOtherEvent(): Error - event unknown by this LinkNode.", getName());
 	}
 
 	public double getForwardInterval() {
@@ -390,6 +423,14 @@ public class GatewayNode extends IoTNode {
 		this.forwardInterval = forwardInterval;
 	}
 
+	public double getFaultDetect() {
+		return faultDetect;
+	}
+
+	public void setFaultDetect(double faultDetect) {
+		this.faultDetect = faultDetect;
+	}
+
 	public double getDataProcessingInterval() {
 		return dataProcessingInterval;
 	}
@@ -398,5 +439,48 @@ public class GatewayNode extends IoTNode {
 		this.dataProcessingInterval = dataProcessingInterval;
 	}
 
+	@Override
+	public Object saveState() {
+		return new GatewayState(this);
+	}
+
+	@Override
+	public void restoreState(Object state) {
+		((GatewayState) state).restore(this);
+	}
+
+	@Override
+	public void discardState(Object state) {
+		undoLog.discard(((GatewayState) state).undoMark);
+	}
+
+	/**
+	 * The state of the gateway saved for an optimistic simulation (see CloudSim.startOptimisticSimulation).
+	 * The data received are copied, while the changes to the data collected and the sensor believes,
+	 * which grow during the whole simulation, are recorded in the undo log.
+	 * The data aggregated are replaced rather than changed after being sent, so they are not copied.
+	 */
+	private static class GatewayState {
+		private final int gatewayClock;
+		private final List<SensorReading> readingsDataReceived;
+		private final Map<SensorType, Map<Double, Double>> readingsDataAggregated;
+		private final long undoMark;
+
+		GatewayState(GatewayNode gateway) {
+			this.gatewayClock = gateway.gatewayClock;
+			this.readingsDataReceived = new ArrayList<SensorReading>(gateway.readingsDataReceived);
+			this.readingsDataAggregated = gateway.readingsDataAggregated;
+			this.undoMark = gateway.undoLog.mark();
+		}
+
+		void restore(GatewayNode gateway) {
+			gateway.gatewayClock = gatewayClock;
+			gateway.readingsDataReceived.clear();
+			gateway.readingsDataReceived.addAll(readingsDataReceived);
+			gateway.readingsDataAggregated = readingsDataAggregated;
+			gateway.undoLog.rollback(undoMark);
+		}
+	}
+
 	
 }
@@ -5,6 +5,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.iotnetsim.IoTNodeIndex;
 import org.cloudbus.iotnetsim.IoTNodePower;
 import org.cloudbus.iotnetsim.IoTNodeType;
 import org.cloudbus.iotnetsim.Location;
@@ -36,6 +37,9 @@ import org.cloudbus.iotnetsim.network.NetConnection;
  */
 
 public abstract class IoTNode extends SimEntity {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 	
 	private Location location;
 	private IoTNodeType nodeType ;
@@ -62,6 +66,8 @@ public abstract class IoTNode extends SimEntity {
 		this.connection = connection;
 		this.power = power;
 		this.forwardNodeId = forwardNodeId;
+
+		addToIndex();
 	}
 
 	public IoTNode(String name, 
@@ -76,17 +82,19 @@ public abstract class IoTNode extends SimEntity {
 		this.power = power;
 		this.forwardNodeId = CloudSim.getEntityId(forwardNodeName);
 		this.forwardNodeName = forwardNodeName;
+
+		addToIndex();
 	}
 
 	public void startEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is starting...");
+		Log.info("{} is starting...", getName());
 	}
 
 	@Override
 	public void shutdownEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is shutting down...");		
+		Log.info("{} is shutting down...", getName());		
 	}
 	
 	@Override
@@ -119,11 +127,11 @@ public abstract class IoTNode extends SimEntity {
 	
 	protected void processOtherEvent(SimEvent ev) {
 		if (ev == null) {
-			Log.printLine(getName() + ".processOtherEvent(): " + "Error - an event is null.");
+			Log.error("{}.processOtherEvent(): Error - an event is null.", getName());
 			return;
 		}
 
-		Log.printLine(getName() + ".processOtherEvent(): " + "Error - event unknown by this Sensor.");
+		Log.warn("{}.processOtherEvent(): Error - event unknown by this Sensor.", getName());
 	}
 
 	public Location getLocation() {
@@ -131,7 +139,9 @@ public abstract class IoTNode extends SimEntity {
 	}
 
 	public void setLocation(Location location) {
+		Location previousLocation = this.location;
 		this.location = location;
+		updateIndex(nodeType, previousLocation);
 	}
 
 	public IoTNodeType getNodeType() {
@@ -139,7 +149,23 @@ public abstract class IoTNode extends SimEntity {
 	}
 
 	public void setNodeType(IoTNodeType nodeType) {
+		IoTNodeType previousType = this.nodeType;
 		this.nodeType = nodeType;
+		updateIndex(previousType, location);
+	}
+
+	private void addToIndex() {
+		IoTNodeIndex index = IoTNodeIndex.getInstance();
+		if (index != null) {
+			index.addNode(this);
+		}
+	}
+
+	private void updateIndex(IoTNodeType previousType, Location previousLocation) {
+		IoTNodeIndex index = IoTNodeIndex.getInstance();
+		if (index != null) {
+			index.updateNode(this, previousType, previousLocation);
+		}
 	}
 
 	public NetConnection getConnection() {
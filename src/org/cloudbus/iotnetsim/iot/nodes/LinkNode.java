@@ -6,7 +6,10 @@ import java.util.List;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.ParallelSafe;
+import org.cloudbus.cloudsim.core.PeriodicTimer;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.StateSaving;
 import org.cloudbus.iotnetsim.IoTNodePower;
 import org.cloudbus.iotnetsim.IoTNodeType;
 import org.cloudbus.iotnetsim.Location;
@@ -37,9 +40,14 @@ import org.cloudbus.iotnetsim.network.NetConnection;
  * 
  */
 
-public class LinkNode extends IoTNode {
+public class LinkNode extends IoTNode implements StateSaving, ParallelSafe {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 
 	private double forwardInterval;			//send readings every x seconds
+	private int noOfDays;				//number of days of the experiment, in the simulation context of the node
+	private PeriodicTimer forwardTimer;		//sends the forward events every forwardInterval
 	
 	private List<SensorReading> readingsData;
 	
@@ -71,16 +79,17 @@ public class LinkNode extends IoTNode {
 	@Override
 	public void startEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is starting...");				
+		Log.info("{} is starting...", getName());				
+		noOfDays = configurations.ExperimentsConfigurations.getNoOfDays();
 		
-		// schedule the first event for sending data
-		schedule(this.getId(), forwardInterval, CloudSimTags.IOT_LINK_FORWARD_DATA_EVENT);
+		// schedule the events for sending data, the first one after forwardInterval
+		forwardTimer = schedulePeriodic(CloudSimTags.IOT_LINK_FORWARD_DATA_EVENT, forwardInterval, Double.MAX_VALUE);
 }
 
 	@Override
 	public void shutdownEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is shutting down...");		
+		Log.info("{} is shutting down...", getName());		
 	}
 
 	@Override
@@ -113,35 +122,37 @@ public class LinkNode extends IoTNode {
 		
 		readingsData.add(evdata);
 		
-		Log.printLine(CloudSim.clock() + ": [" + getName() + "] is receiving reading data from Sensor " + CloudSim.getEntityName(evdata.getSensorId()) 
-				+ " of value " + evdata.getReadingData());
+		if (Log.isDebugEnabled()) {
+			Log.debug("{}: [{}] is receiving reading data from Sensor {} of value {}", CloudSim.clock(), getName(),
+					CloudSim.getEntityName(evdata.getSensorId()), evdata.getReadingData());
+		}
 	}
 	
 	public void processForwardData() {
 		if (readingsData.size() > 0) {
-			Log.printLine(CloudSim.clock() + ": [" + getName() + "] is forwarding reading data to " + CloudSim.getEntityName(getForwardNodeId()));
+			if (Log.isDebugEnabled()) {
+				Log.debug("{}: [{}] is forwarding reading data to {}", CloudSim.clock(), getName(), CloudSim.getEntityName(getForwardNodeId()));
+			}
 
 			//forward data to Gateway Node
 			schedule(getForwardNodeId(), CloudSim.getMinTimeBetweenEvents(), CloudSimTags.IOT_GATEWAY_RECEIVE_DATA_EVENT, readingsData);
 
-			if (readingsData.get(readingsData.size()-1).getReadingDay() < configurations.ExperimentsConfigurations.EXP_NO_OF_DAYS) {
-				// schedule the next event for forwarding data 
-				scheduleNextForward();
+			if (readingsData.get(readingsData.size()-1).getReadingDay() < noOfDays) {
+				// keep forwarding data 
+				return;
 			}
 		}
-	}
-
-	private void scheduleNextForward(){
-		schedule(this.getId(), this.getForwardInterval(), CloudSimTags.IOT_LINK_FORWARD_DATA_EVENT);
+		// no more events for forwarding data 
+		cancelPeriodic(forwardTimer);
 	}
 
 	protected void processOtherEvent(SimEvent ev) {
 		if (ev == null) {
-			Log.printLine(getName() + ".processOtherEvent(): " + "Error - an event is null.");
+			Log.error("{}.processOtherEvent(): Error - an event is null.", getName());
 			return;
 		}
 
-		Log.printLine(getName() + ".processOtherEvent(): " + "Error - event unknown by this LinkNode.");
+		Log.warn("{}.processOtherEvent(): Error - event unknown by this LinkNode.", getName());
 	}
 
 	public double getForwardInterval() {
@@ -151,5 +162,21 @@ public class LinkNode extends IoTNode {
 	public void setForwardInterval(double forwardInterval) {
 		this.forwardInterval = forwardInterval;
 	}
+
+	@Override
+	public Object saveState() {
+		//the list is sent to the gateway, so a restored state gets a new list
+		return new ArrayList<SensorReading>(readingsData);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void restoreState(Object state) {
+		readingsData = new ArrayList<SensorReading>((List<SensorReading>) state);
+	}
+
+	@Override
+	public void discardState(Object state) {
+	}
 	
 }
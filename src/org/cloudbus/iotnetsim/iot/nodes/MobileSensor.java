@@ -35,6 +35,9 @@ import java.util.Map;
  */
 
 public class MobileSensor extends SensorNode implements IoTNodeMobile {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 	
 	private Location currentLocation;
 	private Map<Integer, Location> locationTrack;
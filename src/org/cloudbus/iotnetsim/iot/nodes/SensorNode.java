@@ -1,7 +1,6 @@
 package org.cloudbus.iotnetsim.iot.nodes;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
@@ -9,11 +8,18 @@ import java.util.*;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
-import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.ParallelSafe;
+import org.cloudbus.cloudsim.core.PeriodicTimer;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.StateSaving;
+import org.cloudbus.iotnetsim.IoTNodeIndex;
 import org.cloudbus.iotnetsim.IoTNodePower;
 import org.cloudbus.iotnetsim.IoTNodeType;
 import org.cloudbus.iotnetsim.Location;
+import org.cloudbus.iotnetsim.iot.datasets.DatasetCache;
+import org.cloudbus.iotnetsim.iot.datasets.MappedDataset;
+import org.cloudbus.iotnetsim.iot.datasets.NoisyReadings;
+import org.cloudbus.iotnetsim.iot.datasets.ReadingSeries;
 import org.cloudbus.iotnetsim.network.NetConnection;
 
 /**
@@ -41,7 +47,10 @@ import org.cloudbus.iotnetsim.network.NetConnection;
  * 
  */
 
-public class SensorNode extends IoTNode {
+public class SensorNode extends IoTNode implements StateSaving, ParallelSafe {
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
 	private static double DEFAULT_BELIEF = 0.9;
 	int patrolIndex = 0;
 	private boolean ifMoving = false;
@@ -50,13 +59,15 @@ public class SensorNode extends IoTNode {
 	private String readingsFile;
 	//private List<Double> readingsDataset;	//to store readings data from a dataset
 	//private Map<Date, ArrayList<Double>> readingsDataset; 			//to store readings data from a dataset with dates
-	private Map<Integer, ArrayList<Double>> readingsDataset; 			//to store readings data from a dataset with days number
-	private Map<Integer, ArrayList<Double>> realDataset;
+	private ReadingSeries readingsDataset; 			//readings data from a dataset, with the noise of the sensor
+	private ReadingSeries realDataset;				//actual readings data from a dataset, by days number
 	private int currentReadingDay;
 	private int currentReadingIndex;
+	private int noOfDays;				//number of days of the experiment, in the simulation context of the node
+	private int datasetStartDay = 1;	//day of the dataset file read as the first day of the experiment
+	private PeriodicTimer readingTimer;		//sends the reading events every readingInterval
 	private String forwardNodeName;
 	private double beliefRate;
-	private Random beliefGenerator;
 	private Location location;
 	private String semantic;
 	private List<Location> locationTrack;
@@ -93,8 +104,6 @@ public class SensorNode extends IoTNode {
 		//initialise data structures
 		//this.readingsDataset = new LinkedList<Double>();
 		//this.readingsDataset = new HashMap<Date, ArrayList<Double>>();
-		this.readingsDataset = new HashMap<Integer, ArrayList<Double>>();
-		this.realDataset = new HashMap<Integer, ArrayList<Double>>();
 
 		this.sensorType = sensorType;
 		this.readingInterval = readingInterval;
@@ -102,7 +111,6 @@ public class SensorNode extends IoTNode {
 		this.currentReadingDay = 1;
 		this.currentReadingIndex = 0;
 		this.beliefRate = beliefRate;
-		this.beliefGenerator = new Random();
 		this.location = location;
 		this.semantic = sensorType.toString() + "@" + location.toString();
 		this.ifMoving = ifMoving;
@@ -115,7 +123,8 @@ public class SensorNode extends IoTNode {
 	@Override
 	public void startEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is starting...");
+		Log.info("{} is starting...", getName());
+		noOfDays = configurations.ExperimentsConfigurations.getNoOfDays();
 
 		try {
 			getReadingsFromDataset();
@@ -124,14 +133,14 @@ public class SensorNode extends IoTNode {
 			e.printStackTrace();
 		}
 		
-		// schedule the first event for sending data
-		schedule(this.getId(), readingInterval, CloudSimTags.IOT_SENSOR_SEND_DATA_EVENT);
+		// schedule the events for sending data, the first one after readingInterval
+		readingTimer = schedulePeriodic(CloudSimTags.IOT_SENSOR_SEND_DATA_EVENT, readingInterval, Double.MAX_VALUE);
 	}
 
 	@Override
 	public void shutdownEntity() {
 		// TODO Auto-generated method stub
-		Log.printLine(getName() + " is shutting down...");		
+		Log.info("{} is shutting down...", getName());		
 	}
 
 	@Override
@@ -157,52 +166,48 @@ public class SensorNode extends IoTNode {
 
 	private void updateBelief(SimEvent ev) {
 		beliefRate = (Double) ev.getData();
-		Log.printLine("The sensor " + this.getName() + " update the belief to " + beliefRate);
+		if (Log.isDebugEnabled()) {
+			Log.debug("The sensor {} update the belief to {}", this.getName(), beliefRate);
+		}
 	}
 
+	/**
+	 * Gets the readings of the sensor. The dataset is shared by the sensors reading the same file
+	 * and by the branches of a fork (see DatasetCache), and the noise of the sensor is applied to it as a view.
+	 */
 	public void getReadingsFromDataset() throws ParseException {
-		try {
-			String line = null;
-			Log.printLine("Get readings from dataset file " + this.readingsFile);
-			BufferedReader reader = new BufferedReader(new FileReader(this.readingsFile));
-
-			while((line = reader.readLine()) != null) {
-				String[] v = line.split(";");
-
-				//Date k = new SimpleDateFormat("dd/MM/y").parse(v[0]);
-				//readingsDataset.computeIfAbsent(k, ignored -> new ArrayList<Double>());
-				int dayNo = readingsDataset.size()+1;
-				readingsDataset.computeIfAbsent(dayNo, ignored -> new ArrayList<Double>());
-				realDataset.computeIfAbsent(dayNo, ignored -> new ArrayList<Double>());
-
-				for (int i=0; i<(24/(readingInterval/60/60)); i++) {		//get required number of readings according the readingInterval				
-					//readingsDataset.get(k).add(Double.parseDouble(v[i+1]));
-					//readingsDataset.get(dayNo).add(Double.parseDouble(v[i+1]));
-					double actualValue = Double.parseDouble(v[i+1]);
-					readingsDataset.get(dayNo).add(actualValue + beliefGenerator.nextGaussian()*(1-beliefRate)*actualValue);
-					realDataset.get(dayNo).add(actualValue);
-				}
-
+		Log.info("Get readings from dataset file {}", this.readingsFile);
+		File file = new File(this.readingsFile);
+		File binaryFile = new File(MappedDataset.binaryPathOf(this.readingsFile));
+		realDataset = null;
+		//prefer the binary dataset file next to the dataset file, unless it is older
+		if (binaryFile.canRead() && (!file.exists() || binaryFile.lastModified() >= file.lastModified())) {
+			try {
+				realDataset = DatasetCache.getMappedDataset(binaryFile.getPath(), readingInterval, datasetStartDay, noOfDays);
+			} catch (IOException e) {
+				Log.error("Error reading file '{}': {}", binaryFile.getPath(), e.getMessage());
 			}
-
-			reader.close();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			System.out.println("Error reading file '" +  this.readingsFile + "'");  
-			e.printStackTrace();
-		}   
+		}
+		if (realDataset == null) {
+			if (!file.canRead()) {
+				Log.error("Error reading file '{}'", this.readingsFile);
+				return;
+			}
+			//only the days of the experiment are read, as the sensor reads them
+			realDataset = DatasetCache.getDataset(this.readingsFile, readingInterval, datasetStartDay, noOfDays);
+		}
+		//the noise is computed when read, and is the same in every run with the same seed
+		long seed = NoisyReadings.seedOf(configurations.ExperimentsConfigurations.getNoiseSeed(), getId());
+		readingsDataset = new NoisyReadings(realDataset, seed, 1 - beliefRate, datasetStartDay - 1);
 	}
 
 	public void moveNodeAndChangeLinkNode() {
 		patrolIndex++;
 		location = locationTrack.get(patrolIndex);
-		for(SimEntity simEntity : CloudSim.getEntityList()) {
-			if(simEntity.getName().contains("RelayNode")) {
-				LinkNode newLinkNode = (LinkNode) simEntity;
-				if(newLinkNode.getLocation().equals(location)) {
-					forwardNodeName = newLinkNode.getName();
-				}
-			}
+		//the link node at the new location, if any
+		IoTNode linkNode = IoTNodeIndex.getInstance().findNearest(IoTNodeType.LINK_NODE, location, 0);
+		if (linkNode != null) {
+			forwardNodeName = linkNode.getName();
 		}
 	}
 
@@ -224,11 +229,11 @@ public class SensorNode extends IoTNode {
 				numSendData
 				);
 
-		Log.printLine(CloudSim.clock() + ": [" + this.getName() + "] is sending ReadingData no. " + currentReadingIndex 
-				+ " for Day " + currentReadingDay
-				+ " with value of " + Double.toString(readingValue) 
-				+ " to " + CloudSim.getEntityName(getForwardNodeId())
-				+ " with belief rate of " + beliefRate);
+		if (Log.isDebugEnabled()) {
+			Log.debug("{}: [{}] is sending ReadingData no. {} for Day {} with value of {} to {} with belief rate of {}",
+					CloudSim.clock(), this.getName(), currentReadingIndex, currentReadingDay, readingValue,
+					CloudSim.getEntityName(getForwardNodeId()), beliefRate);
+		}
 
 		//send data to Link Node
 		schedule(getForwardNodeId(), CloudSim.getMinTimeBetweenEvents(), CloudSimTags.IOT_LINK_RECEIVE_DATA_EVENT, reading);
@@ -244,15 +249,15 @@ public class SensorNode extends IoTNode {
 			}
 		}
 
-		if (currentReadingDay < configurations.ExperimentsConfigurations.EXP_NO_OF_DAYS) {
-			// schedule the next event for sending data 
-			scheduleNextReading();
+		if (currentReadingDay >= noOfDays) {
+			// no more events for sending data 
+			cancelPeriodic(readingTimer);
 		}
 	}
 
 	private double getNextReading() {
 		//double nextReading = readingsDataset.get(currentReadingIndex);
-		double nextReading = readingsDataset.get(currentReadingDay).get(currentReadingIndex);
+		double nextReading = readingsDataset.getValue(currentReadingDay, currentReadingIndex);
 
 //		if (currentReadingIndex < (24/(readingInterval/60/60))-1) {		//to get number of readings required for this day
 //			currentReadingIndex +=1;
@@ -264,9 +269,9 @@ public class SensorNode extends IoTNode {
 	}
 
 	private double getNextRealValue() {
-		double nextReading = realDataset.get(currentReadingDay).get(currentReadingIndex);
+		double nextReading = realDataset.getValue(currentReadingDay, currentReadingIndex);
 
-		if (currentReadingIndex < (24/(readingInterval/60/60))-1) {		//to get number of readings required for this day
+		if (currentReadingIndex < realDataset.getSlotsPerDay() - 1) {		//to get number of readings required for this day
 			currentReadingIndex +=1;
 		} else {	//reset the index to 0 t start a new day
 			currentReadingDay +=1;
@@ -275,17 +280,13 @@ public class SensorNode extends IoTNode {
 		return nextReading;
 	}
 
-	private void scheduleNextReading(){
-		schedule(this.getId(), this.getReadingInterval(), CloudSimTags.IOT_SENSOR_SEND_DATA_EVENT);
-	}
-
 	protected void processOtherEvent(SimEvent ev) {
 		if (ev == null) {
-			Log.printLine(getName() + ".processOtherEvent(): " + "Error - an event is null.");
+			Log.error("{}.processOtherEvent(): Error - an event is null.", getName());
 			return;
 		}
 
-		Log.printLine(getName() + ".processOtherEvent(): " + "Error - event unknown by this Sensor.");
+		Log.warn("{}.processOtherEvent(): Error - event unknown by this Sensor.", getName());
 	}
 
 	public SensorType getSensorType() {
@@ -312,14 +313,34 @@ public class SensorNode extends IoTNode {
 		this.readingsFile = readingsFile;
 	}
 
-	public Map<Integer, ArrayList<Double>> getReadingsDataset() {
+	public ReadingSeries getReadingsDataset() {
 		return readingsDataset;
 	}
 
-	public void setReadingsDataset(Map<Integer, ArrayList<Double>> readingsDataset) {
+	public void setReadingsDataset(ReadingSeries readingsDataset) {
 		this.readingsDataset = readingsDataset;
 	}
 
+	public ReadingSeries getRealDataset() {
+		return realDataset;
+	}
+
+	public void setRealDataset(ReadingSeries realDataset) {
+		this.realDataset = realDataset;
+	}
+
+	public int getDatasetStartDay() {
+		return datasetStartDay;
+	}
+
+	/**
+	 * Sets the day of the dataset file read as the first day of the experiment,
+	 * e.g. to resume a long run split in several experiments. To be set before the simulation starts.
+	 */
+	public void setDatasetStartDay(int datasetStartDay) {
+		this.datasetStartDay = datasetStartDay;
+	}
+
 	public int getCurrentReadingDay() {
 		return currentReadingDay;
 	}
@@ -339,4 +360,55 @@ public class SensorNode extends IoTNode {
 	public boolean isStrongSensor() {
 		return strongSensor;
 	}
+
+	/**
+	 * Saves the state the sensor changes while sending readings,
+	 * so that it can be simulated optimistically (see CloudSim.startOptimisticSimulation).
+	 */
+	@Override
+	public Object saveState() {
+		return new SensorState(this);
+	}
+
+	@Override
+	public void restoreState(Object state) {
+		((SensorState) state).restore(this);
+	}
+
+	@Override
+	public void discardState(Object state) {
+	}
+
+	/**
+	 * The state changed by the sensor while sending readings, saved for an optimistic simulation.
+	 */
+	private static class SensorState {
+		private final int currentReadingDay;
+		private final int currentReadingIndex;
+		private final double beliefRate;
+		private final int numSendData;
+		private final int patrolIndex;
+		private final Location location;
+		private final String forwardNodeName;
+
+		SensorState(SensorNode sensor) {
+			this.currentReadingDay = sensor.currentReadingDay;
+			this.currentReadingIndex = sensor.currentReadingIndex;
+			this.beliefRate = sensor.beliefRate;
+			this.numSendData = sensor.numSendData;
+			this.patrolIndex = sensor.patrolIndex;
+			this.location = sensor.location;
+			this.forwardNodeName = sensor.forwardNodeName;
+		}
+
+		void restore(SensorNode sensor) {
+			sensor.currentReadingDay = currentReadingDay;
+			sensor.currentReadingIndex = currentReadingIndex;
+			sensor.beliefRate = beliefRate;
+			sensor.numSendData = numSendData;
+			sensor.patrolIndex = patrolIndex;
+			sensor.location = location;
+			sensor.forwardNodeName = forwardNodeName;
+		}
+	}
 }
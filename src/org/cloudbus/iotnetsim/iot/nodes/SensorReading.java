@@ -1,5 +1,7 @@
 package org.cloudbus.iotnetsim.iot.nodes;
 
+import java.io.Serializable;
+
 /**
  * Title:        IoTNetSim Toolkit
  * Description:  Modelling and Simulation for End-to-End IoT Services & Networking 
@@ -25,7 +27,10 @@ package org.cloudbus.iotnetsim.iot.nodes;
  * 
  */
 
-public class SensorReading {
+public class SensorReading implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 	
 	private int sensorId;
 	private int readingDay;		//day number fo the experiment
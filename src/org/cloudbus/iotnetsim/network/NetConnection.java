@@ -1,5 +1,7 @@
 package org.cloudbus.iotnetsim.network;
 
+import java.io.Serializable;
+
 /**
  * Title:        IoTNetSim Toolkit
  * Description:  Modelling and Simulation for End-to-End IoT Services & Networking 
@@ -25,7 +27,10 @@ package org.cloudbus.iotnetsim.network;
  * 
  */
 
-public class NetConnection {
+public class NetConnection implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 	
 	private String connectionId;
 	private NetConnectionType connectionType;
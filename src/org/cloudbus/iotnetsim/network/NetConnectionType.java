@@ -1,5 +1,7 @@
 package org.cloudbus.iotnetsim.network;
 
+import java.io.Serializable;
+
 /**
  * Title:        IoTNetSim Toolkit
  * Description:  Modelling and Simulation for End-to-End IoT Services & Networking 
@@ -25,7 +27,10 @@ package org.cloudbus.iotnetsim.network;
  * 
  */
 
-public class NetConnectionType {
+public class NetConnectionType implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
 	
 	private String connectionTypeId;
 	private NetConnectionType connectionType;